@@ -13,6 +13,8 @@
 import org.h2.api.ErrorCode;
 import org.h2.command.ddl.DefineCommand;
 import org.h2.command.dml.DataChangeStatement;
+import org.h2.command.dml.Explain;
+import org.h2.command.query.Select;
 import org.h2.engine.Database;
 import org.h2.engine.DbObject;
 import org.h2.engine.DbSettings;
@@ -27,6 +29,7 @@
 import org.h2.result.ResultInterface;
 import org.h2.result.ResultTarget;
 import org.h2.result.ResultWithGeneratedKeys;
+import org.h2.table.CardinalityFeedback;
 import org.h2.table.Column;
 import org.h2.table.DataChangeDeltaTable.ResultOption;
 import org.h2.table.Table;
@@ -78,8 +81,10 @@ public void addRow(Value... values) {
     }
 
     private Prepared prepared;
+    private CardinalityFeedback cardinalityFeedback;
     private boolean readOnlyKnown;
     private boolean readOnly;
+    private SharedQueryCache.Key sharedKey;
 
     /**
      * Clears CTE views for a specified statement.
@@ -116,6 +121,18 @@ static void clearCTE(SessionLocal session, List<TableView> views) {
         this.prepared = prepared;
     }
 
+    Prepared getPrepared() {
+        return prepared;
+    }
+
+    SharedQueryCache.Key getSharedKey() {
+        return sharedKey;
+    }
+
+    void setSharedKey(SharedQueryCache.Key sharedKey) {
+        this.sharedKey = sharedKey;
+    }
+
     @Override
     public ArrayList<? extends ParameterInterface> getParameters() {
         return prepared.getParameters();
@@ -132,13 +149,16 @@ public boolean isQuery() {
     }
 
     private void recompileIfRequired() {
-        if (prepared.needRecompile()) {
+        if (prepared.needRecompile()
+                || cardinalityFeedback != null && cardinalityFeedback.isOptimizationRequired()) {
             // TODO test with 'always recompile'
             prepared.setModificationMetaId(0);
             String sql = prepared.getSQL();
             ArrayList<Parameter> oldParams = prepared.getParameters();
             Parser parser = new Parser(session);
             prepared = parser.parse(sql);
+            // session settings may be different now
+            sharedKey = null;
             long mod = prepared.getModificationMetaId();
             prepared.setModificationMetaId(0);
             ArrayList<Parameter> newParams = prepared.getParameters();
@@ -150,6 +170,13 @@ private void recompileIfRequired() {
                     p.setValue(v);
                 }
             }
+            if (cardinalityFeedback != null) {
+                Select select = getSelect();
+                if (select != null) {
+                    select.setCardinalityFeedback(cardinalityFeedback);
+                    cardinalityFeedback.optimized();
+                }
+            }
             prepared.prepare();
             prepared.setModificationMetaId(mod);
         }
@@ -246,6 +273,32 @@ private ResultWithGeneratedKeys executeUpdateWithGeneratedKeys(DataChangeStateme
                 statement.update(new GeneratedKeysCollector(indexes, result), ResultOption.FINAL), result);
     }
 
+    /**
+     * Returns the query whose plan may be corrected with cardinality feedback.
+     *
+     * @return the query, or {@code null}
+     */
+    private Select getSelect() {
+        Prepared p = prepared;
+        if (p instanceof Explain) {
+            if (p.getType() != CommandInterface.EXPLAIN_ANALYZE || session.isLazyQueryExecution()) {
+                return null;
+            }
+            p = ((Explain) p).getCommand();
+        }
+        return p instanceof Select ? (Select) p : null;
+    }
+
+    private void recordCardinalityFeedback() {
+        Select select = getSelect();
+        if (select != null) {
+            if (cardinalityFeedback == null) {
+                cardinalityFeedback = new CardinalityFeedback();
+            }
+            select.recordCardinalityFeedback(cardinalityFeedback);
+        }
+    }
+
     @Override
     public ResultInterface query(int maxrows) {
         recompileIfRequired();
@@ -253,6 +306,9 @@ public ResultInterface query(int maxrows) {
         start();
         prepared.checkParameters();
         ResultInterface result = prepared.query(maxrows);
+        if (!result.isLazy() && session.getDatabase().getSettings().optimizeCardinalityFeedback) {
+            recordCardinalityFeedback();
+        }
         prepared.trace(startTimeNanos, result.isLazy() ? 0 : result.getRowCount());
         setProgress(DatabaseEventListener.STATE_STATEMENT_END);
         return result;
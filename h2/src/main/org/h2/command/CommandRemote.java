@@ -6,6 +6,8 @@
 package org.h2.command;
 
 import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import org.h2.engine.Constants;
 import org.h2.engine.GeneratedKeysMode;
@@ -15,6 +17,7 @@
 import org.h2.expression.ParameterRemote;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
+import org.h2.result.MergedResult;
 import org.h2.result.ResultInterface;
 import org.h2.result.ResultRemote;
 import org.h2.result.ResultWithGeneratedKeys;
@@ -28,7 +31,7 @@
  * Represents the client-side part of a SQL statement.
  * This class is not used in embedded mode.
  */
-public class CommandRemote implements CommandInterface {
+public class CommandRemote implements CommandInterface, SessionRemote.PendingResponse {
 
     private final ArrayList<Transfer> transferList;
     private final ArrayList<ParameterInterface> parameters;
@@ -40,15 +43,31 @@ public class CommandRemote implements CommandInterface {
     private boolean isQuery;
     private int cmdType = UNKNOWN;
     private boolean readonly;
+    private boolean pending;
+    private DbException prepareError;
     private final int created;
 
-    public CommandRemote(SessionRemote session,
-            ArrayList<Transfer> transferList, String sql, int fetchSize) {
+    /**
+     * Creates a new client-side command.
+     *
+     * @param session the session
+     * @param transferList the transfer objects
+     * @param sql the SQL statement
+     * @param fetchSize the number of rows to fetch in one step
+     * @param pipelined whether the response to the preparation request should
+     *            be read together with the response to the next request
+     */
+    public CommandRemote(SessionRemote session, ArrayList<Transfer> transferList, String sql, int fetchSize,
+            boolean pipelined) {
         this.transferList = transferList;
         trace = session.getTrace();
         this.sql = sql;
         parameters = Utils.newSmallArrayList();
-        prepare(session, true);
+        if (pipelined) {
+            sendPrepare(session);
+        } else {
+            prepare(session, true);
+        }
         // set session late because prepare might fail - in this case we don't
         // need to close the object
         this.session = session;
@@ -64,52 +83,105 @@ public void stop() {
 
     private void prepare(SessionRemote s, boolean createParams) {
         id = s.getNextId();
+        pending = false;
+        prepareError = null;
         for (int i = 0, count = 0; i < transferList.size(); i++) {
             try {
                 Transfer transfer = transferList.get(i);
+                writePrepare(s, transfer, createParams);
+                s.done(transfer);
+                readPrepare(s, transfer, createParams);
+            } catch (IOException e) {
+                s.removeServer(e, i--, ++count);
+            }
+        }
+    }
 
-                boolean v16 = s.getClientVersion() >= Constants.TCP_PROTOCOL_VERSION_16;
+    private void sendPrepare(SessionRemote s) {
+        id = s.getNextId();
+        pending = true;
+        try {
+            writePrepare(s, transferList.get(0), true);
+            s.addPendingResponse(this);
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, sql);
+        }
+    }
 
-                if (createParams) {
-                    s.traceOperation(v16 ? "SESSION_PREPARE_READ_PARAMS2"
-                            : "SESSION_PREPARE_READ_PARAMS", id);
-                    transfer.writeInt(
-                            v16 ? SessionRemote.SESSION_PREPARE_READ_PARAMS2
-                                    : SessionRemote.SESSION_PREPARE_READ_PARAMS)
-                            .writeInt(id).writeString(sql);
-                } else {
-                    s.traceOperation("SESSION_PREPARE", id);
-                    transfer.writeInt(SessionRemote.SESSION_PREPARE).
-                        writeInt(id).writeString(sql);
-                }
-                s.done(transfer);
-                isQuery = transfer.readBoolean();
-                readonly = transfer.readBoolean();
+    private void writePrepare(SessionRemote s, Transfer transfer, boolean createParams) throws IOException {
+        s.readLargePendingResponses();
+        if (createParams) {
+            boolean v16 = s.getClientVersion() >= Constants.TCP_PROTOCOL_VERSION_16;
+            s.traceOperation(v16 ? "SESSION_PREPARE_READ_PARAMS2" : "SESSION_PREPARE_READ_PARAMS", id);
+            transfer.writeInt(v16 ? SessionRemote.SESSION_PREPARE_READ_PARAMS2
+                    : SessionRemote.SESSION_PREPARE_READ_PARAMS).writeInt(id).writeString(sql);
+        } else {
+            s.traceOperation("SESSION_PREPARE", id);
+            transfer.writeInt(SessionRemote.SESSION_PREPARE).writeInt(id).writeString(sql);
+        }
+    }
 
-                cmdType = v16 && createParams ? transfer.readInt() : UNKNOWN;
+    private void readPrepare(SessionRemote s, Transfer transfer, boolean createParams) throws IOException {
+        isQuery = transfer.readBoolean();
+        readonly = transfer.readBoolean();
+        boolean v16 = s.getClientVersion() >= Constants.TCP_PROTOCOL_VERSION_16;
+        cmdType = v16 && createParams ? transfer.readInt() : UNKNOWN;
+        int paramCount = transfer.readInt();
+        if (createParams) {
+            parameters.clear();
+            for (int j = 0; j < paramCount; j++) {
+                ParameterRemote p = new ParameterRemote(j);
+                p.readMetaData(transfer);
+                parameters.add(p);
+            }
+        }
+    }
 
-                int paramCount = transfer.readInt();
-                if (createParams) {
-                    parameters.clear();
-                    for (int j = 0; j < paramCount; j++) {
-                        ParameterRemote p = new ParameterRemote(j);
-                        p.readMetaData(transfer);
-                        parameters.add(p);
-                    }
+    /**
+     * Reads the response to the preparation request sent without waiting for
+     * it. Errors are remembered and thrown on subsequent usage of this
+     * command.
+     */
+    @Override
+    public void readResponse(SessionRemote s, Transfer transfer) throws IOException {
+        pending = false;
+        try {
+            s.readStatus(transfer);
+        } catch (DbException e) {
+            prepareError = e;
+            return;
+        }
+        readPrepare(s, transfer, true);
+    }
+
+    /**
+     * Reads the response to the preparation request if it wasn't read yet and
+     * throws the error of preparation, if any.
+     */
+    private void readPrepared() {
+        if (pending) {
+            synchronized (session) {
+                try {
+                    session.readPendingResponses(this);
+                } catch (IOException e) {
+                    throw DbException.convertIOException(e, sql);
                 }
-            } catch (IOException e) {
-                s.removeServer(e, i--, ++count);
             }
         }
+        if (prepareError != null) {
+            throw prepareError;
+        }
     }
 
     @Override
     public boolean isQuery() {
+        readPrepared();
         return isQuery;
     }
 
     @Override
     public ArrayList<ParameterInterface> getParameters() {
+        readPrepared();
         return parameters;
     }
 
@@ -128,6 +200,7 @@ private void prepareIfRequired() {
     @Override
     public ResultInterface getMetaData() {
         synchronized (session) {
+            readPrepared();
             if (!isQuery) {
                 return null;
             }
@@ -164,6 +237,8 @@ public ResultInterface executeQuery(int maxRows, boolean scrollable) {
                 prepareIfRequired();
                 Transfer transfer = transferList.get(i);
                 try {
+                    // parameters may not fit into buffers of the connection
+                    session.readLargePendingResponses();
                     session.traceOperation("COMMAND_EXECUTE_QUERY", id);
                     transfer.writeInt(SessionRemote.COMMAND_EXECUTE_QUERY).
                         writeInt(id).writeInt(objectId).writeInt(maxRows);
@@ -175,7 +250,7 @@ public ResultInterface executeQuery(int maxRows, boolean scrollable) {
                     }
                     transfer.writeInt(fetch);
                     sendParameters(transfer);
-                    session.done(transfer);
+                    done(transfer);
                     int columnCount = transfer.readInt();
                     if (result != null) {
                         result.close();
@@ -210,31 +285,14 @@ public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
                 prepareIfRequired();
                 Transfer transfer = transferList.get(i);
                 try {
+                    session.readLargePendingResponses();
                     session.traceOperation("COMMAND_EXECUTE_UPDATE", id);
                     transfer.writeInt(SessionRemote.COMMAND_EXECUTE_UPDATE).writeInt(id);
                     sendParameters(transfer);
                     if (supportsGeneratedKeys) {
-                        transfer.writeInt(generatedKeysMode);
-                        switch (generatedKeysMode) {
-                        case GeneratedKeysMode.COLUMN_NUMBERS: {
-                            int[] keys = (int[]) generatedKeysRequest;
-                            transfer.writeInt(keys.length);
-                            for (int key : keys) {
-                                transfer.writeInt(key);
-                            }
-                            break;
-                        }
-                        case GeneratedKeysMode.COLUMN_NAMES: {
-                            String[] keys = (String[]) generatedKeysRequest;
-                            transfer.writeInt(keys.length);
-                            for (String key : keys) {
-                                transfer.writeString(key);
-                            }
-                            break;
-                        }
-                        }
+                        sendGeneratedKeysRequest(transfer, generatedKeysMode, generatedKeysRequest);
                     }
-                    session.done(transfer);
+                    done(transfer);
                     updateCount = transfer.getVersion() >= Constants.TCP_PROTOCOL_VERSION_20 ? transfer.readLong()
                             : transfer.readInt();
                     autoCommit = transfer.readBoolean();
@@ -260,7 +318,122 @@ public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
         }
     }
 
+    /**
+     * Executes the command with every set of parameters of the batch. All sets
+     * are sent to the server in one request, the server executes them one by
+     * one and returns all update counts in one response.
+     *
+     * @param batchParameters the sets of parameters
+     * @param generatedKeysRequest the generated keys request
+     * @param errors the array to store exceptions of failed elements of the
+     *            batch to, must have the same length as the batch
+     * @param generatedKeys the result to add generated keys to
+     * @return the update counts, {@link Statement#EXECUTE_FAILED} for failed
+     *         elements of the batch
+     */
+    public long[] executeBatchUpdate(ArrayList<Value[]> batchParameters, Object generatedKeysRequest,
+            SQLException[] errors, MergedResult generatedKeys) {
+        int generatedKeysMode = GeneratedKeysMode.valueOf(generatedKeysRequest);
+        boolean readGeneratedKeys = generatedKeysMode != GeneratedKeysMode.NONE;
+        int objectId = readGeneratedKeys ? session.getNextId() : 0;
+        int size = batchParameters.size();
+        synchronized (session) {
+            long[] updateCounts = new long[size];
+            ResultRemote keys = null;
+            boolean autoCommit = false;
+            for (int i = 0, count = 0; i < transferList.size(); i++) {
+                prepareIfRequired();
+                Transfer transfer = transferList.get(i);
+                try {
+                    session.readLargePendingResponses();
+                    session.traceOperation("COMMAND_EXECUTE_BATCH", id);
+                    transfer.writeInt(SessionRemote.COMMAND_EXECUTE_BATCH).writeInt(id);
+                    sendGeneratedKeysRequest(transfer, generatedKeysMode, generatedKeysRequest);
+                    transfer.writeInt(size);
+                    for (Value[] set : batchParameters) {
+                        transfer.writeInt(set.length);
+                        for (Value v : set) {
+                            transfer.writeValue(v);
+                        }
+                    }
+                    done(transfer);
+                    for (int j = 0; j < size; j++) {
+                        if (transfer.readBoolean()) {
+                            updateCounts[j] = transfer.readLong();
+                            errors[j] = null;
+                        } else {
+                            updateCounts[j] = Statement.EXECUTE_FAILED;
+                            errors[j] = SessionRemote.readException(transfer);
+                        }
+                    }
+                    autoCommit = transfer.readBoolean();
+                    if (readGeneratedKeys) {
+                        int columnCount = transfer.readInt();
+                        if (keys != null) {
+                            keys.close();
+                            keys = null;
+                        }
+                        keys = new ResultRemote(session, transfer, objectId, columnCount, Integer.MAX_VALUE);
+                    }
+                } catch (IOException e) {
+                    session.removeServer(e, i--, ++count);
+                }
+            }
+            session.setAutoCommitFromServer(autoCommit);
+            session.autoCommitIfCluster();
+            session.readSessionState();
+            if (keys != null) {
+                generatedKeys.add(keys);
+                keys.close();
+            }
+            return updateCounts;
+        }
+    }
+
+    private static void sendGeneratedKeysRequest(Transfer transfer, int generatedKeysMode,
+            Object generatedKeysRequest) throws IOException {
+        transfer.writeInt(generatedKeysMode);
+        switch (generatedKeysMode) {
+        case GeneratedKeysMode.COLUMN_NUMBERS: {
+            int[] keys = (int[]) generatedKeysRequest;
+            transfer.writeInt(keys.length);
+            for (int key : keys) {
+                transfer.writeInt(key);
+            }
+            break;
+        }
+        case GeneratedKeysMode.COLUMN_NAMES: {
+            String[] keys = (String[]) generatedKeysRequest;
+            transfer.writeInt(keys.length);
+            for (String key : keys) {
+                transfer.writeString(key);
+            }
+            break;
+        }
+        }
+    }
+
+    private void done(Transfer transfer) throws IOException {
+        try {
+            session.done(transfer);
+        } catch (DbException e) {
+            if (prepareError != null) {
+                // the command wasn't prepared, the server rejected the
+                // request that was sent together with preparation
+                throw prepareError;
+            }
+            throw e;
+        }
+    }
+
     private void checkParameters() {
+        if (pending) {
+            // parameters aren't known yet, the server will check them
+            return;
+        }
+        if (prepareError != null) {
+            throw prepareError;
+        }
         if (cmdType != EXPLAIN) {
             for (ParameterInterface p : parameters) {
                 p.checkSet();
@@ -321,11 +494,12 @@ public void cancel() {
 
     @Override
     public String toString() {
-        return sql + Trace.formatParams(getParameters());
+        return sql + Trace.formatParams(parameters);
     }
 
     @Override
     public int getCommandType() {
+        // UNKNOWN until the response to the preparation request is read
         return cmdType;
     }
 
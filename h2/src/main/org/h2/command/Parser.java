@@ -109,6 +109,7 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -329,6 +330,7 @@
 import org.h2.schema.Sequence;
 import org.h2.schema.UserAggregate;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.DataChangeDeltaTable;
 import org.h2.table.DataChangeDeltaTable.ResultOption;
 import org.h2.table.DualTable;
@@ -848,6 +850,7 @@ public class Parser {
     private boolean recompileAlways;
     private boolean literalsChecked;
     private int orderInFrom;
+    private HashMap<TableView, Integer> cteReferences;
     private boolean parseDomainConstraint;
 
     /**
@@ -1543,6 +1546,44 @@ private IndexColumn[] parseIndexColumnList() {
         return columns.toArray(new IndexColumn[0]);
     }
 
+    private IndexColumn[] parseIndexColumnList(CreateIndex command) {
+        ArrayList<IndexColumn> columns = Utils.newSmallArrayList();
+        Expression[] expressions = null;
+        do {
+            String columnName = null;
+            Expression expression = null;
+            if (isIdentifier()) {
+                int start = lastParseIndex;
+                columnName = readColumnIdentifier();
+                if (isToken(OPEN_PAREN)) {
+                    // function call
+                    reread(start);
+                    expression = readExpression();
+                }
+            } else if (readIf(OPEN_PAREN)) {
+                expression = readExpression();
+                read(CLOSE_PAREN);
+            } else {
+                expression = readExpression();
+            }
+            if (expression != null) {
+                if (expressions == null) {
+                    expressions = new Expression[columns.size() + 1];
+                } else if (expressions.length <= columns.size()) {
+                    expressions = Arrays.copyOf(expressions, columns.size() + 1);
+                }
+                expressions[columns.size()] = expression;
+                columns.add(new IndexColumn(null, parseSortType()));
+            } else {
+                columns.add(new IndexColumn(columnName, parseSortType()));
+            }
+        } while (readIfMore());
+        if (expressions != null) {
+            command.setIndexExpressions(Arrays.copyOf(expressions, columns.size()));
+        }
+        return columns.toArray(new IndexColumn[0]);
+    }
+
     private int parseSortType() {
         int sortType = !readIf("ASC") && readIf("DESC") ? SortOrder.DESCENDING : SortOrder.ASCENDING;
         if (readIf("NULLS")) {
@@ -2203,6 +2244,9 @@ private TableFilter buildTableFilter(Table table, String alias, ArrayList<String
         if (alias == null && table.isView() && table.isTableExpression()) {
             alias = table.getName();
         }
+        if (cteReferences != null && table instanceof TableView && table.isTableExpression()) {
+            cteReferences.merge((TableView) table, 1, Integer::sum);
+        }
         TableFilter filter = new TableFilter(session, table, alias, rightsChecked,
                 currentSelect, orderInFrom++, indexHints);
         if (derivedColumnNames != null) {
@@ -5904,6 +5948,53 @@ private int readNonNegativeInt() {
         return v;
     }
 
+    private long readNonNegativeLong() {
+        long v = readLong();
+        if (v < 0) {
+            throw DbException.getInvalidValueException("non-negative long", v);
+        }
+        return v;
+    }
+
+    private ColumnStatistics readColumnStatistics(Column column) {
+        read(OPEN_PAREN);
+        long sampleRows = readPositiveLong();
+        read(COMMA);
+        long nullCount = readNonNegativeLong();
+        read(COMMA);
+        long distinctCount = readNonNegativeLong();
+        read(COMMA);
+        Value[] mostCommonValues = readColumnStatisticsValues(column);
+        read(COMMA);
+        read(OPEN_PAREN);
+        long[] mostCommonCounts = new long[mostCommonValues.length];
+        for (int i = 0; i < mostCommonCounts.length; i++) {
+            if (i > 0) {
+                read(COMMA);
+            }
+            mostCommonCounts[i] = readPositiveLong();
+        }
+        read(CLOSE_PAREN);
+        read(COMMA);
+        Value[] histogram = readColumnStatisticsValues(column);
+        read(CLOSE_PAREN);
+        return new ColumnStatistics(sampleRows, nullCount, distinctCount, mostCommonValues, mostCommonCounts,
+                histogram);
+    }
+
+    private Value[] readColumnStatisticsValues(Column column) {
+        read(OPEN_PAREN);
+        if (readIf(CLOSE_PAREN)) {
+            return Value.EMPTY_VALUES;
+        }
+        ArrayList<Value> list = Utils.newSmallArrayList();
+        TypeInfo type = column.getType();
+        do {
+            list.add(readExpression().optimize(session).getValue(session).convertTo(type, session));
+        } while (readIfMore());
+        return list.toArray(Value.EMPTY_VALUES);
+    }
+
     private int readInt() {
         boolean minus = false;
         if (currentTokenType == MINUS_SIGN) {
@@ -6879,6 +6970,9 @@ private Column parseColumnForTable(String columnName, boolean defaultNullable) {
         if (readIf("SELECTIVITY")) {
             column.setSelectivity(readNonNegativeInt());
         }
+        if (readIf("STATISTICS")) {
+            column.setStatistics(readColumnStatistics(column));
+        }
         if (database.getMode().getEnum() == ModeEnum.MySQL) {
             if (readIf("CHARACTER")) {
                 readIf(SET);
@@ -7599,7 +7693,7 @@ private Prepared parseCreate() {
             return parseCreateSynonym(orReplace);
         } else {
             boolean hash = false, primaryKey = false;
-            boolean unique = false, spatial = false;
+            boolean unique = false, spatial = false, bitmap = false;
             String indexName = null;
             Schema oldSchema = null;
             boolean ifNotExists = false;
@@ -7624,6 +7718,9 @@ private Prepared parseCreate() {
                 if (readIf("SPATIAL")) {
                     spatial = true;
                 }
+                if (!unique && !hash && !spatial && readIf("BITMAP")) {
+                    bitmap = true;
+                }
                 if (readIf("INDEX")) {
                     if (!isToken(ON)) {
                         ifNotExists = readIfNotExists();
@@ -7640,7 +7737,7 @@ private Prepared parseCreate() {
             String comment = readCommentIf();
             if (!readIf(OPEN_PAREN)) {
                 // PostgreSQL compatibility
-                if (hash || spatial) {
+                if (hash || spatial || bitmap) {
                     throw getSyntaxError();
                 }
                 read(USING);
@@ -7661,16 +7758,42 @@ private Prepared parseCreate() {
             command.setUnique(unique);
             command.setHash(hash);
             command.setSpatial(spatial);
+            command.setBitmap(bitmap);
             command.setIndexName(indexName);
             command.setComment(comment);
             IndexColumn[] columns;
             if (spatial) {
                 columns = new IndexColumn[] { new IndexColumn(readColumnIdentifier()) };
                 read(CLOSE_PAREN);
-            } else {
+            } else if (primaryKey) {
                 columns = parseIndexColumnList();
+            } else {
+                columns = parseIndexColumnList(command);
+                if (readIf("INCLUDE")) {
+                    read(OPEN_PAREN);
+                    ArrayList<IndexColumn> include = Utils.newSmallArrayList();
+                    do {
+                        include.add(new IndexColumn(readColumnIdentifier()));
+                    } while (readIfMore());
+                    command.setIncludeColumns(include.toArray(new IndexColumn[0]));
+                }
+                if (readIf(WHERE)) {
+                    command.setCondition(readExpression());
+                }
             }
             command.setIndexColumns(columns);
+            if (readIf("STATISTICS")) {
+                read(OPEN_PAREN);
+                ArrayList<Long> list = Utils.newSmallArrayList();
+                do {
+                    list.add(readNonNegativeLong());
+                } while (readIfMore());
+                long[] distinctCounts = new long[list.size()];
+                for (int i = 0; i < distinctCounts.length; i++) {
+                    distinctCounts[i] = list.get(i);
+                }
+                command.setDistinctCounts(distinctCounts);
+            }
             return command;
         }
     }
@@ -8116,6 +8239,9 @@ private Prepared parseWith() {
 
     private Prepared parseWith1(List<TableView> viewsCreated) {
         readIf("RECURSIVE");
+        if (cteReferences == null) {
+            cteReferences = new HashMap<>();
+        }
 
         // This WITH statement is not a temporary view - it is part of a persistent view
         // as in CREATE VIEW abc AS WITH my_cte - this auto detects that condition.
@@ -8181,6 +8307,9 @@ private Prepared parseWith1(List<TableView> viewsCreated) {
         if (isTemporary) {
             p.setCteCleanups(viewsCreated);
         }
+        for (TableView view : viewsCreated) {
+            view.setReferenceCount(cteReferences.getOrDefault(view, 0));
+        }
         return p;
     }
 
@@ -8243,8 +8372,15 @@ private TableView parseSingleCommonTableExpression(boolean isTemporary) {
                 isTemporary, session, cteViewName, schema, columns, database);
         List<Column> columnTemplateList;
         String[] querySQLOutput = new String[1];
+        Boolean materialized = null;
         try {
             read(AS);
+            if (readIf("MATERIALIZED")) {
+                materialized = true;
+            } else if (readIf(NOT)) {
+                read("MATERIALIZED");
+                materialized = false;
+            }
             read(OPEN_PAREN);
             Query withQuery = parseQuery();
             if (!isTemporary) {
@@ -8257,11 +8393,13 @@ private TableView parseSingleCommonTableExpression(boolean isTemporary) {
             TableView.destroyShadowTableForRecursiveExpression(isTemporary, session, recursiveTable);
         }
 
-        return createCTEView(cteViewName,
+        TableView view = createCTEView(cteViewName,
                 querySQLOutput[0], columnTemplateList,
                 true/* allowRecursiveQueryDetection */,
                 true/* add to session */,
                 isTemporary);
+        view.setMaterialized(materialized);
+        return view;
     }
 
     private TableView createCTEView(String cteViewName, String querySQL,
@@ -312,7 +312,8 @@ public void setPersistedObjectId(int i) {
     }
 
     /**
-     * Set the session for this statement.
+     * Set the session for this statement. If the session differs from the
+     * previous one, cached state of the previous session is discarded.
      *
      * @param currentSession the new session
      */
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.h2.command.dml.DataChangeStatement;
+import org.h2.engine.Database;
+import org.h2.engine.DbObject;
+import org.h2.engine.SessionLocal;
+import org.h2.engine.User;
+import org.h2.table.Table;
+import org.h2.table.TableType;
+import org.h2.util.TimeZoneProvider;
+
+/**
+ * A cache of prepared statements that is shared by all sessions of a
+ * database. Statements that are no longer used by a session are kept here, and
+ * another session that prepares the same SQL statement with the same settings
+ * takes them over instead of parsing and optimizing the statement again. Each
+ * statement is used by at most one session at a time.
+ */
+public final class SharedQueryCache {
+
+    /**
+     * The key of a cached statement: the SQL statement, and the session
+     * settings that may affect how it is parsed and optimized.
+     */
+    static final class Key {
+
+        private final String sql;
+        private final User user;
+        private final String schemaName;
+        private final String[] schemaSearchPath;
+        private final TimeZoneProvider timeZone;
+        private final BitSet nonKeywords;
+        private final boolean forceJoinOrder;
+        private final boolean variableBinary;
+        private final boolean oldInformationSchema;
+        private final int hash;
+
+        Key(SessionLocal session, String sql) {
+            this.sql = sql;
+            user = session.getUser();
+            schemaName = session.getCurrentSchemaName();
+            schemaSearchPath = session.getSchemaSearchPath();
+            timeZone = session.currentTimeZone();
+            nonKeywords = session.getNonKeywords();
+            forceJoinOrder = session.isForceJoinOrder();
+            variableBinary = session.isVariableBinary();
+            oldInformationSchema = session.isOldInformationSchema();
+            hash = sql.hashCode() * 31 + schemaName.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && sql.equals(other.sql) && user == other.user
+                    && schemaName.equals(other.schemaName)
+                    && Arrays.equals(schemaSearchPath, other.schemaSearchPath)
+                    && timeZone.equals(other.timeZone) && Objects.equals(nonKeywords, other.nonKeywords)
+                    && forceJoinOrder == other.forceJoinOrder && variableBinary == other.variableBinary
+                    && oldInformationSchema == other.oldInformationSchema;
+        }
+
+    }
+
+    private final Database database;
+
+    private final int maxSize;
+
+    /**
+     * The idle statements, the least recently used first.
+     */
+    private final LinkedHashMap<Key, ArrayDeque<Prepared>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int size;
+
+    private long modificationMetaId = -1;
+
+    public SharedQueryCache(Database database, int maxSize) {
+        this.database = database;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Take over a statement that was prepared by another session.
+     *
+     * @param session the session
+     * @param sql the SQL statement
+     * @return the command, or {@code null} if there is no matching statement
+     */
+    public Command get(SessionLocal session, String sql) {
+        if (!session.getLocalTempTables().isEmpty()) {
+            // names of local temporary tables may hide other tables
+            return null;
+        }
+        Key key = new Key(session, sql);
+        Prepared prepared;
+        synchronized (this) {
+            checkModificationMetaId();
+            ArrayDeque<Prepared> list = map.get(key);
+            if (list == null) {
+                return null;
+            }
+            prepared = list.poll();
+            if (list.isEmpty()) {
+                map.remove(key);
+            }
+            size--;
+        }
+        prepared.setSession(session);
+        CommandContainer command = new CommandContainer(session, sql, prepared);
+        command.setSharedKey(key);
+        command.reuse();
+        return command;
+    }
+
+    /**
+     * Mark a newly prepared command as a candidate for this cache, if it
+     * doesn't depend on the state of the session that prepared it.
+     *
+     * @param session the session that prepared the command
+     * @param sql the SQL statement
+     * @param command the command
+     */
+    public void register(SessionLocal session, String sql, Command command) {
+        if (command instanceof CommandContainer) {
+            CommandContainer container = (CommandContainer) command;
+            if (isShareable(container.getPrepared())) {
+                container.setSharedKey(new Key(session, sql));
+            }
+        }
+    }
+
+    /**
+     * Offer a command that is no longer used by its session to other sessions.
+     * The command must not be used by its session after this call.
+     *
+     * @param command the command
+     */
+    public void release(Command command) {
+        if (!(command instanceof CommandContainer) || !command.canReuse()) {
+            return;
+        }
+        CommandContainer container = (CommandContainer) command;
+        Key key = container.getSharedKey();
+        if (key == null) {
+            return;
+        }
+        Prepared prepared = container.getPrepared();
+        if (prepared.getCteCleanups() != null) {
+            return;
+        }
+        // drop cached results and the reference to the session
+        prepared.setSession(null);
+        synchronized (this) {
+            checkModificationMetaId();
+            if (prepared.getModificationMetaId() != modificationMetaId) {
+                return;
+            }
+            map.computeIfAbsent(key, k -> new ArrayDeque<>()).push(prepared);
+            if (++size > maxSize) {
+                Iterator<Map.Entry<Key, ArrayDeque<Prepared>>> i = map.entrySet().iterator();
+                ArrayDeque<Prepared> eldest = i.next().getValue();
+                eldest.pollLast();
+                if (eldest.isEmpty()) {
+                    i.remove();
+                }
+                size--;
+            }
+        }
+    }
+
+    private void checkModificationMetaId() {
+        long id = database.getModificationMetaId();
+        if (id != modificationMetaId) {
+            // all cached statements need to be compiled again
+            map.clear();
+            size = 0;
+            modificationMetaId = id;
+        }
+    }
+
+    private static boolean isShareable(Prepared prepared) {
+        if (!prepared.isCacheable() || prepared.getCteCleanups() != null) {
+            return false;
+        }
+        HashSet<DbObject> dependencies = new HashSet<>();
+        prepared.collectDependencies(dependencies);
+        if (prepared instanceof DataChangeStatement) {
+            dependencies.add(((DataChangeStatement) prepared).getTable());
+        }
+        for (DbObject object : dependencies) {
+            if (object instanceof Table) {
+                Table table = (Table) object;
+                // views and derived tables have indexes that are bound to a
+                // session, local temporary tables are visible in one session
+                if (table.getTableType() != TableType.TABLE
+                        || table.isTemporary() && !table.isGlobalTemporary()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
@@ -384,14 +384,16 @@ private static Index getIndex(Table t, IndexColumn[] cols, boolean unique) {
     }
 
     private static boolean canUseIndex(Index index, Table table, IndexColumn[] cols, boolean unique) {
+        int indexColumnCount = index.getKeyColumnCount();
         if (index.getTable() != table //
                 || (unique ? !index.getIndexType().isUnique() : index.getCreateSQL() == null) //
-                || index.getColumns().length != cols.length) {
+                || indexColumnCount != cols.length || index.getCondition() != null) {
             return false;
         }
         for (IndexColumn col : cols) {
             // all columns of the list must be part of the index
-            if (index.getColumnIndex(col.column) < 0) {
+            int idx = index.getColumnIndex(col.column);
+            if (idx < 0 || idx >= indexColumnCount) {
                 return false;
             }
         }
@@ -256,6 +256,8 @@ public long update() {
             }
             int value = newSelectivity.optimize(session).getValue(session).getInt();
             oldColumn.setSelectivity(value);
+            // Explicitly specified selectivity overrides collected statistics
+            oldColumn.setStatistics(null);
             db.updateMeta(session, table);
             break;
         }
@@ -459,11 +461,17 @@ private Table cloneTableStructure(Table table, Column[] columns, Database db,
         Table newTable = getSchema().createTable(data);
         newTable.setComment(table.getComment());
         String newTableSQL = newTable.getCreateSQLForMeta();
-        StringBuilder columnList = new StringBuilder();
+        StringBuilder columnList = new StringBuilder(), targetColumnList = new StringBuilder();
         for (Column nc : newColumns) {
+            if (nc.isGenerated()) {
+                // generated values are computed again on insertion
+                continue;
+            }
             if (columnList.length() > 0) {
                 columnList.append(", ");
+                targetColumnList.append(", ");
             }
+            nc.getSQL(targetColumnList, HasSQL.DEFAULT_SQL_FLAGS);
             switch (type) {
             case CommandInterface.ALTER_TABLE_ADD_COLUMN:
                 if (columnsToAdd != null && columnsToAdd.contains(nc)) {
@@ -555,12 +563,11 @@ private Table cloneTableStructure(Table table, Column[] columns, Database db,
         StringBuilder buff = new StringBuilder();
         buff.append("INSERT INTO ");
         newTable.getSQL(buff, HasSQL.DEFAULT_SQL_FLAGS);
-        buff.append(" SELECT ");
         if (columnList.length() == 0) {
             // special case: insert into test select * from
-            buff.append('*');
+            buff.append(" SELECT *");
         } else {
-            buff.append(columnList);
+            buff.append('(').append(targetColumnList).append(") SELECT ").append(columnList);
         }
         buff.append(" FROM ");
         table.getSQL(buff, HasSQL.DEFAULT_SQL_FLAGS);
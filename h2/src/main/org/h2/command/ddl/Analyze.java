@@ -5,20 +5,30 @@
  */
 package org.h2.command.ddl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.h2.command.CommandInterface;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Right;
 import org.h2.engine.SessionLocal;
 import org.h2.index.Cursor;
+import org.h2.index.Index;
+import org.h2.index.IndexType;
+import org.h2.mvstore.db.MVPrimaryIndex;
 import org.h2.result.Row;
 import org.h2.schema.Schema;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.Table;
 import org.h2.table.TableType;
 import org.h2.util.IntIntHashMap;
 import org.h2.value.DataType;
+import org.h2.value.TypeInfo;
 import org.h2.value.Value;
+import org.h2.value.ValueNull;
 
 /**
  * This class represents the statements
@@ -84,6 +94,7 @@ public long update() {
         session.commit(true);
         session.getUser().checkAdmin();
         Database db = session.getDatabase();
+        db.cancelBackgroundAnalyze(table);
         if (table != null) {
             analyzeTable(session, table, sampleRows, true);
         } else {
@@ -123,7 +134,15 @@ public static void analyzeTable(SessionLocal session, Table table, int sample, b
         if (columnCount == 0) {
             return;
         }
-        Cursor cursor = table.getScanIndex(session).find(session, null, null);
+        Index scanIndex = table.getScanIndex(session);
+        Cursor cursor;
+        if (sample > 0 && scanIndex instanceof MVPrimaryIndex
+                && scanIndex.getRowCountApproximation(session) > sample) {
+            // Read rows from the whole table instead of its first rows
+            cursor = ((MVPrimaryIndex) scanIndex).findSample(session, sample);
+        } else {
+            cursor = scanIndex.find(session, null, null);
+        }
         if (cursor.next()) {
             SelectivityData[] array = new SelectivityData[columnCount];
             for (int i = 0; i < columnCount; i++) {
@@ -132,6 +151,8 @@ public static void analyzeTable(SessionLocal session, Table table, int sample, b
                     array[i] = new SelectivityData();
                 }
             }
+            ArrayList<Row> sampleRows = new ArrayList<>();
+            long rowCount = 0;
             int rowNumber = 0;
             do {
                 Row row = cursor.get();
@@ -141,21 +162,281 @@ public static void analyzeTable(SessionLocal session, Table table, int sample, b
                         selectivity.add(row.getValue(i));
                     }
                 }
+                // Reservoir sampling
+                if (rowCount < Constants.STATISTICS_SAMPLE_ROWS) {
+                    sampleRows.add(row);
+                } else {
+                    long j = ThreadLocalRandom.current().nextLong(rowCount + 1);
+                    if (j < Constants.STATISTICS_SAMPLE_ROWS) {
+                        sampleRows.set((int) j, row);
+                    }
+                }
+                rowCount++;
             } while ((sample <= 0 || ++rowNumber < sample) && cursor.next());
+            long totalRows = Math.max(table.getRowCountApproximation(session), rowCount);
             for (int i = 0; i < columnCount; i++) {
                 SelectivityData selectivity = array[i];
                 if (selectivity != null) {
-                    columns[i].setSelectivity(selectivity.getSelectivity());
+                    Column column = columns[i];
+                    column.setSelectivity(selectivity.getSelectivity());
+                    column.setStatistics(hasStatistics(column.getType().getValueType())
+                            ? getColumnStatistics(session, sampleRows, i, totalRows) : null);
+                }
+            }
+            for (Index index : table.getIndexes()) {
+                if (setDistinctCounts(session, index, sampleRows, totalRows)) {
+                    session.getDatabase().updateMeta(session, index);
                 }
             }
         } else {
             for (int i = 0; i < columnCount; i++) {
                 columns[i].setSelectivity(0);
+                columns[i].setStatistics(null);
+            }
+            for (Index index : table.getIndexes()) {
+                if (index.getDistinctCounts() != null) {
+                    index.setDistinctCounts(null);
+                    session.getDatabase().updateMeta(session, index);
+                }
             }
         }
         session.getDatabase().updateMeta(session, table);
     }
 
+    private static boolean hasStatistics(int valueType) {
+        switch (valueType) {
+        case Value.BLOB:
+        case Value.CLOB:
+        case Value.JAVA_OBJECT:
+        case Value.GEOMETRY:
+        case Value.JSON:
+        case Value.ARRAY:
+        case Value.ROW:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Builds statistics of values of a column from sampled rows.
+     *
+     * @param session the session
+     * @param sampleRows the sampled rows
+     * @param columnId the column id
+     * @param totalRows the estimated total number of rows in the table
+     * @return the statistics
+     */
+    private static ColumnStatistics getColumnStatistics(SessionLocal session, ArrayList<Row> sampleRows,
+            int columnId, long totalRows) {
+        int sampleCount = sampleRows.size();
+        ArrayList<Value> list = new ArrayList<>(sampleCount);
+        for (Row row : sampleRows) {
+            Value v = row.getValue(columnId);
+            if (v != ValueNull.INSTANCE) {
+                list.add(v);
+            }
+        }
+        int n = list.size();
+        long nullCount = sampleCount - n;
+        Value[] values = list.toArray(Value.EMPTY_VALUES);
+        Arrays.sort(values, session::compareTypeSafe);
+        // Distinct values and their numbers of occurrences
+        int distinct = 0, singletons = 0;
+        int[] starts = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || session.compareTypeSafe(values[i - 1], values[i]) != 0) {
+                starts[distinct++] = i;
+            }
+        }
+        starts[distinct] = n;
+        for (int i = 0; i < distinct; i++) {
+            if (starts[i + 1] - starts[i] == 1) {
+                singletons++;
+            }
+        }
+        long distinctCount = estimateDistinctCount(n, distinct, singletons,
+                sampleCount > 0 ? totalRows * n / sampleCount : 0);
+        // The most common values
+        boolean[] common = new boolean[distinct];
+        int commonCount = 0;
+        if (distinct <= Constants.STATISTICS_MOST_COMMON_VALUES && distinctCount == distinct) {
+            for (int i = 0; i < distinct; i++) {
+                if (isShort(values[starts[i]])) {
+                    common[i] = true;
+                    commonCount++;
+                }
+            }
+        } else if (distinct > 0) {
+            Integer[] candidates = new Integer[distinct];
+            for (int i = 0; i < distinct; i++) {
+                candidates[i] = i;
+            }
+            Arrays.sort(candidates, (a, b) -> Integer.compare(starts[b + 1] - starts[b], starts[a + 1] - starts[a]));
+            double minCount = Math.max(1.25d * n / distinct, 2d);
+            for (int i = 0; i < distinct && commonCount < Constants.STATISTICS_MOST_COMMON_VALUES; i++) {
+                int c = candidates[i];
+                if (starts[c + 1] - starts[c] < minCount) {
+                    break;
+                }
+                if (isShort(values[starts[c]])) {
+                    common[c] = true;
+                    commonCount++;
+                }
+            }
+        }
+        Value[] mostCommonValues = new Value[commonCount];
+        long[] mostCommonCounts = new long[commonCount];
+        ArrayList<Value> rest = new ArrayList<>(n);
+        for (int i = 0, j = 0; i < distinct; i++) {
+            int start = starts[i], end = starts[i + 1];
+            if (common[i]) {
+                mostCommonValues[j] = values[start];
+                mostCommonCounts[j++] = end - start;
+            } else {
+                for (int k = start; k < end; k++) {
+                    rest.add(values[k]);
+                }
+            }
+        }
+        // Equi-depth histogram of remaining values
+        int m = rest.size();
+        Value[] histogram;
+        if (m == 0) {
+            histogram = Value.EMPTY_VALUES;
+        } else if (m == 1) {
+            histogram = new Value[] { truncate(rest.get(0)) };
+        } else {
+            int buckets = Math.min(Constants.STATISTICS_HISTOGRAM_BUCKETS, m - 1);
+            histogram = new Value[buckets + 1];
+            for (int i = 0; i <= buckets; i++) {
+                histogram[i] = truncate(rest.get((int) ((long) i * (m - 1) / buckets)));
+            }
+        }
+        return new ColumnStatistics(sampleCount, nullCount, distinctCount, mostCommonValues, mostCommonCounts,
+                histogram);
+    }
+
+    /**
+     * Estimates numbers of distinct combinations of values of leading columns
+     * of the specified index from sampled rows.
+     *
+     * @param session the session
+     * @param index the index
+     * @param sampleRows the sampled rows
+     * @param totalRows the estimated total number of rows in the table
+     * @return whether the estimated numbers were changed
+     */
+    private static boolean setDistinctCounts(SessionLocal session, Index index, ArrayList<Row> sampleRows,
+            long totalRows) {
+        IndexType indexType = index.getIndexType();
+        Column[] indexColumns = index.getColumns();
+        int length = indexColumns.length;
+        long[] distinctCounts = null;
+        if (length > 1 && !indexType.isScan() && !indexType.isSpatial()) {
+            int[] columnIds = new int[length];
+            for (int i = 0; i < length; i++) {
+                Column column = indexColumns[i];
+                if (!hasStatistics(column.getType().getValueType())) {
+                    length = i;
+                    break;
+                }
+                columnIds[i] = column.getColumnId();
+            }
+            if (length > 1) {
+                int n = sampleRows.size();
+                Row[] rows = new Row[n];
+                for (int i = 0; i < n; i++) {
+                    rows[i] = index.getRowWithExpressions(session, sampleRows.get(i));
+                }
+                int[] ids = columnIds;
+                int l = length;
+                Arrays.sort(rows, (a, b) -> {
+                    for (int i = 0; i < l; i++) {
+                        int c = session.compare(a.getValue(ids[i]), b.getValue(ids[i]));
+                        if (c != 0) {
+                            return c;
+                        }
+                    }
+                    return 0;
+                });
+                distinctCounts = new long[length];
+                for (int k = 0; k < length; k++) {
+                    int distinct = 0, singletons = 0, run = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (i > 0 && samePrefix(session, rows[i - 1], rows[i], ids, k + 1)) {
+                            run++;
+                        } else {
+                            if (run == 1) {
+                                singletons++;
+                            }
+                            distinct++;
+                            run = 1;
+                        }
+                    }
+                    if (run == 1) {
+                        singletons++;
+                    }
+                    distinctCounts[k] = estimateDistinctCount(n, distinct, singletons, totalRows);
+                }
+            }
+        }
+        if (Arrays.equals(distinctCounts, index.getDistinctCounts())) {
+            return false;
+        }
+        index.setDistinctCounts(distinctCounts);
+        return true;
+    }
+
+    private static boolean samePrefix(SessionLocal session, Row a, Row b, int[] ids, int length) {
+        for (int i = 0; i < length; i++) {
+            if (session.compare(a.getValue(ids[i]), b.getValue(ids[i])) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the number of distinct values in the table from a sample with
+     * the Duj1 estimator of Haas and Stokes.
+     *
+     * @param n the number of sampled values
+     * @param distinct the number of distinct values in the sample
+     * @param singletons the number of values that occur in the sample only
+     *            once
+     * @param total the estimated total number of values
+     * @return the estimated number of distinct values
+     */
+    private static long estimateDistinctCount(long n, long distinct, long singletons, long total) {
+        if (n >= total || singletons == 0) {
+            return distinct;
+        }
+        double d = n * (double) distinct / (n - singletons + singletons * (double) n / total);
+        return Math.max(Math.min((long) d, total), distinct);
+    }
+
+    private static boolean isShort(Value v) {
+        switch (v.getValueType()) {
+        case Value.CHAR:
+        case Value.VARCHAR:
+        case Value.VARCHAR_IGNORECASE:
+        case Value.BINARY:
+        case Value.VARBINARY:
+            return v.getType().getPrecision() <= Constants.STATISTICS_MAX_VALUE_LENGTH;
+        default:
+            return true;
+        }
+    }
+
+    private static Value truncate(Value v) {
+        if (isShort(v)) {
+            return v;
+        }
+        return v.castTo(TypeInfo.getTypeInfo(v.getValueType(), Constants.STATISTICS_MAX_VALUE_LENGTH, -1, null),
+                null);
+    }
+
     public void setTop(int top) {
         this.sampleRows = top;
     }
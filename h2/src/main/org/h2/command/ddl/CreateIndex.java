@@ -5,17 +5,27 @@
  */
 package org.h2.command.ddl;
 
+import java.util.Arrays;
+
 import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Right;
 import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.ExpressionVisitor;
+import org.h2.index.Index;
 import org.h2.index.IndexType;
+import org.h2.index.PartialIndexCondition;
 import org.h2.message.DbException;
 import org.h2.schema.Schema;
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.value.DataType;
+import org.h2.value.TypeInfo;
 
 /**
  * This class represents the statement
@@ -26,10 +36,14 @@ public class CreateIndex extends SchemaCommand {
     private String tableName;
     private String indexName;
     private IndexColumn[] indexColumns;
-    private boolean primaryKey, unique, hash, spatial;
+    private Expression[] indexExpressions;
+    private IndexColumn[] includeColumns;
+    private Expression condition;
+    private boolean primaryKey, unique, hash, spatial, bitmap;
     private boolean ifTableExists;
     private boolean ifNotExists;
     private String comment;
+    private long[] distinctCounts;
 
     public CreateIndex(SessionLocal session, Schema schema) {
         super(session, schema);
@@ -55,6 +69,25 @@ public void setIndexColumns(IndexColumn[] columns) {
         this.indexColumns = columns;
     }
 
+    /**
+     * Set the expressions of the index.
+     *
+     * @param indexExpressions
+     *            the expressions, aligned with the index columns, with
+     *            {@code null} elements for plain columns
+     */
+    public void setIndexExpressions(Expression[] indexExpressions) {
+        this.indexExpressions = indexExpressions;
+    }
+
+    public void setIncludeColumns(IndexColumn[] includeColumns) {
+        this.includeColumns = includeColumns;
+    }
+
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
     @Override
     public long update() {
         if (!transactional) {
@@ -76,6 +109,9 @@ public long update() {
             throw DbException.get(ErrorCode.INDEX_ALREADY_EXISTS_1, indexName);
         }
         session.getUser().checkRight(table, Right.ALL);
+        if (bitmap && (indexColumns.length != 1 || includeColumns != null)) {
+            throw DbException.getUnsupportedException("bitmap indexes may index only one column");
+        }
         table.lock(session, true, true);
         if (!table.isPersistIndexes()) {
             persistent = false;
@@ -98,15 +134,83 @@ public long update() {
             indexType = IndexType.createPrimaryKey(persistent, hash);
         } else if (unique) {
             indexType = IndexType.createUnique(persistent, hash);
+        } else if (bitmap) {
+            indexType = IndexType.createBitmap(persistent);
         } else {
             indexType = IndexType.createNonUnique(persistent, hash, spatial);
         }
-        IndexColumn.mapColumns(indexColumns, table);
-        table.addIndex(session, indexName, id, indexColumns, indexType, create,
-                comment);
+        IndexColumn[] columns = indexExpressions != null ? getExpressionColumns(table) : indexColumns;
+        IndexColumn.mapColumns(columns, table);
+        int keyCount = columns.length;
+        if (includeColumns != null) {
+            IndexColumn.mapColumns(includeColumns, table);
+            columns = Arrays.copyOf(columns, keyCount + includeColumns.length);
+            for (int i = 0; i < includeColumns.length; i++) {
+                IndexColumn c = includeColumns[i];
+                for (int j = 0; j < keyCount + i; j++) {
+                    if (columns[j].column == c.column) {
+                        throw DbException.get(ErrorCode.DUPLICATE_COLUMN_NAME_1, c.columnName);
+                    }
+                }
+                columns[keyCount + i] = c;
+            }
+        }
+        PartialIndexCondition partialCondition = condition != null
+                ? new PartialIndexCondition(session, table, condition) : null;
+        Index index = table.addIndex(session, indexName, id, columns, keyCount, indexType, create,
+                comment, partialCondition);
+        if (distinctCounts != null) {
+            index.setDistinctCounts(distinctCounts);
+        }
         return 0;
     }
 
+    /**
+     * Returns index columns with columns of index expressions in place of
+     * expressions.
+     *
+     * @param table
+     *            the table
+     * @return the index columns
+     */
+    private IndexColumn[] getExpressionColumns(Table table) {
+        if (bitmap || !table.isMVStore()) {
+            throw DbException.getUnsupportedException("Index on expression");
+        }
+        IndexColumn[] columns = indexColumns.clone();
+        for (int i = 0, l = indexExpressions.length; i < l; i++) {
+            Expression e = indexExpressions[i];
+            if (e == null) {
+                continue;
+            }
+            e.mapColumns(new TableFilter(session, table, null, false, null, 0, null), 0, Expression.MAP_INITIAL);
+            e = e.optimize(session);
+            IndexColumn column;
+            if (e instanceof ExpressionColumn) {
+                column = new IndexColumn(((ExpressionColumn) e).getColumn().getName());
+            } else {
+                if (e.isConstant()) {
+                    throw DbException.getUnsupportedException("Constant expression in index");
+                }
+                if (!e.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)) {
+                    throw DbException.getUnsupportedException("Non-deterministic expression in index");
+                }
+                if (PartialIndexCondition.hasSubquery(e)) {
+                    throw DbException.getUnsupportedException("Subquery in index");
+                }
+                TypeInfo type = e.getType();
+                if (!DataType.isIndexable(type)) {
+                    throw DbException.getUnsupportedException(
+                            "Index on expression of type " + type.getTraceSQL());
+                }
+                column = new IndexColumn(table.getIndexExpressionColumn(session, e));
+            }
+            column.sortType = indexColumns[i].sortType;
+            columns[i] = column;
+        }
+        return columns;
+    }
+
     public void setPrimaryKey(boolean b) {
         this.primaryKey = b;
     }
@@ -123,10 +227,22 @@ public void setSpatial(boolean b) {
         this.spatial = b;
     }
 
+    public void setBitmap(boolean b) {
+        this.bitmap = b;
+    }
+
     public void setComment(String comment) {
         this.comment = comment;
     }
 
+    public void setDistinctCounts(long[] distinctCounts) {
+        this.distinctCounts = distinctCounts;
+    }
+
+    public long[] getDistinctCounts() {
+        return distinctCounts;
+    }
+
     @Override
     public int getType() {
         return CommandInterface.CREATE_INDEX;
@@ -110,6 +110,14 @@ public void setQuery(Query query) {
         this.query = query;
     }
 
+    @Override
+    public void setSession(SessionLocal currentSession) {
+        super.setSession(currentSession);
+        if (query != null) {
+            query.setSession(currentSession);
+        }
+    }
+
     public void setOverridingSystem(Boolean overridingSystem) {
         this.overridingSystem = overridingSystem;
     }
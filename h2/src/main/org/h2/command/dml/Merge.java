@@ -83,6 +83,17 @@ public void setQuery(Query query) {
         this.query = query;
     }
 
+    @Override
+    public void setSession(SessionLocal currentSession) {
+        super.setSession(currentSession);
+        if (query != null) {
+            query.setSession(currentSession);
+        }
+        if (update != null) {
+            update.setSession(currentSession);
+        }
+    }
+
     @Override
     public long update(ResultTarget deltaChangeCollector, ResultOption deltaChangeCollectionMode) {
         long count = 0;
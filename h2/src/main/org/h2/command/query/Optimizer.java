@@ -5,6 +5,7 @@
  */
 package org.h2.command.query;
 
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Random;
 import org.h2.engine.SessionLocal;
@@ -21,6 +22,7 @@
 class Optimizer {
 
     private static final int MAX_BRUTE_FORCE_FILTERS = 7;
+    private static final int MAX_DYNAMIC_PROGRAMMING_FILTERS = 12;
     private static final int MAX_BRUTE_FORCE = 2000;
     private static final int MAX_GENETIC = 500;
     private long startNs;
@@ -85,8 +87,10 @@ private void calculateBestPlan() {
                 calculateBruteForceAll();
             } else {
                 calculateBruteForceSome();
-                random = new Random(0);
-                calculateGenetic();
+                if (filters.length > MAX_DYNAMIC_PROGRAMMING_FILTERS || !calculateDynamicProgramming()) {
+                    random = new Random(0);
+                    calculateGenetic();
+                }
             }
         }
     }
@@ -150,6 +154,56 @@ private void calculateBruteForceSome() {
         }
     }
 
+    /**
+     * Find the best join order using dynamic programming. The best order of
+     * each subset of filters is extended by each remaining filter, the cost of
+     * a plan depends only on the set of already joined filters, but not on
+     * their order. Partial plans that are not cheaper than the best known
+     * complete plan are not extended.
+     *
+     * @return {@code true} if all subsets were processed, {@code false} if
+     *         the calculation was stopped due to the time limit
+     */
+    private boolean calculateDynamicProgramming() {
+        int count = filters.length, full = (1 << count) - 1;
+        TableFilter[][] bestOrders = new TableFilter[full + 1][];
+        double[] bestCosts = new double[full + 1];
+        for (int i = 0; i < count; i++) {
+            TableFilter[] list = { filters[i] };
+            bestOrders[1 << i] = list;
+            bestCosts[1 << i] = new Plan(list, 1, condition).calculateCost(session, allColumnsSet);
+        }
+        // Each subset is processed after all its own subsets
+        for (int set = 1, x = 0; set < full; set++) {
+            TableFilter[] order = bestOrders[set];
+            if (order == null || cost >= 0 && bestCosts[set] >= cost) {
+                continue;
+            }
+            if (canStop(++x)) {
+                return false;
+            }
+            int length = order.length;
+            TableFilter[] list = Arrays.copyOf(order, length + 1);
+            for (int i = 0; i < count; i++) {
+                int bit = 1 << i;
+                if ((set & bit) != 0) {
+                    continue;
+                }
+                list[length] = filters[i];
+                double costNow = new Plan(list, length + 1, condition).calculateCost(session, allColumnsSet);
+                int next = set | bit;
+                if (bestOrders[next] == null || costNow < bestCosts[next]) {
+                    bestOrders[next] = list.clone();
+                    bestCosts[next] = costNow;
+                }
+            }
+        }
+        if (bestOrders[full] != null) {
+            testPlan(bestOrders[full]);
+        }
+        return true;
+    }
+
     private void calculateGenetic() {
         TableFilter[] best = new TableFilter[filters.length];
         TableFilter[] list = new TableFilter[filters.length];
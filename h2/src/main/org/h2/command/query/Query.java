@@ -154,6 +154,16 @@ static final class OffsetFetch {
         super(session);
     }
 
+    @Override
+    public void setSession(SessionLocal currentSession) {
+        if (currentSession != session) {
+            // the last result may contain uncommitted rows of another session
+            lastResult = null;
+            lastParameters = null;
+        }
+        super.setSession(currentSession);
+    }
+
     public void setNeverLazy(boolean b) {
         this.neverLazy = b;
     }
@@ -888,6 +898,36 @@ OffsetFetch getOffsetFetch(int maxRows) {
      * @return the result or null
      */
     LocalResult finishResult(LocalResult result, long offset, int fetch, boolean fetchPercent, ResultTarget target) {
+        setLimits(result, offset, fetch, fetchPercent);
+        result.done();
+        if (randomAccessResult && !distinct) {
+            result = convertToDistinct(result);
+        }
+        if (target != null) {
+            while (result.next()) {
+                target.addRow(result.currentRow());
+            }
+            result.close();
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Passes OFFSET and FETCH values to a result. This method may be invoked
+     * before rows are added to the result to allow it to keep only the top
+     * rows in the sort order.
+     *
+     * @param result
+     *            the result
+     * @param offset
+     *            OFFSET value
+     * @param fetch
+     *            FETCH value
+     * @param fetchPercent
+     *            whether FETCH value is a PERCENT value
+     */
+    void setLimits(LocalResult result, long offset, int fetch, boolean fetchPercent) {
         if (offset != 0) {
             if (offset > Integer.MAX_VALUE) {
                 throw DbException.getInvalidValueException("OFFSET", offset);
@@ -901,18 +941,6 @@ LocalResult finishResult(LocalResult result, long offset, int fetch, boolean fet
                 result.setWithTies(sort);
             }
         }
-        result.done();
-        if (randomAccessResult && !distinct) {
-            result = convertToDistinct(result);
-        }
-        if (target != null) {
-            while (result.next()) {
-                target.addRow(result.currentRow());
-            }
-            result.close();
-            return null;
-        }
-        return result;
     }
 
     /**
@@ -33,10 +33,13 @@
 import org.h2.expression.analysis.Window;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
+import org.h2.expression.condition.ConditionAndOrN;
 import org.h2.expression.condition.ConditionLocalAndGlobal;
+import org.h2.expression.condition.NullPredicate;
 import org.h2.expression.function.CoalesceFunction;
 import org.h2.index.Cursor;
 import org.h2.index.Index;
+import org.h2.index.IndexType;
 import org.h2.index.ViewIndex;
 import org.h2.message.DbException;
 import org.h2.mode.DefaultNullOrdering;
@@ -47,6 +50,7 @@
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
+import org.h2.table.CardinalityFeedback;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
 import org.h2.table.IndexColumn;
@@ -154,8 +158,31 @@ public class Select extends Query {
 
     private boolean isGroupWindowStage2;
 
+    /**
+     * Window functions and window aggregates of this query.
+     */
+    private ArrayList<DataAnalysisOperation> windowOperations;
+
+    private boolean isWindowSortedQuery;
+
+    private long windowSortedRowId;
+
     private HashMap<String, Window> windows;
 
+    /**
+     * Actual numbers of rows from previous executions of the command, or
+     * {@code null}.
+     */
+    private CardinalityFeedback cardinalityFeedback;
+
+    /**
+     * The select list and the condition of this subquery of EXISTS predicate
+     * before its conversion to a subquery of a semi-join, or {@code null}.
+     */
+    private Expression[] originalExpressions;
+
+    private Expression originalCondition;
+
     public Select(SessionLocal session, Select parentSelect) {
         super(session);
         this.parentSelect = parentSelect;
@@ -166,6 +193,15 @@ public boolean isUnion() {
         return false;
     }
 
+    @Override
+    public void setSession(SessionLocal currentSession) {
+        if (currentSession != session) {
+            // groups evaluate expressions in the session they were created for
+            groupData = null;
+        }
+        super.setSession(currentSession);
+    }
+
     /**
      * Add a table to the query.
      *
@@ -225,6 +261,24 @@ public void setWindowQuery() {
         isWindowQuery = true;
     }
 
+    /**
+     * Registers a window function or a window aggregate of this query.
+     *
+     * @param operation the window function or window aggregate
+     */
+    public void addWindowOperation(DataAnalysisOperation operation) {
+        if (windowOperations == null) {
+            windowOperations = Utils.newSmallArrayList();
+        } else {
+            for (DataAnalysisOperation o : windowOperations) {
+                if (o == operation) {
+                    return;
+                }
+            }
+        }
+        windowOperations.add(operation);
+    }
+
     public void setGroupBy(ArrayList<Expression> group) {
         this.group = group;
     }
@@ -311,6 +365,135 @@ public Expression getCondition() {
         return condition;
     }
 
+    /**
+     * Converts this subquery of EXISTS predicate to a subquery of a semi-join
+     * if possible. The WHERE clause of this subquery must contain equality
+     * comparisons between columns of this subquery and qualified columns of
+     * outer queries, other conditions may not reference outer queries. These
+     * comparisons are removed from the WHERE clause, the compared columns of
+     * this subquery become its select list, and NULL values in them are
+     * excluded. This method must be invoked after {@link #init()} and after
+     * mapping of columns, but before {@link #prepare()}. The original select
+     * list and condition are still used in SQL without plan information.
+     *
+     * @return the compared columns of outer queries, or {@code null} if this
+     *         subquery can't be converted
+     */
+    public Expression[] convertToSemiJoin() {
+        if (!checkInit || isPrepared || condition == null || parentSelect == null || isGroupQuery
+                || isWindowQuery || qualifyIndex >= 0 || isForUpdate || distinctExpressions != null
+                || offsetExpr != null || fetchExpr != null) {
+            return null;
+        }
+        ArrayList<Expression> conditions = Utils.newSmallArrayList();
+        addConjuncts(conditions, condition);
+        ArrayList<Expression> inner = Utils.newSmallArrayList(), outer = Utils.newSmallArrayList();
+        Expression rest = null;
+        for (Expression c : conditions) {
+            if (c instanceof Comparison && ((Comparison) c).getCompareType() == Comparison.EQUAL) {
+                Expression left = c.getSubexpression(0), right = c.getSubexpression(1);
+                if (isInnerColumn(left) && isOuterColumn(right)) {
+                    inner.add(left);
+                    outer.add(right);
+                    continue;
+                } else if (isInnerColumn(right) && isOuterColumn(left)) {
+                    inner.add(right);
+                    outer.add(left);
+                    continue;
+                }
+            }
+            if (!c.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR) || referencesOuterColumns(c)) {
+                return null;
+            }
+            rest = rest == null ? c : new ConditionAndOr(ConditionAndOr.AND, rest, c);
+        }
+        if (inner.isEmpty()) {
+            return null;
+        }
+        for (Expression e : inner) {
+            NullPredicate notNull = new NullPredicate(e, true, false);
+            rest = rest == null ? notNull : new ConditionAndOr(ConditionAndOr.AND, rest, notNull);
+        }
+        originalExpressions = expressions.subList(0, visibleColumnCount).toArray(new Expression[0]);
+        originalCondition = condition;
+        condition = rest;
+        expressions = inner;
+        visibleColumnCount = resultColumnCount = inner.size();
+        orderList = null;
+        sort = null;
+        return outer.toArray(new Expression[0]);
+    }
+
+    private static void addConjuncts(ArrayList<Expression> conditions, Expression condition) {
+        if (condition instanceof ConditionAndOr && ((ConditionAndOr) condition).getAndOrType() == ConditionAndOr.AND
+                || condition instanceof ConditionAndOrN
+                        && ((ConditionAndOrN) condition).getAndOrType() == ConditionAndOr.AND) {
+            for (int i = 0, l = condition.getSubexpressionCount(); i < l; i++) {
+                addConjuncts(conditions, condition.getSubexpression(i));
+            }
+        } else {
+            conditions.add(condition);
+        }
+    }
+
+    private boolean referencesOuterColumns(Expression expression) {
+        if (expression instanceof ExpressionColumn) {
+            return !isInnerColumn(expression);
+        }
+        for (int i = 0, l = expression.getSubexpressionCount(); i < l; i++) {
+            if (referencesOuterColumns(expression.getSubexpression(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the specified expression is a not yet mapped column that
+     * can be mapped only to a table of this query.
+     */
+    private boolean isInnerColumn(Expression expression) {
+        if (!(expression instanceof ExpressionColumn)) {
+            return false;
+        }
+        ExpressionColumn c = (ExpressionColumn) expression;
+        if (c.getOriginalSchemaName() != null) {
+            return false;
+        }
+        String alias = c.getOriginalTableAliasName(), columnName = c.getOriginalColumnName();
+        Database db = session.getDatabase();
+        for (TableFilter f : filters) {
+            if ((alias == null || db.equalsIdentifiers(alias, f.getTableAlias())) && f.findColumn(columnName) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the specified expression is a not yet mapped qualified
+     * column that can be mapped only to a table of an outer query.
+     */
+    private boolean isOuterColumn(Expression expression) {
+        if (!(expression instanceof ExpressionColumn)) {
+            return false;
+        }
+        ExpressionColumn c = (ExpressionColumn) expression;
+        String alias = c.getOriginalTableAliasName();
+        if (alias == null || c.getOriginalSchemaName() != null) {
+            return false;
+        }
+        Database db = session.getDatabase();
+        for (Select s = this; s != null; s = s.parentSelect) {
+            for (TableFilter f : s.filters) {
+                if (db.equalsIdentifiers(alias, f.getTableAlias())) {
+                    return s != this && f.findColumn(c.getOriginalColumnName()) != null;
+                }
+            }
+        }
+        return false;
+    }
+
     private LazyResult queryGroupSorted(int columnCount, ResultTarget result, long offset, boolean quickOffset) {
         LazyResultGroupSorted lazyResult = new LazyResultGroupSorted(expressionArray, columnCount);
         skipOffset(lazyResult, offset, quickOffset);
@@ -368,10 +551,14 @@ private Index getGroupSortedIndex() {
                 if (index.getIndexType().isScan()) {
                     continue;
                 }
-                if (index.getIndexType().isHash()) {
+                if (index.getIndexType().isHash() || index.getIndexType().isBitmap()) {
                     // does not allow scanning entries
                     continue;
                 }
+                if (index.getCondition() != null) {
+                    // does not contain all rows
+                    continue;
+                }
                 if (isGroupSortedIndex(topTableFilter, index)) {
                     return index;
                 }
@@ -384,7 +571,7 @@ private boolean isGroupSortedIndex(TableFilter tableFilter, Index index) {
         // check that all the GROUP BY expressions are part of the index
         Column[] indexColumns = index.getColumns();
         // also check that the first columns in the index are grouped
-        boolean[] grouped = new boolean[indexColumns.length];
+        boolean[] grouped = new boolean[index.getKeyColumnCount()];
         outerLoop:
         for (int i = 0, size = expressions.size(); i < size; i++) {
             if (!groupByExpression[i]) {
@@ -395,7 +582,7 @@ private boolean isGroupSortedIndex(TableFilter tableFilter, Index index) {
                 return false;
             }
             ExpressionColumn exprCol = (ExpressionColumn) expr;
-            for (int j = 0; j < indexColumns.length; ++j) {
+            for (int j = 0; j < grouped.length; ++j) {
                 if (tableFilter == exprCol.getTableFilter()) {
                     if (indexColumns[j].equals(exprCol.getColumn())) {
                         grouped[j] = true;
@@ -418,6 +605,111 @@ private boolean isGroupSortedIndex(TableFilter tableFilter, Index index) {
         return true;
     }
 
+    private Index getWindowSortedIndex() {
+        if (filters.size() != 1 || topTableFilter.getJoin() != null || topTableFilter.getNestedJoin() != null
+                || windowOperations == null) {
+            return null;
+        }
+        for (DataAnalysisOperation operation : windowOperations) {
+            if (!operation.isStreamable()) {
+                return null;
+            }
+        }
+        Index current = topTableFilter.getIndex();
+        if (current == null) {
+            return null;
+        }
+        if (isWindowSortedIndex(current)) {
+            if (topTableFilter.hasInComparisons()) {
+                // in(select ...) and in(1,2,3) may return the key in
+                // another order
+                return null;
+            }
+            return current;
+        }
+        if (!current.getIndexType().isScan() || sortUsingIndex) {
+            return null;
+        }
+        ArrayList<Index> indexes = topTableFilter.getTable().getIndexes();
+        if (indexes != null) {
+            for (Index index : indexes) {
+                if (index.getCondition() != null) {
+                    // does not contain all rows
+                    continue;
+                }
+                if (isWindowSortedIndex(index)) {
+                    return index;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isWindowSortedIndex(Index index) {
+        IndexType indexType = index.getIndexType();
+        IndexColumn[] indexColumns = indexType.isScan() || indexType.isHash() || indexType.isBitmap()
+                || index.getCreateSQL() == null ? new IndexColumn[0]
+                        : Arrays.copyOf(index.getIndexColumns(), index.getKeyColumnCount());
+        DefaultNullOrdering defaultNullOrdering = session.getDatabase().getDefaultNullOrdering();
+        for (DataAnalysisOperation operation : windowOperations) {
+            Window over = operation.getOverCondition();
+            // the first columns of the index must be the partition columns
+            HashSet<Column> partitionColumns = new HashSet<>();
+            ArrayList<Expression> partitionBy = over.getPartitionBy();
+            if (partitionBy != null) {
+                for (Expression e : partitionBy) {
+                    Column column = getTopFilterColumn(e);
+                    if (column == null) {
+                        return false;
+                    }
+                    partitionColumns.add(column);
+                }
+            }
+            int p = partitionColumns.size();
+            if (p > indexColumns.length) {
+                return false;
+            }
+            for (int i = 0; i < p; i++) {
+                if (!partitionColumns.contains(indexColumns[i].column)) {
+                    return false;
+                }
+            }
+            // the next columns of the index must be the ORDER BY columns
+            ArrayList<QueryOrderBy> orderBy = over.getOrderBy();
+            if (orderBy != null) {
+                int size = orderBy.size();
+                if (p + size > indexColumns.length) {
+                    return false;
+                }
+                for (int i = 0; i < size; i++) {
+                    QueryOrderBy o = orderBy.get(i);
+                    IndexColumn idxCol = indexColumns[p + i];
+                    Column column = getTopFilterColumn(o.expression);
+                    if (idxCol.column != column) {
+                        return false;
+                    }
+                    if (column.isNullable()
+                            ? defaultNullOrdering.addExplicitNullOrdering(idxCol.sortType)
+                                    != defaultNullOrdering.addExplicitNullOrdering(o.sortType)
+                            : (idxCol.sortType & SortOrder.DESCENDING) != (o.sortType & SortOrder.DESCENDING)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private Column getTopFilterColumn(Expression e) {
+        if (e instanceof ExpressionColumn) {
+            ExpressionColumn exprCol = (ExpressionColumn) e;
+            if (exprCol.getTableFilter() == topTableFilter) {
+                return exprCol.getColumn();
+            }
+        }
+        return null;
+    }
+
     boolean isConditionMetForUpdate() {
         if (isConditionMet()) {
             int count = filters.size();
@@ -459,6 +751,18 @@ private void queryWindow(int columnCount, LocalResult result, long offset, boole
         }
     }
 
+    private LazyResult queryWindowSorted(int columnCount, ResultTarget result, long offset, boolean quickOffset) {
+        LazyResultWindowSorted lazyResult = new LazyResultWindowSorted(expressionArray, columnCount);
+        skipOffset(lazyResult, offset, quickOffset);
+        if (result == null) {
+            return lazyResult;
+        }
+        while (lazyResult.next()) {
+            result.addRow(lazyResult.currentRow());
+        }
+        return null;
+    }
+
     private void queryGroupWindow(int columnCount, LocalResult result, long offset, boolean quickOffset) {
         initGroupData(columnCount);
         try {
@@ -495,9 +799,10 @@ private void queryGroup(int columnCount, LocalResult result, long offset, boolea
     private void initGroupData(int columnCount) {
         if (groupData == null) {
             setGroupData(SelectGroups.getInstance(session, expressions, isGroupQuery, groupIndex));
-        } else {
-            updateAgg(columnCount, DataAnalysisOperation.STAGE_RESET);
         }
+        // aggregates may have a state from the previous execution even if
+        // the group data was discarded by setSession()
+        updateAgg(columnCount, DataAnalysisOperation.STAGE_RESET);
         groupData.reset();
     }
 
@@ -627,11 +932,12 @@ private Index getSortIndex() {
                     // can't use the scan index
                     continue;
                 }
-                if (index.getIndexType().isHash()) {
+                if (index.getIndexType().isHash() || index.getIndexType().isBitmap()
+                        || index.getCondition() != null) {
                     continue;
                 }
                 IndexColumn[] indexCols = index.getIndexColumns();
-                if (indexCols.length < sortCols.length) {
+                if (index.getKeyColumnCount() < sortCols.length) {
                     continue;
                 }
                 for (int j = 0; j < sortCols.length; j++) {
@@ -779,6 +1085,8 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
             result.setSortOrder(sort);
             if (!sortUsingIndex) {
                 quickOffset = false;
+                // Let the result retain only the top rows
+                setLimits(result, offset, fetch, fetchPercent);
             }
         }
         if (distinct) {
@@ -792,7 +1100,7 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
             result = createLocalResult(result);
             result.setDistinct(distinctIndexes);
         }
-        if (isWindowQuery || isGroupQuery && !isGroupSortedQuery) {
+        if (isWindowQuery && !isWindowSortedQuery || isGroupQuery && !isGroupSortedQuery) {
             result = createLocalResult(result);
         }
         if (!lazy && (fetch >= 0 || offset > 0)) {
@@ -813,6 +1121,8 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
             } else if (isWindowQuery) {
                 if (isGroupQuery) {
                     queryGroupWindow(columnCount, result, offset, quickOffset);
+                } else if (isWindowSortedQuery) {
+                    lazyResult = queryWindowSorted(columnCount, to, offset, quickOffset);
                 } else {
                     queryWindow(columnCount, result, offset, quickOffset);
                 }
@@ -1229,12 +1539,11 @@ public void prepare() {
                         sortUsingIndex = true;
                     }
                 } else if (index.getIndexColumns() != null
-                        && index.getIndexColumns().length >= current
-                                .getIndexColumns().length) {
+                        && index.getKeyColumnCount() >= current.getKeyColumnCount()) {
                     IndexColumn[] sortColumns = index.getIndexColumns();
                     IndexColumn[] currentColumns = current.getIndexColumns();
                     boolean swapIndex = false;
-                    for (int i = 0; i < currentColumns.length; i++) {
+                    for (int i = 0, l = current.getKeyColumnCount(); i < l; i++) {
                         if (sortColumns[i].column != currentColumns[i].column) {
                             swapIndex = false;
                             break;
@@ -1263,6 +1572,13 @@ public void prepare() {
                 }
             }
         }
+        if (isWindowQuery && !isGroupQuery && !isForUpdate) {
+            Index index = getWindowSortedIndex();
+            if (index != null) {
+                topTableFilter.setIndex(index);
+                isWindowSortedQuery = true;
+            }
+        }
         expressionArray = expressions.toArray(new Expression[0]);
         isPrepared = true;
     }
@@ -1284,6 +1600,30 @@ public double getCost() {
         return cost;
     }
 
+    /**
+     * Sets the actual numbers of rows from previous executions of the command.
+     * This method should be invoked before {@link #prepare()}.
+     *
+     * @param cardinalityFeedback
+     *            the actual numbers of rows
+     */
+    public void setCardinalityFeedback(CardinalityFeedback cardinalityFeedback) {
+        this.cardinalityFeedback = cardinalityFeedback;
+    }
+
+    /**
+     * Records the actual numbers of rows read by table filters during the last
+     * execution of this query.
+     *
+     * @param feedback
+     *            the object to record numbers of rows into
+     */
+    public void recordCardinalityFeedback(CardinalityFeedback feedback) {
+        if (topTableFilter != null) {
+            topTableFilter.visit(feedback::record);
+        }
+    }
+
     @Override
     public HashSet<Table> getTables() {
         HashSet<Table> set = new HashSet<>();
@@ -1305,6 +1645,9 @@ private double preparePlan(boolean parse) {
         for (TableFilter t : topArray) {
             t.createIndexConditions();
             t.setFullCondition(condition);
+            if (cardinalityFeedback != null) {
+                t.visit(f -> f.setCardinalityFeedback(cardinalityFeedback));
+            }
         }
 
         Optimizer optimizer = new Optimizer(topArray, condition, session);
@@ -1393,12 +1736,14 @@ public String getPlanSQL(int sqlFlags) {
                     Expression.writeExpressions(builder.append(" ON("), distinctExpressions, sqlFlags).append(')');
                 }
             }
-            for (int i = 0; i < visibleColumnCount; i++) {
+            boolean original = originalCondition != null && (sqlFlags & ADD_PLAN_INFORMATION) == 0;
+            Expression[] selectList = original ? originalExpressions : exprList;
+            for (int i = 0, l = original ? selectList.length : visibleColumnCount; i < l; i++) {
                 if (i > 0) {
                     builder.append(',');
                 }
                 builder.append('\n');
-                StringUtils.indent(builder, exprList[i].getSQL(sqlFlags, WITHOUT_PARENTHESES), 4, false);
+                StringUtils.indent(builder, selectList[i].getSQL(sqlFlags, WITHOUT_PARENTHESES), 4, false);
             }
             TableFilter filter = topTableFilter;
             if (filter == null) {
@@ -1413,7 +1758,9 @@ public String getPlanSQL(int sqlFlags) {
             } else if (!filter.isNoFromClauseFilter()) {
                 getPlanFromFilter(builder.append("\nFROM "), sqlFlags, filter, false);
             }
-            if (condition != null) {
+            if (original) {
+                getFilterSQL(builder, "\nWHERE ", originalCondition, sqlFlags);
+            } else if (condition != null) {
                 getFilterSQL(builder, "\nWHERE ", condition, sqlFlags);
             }
             if (groupIndex != null) {
@@ -1461,6 +1808,8 @@ public String getPlanSQL(int sqlFlags) {
                 if (isGroupSortedQuery) {
                     builder.append("\n/* group sorted */");
                 }
+            } else if (isWindowSortedQuery) {
+                builder.append("\n/* window sorted */");
             }
             // builder.append("\n/* cost: " + cost + " */");
         }
@@ -1595,6 +1944,27 @@ public boolean isGroupWindowStage2() {
         return isGroupWindowStage2;
     }
 
+    /**
+     * Checks whether window functions of this query are evaluated in
+     * streaming mode over rows read in order of an index.
+     *
+     * @return whether window functions are evaluated in streaming mode
+     */
+    public boolean isWindowSortedQuery() {
+        return isWindowSortedQuery;
+    }
+
+    /**
+     * Returns the number of the row for which window functions of this query
+     * are currently updated in streaming mode.
+     *
+     * @return the number of the current row, or 0 if streaming stage is not in
+     *         progress
+     */
+    public long getWindowSortedRowId() {
+        return windowSortedRowId;
+    }
+
     @Override
     public void addGlobalCondition(Parameter param, int columnId, int comparisonType) {
         addParameter(param);
@@ -1913,4 +2283,46 @@ protected Value[] fetchNextRow() {
         }
     }
 
+    /**
+     * Lazy execution for a window query with rows sorted by an index.
+     */
+    private final class LazyResultWindowSorted extends LazyResultSelect {
+
+        LazyResultWindowSorted(Expression[] expressions, int columnCount) {
+            super(expressions, columnCount);
+            updateAgg(columnCount, DataAnalysisOperation.STAGE_RESET);
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            updateAgg(columnCount, DataAnalysisOperation.STAGE_RESET);
+        }
+
+        @Override
+        protected Value[] fetchNextRow() {
+            while (topTableFilter.next()) {
+                setCurrentRowNumber(rowNumber + 1);
+                if (isConditionMet()) {
+                    rowNumber++;
+                    windowSortedRowId = rowNumber;
+                    try {
+                        updateAgg(columnCount, DataAnalysisOperation.STAGE_WINDOW_SORTED);
+                    } finally {
+                        windowSortedRowId = 0L;
+                    }
+                    Value[] row = new Value[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = expressions.get(i).getValue(getSession());
+                    }
+                    if (qualifyIndex >= 0 && !row[qualifyIndex].getBoolean()) {
+                        continue;
+                    }
+                    return rowForResult(row, columnCount);
+                }
+            }
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.compress;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.h2.mvstore.DataUtils;
+
+/**
+ * An input stream to read data written by {@link LZFTransferOutputStream}.
+ * Unlike {@link LZFInputStream}, reads don't wait for more data than one block
+ * if some data was already read.
+ */
+public final class LZFTransferInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final CompressLZF decompress = new CompressLZF();
+    private final byte[] buffer = new byte[LZFTransferOutputStream.BUFFER_SIZE];
+    private byte[] inBuffer;
+    private int pos;
+    private int limit;
+
+    public LZFTransferInputStream(InputStream in) {
+        this.in = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        int len;
+        try {
+            len = in.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        if (len < 0) {
+            len = -len;
+            checkLength(len);
+            in.readFully(buffer, 0, len);
+            limit = len;
+        } else {
+            int size = in.readInt();
+            checkLength(len);
+            checkLength(size);
+            if (inBuffer == null || inBuffer.length < len) {
+                inBuffer = new byte[Math.max(len, 1024)];
+            }
+            in.readFully(inBuffer, 0, len);
+            try {
+                decompress.expand(inBuffer, 0, len, buffer, 0, size);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw DataUtils.convertToIOException(e);
+            }
+            limit = size;
+        }
+        pos = 0;
+        return true;
+    }
+
+    private static void checkLength(int len) throws IOException {
+        if (len > LZFTransferOutputStream.BUFFER_SIZE) {
+            throw new IOException("Invalid block length " + len);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillBuffer()) {
+            return -1;
+        }
+        return buffer[pos++] & 255;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fillBuffer()) {
+            return -1;
+        }
+        int copy = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, b, off, copy);
+        pos += copy;
+        return copy;
+    }
+
+    @Override
+    public int available() throws IOException {
+        int available = limit - pos;
+        return available > 0 ? available : in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
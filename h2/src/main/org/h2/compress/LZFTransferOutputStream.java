@@ -0,0 +1,93 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.compress;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream to compress data sent over a network connection. The data
+ * is split into blocks at each flush and when the buffer is full. Each block
+ * is compressed with LZF. Small blocks and blocks that can't be compressed are
+ * written as is.
+ */
+public final class LZFTransferOutputStream extends OutputStream {
+
+    /**
+     * The size of the buffer, and the maximum size of a block.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Blocks smaller than this are not compressed.
+     */
+    private static final int MIN_COMPRESS_LENGTH = 128;
+
+    private final DataOutputStream out;
+    private final CompressLZF compress = new CompressLZF();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] outBuffer = new byte[BUFFER_SIZE * 2];
+    private int pos;
+
+    public LZFTransferOutputStream(OutputStream out) {
+        this.out = out instanceof DataOutputStream ? (DataOutputStream) out : new DataOutputStream(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (pos >= BUFFER_SIZE) {
+            writeBlock();
+        }
+        buffer[pos++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] buff, int off, int len) throws IOException {
+        while (len > 0) {
+            if (pos >= BUFFER_SIZE) {
+                writeBlock();
+            }
+            int copy = Math.min(BUFFER_SIZE - pos, len);
+            System.arraycopy(buff, off, buffer, pos, copy);
+            pos += copy;
+            off += copy;
+            len -= copy;
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int len = pos;
+        if (len == 0) {
+            return;
+        }
+        pos = 0;
+        if (len >= MIN_COMPRESS_LENGTH) {
+            int compressed = compress.compress(buffer, len, outBuffer, 0);
+            if (compressed < len) {
+                out.writeInt(compressed);
+                out.writeInt(len);
+                out.write(outBuffer, 0, compressed);
+                return;
+            }
+        }
+        out.writeInt(-len);
+        out.write(buffer, 0, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+}
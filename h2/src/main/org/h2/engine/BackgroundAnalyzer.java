@@ -0,0 +1,153 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.engine;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.h2.command.ddl.Analyze;
+import org.h2.message.Trace;
+import org.h2.table.Table;
+
+/**
+ * This class is responsible to update statistics of modified tables in a
+ * background thread with low priority. The thread is started when a table is
+ * scheduled for analysis and stops when there are no more scheduled tables.
+ */
+final class BackgroundAnalyzer implements Runnable {
+
+    /**
+     * The maximum time to wait for completion of the current analysis on
+     * close, in milliseconds.
+     */
+    private static final long CLOSE_TIMEOUT = 5_000L;
+
+    private final Database database;
+
+    private final SessionLocal session;
+
+    private final Trace trace;
+
+    /**
+     * Tables to analyze.
+     */
+    private final LinkedHashSet<Table> tables = new LinkedHashSet<>();
+
+    private Thread thread;
+
+    /**
+     * The table that is analyzed now.
+     */
+    private Table current;
+
+    private boolean closed;
+
+    BackgroundAnalyzer(Database database, SessionLocal session) {
+        this.database = database;
+        this.session = session;
+        trace = database.getTrace(Trace.DATABASE);
+    }
+
+    /**
+     * Schedule analysis of the specified table.
+     *
+     * @param table the table
+     */
+    synchronized void schedule(Table table) {
+        if (!closed && tables.add(table) && thread == null) {
+            thread = new Thread(this, "H2 Analyze " + database.getShortName());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void run() {
+        int sample = database.getSettings().analyzeSample / 10;
+        for (;;) {
+            Table table;
+            synchronized (this) {
+                current = null;
+                notifyAll();
+                Iterator<Table> i = tables.iterator();
+                if (closed || !i.hasNext()) {
+                    thread = null;
+                    return;
+                }
+                table = i.next();
+                i.remove();
+                current = table;
+            }
+            try {
+                synchronized (session) {
+                    if (table.getId() > 0) {
+                        Analyze.analyzeTable(session, table, sample, false);
+                    }
+                    // analyze can lock the meta
+                    database.unlockMeta(session);
+                    session.commit(true);
+                }
+            } catch (Throwable e) {
+                synchronized (this) {
+                    if (closed) {
+                        continue;
+                    }
+                }
+                try {
+                    synchronized (session) {
+                        session.rollback();
+                    }
+                } catch (Throwable e2) {
+                    e.addSuppressed(e2);
+                }
+                trace.error(e, "analyze {0}", table.getName());
+            }
+        }
+    }
+
+    /**
+     * Remove the specified table from the queue and wait for completion of
+     * its analysis if it is analyzed now.
+     *
+     * @param table the table, or {@code null} to remove all tables
+     */
+    synchronized void cancel(Table table) {
+        if (table == null) {
+            tables.clear();
+        } else {
+            tables.remove(table);
+        }
+        while (current != null && (table == null || current == table) && thread != Thread.currentThread()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Stop the analysis and wait for completion of the current one.
+     */
+    synchronized void close() {
+        closed = true;
+        tables.clear();
+        long end = System.currentTimeMillis() + CLOSE_TIMEOUT;
+        while (thread != null && thread != Thread.currentThread()) {
+            long wait = end - System.currentTimeMillis();
+            if (wait <= 0) {
+                break;
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+    }
+
+}
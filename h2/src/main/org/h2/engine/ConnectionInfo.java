@@ -101,10 +101,10 @@ public ConnectionInfo(String u, Properties info) {
                 "CACHE_TYPE", //
                 "FILE_LOCK", //
                 "JMX", //
-                "NETWORK_TIMEOUT", //
+                "NETWORK_COMPRESSION", "NETWORK_TIMEOUT", //
                 "OLD_INFORMATION_SCHEMA", "OPEN_NEW", //
                 "PAGE_SIZE", //
-                "RECOVER", //
+                "RECOVER", "REPLICATE_FROM", //
         };
         String[] settings = { //
                 "AUTHREALM", "AUTHZPWD", "AUTOCOMMIT", //
@@ -88,6 +88,12 @@ public class Constants {
      */
     public static final int TCP_PROTOCOL_VERSION_20 = 20;
 
+    /**
+     * The TCP protocol version number 21.
+     * @since 2.0.202 (TODO)
+     */
+    public static final int TCP_PROTOCOL_VERSION_21 = 21;
+
     /**
      * Minimum supported version of TCP protocol.
      */
@@ -96,7 +102,7 @@ public class Constants {
     /**
      * Maximum supported version of TCP protocol.
      */
-    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_20;
+    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_21;
 
     /**
      * The major version of this database.
@@ -407,6 +413,29 @@ public class Constants {
      */
     public static final int SELECTIVITY_DISTINCT_COUNT = 10_000;
 
+    /**
+     * The maximum number of sampled rows used to build statistics of column
+     * values when running ANALYZE.
+     */
+    public static final int STATISTICS_SAMPLE_ROWS = 10_000;
+
+    /**
+     * The maximum number of the most common values of a column to keep in its
+     * statistics.
+     */
+    public static final int STATISTICS_MOST_COMMON_VALUES = 16;
+
+    /**
+     * The maximum number of buckets in a histogram of column values.
+     */
+    public static final int STATISTICS_HISTOGRAM_BUCKETS = 32;
+
+    /**
+     * The maximum length of character and binary strings in statistics of
+     * column values.
+     */
+    public static final int STATISTICS_MAX_VALUE_LENGTH = 256;
+
     /**
      * The default directory name of the server properties file for the H2
      * Console.
@@ -18,6 +18,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
@@ -29,6 +30,9 @@
 import org.h2.api.TableEngine;
 import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
+import org.h2.command.SharedQueryCache;
+import org.h2.command.ddl.CreateIndex;
+import org.h2.command.ddl.CreateTable;
 import org.h2.command.ddl.CreateTableData;
 import org.h2.command.dml.SetTypes;
 import org.h2.constraint.Constraint;
@@ -165,6 +169,8 @@ public class Database implements DataHandler, CastDataProvider {
     private User systemUser;
     private SessionLocal systemSession;
     private SessionLocal lobSession;
+    private SessionLocal analyzeSession;
+    private BackgroundAnalyzer backgroundAnalyzer;
     private Table meta;
     private Index metaIdIndex;
     private FileLock lock;
@@ -183,6 +189,11 @@ public class Database implements DataHandler, CastDataProvider {
     private CompareMode compareMode;
     private String cluster = Constants.CLUSTERING_DISABLED;
     private boolean readOnly;
+    /**
+     * The connection information of the primary database of a read-only
+     * replica, or null.
+     */
+    private ConnectionInfo replicationSource;
     private int writeDelay = Constants.DEFAULT_WRITE_DELAY;
     private DatabaseEventListener eventListener;
     private int maxMemoryRows = SysProperties.MAX_MEMORY_ROWS;
@@ -232,6 +243,7 @@ public class Database implements DataHandler, CastDataProvider {
     private boolean queryStatistics;
     private int queryStatisticsMaxEntries = Constants.QUERY_STATISTICS_MAX_ENTRIES;
     private QueryStatisticsData queryStatisticsData;
+    private final SharedQueryCache sharedQueryCache;
     private RowFactory rowFactory = RowFactory.getRowFactory();
     private boolean ignoreCatalogs;
 
@@ -247,6 +259,8 @@ public Database(ConnectionInfo ci, String cipher) {
         }
         String name = ci.getName();
         this.dbSettings = ci.getDbSettings();
+        this.sharedQueryCache = dbSettings.sharedQueryCacheSize > 0
+                ? new SharedQueryCache(this, dbSettings.sharedQueryCacheSize) : null;
         this.compareMode = CompareMode.getInstance(null, 0);
         this.persistent = ci.isPersistent();
         this.filePasswordHash = ci.getFilePasswordHash();
@@ -267,6 +281,20 @@ public Database(ConnectionInfo ci, String cipher) {
         if ("r".equals(accessModeData)) {
             readOnly = true;
         }
+        String replicateFrom = ci.getProperty("REPLICATE_FROM", null);
+        if (replicateFrom != null) {
+            if (!replicateFrom.startsWith(Constants.START_URL)) {
+                replicateFrom = Constants.START_URL + replicateFrom;
+            }
+            replicationSource = new ConnectionInfo(replicateFrom, new Properties());
+            if (!replicationSource.isRemote()) {
+                throw DbException.getInvalidValueException("REPLICATE_FROM", replicateFrom);
+            }
+            replicationSource.setUserName(ci.getUserName());
+            replicationSource.setUserPasswordHash(ci.getUserPasswordHash());
+            // a replica is changed only by its primary database
+            readOnly = true;
+        }
         String lockMethodName = ci.getProperty("FILE_LOCK", null);
         if (dbSettings.mvStore && lockMethodName == null) {
             fileLockMethod = autoServerMode ? FileLockMethod.FILE : FileLockMethod.FS;
@@ -1269,7 +1297,40 @@ public synchronized void removeSession(SessionLocal session) {
     }
 
     private boolean isUserSession(SessionLocal session) {
-        return session != systemSession && session != lobSession;
+        return session != systemSession && session != lobSession && session != analyzeSession;
+    }
+
+    /**
+     * Schedule automatic analysis of the specified table in a background
+     * thread.
+     *
+     * @param table the table
+     */
+    public synchronized void analyzeInBackground(Table table) {
+        if (closing) {
+            return;
+        }
+        if (backgroundAnalyzer == null) {
+            analyzeSession = createSession(systemUser);
+            backgroundAnalyzer = new BackgroundAnalyzer(this, analyzeSession);
+        }
+        backgroundAnalyzer.schedule(table);
+    }
+
+    /**
+     * Cancel scheduled background analysis of the specified table and wait
+     * for completion of its analysis if it is already started.
+     *
+     * @param table the table, or {@code null} for all tables
+     */
+    public void cancelBackgroundAnalyze(Table table) {
+        BackgroundAnalyzer analyzer;
+        synchronized (this) {
+            analyzer = backgroundAnalyzer;
+        }
+        if (analyzer != null) {
+            analyzer.cancel(table);
+        }
     }
 
     private synchronized void closeAllSessionsExcept(SessionLocal except) {
@@ -1371,6 +1432,9 @@ private void closeImpl(boolean fromShutdownHook) {
                     removeOrphanedLobs();
                 }
             }
+            if (backgroundAnalyzer != null) {
+                backgroundAnalyzer.close();
+            }
             try {
                 if (systemSession != null) {
                     if (powerOffCount != -1) {
@@ -1511,6 +1575,10 @@ private synchronized void closeOpenFilesAndUnlock(boolean flush) {
                 lobSession.close();
                 lobSession = null;
             }
+            if (analyzeSession != null) {
+                analyzeSession.close();
+                analyzeSession = null;
+            }
             closeFiles(false);
             if (persistent && lock == null &&
                     fileLockMethod != FileLockMethod.NO &&
@@ -2048,6 +2116,16 @@ public boolean isReadOnly() {
         return readOnly;
     }
 
+    /**
+     * Get the connection information of the primary database if this database
+     * is a read-only replica.
+     *
+     * @return the connection information, or null
+     */
+    public ConnectionInfo getReplicationSource() {
+        return replicationSource;
+    }
+
     public void setWriteDelay(int value) {
         writeDelay = value;
         if (writer != null) {
@@ -2435,6 +2513,15 @@ public QueryStatisticsData getQueryStatisticsData() {
         return queryStatisticsData;
     }
 
+    /**
+     * Get the cache of prepared statements shared by all sessions.
+     *
+     * @return the cache, or {@code null} if it is disabled
+     */
+    public SharedQueryCache getSharedQueryCache() {
+        return sharedQueryCache;
+    }
+
     /**
      * Check if the database is currently opening. This is true until all stored
      * SQL statements have been executed.
@@ -2465,6 +2552,9 @@ void opened() {
         if (writer != null) {
             writer.startThread();
         }
+        if (store != null) {
+            store.startReplication();
+        }
     }
 
     public void setMode(Mode mode) {
@@ -2579,6 +2669,88 @@ public String toString() {
         return databaseShortName + ":" + super.toString();
     }
 
+    /**
+     * Close the database and all its sessions, for example when a read-only
+     * replica can't follow changes of its primary database. The database is
+     * opened again by new connections.
+     */
+    public void closeAllSessionsAndDatabase() {
+        // sessions that are closed concurrently must not close the database,
+        // otherwise it can be opened again before it is closed completely
+        setCloseDelay(-1);
+        close(true);
+    }
+
+    /**
+     * Read the definitions of all database objects from the meta table. The
+     * definitions of sequences are not included, because they change with
+     * their current values.
+     *
+     * @return the SQL statements by object id, empty strings for sequences
+     */
+    public HashMap<Integer, String> readMetaDefinitions() {
+        HashMap<Integer, String> definitions = new HashMap<>();
+        synchronized (systemSession) {
+            systemSession.startStatementWithinTransaction(null);
+            try {
+                Cursor cursor = metaIdIndex.find(systemSession, null, null);
+                while (cursor.next()) {
+                    MetaRecord rec = new MetaRecord(cursor.get());
+                    definitions.put(rec.getId(), rec.getObjectType() == DbObject.SEQUENCE ? "" : rec.getSQL());
+                }
+            } finally {
+                systemSession.endStatement();
+                systemSession.commit(false);
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * Apply the selectivity and the statistics from the changed definition of
+     * a table or an index in the meta table to the existing object.
+     *
+     * @param id the id of the object
+     * @param sql the new definition of the object
+     * @return whether the definition was changed only by the statistics and
+     *         they were applied
+     */
+    public boolean updateStatistics(int id, String sql) {
+        DbObject obj = null;
+        for (SchemaObject o : getAllSchemaObjects()) {
+            if (o.getId() == id) {
+                obj = o;
+                break;
+            }
+        }
+        if (obj == null) {
+            return false;
+        }
+        synchronized (systemSession) {
+            Prepared command;
+            try {
+                command = systemSession.prepare(sql);
+            } catch (DbException e) {
+                return false;
+            }
+            if (command instanceof CreateTable && obj instanceof Table) {
+                Column[] columns = ((Table) obj).getColumns();
+                ArrayList<Column> newColumns = ((CreateTable) command).getColumns();
+                if (columns.length != newColumns.size()) {
+                    return false;
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i].copyStatistics(newColumns.get(i));
+                }
+            } else if (command instanceof CreateIndex && obj instanceof Index) {
+                ((Index) obj).setDistinctCounts(((CreateIndex) command).getDistinctCounts());
+            } else {
+                return false;
+            }
+        }
+        return sql.equals(obj.getCreateSQLForMeta());
+    }
+
     /**
      * Immediately close the database.
      */
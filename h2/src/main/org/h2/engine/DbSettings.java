@@ -40,12 +40,22 @@ public class DbSettings extends SettingsBase {
      * After changing this many rows, ANALYZE is automatically run for a table.
      * Automatically running ANALYZE is disabled if set to 0. If set to 1000,
      * then ANALYZE will run against each user table after about 1000 changes to
-     * that table. The time between running ANALYZE doubles each time since
-     * starting the database. It is not run on local temporary tables, and
-     * tables that have a trigger on SELECT.
+     * that table. If ANALYZE_BACKGROUND is enabled, ANALYZE runs again after
+     * changes of 10% of rows, but not earlier than after this number of
+     * changes; otherwise the time between running ANALYZE doubles each time
+     * since starting the database. It is not run on local temporary tables,
+     * and tables that have a trigger on SELECT.
      */
     public final int analyzeAuto = get("ANALYZE_AUTO", 2000);
 
+    /**
+     * Database setting <code>ANALYZE_BACKGROUND</code> (default: true).<br />
+     * Whether automatic ANALYZE of persistent tables of MVStore databases
+     * is performed after commit in a background thread with low priority
+     * instead of the committing session.
+     */
+    public final boolean analyzeBackground = get("ANALYZE_BACKGROUND", true);
+
     /**
      * Database setting <code>ANALYZE_SAMPLE</code> (default: 10000).<br />
      * The default sample size when analyzing a table.
@@ -168,6 +178,14 @@ public class DbSettings extends SettingsBase {
      */
     public final int maxQueryTimeout = get("MAX_QUERY_TIMEOUT", 0);
 
+    /**
+     * Database setting <code>OPTIMIZE_CARDINALITY_FEEDBACK</code> (default:
+     * true).<br />
+     * Record actual numbers of rows read by tables of a query and optimize a
+     * reused command again if they differ significantly from estimated ones.
+     */
+    public final boolean optimizeCardinalityFeedback = get("OPTIMIZE_CARDINALITY_FEEDBACK", true);
+
     /**
      * Database setting <code>OPTIMIZE_DISTINCT</code> (default: true).<br />
      * Improve the performance of simple DISTINCT queries if an index is
@@ -190,6 +208,16 @@ public class DbSettings extends SettingsBase {
     public final boolean optimizeEvaluatableSubqueries = get(
             "OPTIMIZE_EVALUATABLE_SUBQUERIES", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_EXISTS</code> (default: true).<br />
+     * Convert correlated EXISTS(SELECT ... WHERE INNER_COLUMN = OUTER_COLUMN
+     * AND ...) predicates to semi-joins OUTER_COLUMN IS NOT DISTINCT FROM
+     * ANY(SELECT DISTINCT INNER_COLUMN ... WHERE INNER_COLUMN IS NOT NULL AND
+     * ...), so the subquery is evaluated only once. NOT EXISTS predicates are
+     * converted to anti-joins in the same way.
+     */
+    public final boolean optimizeExists = get("OPTIMIZE_EXISTS", true);
+
     /**
      * Database setting <code>OPTIMIZE_INSERT_FROM_SELECT</code>
      * (default: true).<br />
@@ -285,6 +313,28 @@ public class DbSettings extends SettingsBase {
     public final boolean shareLinkedConnections = get(
             "SHARE_LINKED_CONNECTIONS", true);
 
+    /**
+     * Database setting <code>SHARED_QUERY_CACHE_SIZE</code> (default:
+     * 256).<br />
+     * The maximum number of prepared statements that are kept for all
+     * sessions of a database. Statements that are removed from the query cache
+     * of a session are kept here, and another session that prepares the same
+     * statement with the same user, schema, and session settings reuses them
+     * instead of parsing the statement again. Statements that use views,
+     * derived tables, or local temporary tables are not shared. The cache is
+     * disabled if set to 0.
+     */
+    public final int sharedQueryCacheSize = get("SHARED_QUERY_CACHE_SIZE", 256);
+
+    /**
+     * Database setting <code>SUBQUERY_CACHE_SIZE</code> (default: 1024).<br />
+     * The maximum number of remembered results of each correlated subquery in
+     * EXISTS and IN predicates. Results are remembered for different values of
+     * columns of outer queries and parameters and are discarded when data in
+     * the used tables is changed. The cache is disabled if set to 0.
+     */
+    public final int subqueryCacheSize = get("SUBQUERY_CACHE_SIZE", 1024);
+
     /**
      * Database setting <code>DEFAULT_TABLE_ENGINE</code>
      * (default: null).<br />
@@ -105,6 +105,8 @@ private static SessionLocal openSession(ConnectionInfo ci, boolean ifExists, boo
                 }
             }
         }
+        // the value is a URL, it can't be executed as a SET statement
+        ci.removeProperty("REPLICATE_FROM", null);
         if (opened) {
             // start the thread when already synchronizing on the database
             // otherwise a deadlock can occur when the writer thread
@@ -127,6 +127,19 @@ public DynamicSettings(Mode mode, TimeZoneProvider timeZone) {
      */
     public abstract CommandInterface prepareCommand(String sql, int fetchSize);
 
+    /**
+     * Parse a command that will be executed immediately. Remote sessions may
+     * send the preparation request together with the execution request. In
+     * such case errors of preparation are thrown on execution of the command.
+     *
+     * @param sql the SQL statement
+     * @param fetchSize the number of rows to fetch in one step
+     * @return the prepared command
+     */
+    public CommandInterface prepareCommandForExecution(String sql, int fetchSize) {
+        return prepareCommand(sql, fetchSize);
+    }
+
     /**
      * Roll back pending transactions and close the session.
      */
@@ -26,6 +26,7 @@
 import org.h2.command.CommandInterface;
 import org.h2.command.Parser;
 import org.h2.command.Prepared;
+import org.h2.command.SharedQueryCache;
 import org.h2.command.ddl.Analyze;
 import org.h2.constraint.Constraint;
 import org.h2.index.Index;
@@ -625,6 +626,14 @@ public Command prepareLocal(String sql) {
                 }
             }
         }
+        SharedQueryCache sharedQueryCache = queryCache != null ? database.getSharedQueryCache() : null;
+        if (sharedQueryCache != null) {
+            command = sharedQueryCache.get(this, sql);
+            if (command != null) {
+                addToQueryCache(sql, command, sharedQueryCache);
+                return command;
+            }
+        }
         Parser parser = new Parser(this);
         try {
             command = parser.prepareCommand(sql);
@@ -634,12 +643,41 @@ public Command prepareLocal(String sql) {
         }
         if (queryCache != null) {
             if (command.isCacheable()) {
-                queryCache.put(sql, command);
+                if (sharedQueryCache != null) {
+                    sharedQueryCache.register(this, sql, command);
+                }
+                addToQueryCache(sql, command, sharedQueryCache);
             }
         }
         return command;
     }
 
+    private void addToQueryCache(String sql, Command command, SharedQueryCache sharedQueryCache) {
+        if (sharedQueryCache != null && queryCache.size() >= queryCacheSize && !queryCache.containsKey(sql)) {
+            // pass the least recently used command to other sessions
+            Iterator<Command> i = queryCache.values().iterator();
+            Command eldest = i.next();
+            i.remove();
+            sharedQueryCache.release(eldest);
+        }
+        queryCache.put(sql, command);
+    }
+
+    /**
+     * Clear the query cache. Unused commands are passed to other sessions.
+     */
+    private void clearQueryCache() {
+        if (queryCache != null) {
+            SharedQueryCache sharedQueryCache = database.getSharedQueryCache();
+            if (sharedQueryCache != null) {
+                for (Command command : queryCache.values()) {
+                    sharedQueryCache.release(command);
+                }
+            }
+            queryCache.clear();
+        }
+    }
+
     /**
      * Arranges for the specified database object id to be released
      * at the end of the current transaction.
@@ -720,9 +758,14 @@ private void analyzeTables() {
             // back into markTableForAnalyze while iterating here
             HashSet<Table> tablesToAnalyzeLocal = tablesToAnalyze;
             tablesToAnalyze = null;
-            int rowCount = getDatabase().getSettings().analyzeSample / 10;
+            DbSettings settings = database.getSettings();
+            int rowCount = settings.analyzeSample / 10;
             for (Table table : tablesToAnalyzeLocal) {
-                Analyze.analyzeTable(this, table, rowCount, false);
+                if (settings.analyzeBackground && table instanceof MVTable && !table.isTemporary()) {
+                    database.analyzeInBackground(table);
+                } else {
+                    Analyze.analyzeTable(this, table, rowCount, false);
+                }
             }
             // analyze can lock the meta
             database.unlockMeta(this);
@@ -857,9 +900,7 @@ public void rollbackTo(Savepoint savepoint) {
         // Because cache may have captured query result (in Query.lastResult),
         // which is based on data from uncommitted transaction.,
         // It is not valid after rollback, therefore cache has to be cleared.
-        if (queryCache != null) {
-            queryCache.clear();
-        }
+        clearQueryCache();
     }
 
     @Override
@@ -1379,9 +1420,7 @@ public void setAllowLiterals(boolean b) {
 
     public void setCurrentSchema(Schema schema) {
         modificationId++;
-        if (queryCache != null) {
-            queryCache.clear();
-        }
+        clearQueryCache();
         this.currentSchemaName = schema.getName();
     }
 
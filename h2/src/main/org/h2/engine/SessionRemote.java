@@ -8,6 +8,7 @@
 import java.io.IOException;
 import java.net.Socket;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
@@ -53,6 +54,24 @@
  */
 public final class SessionRemote extends Session implements DataHandler {
 
+    /**
+     * A response to a request that was sent to the server without waiting for
+     * it.
+     */
+    public interface PendingResponse {
+
+        /**
+         * Read the response. Exceptions sent by the server should be
+         * remembered and not thrown.
+         *
+         * @param session the session
+         * @param transfer the transfer object with flushed output
+         * @throws IOException on I/O exception
+         */
+        void readResponse(SessionRemote session, Transfer transfer) throws IOException;
+
+    }
+
     public static final int SESSION_PREPARE = 0;
     public static final int SESSION_CLOSE = 1;
     public static final int COMMAND_EXECUTE_QUERY = 2;
@@ -73,6 +92,8 @@ public final class SessionRemote extends Session implements DataHandler {
     public static final int LOB_READ = 17;
     public static final int SESSION_PREPARE_READ_PARAMS2 = 18;
     public static final int GET_JDBC_META = 19;
+    public static final int COMMAND_EXECUTE_BATCH = 20;
+    public static final int REPLICATE = 21;
 
     public static final int STATUS_ERROR = 0;
     public static final int STATUS_OK = 1;
@@ -107,6 +128,14 @@ public final class SessionRemote extends Session implements DataHandler {
 
     private volatile DynamicSettings dynamicSettings;
 
+    private final ArrayDeque<PendingResponse> pendingResponses = new ArrayDeque<>();
+
+    /**
+     * The last pending response that may contain a large amount of data, or
+     * {@code null}.
+     */
+    private PendingResponse lastLargeResponse;
+
     public SessionRemote(ConnectionInfo ci) {
         this.connectionInfo = ci;
     }
@@ -145,6 +174,9 @@ private Transfer initTransfer(ConnectionInfo ci, String db, String server)
             done(trans);
             clientVersion = trans.readInt();
             trans.setVersion(clientVersion);
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_21 && ci.getProperty("NETWORK_COMPRESSION", false)) {
+                trans.enableCompression();
+            }
             if (ci.getFileEncryptionKey() != null) {
                 trans.writeBytes(ci.getFileEncryptionKey());
             }
@@ -456,6 +488,8 @@ private void switchOffCluster() {
     public void removeServer(IOException e, int i, int count) {
         trace.debug(e, "removing server because of exception");
         transferList.remove(i);
+        pendingResponses.clear();
+        lastLargeResponse = null;
         if (transferList.isEmpty() && autoReconnect(count)) {
             return;
         }
@@ -466,7 +500,14 @@ public void removeServer(IOException e, int i, int count) {
     @Override
     public synchronized CommandInterface prepareCommand(String sql, int fetchSize) {
         checkClosed();
-        return new CommandRemote(this, transferList, sql, fetchSize);
+        return new CommandRemote(this, transferList, sql, fetchSize, false);
+    }
+
+    @Override
+    public synchronized CommandInterface prepareCommandForExecution(String sql, int fetchSize) {
+        checkClosed();
+        return new CommandRemote(this, transferList, sql, fetchSize,
+                !cluster && clientVersion >= Constants.TCP_PROTOCOL_VERSION_21);
     }
 
     /**
@@ -589,15 +630,23 @@ public int getCurrentId() {
      */
     public void done(Transfer transfer) throws IOException {
         transfer.flush();
+        readPendingResponses(transfer);
+        readStatus(transfer);
+    }
+
+    /**
+     * Read the status of a response from the server. The output must be
+     * flushed before.
+     *
+     * @param transfer the transfer object
+     * @throws DbException if the server threw an exception
+     * @throws IOException if the connection is broken
+     */
+    public void readStatus(Transfer transfer) throws IOException {
         int status = transfer.readInt();
         if (status == STATUS_ERROR) {
-            String sqlstate = transfer.readString();
-            String message = transfer.readString();
-            String sql = transfer.readString();
-            int errorCode = transfer.readInt();
-            String stackTrace = transfer.readString();
-            SQLException s = DbException.getJdbcSQLException(message, sql, sqlstate, errorCode, null, stackTrace);
-            if (errorCode == ErrorCode.CONNECTION_BROKEN_1) {
+            SQLException s = readException(transfer);
+            if (s.getErrorCode() == ErrorCode.CONNECTION_BROKEN_1) {
                 // allow re-connect
                 throw new IOException(s.toString(), s);
             }
@@ -616,6 +665,89 @@ public void done(Transfer transfer) throws IOException {
         }
     }
 
+    /**
+     * Remember a request that was sent to the server without waiting for its
+     * response. Pending responses are read in the order of requests, before
+     * the response to the next request.
+     *
+     * @param response the object to read the response
+     */
+    public void addPendingResponse(PendingResponse response) {
+        pendingResponses.add(response);
+    }
+
+    /**
+     * Remember a request that was sent to the server without waiting for its
+     * response, when the response may contain a large amount of data. Such
+     * responses are read before requests that may contain large amounts of
+     * data are written, see {@link #readLargePendingResponses()}.
+     *
+     * @param response the object to read the response
+     */
+    public void addLargePendingResponse(PendingResponse response) {
+        pendingResponses.add(response);
+        lastLargeResponse = response;
+    }
+
+    /**
+     * Read pending responses that may contain a large amount of data. The
+     * server doesn't read the next request until such response is sent
+     * completely, so the client must not write a request that may not fit
+     * into buffers of the connection before reading them.
+     *
+     * @throws IOException on I/O exception
+     */
+    public void readLargePendingResponses() throws IOException {
+        if (lastLargeResponse != null) {
+            readPendingResponses(lastLargeResponse);
+        }
+    }
+
+    /**
+     * Read all pending responses up to and including the specified one.
+     *
+     * @param response the pending response to read
+     * @throws IOException on I/O exception
+     */
+    public void readPendingResponses(PendingResponse response) throws IOException {
+        if (pendingResponses.contains(response)) {
+            Transfer transfer = transferList.get(0);
+            transfer.flush();
+            for (PendingResponse r; (r = pendingResponses.poll()) != null;) {
+                if (r == lastLargeResponse) {
+                    lastLargeResponse = null;
+                }
+                r.readResponse(this, transfer);
+                if (r == response) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void readPendingResponses(Transfer transfer) throws IOException {
+        lastLargeResponse = null;
+        for (PendingResponse r; (r = pendingResponses.poll()) != null;) {
+            r.readResponse(this, transfer);
+        }
+    }
+
+    /**
+     * Read an exception sent by the server.
+     *
+     * @param transfer the transfer object
+     * @return the exception
+     * @throws IOException on I/O exception
+     */
+    public static SQLException readException(Transfer transfer) throws IOException {
+        String sqlstate = transfer.readString();
+        String message = transfer.readString();
+        String sql = transfer.readString();
+        int errorCode = transfer.readInt();
+        String stackTrace = transfer.readString();
+        return DbException.getJdbcSQLException(message, sql, sqlstate, errorCode, null, stackTrace);
+    }
+
     /**
      * Returns true if the connection was opened in cluster mode.
      *
@@ -750,6 +882,73 @@ public synchronized int readLob(long lobId, byte[] hmac, long offset,
         return 1;
     }
 
+    /**
+     * Request a block of LOB data without waiting for the response. The
+     * response is read by the specified object before the response to the
+     * next request of this session.
+     *
+     * @param lobId the id of the LOB
+     * @param hmac the HMAC of the LOB
+     * @param offset the offset of the block
+     * @param length the maximum length of the block
+     * @param response the object to read the response
+     * @return whether the request was sent
+     */
+    public synchronized boolean requestLob(long lobId, byte[] hmac, long offset, int length,
+            PendingResponse response) {
+        checkClosed();
+        Transfer transfer = transferList.get(0);
+        try {
+            traceOperation("LOB_READ", (int) lobId);
+            transfer.writeInt(SessionRemote.LOB_READ);
+            transfer.writeLong(lobId);
+            transfer.writeBytes(hmac);
+            transfer.writeLong(offset);
+            transfer.writeInt(length);
+            transfer.flush();
+        } catch (IOException e) {
+            removeServer(e, 0, 1);
+            return false;
+        }
+        addLargePendingResponse(response);
+        return true;
+    }
+
+    /**
+     * Request the changes of the database file of the server to maintain a
+     * read-only replica. The connection is used only to receive the changes
+     * after this call, and the session is closed.
+     *
+     * @return the transfer object to read the changes from
+     */
+    public synchronized Transfer replicate() {
+        checkClosed();
+        if (isClustered()) {
+            throw DbException.getUnsupportedException("replication of a cluster");
+        }
+        if (clientVersion < Constants.TCP_PROTOCOL_VERSION_21) {
+            throw DbException.getUnsupportedException("replication with TCP protocol version " + clientVersion);
+        }
+        Transfer transfer = transferList.get(0);
+        boolean success = false;
+        try {
+            traceOperation("REPLICATE", 0);
+            transfer.writeInt(SessionRemote.REPLICATE);
+            done(transfer);
+            success = true;
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, "replicate");
+        } finally {
+            // the connection is no longer used by this session
+            transferList.clear();
+            close();
+            if (!success) {
+                transfer.close();
+            }
+        }
+        return transfer;
+    }
+
     @Override
     public JavaObjectSerializer getJavaObjectSerializer() {
         if (dynamicSettings == null) {
@@ -804,6 +1003,16 @@ public boolean isSupportsGeneratedKeys() {
         return getClientVersion() >= Constants.TCP_PROTOCOL_VERSION_17;
     }
 
+    /**
+     * Returns whether the server can execute a whole batch of parameters of a
+     * command in one request.
+     *
+     * @return {@code true} if batch execution is supported
+     */
+    public boolean isSupportsBatchUpdates() {
+        return getClientVersion() >= Constants.TCP_PROTOCOL_VERSION_21;
+    }
+
     @Override
     public void setNetworkConnectionInfo(NetworkConnectionInfo networkConnectionInfo) {
         // Not supported
@@ -108,11 +108,13 @@ public ExpressionColumn(Database database, String schemaName, String tableAlias)
 
     @Override
     public StringBuilder getUnenclosedSQL(StringBuilder builder, int sqlFlags) {
-        if (schemaName != null) {
-            ParserUtil.quoteIdentifier(builder, schemaName, sqlFlags).append('.');
-        }
-        if (tableAlias != null) {
-            ParserUtil.quoteIdentifier(builder, tableAlias, sqlFlags).append('.');
+        if ((sqlFlags & NO_COLUMN_QUALIFIERS) == 0) {
+            if (schemaName != null) {
+                ParserUtil.quoteIdentifier(builder, schemaName, sqlFlags).append('.');
+            }
+            if (tableAlias != null) {
+                ParserUtil.quoteIdentifier(builder, tableAlias, sqlFlags).append('.');
+            }
         }
         if (column != null) {
             if (columnResolver != null && columnResolver.hasDerivedColumnList()) {
@@ -290,6 +292,10 @@ public String getOriginalTableAliasName() {
         return tableAlias;
     }
 
+    public String getOriginalSchemaName() {
+        return schemaName;
+    }
+
     @Override
     public String getColumnName(SessionLocal session, int columnIndex) {
         if (column != null) {
@@ -385,6 +391,19 @@ public boolean isEverything(ExpressionVisitor visitor) {
             }
             visitor.addColumn2(column);
             return true;
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
+            if (queryLevel >= visitor.getQueryLevel()) {
+                // only plain columns of rows of outer query can be collected
+                if (!(columnResolver instanceof TableFilter)) {
+                    return false;
+                }
+                Select select = ((TableFilter) columnResolver).getSelect();
+                if (select != null && (select.isGroupQuery() || select.isWindowQuery())) {
+                    return false;
+                }
+                visitor.addCorrelatedColumn(this);
+            }
+            return true;
         default:
             throw DbException.throwInternalError("type=" + visitor.getType());
         }
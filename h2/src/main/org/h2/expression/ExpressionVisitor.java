@@ -5,6 +5,7 @@
  */
 package org.h2.expression;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.engine.DbObject;
@@ -137,6 +138,12 @@ public class ExpressionVisitor {
      */
     public static final int GET_COLUMNS2 = 10;
 
+    /**
+     * Get all referenced columns of higher level queries
+     * (addCorrelatedColumn).
+     */
+    public static final int GET_CORRELATED_COLUMNS = 11;
+
     /**
      * The visitor singleton for the type QUERY_COMPARABLE.
      */
@@ -151,6 +158,7 @@ public class ExpressionVisitor {
     private final long[] maxDataModificationId;
     private final ColumnResolver resolver;
     private final HashSet<Column> columns2;
+    private final ArrayList<ExpressionColumn> correlatedColumns;
 
     private ExpressionVisitor(int type,
             int queryLevel,
@@ -166,6 +174,7 @@ private ExpressionVisitor(int type,
         this.resolver = resolver;
         this.maxDataModificationId = maxDataModificationId;
         this.columns2 = columns2;
+        this.correlatedColumns = null;
     }
 
     private ExpressionVisitor(int type) {
@@ -177,6 +186,7 @@ private ExpressionVisitor(int type) {
         this.table = null;
         this.resolver = null;
         this.maxDataModificationId = null;
+        this.correlatedColumns = null;
     }
 
     private ExpressionVisitor(int type, int queryLevel) {
@@ -188,6 +198,19 @@ private ExpressionVisitor(int type, int queryLevel) {
         this.table = null;
         this.resolver = null;
         this.maxDataModificationId = null;
+        this.correlatedColumns = null;
+    }
+
+    private ExpressionVisitor(int queryLevel, ArrayList<ExpressionColumn> correlatedColumns) {
+        this.type = GET_CORRELATED_COLUMNS;
+        this.queryLevel = queryLevel;
+        this.dependencies = null;
+        this.columns1 = null;
+        this.columns2 = null;
+        this.table = null;
+        this.resolver = null;
+        this.maxDataModificationId = null;
+        this.correlatedColumns = correlatedColumns;
     }
 
     /**
@@ -246,6 +269,17 @@ public static ExpressionVisitor getColumnsVisitor(HashSet<Column> columns, Table
         return new ExpressionVisitor(GET_COLUMNS2, 0, null, null, table, null, null, columns);
     }
 
+    /**
+     * Create a new visitor to get all referenced columns of higher level
+     * queries. The visitor should be passed to a subquery.
+     *
+     * @param columns the list of columns to add columns to
+     * @return the new visitor
+     */
+    public static ExpressionVisitor getCorrelatedColumnsVisitor(ArrayList<ExpressionColumn> columns) {
+        return new ExpressionVisitor(0, columns);
+    }
+
     public static ExpressionVisitor getMaxModificationIdVisitor() {
         return new ExpressionVisitor(SET_MAX_DATA_MODIFICATION_ID, 0, null,
                 null, null, null, new long[1], null);
@@ -283,6 +317,18 @@ void addColumn2(Column column) {
         }
     }
 
+    /**
+     * Add a new column of a higher level query.
+     * This is used for GET_CORRELATED_COLUMNS visitors.
+     *
+     * @param column the additional column.
+     */
+    void addCorrelatedColumn(ExpressionColumn column) {
+        if (!correlatedColumns.contains(column)) {
+            correlatedColumns.add(column);
+        }
+    }
+
     /**
      * Get the dependency set.
      * This is used for GET_DEPENDENCIES visitors.
@@ -306,6 +352,8 @@ public ExpressionVisitor incrementQueryLevel(int offset) {
         } else if (type == EVALUATABLE) {
             offset += queryLevel;
             return offset < CACHED ? EVALUATABLE_VISITORS[offset] : new ExpressionVisitor(EVALUATABLE, offset);
+        } else if (type == GET_CORRELATED_COLUMNS) {
+            return new ExpressionVisitor(queryLevel + offset, correlatedColumns);
         } else {
             return this;
         }
@@ -346,7 +394,7 @@ public long getMaxDataModificationId() {
     }
 
     int getQueryLevel() {
-        assert type == INDEPENDENT || type == EVALUATABLE;
+        assert type == INDEPENDENT || type == EVALUATABLE || type == GET_CORRELATED_COLUMNS;
         return queryLevel;
     }
 
@@ -107,6 +107,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.READONLY:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return true;
         case ExpressionVisitor.INDEPENDENT:
             return value != null;
@@ -56,6 +56,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.SET_MAX_DATA_MODIFICATION_ID:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             // if everything else is the same, the rownum is the same
             return true;
         default:
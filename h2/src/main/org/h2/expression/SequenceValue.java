@@ -73,6 +73,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.NOT_FROM_RESOLVER:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return true;
         case ExpressionVisitor.DETERMINISTIC:
         case ExpressionVisitor.INDEPENDENT:
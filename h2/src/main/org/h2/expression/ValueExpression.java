@@ -154,6 +154,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.QUERY_COMPARABLE:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return true;
         default:
             throw DbException.throwInternalError("type=" + visitor.getType());
@@ -61,6 +61,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.GET_DEPENDENCIES:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return true;
         case ExpressionVisitor.DETERMINISTIC:
             return false;
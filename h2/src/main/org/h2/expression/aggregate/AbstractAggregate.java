@@ -5,10 +5,12 @@
  */
 package org.h2.expression.aggregate;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 
+import org.h2.api.ErrorCode;
 import org.h2.command.query.Select;
 import org.h2.command.query.SelectGroups;
 import org.h2.engine.SessionLocal;
@@ -19,10 +21,12 @@
 import org.h2.expression.analysis.WindowFrameBoundType;
 import org.h2.expression.analysis.WindowFrameExclusion;
 import org.h2.expression.analysis.WindowFrameUnits;
+import org.h2.message.DbException;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
+import org.h2.value.ValueNull;
 
 /**
  * A base class for aggregate functions.
@@ -49,6 +53,10 @@ public abstract class AbstractAggregate extends DataAnalysisOperation {
      */
     protected TypeInfo type;
 
+    private Object streamingData;
+
+    private ArrayDeque<Value[]> streamingRows;
+
     AbstractAggregate(Select select, Expression[] args, boolean distinct) {
         super(select);
         this.args = args;
@@ -108,6 +116,61 @@ public void setEvaluatable(TableFilter tableFilter, boolean b) {
         super.setEvaluatable(tableFilter, b);
     }
 
+    @Override
+    public boolean isStreamable() {
+        WindowFrame frame = over.getWindowFrame();
+        if (frame == null || frame.getUnits() != WindowFrameUnits.ROWS
+                || frame.getExclusion() != WindowFrameExclusion.EXCLUDE_NO_OTHERS || frame.isVariableBounds()) {
+            return false;
+        }
+        WindowFrameBound following = frame.getFollowing();
+        if (following != null && following.getType() != WindowFrameBoundType.CURRENT_ROW) {
+            return false;
+        }
+        switch (frame.getStarting().getType()) {
+        case UNBOUNDED_PRECEDING:
+        case PRECEDING:
+        case CURRENT_ROW:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    @Override
+    protected Value getStreamingValue(SessionLocal session, Value[] row, boolean newPartition) {
+        WindowFrameBound starting = over.getWindowFrame().getStarting();
+        if (starting.getType() == WindowFrameBoundType.UNBOUNDED_PRECEDING) {
+            // Frame only grows, aggregate incrementally
+            if (newPartition) {
+                streamingData = createAggregateData();
+            }
+            updateFromExpressions(session, streamingData, row);
+            return getAggregatedValue(session, streamingData);
+        }
+        int preceding = 0;
+        if (starting.getType() == WindowFrameBoundType.PRECEDING) {
+            Value v = starting.getValue().getValue(session);
+            preceding = v.getInt();
+            if (v == ValueNull.INSTANCE || preceding < 0) {
+                throw DbException.get(ErrorCode.INVALID_PRECEDING_OR_FOLLOWING_1, v.getTraceSQL());
+            }
+        }
+        if (newPartition || streamingRows == null) {
+            streamingRows = new ArrayDeque<>();
+        } else {
+            while (streamingRows.size() > preceding) {
+                streamingRows.removeFirst();
+            }
+        }
+        streamingRows.addLast(row);
+        Object aggregateData = createAggregateData();
+        for (Value[] r : streamingRows) {
+            updateFromExpressions(session, aggregateData, r);
+        }
+        return getAggregatedValue(session, aggregateData);
+    }
+
     @Override
     protected void getOrderedResultLoop(SessionLocal session, HashMap<Integer, Value> result,
             ArrayList<Value[]> ordered, int rowIdColumn) {
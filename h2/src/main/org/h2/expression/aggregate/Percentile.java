@@ -73,7 +73,7 @@ static Index getColumnIndex(Database database, Expression on) {
                     boolean nullable = column.isNullable();
                     for (int i = 1, size = indexes.size(); i < size; i++) {
                         Index index = indexes.get(i);
-                        if (!index.canFindNext()) {
+                        if (!index.canFindNext() || index.getCondition() != null) {
                             continue;
                         }
                         if (!index.isFirstColumn(column)) {
@@ -43,6 +43,12 @@ public abstract class DataAnalysisOperation extends Expression {
      */
     public static final int STAGE_WINDOW = 2;
 
+    /**
+     * Streaming window processing stage, used when rows are read in order of
+     * window partitions and window ordering.
+     */
+    public static final int STAGE_WINDOW_SORTED = 3;
+
     /**
      * SELECT
      */
@@ -62,6 +68,12 @@ public abstract class DataAnalysisOperation extends Expression {
 
     private int lastGroupRowId;
 
+    private long lastStreamingRowId;
+
+    private Value streamingKey;
+
+    private Value streamingValue;
+
     /**
      * Create sort order.
      *
@@ -152,6 +164,7 @@ protected void mapColumnsAnalysis(ColumnResolver resolver, int level, int innerS
     public Expression optimize(SessionLocal session) {
         if (over != null) {
             over.optimize(session);
+            select.addWindowOperation(this);
             ArrayList<QueryOrderBy> orderBy = over.getOrderBy();
             if (orderBy != null) {
                 overOrderBySort = createOrder(session, orderBy, getNumExpressions());
@@ -221,6 +234,19 @@ public final void updateAggregate(SessionLocal session, int stage) {
         if (stage == STAGE_RESET) {
             updateGroupAggregates(session, STAGE_RESET);
             lastGroupRowId = 0;
+            lastStreamingRowId = 0L;
+            streamingKey = null;
+            streamingValue = null;
+            return;
+        }
+        if (stage == STAGE_WINDOW_SORTED) {
+            if (over != null) {
+                long rowId = select.getWindowSortedRowId();
+                if (rowId != 0L && rowId != lastStreamingRowId) {
+                    updateStreaming(session, lastStreamingRowId == 0L);
+                    lastStreamingRowId = rowId;
+                }
+            }
             return;
         }
         boolean window = stage == STAGE_WINDOW;
@@ -251,6 +277,54 @@ public final void updateAggregate(SessionLocal session, int stage) {
         updateAggregate(session, groupData, groupRowId);
     }
 
+    private void updateStreaming(SessionLocal session, boolean first) {
+        Value key = over.getCurrentKey(session);
+        boolean newPartition = first || key != null && !session.areEqual(streamingKey, key);
+        streamingKey = key;
+        streamingValue = getStreamingValue(session, rememberRow(session, over.getOrderBy()), newPartition);
+    }
+
+    /**
+     * Checks whether this window function or window aggregate can be evaluated
+     * in streaming mode when rows are read in order of the window partitions
+     * and of the window ORDER BY clause. Such evaluation needs to know only
+     * the current row and a bounded number of preceding rows of the same
+     * partition.
+     *
+     * @return whether streaming evaluation is possible
+     */
+    public boolean isStreamable() {
+        return false;
+    }
+
+    /**
+     * Returns the OVER clause.
+     *
+     * @return the OVER clause, or null
+     */
+    public Window getOverCondition() {
+        return over;
+    }
+
+    /**
+     * Computes the value of this window function or window aggregate for the
+     * current row in streaming mode. Rows are passed in order of the window
+     * partitions and of the window ORDER BY clause. This method is invoked
+     * only if {@link #isStreamable()} returns {@code true}.
+     *
+     * @param session
+     *            the session
+     * @param row
+     *            the remembered values of expressions, values of window ORDER
+     *            BY clause, and values of window frame expressions
+     * @param newPartition
+     *            whether this row is the first row of a partition
+     * @return the value for the current row
+     */
+    protected Value getStreamingValue(SessionLocal session, Value[] row, boolean newPartition) {
+        throw DbException.throwInternalError("streaming " + getTraceSQL());
+    }
+
     /**
      * Update a row of an aggregate.
      *
@@ -376,6 +450,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.SET_MAX_DATA_MODIFICATION_ID:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return true;
         default:
             throw DbException.throwInternalError("type=" + visitor.getType());
@@ -384,6 +459,12 @@ public boolean isEverything(ExpressionVisitor visitor) {
 
     @Override
     public Value getValue(SessionLocal session) {
+        if (over != null && select.isWindowSortedQuery()) {
+            if (lastStreamingRowId == 0L) {
+                throw DbException.get(ErrorCode.INVALID_USE_OF_AGGREGATE_FUNCTION_1, getTraceSQL());
+            }
+            return streamingValue;
+        }
         SelectGroups groupData = select.getGroupDataIfCurrent(over != null);
         if (groupData == null) {
             throw DbException.get(ErrorCode.INVALID_USE_OF_AGGREGATE_FUNCTION_1, getTraceSQL());
@@ -457,6 +538,25 @@ private Value getWindowResult(SessionLocal session, SelectGroups groupData) {
      */
     protected void updateOrderedAggregate(SessionLocal session, SelectGroups groupData, int groupRowId,
             ArrayList<QueryOrderBy> orderBy) {
+        Value[] array = rememberRow(session, orderBy);
+        array[array.length - 1] = ValueInteger.get(groupRowId);
+        @SuppressWarnings("unchecked")
+        ArrayList<Value[]> data = (ArrayList<Value[]>) getWindowData(session, groupData, true);
+        data.add(array);
+    }
+
+    /**
+     * Stores current values of expressions, of window ORDER BY clause, and of
+     * window frame expressions into a new array. The last element of the array
+     * is reserved for the row id.
+     *
+     * @param session
+     *            the database session
+     * @param orderBy
+     *            list of order by expressions, or null
+     * @return the new array
+     */
+    private Value[] rememberRow(SessionLocal session, ArrayList<QueryOrderBy> orderBy) {
         int ne = getNumExpressions();
         int size = orderBy != null ? orderBy.size() : 0;
         int frameSize = getNumFrameExpressions();
@@ -478,10 +578,7 @@ protected void updateOrderedAggregate(SessionLocal session, SelectGroups groupDa
                 array[ne++] = bound.getValue().getValue(session);
             }
         }
-        array[ne] = ValueInteger.get(groupRowId);
-        @SuppressWarnings("unchecked")
-        ArrayList<Value[]> data = (ArrayList<Value[]>) getWindowData(session, groupData, true);
-        data.add(array);
+        return array;
     }
 
     private Value getOrderedResult(SessionLocal session, SelectGroups groupData, PartitionData partition, //
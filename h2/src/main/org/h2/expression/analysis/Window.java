@@ -205,6 +205,15 @@ public void setEvaluatable(TableFilter tableFilter, boolean value) {
         }
     }
 
+    /**
+     * Returns PARTITION BY clause.
+     *
+     * @return PARTITION BY clause, or null
+     */
+    public ArrayList<Expression> getPartitionBy() {
+        return partitionBy;
+    }
+
     /**
      * Returns ORDER BY clause.
      *
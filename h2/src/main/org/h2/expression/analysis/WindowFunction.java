@@ -36,6 +36,12 @@ public class WindowFunction extends DataAnalysisOperation {
 
     private boolean ignoreNulls;
 
+    private long streamingNumber;
+
+    private long streamingRowCount;
+
+    private Value[] streamingPreviousRow;
+
     /**
      * Returns minimal number of arguments for the specified type.
      *
@@ -182,6 +188,36 @@ protected Object createAggregateData() {
         throw DbException.getUnsupportedException("Window function");
     }
 
+    @Override
+    public boolean isStreamable() {
+        switch (type) {
+        case ROW_NUMBER:
+            return true;
+        case RANK:
+        case DENSE_RANK:
+            return over.getOrderBy() != null;
+        default:
+            return false;
+        }
+    }
+
+    @Override
+    protected Value getStreamingValue(SessionLocal session, Value[] row, boolean newPartition) {
+        if (newPartition) {
+            streamingNumber = 0L;
+            streamingRowCount = 0L;
+            streamingPreviousRow = null;
+        }
+        streamingRowCount++;
+        if (type == WindowFunctionType.ROW_NUMBER) {
+            streamingNumber = streamingRowCount;
+        } else if (streamingPreviousRow == null || getOverOrderBySort().compare(streamingPreviousRow, row) != 0) {
+            streamingNumber = type == WindowFunctionType.DENSE_RANK ? streamingNumber + 1 : streamingRowCount;
+        }
+        streamingPreviousRow = row;
+        return ValueBigint.get(streamingNumber);
+    }
+
     @Override
     protected void getOrderedResultLoop(SessionLocal session, HashMap<Integer, Value> result,
             ArrayList<Value[]> ordered, int rowIdColumn) {
@@ -378,20 +378,8 @@ static void createIndexConditions(TableFilter filter, Expression left, Expressio
         if (!filter.getTable().isQueryComparable()) {
             return;
         }
-        ExpressionColumn l = null;
-        if (left instanceof ExpressionColumn) {
-            l = (ExpressionColumn) left;
-            if (filter != l.getTableFilter()) {
-                l = null;
-            }
-        }
-        ExpressionColumn r = null;
-        if (right instanceof ExpressionColumn) {
-            r = (ExpressionColumn) right;
-            if (filter != r.getTableFilter()) {
-                r = null;
-            }
-        }
+        ExpressionColumn l = filter.getIndexConditionColumn(left);
+        ExpressionColumn r = filter.getIndexConditionColumn(right);
         // one side must be from the current filter
         if (l == null && r == null) {
             return;
@@ -578,6 +566,15 @@ private static ConditionIn getConditionIn(SessionLocal session, Expression left,
         return new ConditionIn(left, false, false, right);
     }
 
+    /**
+     * Returns the type of this comparison.
+     *
+     * @return the type of this comparison, such as {@link #EQUAL}
+     */
+    public int getCompareType() {
+        return compareType;
+    }
+
     @Override
     public int getSubexpressionCount() {
         return 2;
@@ -5,6 +5,8 @@
  */
 package org.h2.expression.condition;
 
+import java.util.Arrays;
+
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
 import org.h2.expression.ExpressionVisitor;
@@ -49,7 +51,12 @@ public ConditionAndOr(int andOrType, Expression left, Expression right) {
         this.right = right;
     }
 
-    int getAndOrType() {
+    /**
+     * Returns the type of this condition.
+     *
+     * @return {@link ConditionAndOr#AND} or {@link ConditionAndOr#OR}
+     */
+    public int getAndOrType() {
         return this.andOrType;
     }
 
@@ -82,6 +89,8 @@ public void createIndexConditions(SessionLocal session, TableFilter filter) {
             if (added != null) {
                 added.createIndexConditions(session, filter);
             }
+        } else {
+            filter.addIndexConditionUnion(session, Arrays.asList(left, right));
         }
     }
 
@@ -51,7 +51,12 @@ public ConditionAndOrN(int andOrType, List<Expression> expressions) {
         this.expressions = expressions;
     }
 
-    int getAndOrType() {
+    /**
+     * Returns the type of this condition.
+     *
+     * @return {@link ConditionAndOr#AND} or {@link ConditionAndOr#OR}
+     */
+    public int getAndOrType() {
         return andOrType;
     }
 
@@ -100,6 +105,8 @@ public void createIndexConditions(SessionLocal session, TableFilter filter) {
                     e.createIndexConditions(session, filter);
                 }
             }
+        } else {
+            filter.addIndexConditionUnion(session, expressions);
         }
     }
 
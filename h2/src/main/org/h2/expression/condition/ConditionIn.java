@@ -152,11 +152,11 @@ public Expression getNotIfPossible(SessionLocal session) {
 
     @Override
     public void createIndexConditions(SessionLocal session, TableFilter filter) {
-        if (not || whenOperand || !(left instanceof ExpressionColumn)) {
+        if (not || whenOperand) {
             return;
         }
-        ExpressionColumn l = (ExpressionColumn) left;
-        if (filter != l.getTableFilter()) {
+        ExpressionColumn l = filter.getIndexConditionColumn(left);
+        if (l == null) {
             return;
         }
         if (session.getDatabase().getSettings().optimizeInList) {
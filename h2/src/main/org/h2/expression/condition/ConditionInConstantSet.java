@@ -126,11 +126,11 @@ public Expression getNotIfPossible(SessionLocal session) {
 
     @Override
     public void createIndexConditions(SessionLocal session, TableFilter filter) {
-        if (not || whenOperand || !(left instanceof ExpressionColumn)) {
+        if (not || whenOperand) {
             return;
         }
-        ExpressionColumn l = (ExpressionColumn) left;
-        if (filter != l.getTableFilter()) {
+        ExpressionColumn l = filter.getIndexConditionColumn(left);
+        if (l == null) {
             return;
         }
         if (session.getDatabase().getSettings().optimizeInList) {
@@ -183,6 +183,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.QUERY_COMPARABLE:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return true;
         default:
             throw DbException.throwInternalError("type=" + visitor.getType());
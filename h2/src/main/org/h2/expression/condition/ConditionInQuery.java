@@ -13,6 +13,7 @@
 import org.h2.index.IndexCondition;
 import org.h2.result.LocalResult;
 import org.h2.result.ResultInterface;
+import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.DataType;
@@ -62,6 +63,19 @@ public boolean getWhenValue(SessionLocal session, Value left) {
     }
 
     private Value getValue(SessionLocal session, Value left) {
+        ValueRow key = getCacheKey(session, left);
+        if (key != null) {
+            Value v = getCachedValue(key);
+            if (v == null) {
+                v = getValueWithoutCache(session, left);
+                putCachedValue(key, v);
+            }
+            return v;
+        }
+        return getValueWithoutCache(session, left);
+    }
+
+    private Value getValueWithoutCache(SessionLocal session, Value left) {
         query.setSession(session);
         // We need a LocalResult
         query.setNeverLazy(true);
@@ -71,6 +85,13 @@ private Value getValue(SessionLocal session, Value left) {
             return ValueBoolean.get(not ^ all);
         }
         if ((compareType & ~1) == Comparison.EQUAL_NULL_SAFE) {
+            if (!all && compareType == Comparison.EQUAL_NULL_SAFE
+                    && session.getDatabase().getSettings().optimizeInSelect) {
+                Boolean found = containsNullSafe(rows, left);
+                if (found != null) {
+                    return ValueBoolean.get(not ^ found);
+                }
+            }
             return getNullSafeValueSlow(session, rows, left);
         }
         if (left.containsNull()) {
@@ -103,6 +124,35 @@ private Value getValue(SessionLocal session, Value left) {
         return ValueBoolean.get(not);
     }
 
+    /**
+     * Checks whether the specified rows contain a value that is not distinct
+     * from the specified value using the distinct lookup of the result.
+     *
+     * @param rows the rows
+     * @param left the value
+     * @return whether such value exists, or {@code null} if this can't be
+     *         determined without iteration over rows
+     */
+    private Boolean containsNullSafe(LocalResult rows, Value left) {
+        int columnCount = query.getColumnCount();
+        if (columnCount != 1) {
+            if (left.containsNull()) {
+                return null;
+            }
+            Value[] leftValue = left.convertToAnyRow().getList();
+            return columnCount == leftValue.length && rows.containsDistinct(leftValue);
+        }
+        if (left.getValueType() == Value.ROW) {
+            left = ((ValueRow) left).getList()[0];
+        }
+        if (left == ValueNull.INSTANCE) {
+            int type = rows.getColumnType(0).getValueType();
+            // Collections with NULL elements are also reported as NULL values
+            return type != Value.ARRAY && type != Value.ROW ? rows.containsNull() : null;
+        }
+        return rows.containsDistinct(new Value[] { left });
+    }
+
     private Value getValueSlow(SessionLocal session, ResultInterface rows, Value l) {
         // this only returns the correct result if the result has at least one
         // row, and if l is not null
@@ -225,9 +275,16 @@ public void createIndexConditions(SessionLocal session, TableFilter filter) {
         if (!session.getDatabase().getSettings().optimizeInList) {
             return;
         }
-        if (not || compareType != Comparison.EQUAL) {
+        if (not || all) {
             return;
         }
+        if (compareType != Comparison.EQUAL) {
+            // NULL values are not looked up in the index, this doesn't matter
+            // only if the column can't contain them
+            if (compareType != Comparison.EQUAL_NULL_SAFE || left.getNullable() != Column.NOT_NULLABLE) {
+                return;
+            }
+        }
         if (query.getColumnCount() != 1) {
             return;
         }
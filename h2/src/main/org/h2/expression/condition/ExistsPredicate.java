@@ -6,31 +6,127 @@
 package org.h2.expression.condition;
 
 import org.h2.command.query.Query;
+import org.h2.command.query.Select;
 import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionList;
+import org.h2.expression.ExpressionVisitor;
 import org.h2.result.ResultInterface;
+import org.h2.table.ColumnResolver;
+import org.h2.table.TableFilter;
 import org.h2.value.Value;
 import org.h2.value.ValueBoolean;
+import org.h2.value.ValueRow;
 
 /**
  * Exists predicate as in EXISTS(SELECT ...)
  */
 public class ExistsPredicate extends PredicateWithSubquery {
 
+    /**
+     * The semi-join condition used instead of this predicate, or {@code null}.
+     */
+    private Expression semiJoin;
+
     public ExistsPredicate(Query query) {
         super(query);
     }
 
     @Override
     public Value getValue(SessionLocal session) {
+        if (semiJoin != null) {
+            return semiJoin.getValue(session);
+        }
+        ValueRow key = getCacheKey(session, null);
+        if (key != null) {
+            Value v = getCachedValue(key);
+            if (v != null) {
+                return v;
+            }
+        }
         query.setSession(session);
         ResultInterface result = query.query(1);
         session.addTemporaryResult(result);
-        return ValueBoolean.get(result.hasNext());
+        Value v = ValueBoolean.get(result.hasNext());
+        if (key != null) {
+            putCachedValue(key, v);
+        }
+        return v;
+    }
+
+    @Override
+    public void mapColumns(ColumnResolver resolver, int level, int state) {
+        if (semiJoin != null) {
+            semiJoin.mapColumns(resolver, level, state);
+        } else {
+            super.mapColumns(resolver, level, state);
+        }
+    }
+
+    @Override
+    public Expression optimize(SessionLocal session) {
+        if (semiJoin != null) {
+            return this;
+        }
+        if (query instanceof Select && session.getDatabase().getSettings().optimizeExists) {
+            Expression[] outer = ((Select) query).convertToSemiJoin();
+            if (outer != null) {
+                // NULL values of outer columns are not equal to any values
+                // from the subquery, so the result is never NULL
+                semiJoin = new ConditionInQuery(outer.length == 1 ? outer[0] : new ExpressionList(outer, false),
+                        false, false, query, false, Comparison.EQUAL_NULL_SAFE).optimize(session);
+                return this;
+            }
+        }
+        return super.optimize(session);
+    }
+
+    @Override
+    public void setEvaluatable(TableFilter tableFilter, boolean value) {
+        if (semiJoin != null) {
+            semiJoin.setEvaluatable(tableFilter, value);
+        } else {
+            super.setEvaluatable(tableFilter, value);
+        }
+    }
+
+    @Override
+    public boolean needParentheses() {
+        return semiJoin != null;
     }
 
     @Override
     public StringBuilder getUnenclosedSQL(StringBuilder builder, int sqlFlags) {
+        if (semiJoin != null && (sqlFlags & ADD_PLAN_INFORMATION) != 0) {
+            return semiJoin.getUnenclosedSQL(builder, sqlFlags);
+        }
         return super.getUnenclosedSQL(builder.append("EXISTS"), sqlFlags);
     }
 
+    @Override
+    public void updateAggregate(SessionLocal session, int stage) {
+        if (semiJoin != null) {
+            semiJoin.updateAggregate(session, stage);
+        } else {
+            super.updateAggregate(session, stage);
+        }
+    }
+
+    @Override
+    public boolean isEverything(ExpressionVisitor visitor) {
+        return semiJoin != null ? semiJoin.isEverything(visitor) : super.isEverything(visitor);
+    }
+
+    @Override
+    public int getCost() {
+        return semiJoin != null ? semiJoin.getCost() : super.getCost();
+    }
+
+    @Override
+    public void createIndexConditions(SessionLocal session, TableFilter filter) {
+        if (semiJoin != null) {
+            semiJoin.createIndexConditions(session, filter);
+        }
+    }
+
 }
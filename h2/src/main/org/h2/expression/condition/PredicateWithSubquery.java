@@ -5,13 +5,21 @@
  */
 package org.h2.expression.condition;
 
+import java.util.ArrayList;
+
 import org.h2.command.query.Query;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
 import org.h2.expression.ExpressionVisitor;
+import org.h2.expression.Parameter;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
+import org.h2.util.SmallLRUCache;
 import org.h2.util.StringUtils;
+import org.h2.util.Utils;
+import org.h2.value.Value;
+import org.h2.value.ValueRow;
 
 /**
  * Base class for predicates with a subquery.
@@ -23,10 +31,116 @@ abstract class PredicateWithSubquery extends Condition {
      */
     final Query query;
 
+    /**
+     * Columns of outer queries used by the subquery, an empty array if results
+     * of the subquery are not cached, or {@code null} if it wasn't checked yet.
+     */
+    private ExpressionColumn[] correlatedColumns;
+
+    /**
+     * Results of the correlated subquery for different values of columns of
+     * outer queries and parameters.
+     */
+    private SmallLRUCache<ValueRow, Value> cache;
+
+    private SessionLocal cacheSession;
+
+    /**
+     * The data modification id with which cached results are consistent.
+     */
+    private long cacheModificationId;
+
+    /**
+     * The data modification id of the last check of the cache.
+     */
+    private long cacheCheckedModificationId;
+
     PredicateWithSubquery(Query query) {
         this.query = query;
     }
 
+    /**
+     * Returns the key in the cache of results of the correlated subquery for
+     * the current values of columns of outer queries and parameters. Discards
+     * cached results if data in the used tables was changed.
+     *
+     * @param session the session
+     * @param left the value of the left operand, or {@code null}
+     * @return the key, or {@code null} if results of the subquery are not
+     *         cached
+     */
+    final ValueRow getCacheKey(SessionLocal session, Value left) {
+        ExpressionColumn[] columns = correlatedColumns;
+        if (columns == null) {
+            correlatedColumns = columns = getCorrelatedColumns(session);
+        }
+        int columnCount = columns.length;
+        if (columnCount == 0) {
+            return null;
+        }
+        long modificationId = session.getDatabase().getModificationDataId();
+        if (cache == null) {
+            cache = SmallLRUCache.newInstance(session.getDatabase().getSettings().subqueryCacheSize);
+            cacheSession = session;
+            cacheModificationId = modificationId;
+        } else if (cacheSession != session) {
+            cache.clear();
+            cacheSession = session;
+            cacheModificationId = modificationId;
+        } else if (modificationId != cacheCheckedModificationId
+                && query.getMaxDataModificationId() > cacheModificationId) {
+            cache.clear();
+            cacheModificationId = modificationId;
+        }
+        cacheCheckedModificationId = modificationId;
+        ArrayList<Parameter> parameters = query.getParameters();
+        int offset = left != null ? 1 : 0, parameterCount = parameters != null ? parameters.size() : 0;
+        Value[] values = new Value[offset + columnCount + parameterCount];
+        if (left != null) {
+            values[0] = left;
+        }
+        for (int i = 0; i < columnCount; i++) {
+            values[offset + i] = columns[i].getValue(session);
+        }
+        offset += columnCount;
+        for (int i = 0; i < parameterCount; i++) {
+            values[offset + i] = parameters.get(i).getParamValue();
+        }
+        return ValueRow.get(values);
+    }
+
+    private ExpressionColumn[] getCorrelatedColumns(SessionLocal session) {
+        if (session.getDatabase().getSettings().subqueryCacheSize > 0
+                && query.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)
+                && query.getMaxDataModificationId() != Long.MAX_VALUE) {
+            ArrayList<ExpressionColumn> columns = Utils.newSmallArrayList();
+            if (query.isEverything(ExpressionVisitor.getCorrelatedColumnsVisitor(columns))) {
+                return columns.toArray(new ExpressionColumn[0]);
+            }
+        }
+        return new ExpressionColumn[0];
+    }
+
+    /**
+     * Returns the cached result of the correlated subquery.
+     *
+     * @param key the key returned by {@link #getCacheKey(SessionLocal, Value)}
+     * @return the cached result, or {@code null}
+     */
+    final Value getCachedValue(ValueRow key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Remembers the result of the correlated subquery.
+     *
+     * @param key the key returned by {@link #getCacheKey(SessionLocal, Value)}
+     * @param value the result
+     */
+    final void putCachedValue(ValueRow key, Value value) {
+        cache.put(key, value);
+    }
+
     @Override
     public void mapColumns(ColumnResolver resolver, int level, int state) {
         query.mapColumns(resolver, level + 1);
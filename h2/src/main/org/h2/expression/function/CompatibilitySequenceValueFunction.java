@@ -96,6 +96,7 @@ public boolean isEverything(ExpressionVisitor visitor) {
         case ExpressionVisitor.GET_DEPENDENCIES:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return super.isEverything(visitor);
         default:
             throw DbException.throwInternalError("type=" + visitor.getType());
@@ -102,6 +102,7 @@ protected final boolean isEverythingNonDeterministic(ExpressionVisitor visitor)
         case ExpressionVisitor.SET_MAX_DATA_MODIFICATION_ID:
         case ExpressionVisitor.GET_COLUMNS1:
         case ExpressionVisitor.GET_COLUMNS2:
+        case ExpressionVisitor.GET_CORRELATED_COLUMNS:
             return true;
         default:
             throw DbException.throwInternalError("type=" + visitor.getType());
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import org.h2.engine.SessionLocal;
+import org.h2.result.SearchRow;
+
+/**
+ * An index that can return sets of row keys. Bitmap indexes store such sets
+ * for each distinct value of the indexed column, other indexes collect them
+ * from their entries. Sets of row keys from different indexes can be combined
+ * before rows are read from the table.
+ */
+public interface BitmapIndex {
+
+    /**
+     * Find keys of rows with values of the indexed columns within the
+     * specified range.
+     *
+     * @param session the session
+     * @param first the lower bound, or null for no limit
+     * @param last the upper bound, or null for no limit
+     * @return the set of row keys
+     */
+    RowBitmap findRowKeys(SessionLocal session, SearchRow first, SearchRow last);
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.Constants;
+import org.h2.engine.SessionLocal;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.IndexColumn;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.util.Utils;
+
+/**
+ * A pseudo-index that combines indexes on different columns of the same table.
+ * Sets of row keys for conditions on columns of each index are combined with
+ * OR for IN predicates and with AND for different indexes, and only then rows
+ * are read from the table in ascending order of their keys.
+ */
+public final class BitmapIndexCombination extends Index {
+
+    private final Index[] indexes;
+
+    /**
+     * Creates a new combination of indexes.
+     *
+     * @param table the table
+     * @param indexes the {@link BitmapIndex} indexes on different columns of
+     *            the table
+     */
+    public BitmapIndexCombination(Table table, Index[] indexes) {
+        super(table, 0, getName(indexes), getIndexColumns(indexes), IndexType.createNonUnique(false));
+        this.indexes = indexes;
+    }
+
+    private static String getName(Index[] indexes) {
+        StringBuilder builder = new StringBuilder();
+        for (Index index : indexes) {
+            if (builder.length() > 0) {
+                builder.append(" AND ");
+            }
+            builder.append(index.getName());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns distinct columns of the specified indexes.
+     *
+     * @param indexes the indexes
+     * @return the distinct index columns
+     */
+    static IndexColumn[] getIndexColumns(Index[] indexes) {
+        ArrayList<IndexColumn> columns = Utils.newSmallArrayList();
+        for (Index index : indexes) {
+            loop: for (IndexColumn indexColumn : index.getIndexColumns()) {
+                for (IndexColumn c : columns) {
+                    if (c.column == indexColumn.column) {
+                        continue loop;
+                    }
+                }
+                columns.add(indexColumn);
+            }
+        }
+        return columns.toArray(new IndexColumn[0]);
+    }
+
+    /**
+     * Returns the combined indexes.
+     *
+     * @return the indexes
+     */
+    public Index[] getIndexes() {
+        return indexes;
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // nothing to do
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("Bitmap index combination");
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("Bitmap index combination");
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        RowBitmap result = null;
+        for (Index index : indexes) {
+            RowBitmap bitmap = ((BitmapIndex) index).findRowKeys(session, first, last);
+            if (result == null) {
+                result = bitmap;
+            } else {
+                result.and(bitmap);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return new RowBitmapCursor(session, table, result);
+    }
+
+    /**
+     * Find rows that match the specified index conditions.
+     *
+     * @param session the session
+     * @param indexConditions the index conditions
+     * @return the cursor to iterate over the results
+     */
+    public Cursor find(SessionLocal session, ArrayList<IndexCondition> indexConditions) {
+        return new RowBitmapCursor(session, table, findRowKeys(session, indexConditions));
+    }
+
+    /**
+     * Find keys of rows that match the specified index conditions.
+     *
+     * @param session the session
+     * @param indexConditions the index conditions
+     * @return the set of row keys
+     */
+    RowBitmap findRowKeys(SessionLocal session, ArrayList<IndexCondition> indexConditions) {
+        IndexCursor cursor = new IndexCursor();
+        RowBitmap result = null;
+        for (Index index : indexes) {
+            cursor.setIndex(index);
+            RowBitmap bitmap = cursor.findRowKeys(session, indexConditions);
+            if (result == null) {
+                result = bitmap;
+            } else {
+                result.and(bitmap);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        if (masks == null) {
+            return Long.MAX_VALUE;
+        }
+        TableFilter tableFilter = filters == null ? null : filters[filter];
+        long rowCount = table.getRowCountApproximation(session) + Constants.COST_ROW_OFFSET;
+        long bitmapsCost = 0L;
+        double rows = rowCount;
+        for (Index index : indexes) {
+            long rowsCost = index.getRowsCost(masks, rowCount, tableFilter);
+            // Entries of other indexes are read sequentially, but each entry
+            // has only one row key
+            bitmapsCost += (index.getIndexType().isBitmap() ? rowsCost / 16 : rowsCost / 2) + 2;
+            // Conditions on different columns are assumed to be independent
+            rows = rows * rowsCost / rowCount;
+        }
+        long sortingCost = sortOrder != null ? 100 + rowCount / 10 : 0L;
+        long rowsCost = 2 + (long) rows;
+        return 10 * (bitmapsCost + rowsCost + rowsCost + sortingCost + 20);
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        throw DbException.getUnsupportedException("Bitmap index combination");
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        throw DbException.getUnsupportedException("Bitmap index combination");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public boolean canScan() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return table.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return table.getRowCountApproximation(session);
+    }
+
+    @Override
+    public String getCreateSQL() {
+        return null;
+    }
+
+    @Override
+    public String getPlanSQL() {
+        StringBuilder builder = new StringBuilder();
+        for (Index index : indexes) {
+            if (builder.length() > 0) {
+                builder.append(" AND ");
+            }
+            builder.append(index.getPlanSQL());
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.Constants;
+import org.h2.engine.SessionLocal;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.IndexColumn;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.util.HasSQL;
+
+/**
+ * A pseudo-index for OR conditions. Each operand of OR condition has its own
+ * index conditions and its own index. Sets of row keys from these indexes are
+ * combined with OR, and only then rows are read from the table in ascending
+ * order of their keys.
+ */
+public final class BitmapIndexUnion extends Index {
+
+    private final Index[] indexes;
+
+    private final int[][] masks;
+
+    private final List<ArrayList<IndexCondition>> indexConditions;
+
+    /**
+     * Creates a new union of indexes.
+     *
+     * @param table the table
+     * @param indexes the {@link BitmapIndex} indexes or combinations of them
+     *            for each operand
+     * @param masks per-column comparison bit masks for each operand
+     * @param indexConditions the index conditions for each operand
+     */
+    public BitmapIndexUnion(Table table, Index[] indexes, int[][] masks,
+            List<ArrayList<IndexCondition>> indexConditions) {
+        super(table, 0, getName(indexes), new IndexColumn[0], IndexType.createNonUnique(false));
+        this.indexes = indexes;
+        this.masks = masks;
+        this.indexConditions = indexConditions;
+    }
+
+    private static String getName(Index[] indexes) {
+        StringBuilder builder = new StringBuilder();
+        for (Index index : indexes) {
+            if (builder.length() > 0) {
+                builder.append(" OR ");
+            }
+            builder.append(index.getName());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the indexes for each operand.
+     *
+     * @return the indexes
+     */
+    public Index[] getIndexes() {
+        return indexes;
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // nothing to do
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("Bitmap index union");
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("Bitmap index union");
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        return find(session);
+    }
+
+    /**
+     * Find rows that match index conditions of any operand.
+     *
+     * @param session the session
+     * @return the cursor to iterate over the results
+     */
+    public Cursor find(SessionLocal session) {
+        RowBitmap result = new RowBitmap();
+        IndexCursor cursor = null;
+        for (int i = 0, length = indexes.length; i < length; i++) {
+            Index index = indexes[i];
+            if (index instanceof BitmapIndexCombination) {
+                result.or(((BitmapIndexCombination) index).findRowKeys(session, indexConditions.get(i)));
+            } else {
+                if (cursor == null) {
+                    cursor = new IndexCursor();
+                }
+                cursor.setIndex(index);
+                result.or(cursor.findRowKeys(session, indexConditions.get(i)));
+            }
+        }
+        return new RowBitmapCursor(session, table, result);
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        if (masks == null) {
+            return Long.MAX_VALUE;
+        }
+        // Rows from different operands are assumed to be different
+        double cost = 0d;
+        for (int i = 0, length = indexes.length; i < length; i++) {
+            cost += indexes[i].getCost(session, this.masks[i], filters, filter, null, null);
+        }
+        if (sortOrder != null) {
+            long rowCount = table.getRowCountApproximation(session) + Constants.COST_ROW_OFFSET;
+            cost += 10 * (100 + rowCount / 10);
+        }
+        return cost;
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        throw DbException.getUnsupportedException("Bitmap index union");
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        throw DbException.getUnsupportedException("Bitmap index union");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public boolean canScan() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return table.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return table.getRowCountApproximation(session);
+    }
+
+    @Override
+    public String getCreateSQL() {
+        return null;
+    }
+
+    @Override
+    public String getPlanSQL() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0, length = indexes.length; i < length; i++) {
+            if (i > 0) {
+                builder.append("\n    OR ");
+            }
+            builder.append(indexes[i].getPlanSQL()).append(": ");
+            ArrayList<IndexCondition> conditions = indexConditions.get(i);
+            for (int j = 0, size = conditions.size(); j < size; j++) {
+                if (j > 0) {
+                    builder.append(" AND ");
+                }
+                builder.append(conditions.get(j).getSQL(HasSQL.TRACE_SQL_FLAGS | HasSQL.ADD_PLAN_INFORMATION));
+            }
+        }
+        return builder.toString();
+    }
+
+}
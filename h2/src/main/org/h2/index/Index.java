@@ -6,12 +6,15 @@
 package org.h2.index;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.h2.api.ErrorCode;
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.engine.Constants;
 import org.h2.engine.DbObject;
 import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.condition.Comparison;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.result.Row;
@@ -20,10 +23,12 @@
 import org.h2.result.SortOrder;
 import org.h2.schema.SchemaObject;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
 import org.h2.util.StringUtils;
+import org.h2.util.Utils;
 import org.h2.value.DataType;
 import org.h2.value.Value;
 import org.h2.value.ValueNull;
@@ -71,8 +76,35 @@ protected static void checkIndexColumnTypes(IndexColumn[] columns) {
      */
     protected final IndexType indexType;
 
+    /**
+     * The number of trailing included columns.
+     */
+    private final int includedColumnCount;
+
+    /**
+     * The number of leading columns checked for uniqueness by a unique index.
+     * Zero for non-unique indexes.
+     */
+    protected final int uniqueColumnCount;
+
     private final RowFactory rowFactory;
 
+    /**
+     * Columns of index expressions, or {@code null}.
+     */
+    private final Column[] expressionColumns;
+
+    /**
+     * Estimated numbers of distinct combinations of values of leading columns,
+     * or {@code null}.
+     */
+    private volatile long[] distinctCounts;
+
+    /**
+     * The condition of a partial index, or {@code null}.
+     */
+    private PartialIndexCondition condition;
+
     /**
      * Initialize the index.
      *
@@ -84,9 +116,30 @@ protected static void checkIndexColumnTypes(IndexColumn[] columns) {
      * @param newIndexType the index type
      */
     protected Index(Table newTable, int id, String name, IndexColumn[] newIndexColumns, IndexType newIndexType) {
+        this(newTable, id, name, newIndexColumns, newIndexColumns != null ? newIndexColumns.length : 0,
+                newIndexType);
+    }
+
+    /**
+     * Initialize the index.
+     *
+     * @param newTable the table
+     * @param id the object id
+     * @param name the index name
+     * @param newIndexColumns the columns that are indexed or null if this is
+     *            not yet known
+     * @param keyColumnCount the number of leading key columns, remaining
+     *            columns are included columns
+     * @param newIndexType the index type
+     */
+    protected Index(Table newTable, int id, String name, IndexColumn[] newIndexColumns, int keyColumnCount,
+            IndexType newIndexType) {
         super(newTable.getSchema(), id, name, Trace.INDEX);
+        this.includedColumnCount = newIndexColumns != null ? newIndexColumns.length - keyColumnCount : 0;
+        this.uniqueColumnCount = newIndexType.isUnique() ? keyColumnCount : 0;
         this.indexType = newIndexType;
         this.table = newTable;
+        ArrayList<Column> expressionColumns = null;
         if (newIndexColumns != null) {
             this.indexColumns = newIndexColumns;
             columns = new Column[newIndexColumns.length];
@@ -96,8 +149,17 @@ protected Index(Table newTable, int id, String name, IndexColumn[] newIndexColum
                 Column col = newIndexColumns[i].column;
                 columns[i] = col;
                 columnIds[i] = col.getColumnId();
+                if (col.isIndexExpression()) {
+                    if (expressionColumns == null) {
+                        expressionColumns = Utils.newSmallArrayList();
+                    }
+                    if (!expressionColumns.contains(col)) {
+                        expressionColumns.add(col);
+                    }
+                }
             }
         }
+        this.expressionColumns = expressionColumns != null ? expressionColumns.toArray(new Column[0]) : null;
         rowFactory = database.getRowFactory().createRowFactory(
                 database, database.getCompareMode(), database.getMode(),
                 database, table.getColumns(),
@@ -137,6 +199,14 @@ public String getCreateSQLForCopy(Table targetTable, String quotedName) {
             StringUtils.quoteStringSQL(buff, comment);
         }
         buff.append('(').append(getColumnListSQL(DEFAULT_SQL_FLAGS)).append(')');
+        int length = indexColumns.length;
+        if (includedColumnCount > 0) {
+            IndexColumn.writeColumns(buff.append(" INCLUDE("), indexColumns, length - includedColumnCount, length,
+                    DEFAULT_SQL_FLAGS | IndexColumn.SQL_NO_ORDER).append(')');
+        }
+        if (condition != null) {
+            condition.getSQL(buff.append(" WHERE "), DEFAULT_SQL_FLAGS);
+        }
         return buff.toString();
     }
 
@@ -147,7 +217,8 @@ public String getCreateSQLForCopy(Table targetTable, String quotedName) {
      * @return the list of columns
      */
     private String getColumnListSQL(int sqlFlags) {
-        return IndexColumn.writeColumns(new StringBuilder(), indexColumns, sqlFlags).toString();
+        return IndexColumn.writeColumns(new StringBuilder(), indexColumns, 0,
+                indexColumns.length - includedColumnCount, sqlFlags).toString();
     }
 
     @Override
@@ -155,6 +226,22 @@ public String getCreateSQL() {
         return getCreateSQLForCopy(table, getSQL(DEFAULT_SQL_FLAGS));
     }
 
+    @Override
+    public String getCreateSQLForMeta() {
+        String sql = getCreateSQL();
+        if (sql == null || distinctCounts == null) {
+            return sql;
+        }
+        StringBuilder builder = new StringBuilder(sql).append(" STATISTICS(");
+        for (int i = 0, l = distinctCounts.length; i < l; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(distinctCounts[i]);
+        }
+        return builder.append(')').toString();
+    }
+
     /**
      * Get the message to show in a EXPLAIN statement.
      *
@@ -238,6 +325,20 @@ public boolean isFindUsingFullTableScan() {
     public abstract double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
             SortOrder sortOrder, AllColumnsForPlan allColumnsSet);
 
+    /**
+     * Estimates the number of rows read from this index by one lookup with
+     * the specified per-column comparison masks.
+     *
+     * @param session the session
+     * @param masks per-column comparison bit masks, null means 'always false',
+     *              see constants in IndexCondition
+     * @param filter the table filter
+     * @return the estimated number of rows, or -1 if it is not known
+     */
+    public long getEstimatedRowCount(SessionLocal session, int[] masks, TableFilter filter) {
+        return -1L;
+    }
+
     /**
      * Remove the index.
      *
@@ -330,6 +431,29 @@ public long getDiskSpaceUsed() {
         return 0L;
     }
 
+    /**
+     * Returns a row with values of columns of the specified row of the table
+     * and with computed values of index expressions of this index.
+     *
+     * @param session the session
+     * @param row the row of the table
+     * @return the row with values of index expressions, or the specified row
+     *         if this index doesn't have expressions or if they are already
+     *         computed
+     */
+    public final Row getRowWithExpressions(SessionLocal session, Row row) {
+        Column[] expressionColumns = this.expressionColumns;
+        int columnCount = rowFactory.getColumnCount();
+        if (expressionColumns == null || row.getColumnCount() >= columnCount) {
+            return row;
+        }
+        Value[] data = Arrays.copyOf(row.getValueList(), columnCount);
+        for (Column column : expressionColumns) {
+            data[column.getColumnId()] = column.getIndexExpressionValue(session, row);
+        }
+        return table.createRow(data, SearchRow.MEMORY_CALCULATE, row.getKey());
+    }
+
     /**
      * Compare two rows.
      *
@@ -425,6 +549,71 @@ public final IndexType getIndexType() {
         return indexType;
     }
 
+    /**
+     * Returns the number of leading key columns. Remaining columns are
+     * included into the index, but entries aren't ordered by them.
+     *
+     * @return the number of key columns
+     */
+    public final int getKeyColumnCount() {
+        return columns != null ? columns.length - includedColumnCount : 0;
+    }
+
+    /**
+     * Returns the number of leading columns checked for uniqueness by a
+     * unique index. Remaining columns are included into the index, but aren't
+     * checked.
+     *
+     * @return the number of unique columns, or 0 for non-unique indexes
+     */
+    public final int getUniqueColumnCount() {
+        return uniqueColumnCount;
+    }
+
+    /**
+     * Returns the condition of a partial index.
+     *
+     * @return the condition, or {@code null} if all rows are indexed
+     */
+    public final PartialIndexCondition getCondition() {
+        return condition;
+    }
+
+    /**
+     * Sets the condition of a partial index. This method must be called
+     * before rows are added to the index.
+     *
+     * @param condition the condition, or {@code null} if all rows are indexed
+     */
+    public final void setCondition(PartialIndexCondition condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * Returns whether the specified row should be stored in this index.
+     *
+     * @param session the session
+     * @param row the row
+     * @return {@code true} if this index isn't a partial index or the row
+     *         matches its condition
+     */
+    public final boolean isRowIndexed(SessionLocal session, Row row) {
+        return condition == null || condition.matches(session, row);
+    }
+
+    /**
+     * Returns whether this index may be used by the specified table filter. A
+     * partial index may be used only when conditions of the table filter imply
+     * its condition.
+     *
+     * @param session the session
+     * @param filter the table filter, or {@code null}
+     * @return whether this index may be used
+     */
+    public final boolean isUsableFor(SessionLocal session, TableFilter filter) {
+        return condition == null || filter != null && condition.isImplied(session, filter);
+    }
+
     /**
      * Get the table on which this index is based.
      *
@@ -529,56 +718,16 @@ protected StringBuilder getDuplicatePrimaryKeyMessage(int mainIndexColumn) {
     protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[] filters, int filter,
             SortOrder sortOrder, boolean isScanIndex, AllColumnsForPlan allColumnsSet) {
         rowCount += Constants.COST_ROW_OFFSET;
-        int totalSelectivity = 0;
         long rowsCost = rowCount;
         if (masks != null) {
-            int i = 0, len = columns.length;
-            boolean tryAdditional = false;
-            while (i < len) {
-                Column column = columns[i++];
-                int index = column.getColumnId();
-                int mask = masks[index];
-                if ((mask & IndexCondition.EQUALITY) == IndexCondition.EQUALITY) {
-                    if (i == len && getIndexType().isUnique()) {
-                        rowsCost = 3;
-                        break;
-                    }
-                    totalSelectivity = 100 - ((100 - totalSelectivity) *
-                            (100 - column.getSelectivity()) / 100);
-                    long distinctRows = rowCount * totalSelectivity / 100;
-                    if (distinctRows <= 0) {
-                        distinctRows = 1;
-                    }
-                    rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
-                } else if ((mask & IndexCondition.RANGE) == IndexCondition.RANGE) {
-                    rowsCost = 2 + rowsCost / 4;
-                    tryAdditional = true;
-                    break;
-                } else if ((mask & IndexCondition.START) == IndexCondition.START) {
-                    rowsCost = 2 + rowsCost / 3;
-                    tryAdditional = true;
-                    break;
-                } else if ((mask & IndexCondition.END) == IndexCondition.END) {
-                    rowsCost = rowsCost / 3;
-                    tryAdditional = true;
-                    break;
-                } else {
-                    if (mask == 0) {
-                        // Adjust counter of used columns (i)
-                        i--;
-                    }
-                    break;
-                }
-            }
-            // Some additional columns can still be used
-            if (tryAdditional) {
-                while (i < len && masks[columns[i].getColumnId()] != 0) {
-                    i++;
-                    rowsCost--;
+            TableFilter tableFilter = filters == null ? null : filters[filter];
+            rowsCost = getRowsCost(masks, rowCount, tableFilter);
+            if (!isScanIndex) {
+                long skipScanCost = getSkipScanCost(masks, rowCount, tableFilter);
+                if (skipScanCost >= 0L && skipScanCost < rowsCost) {
+                    rowsCost = skipScanCost;
                 }
             }
-            // Increase cost of indexes with additional unused columns
-            rowsCost += len - i;
         }
         // If the ORDER BY clause matches the ordering of this index,
         // it will be cheaper than another index, so adjust the cost
@@ -593,7 +742,7 @@ protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[]
             int[] sortTypes = sortOrder.getSortTypesWithNullOrdering();
             TableFilter tableFilter = filters == null ? null : filters[filter];
             for (int i = 0, len = sortTypes.length; i < len; i++) {
-                if (i >= indexColumns.length) {
+                if (i >= getKeyColumnCount()) {
                     // We can still use this index if we are sorting by more
                     // than it's columns, it's just that the coveringCount
                     // is lower than with an index that contains
@@ -666,6 +815,313 @@ protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[]
         return rc;
     }
 
+    /**
+     * Estimates the number of rows read by one lookup with the given mask as
+     * if this index was a typical b-tree range index. Unlike the estimated
+     * cost, the result doesn't include the row offset, the sorting cost, and
+     * the cost of reading rows from the scan index.
+     *
+     * @param masks the IndexCondition search masks, one for each column in the
+     *            table
+     * @param rowCount the number of rows in the index
+     * @param filter the table filter
+     * @param isScanIndex whether this is a "table scan" index
+     * @return the estimated number of rows
+     */
+    protected final long getEstimatedRowCountRangeIndex(int[] masks, long rowCount, TableFilter filter,
+            boolean isScanIndex) {
+        if (masks == null) {
+            return 0L;
+        }
+        long rows = getRowsCost(masks, rowCount, filter);
+        if (!isScanIndex) {
+            long skipScanRows = getSkipScanCost(masks, rowCount, filter);
+            if (skipScanRows >= 0L && skipScanRows < rows) {
+                rows = skipScanRows;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns whether a skip scan should be used for the specified per-column
+     * comparison masks. A skip scan iterates over distinct values of the first
+     * column of the index and performs a range lookup with conditions on the
+     * next columns for each of them.
+     *
+     * @param session the session
+     * @param masks per-column comparison bit masks, or {@code null}
+     * @param filter the table filter
+     * @return whether a skip scan should be used
+     */
+    public final boolean isSkipScan(SessionLocal session, int[] masks, TableFilter filter) {
+        if (masks == null || indexType.isScan()) {
+            return false;
+        }
+        long rowCount = getRowCountApproximation(session) + Constants.COST_ROW_OFFSET;
+        long skipScanCost = getSkipScanCost(masks, rowCount, filter);
+        return skipScanCost >= 0L && skipScanCost < getRowsCost(masks, rowCount, filter);
+    }
+
+    /**
+     * Estimates the cost of a skip scan with the specified per-column
+     * comparison masks.
+     *
+     * @param masks per-column comparison bit masks
+     * @param rowCount the number of rows in the index plus the row offset
+     * @param tableFilter the table filter, or {@code null}
+     * @return the estimated cost, or -1 if skip scan can't be used
+     */
+    private long getSkipScanCost(int[] masks, long rowCount, TableFilter tableFilter) {
+        if (tableFilter == null || getKeyColumnCount() < 2 || !canFindNext() || indexType.isSpatial()
+                || columnIds[0] >= masks.length || masks[columnIds[0]] != 0 || getMask(masks, columns[1]) == 0) {
+            return -1L;
+        }
+        /*
+         * IN conditions set the same mask as equality, but the cursor can use
+         * them only for the first column of the index, they don't limit a skip
+         * scan.
+         */
+        int[] leadingMasks = new int[masks.length];
+        for (IndexCondition condition : tableFilter.getIndexConditions()) {
+            int compareType = condition.getCompareType();
+            if (compareType != Comparison.IN_LIST && compareType != Comparison.IN_QUERY
+                    && condition.isEvaluatable()) {
+                int id = condition.getColumn().getColumnId();
+                if (id >= 0 && id < masks.length) {
+                    leadingMasks[id] |= masks[id] & condition.getMask(null);
+                }
+            }
+        }
+        if (leadingMasks[columnIds[1]] == 0) {
+            return -1L;
+        }
+        Column column = columns[0];
+        long distinct;
+        ColumnStatistics statistics;
+        if (distinctCounts != null) {
+            distinct = distinctCounts[0];
+        } else if ((statistics = column.getStatistics()) != null) {
+            // And possibly NULL
+            distinct = statistics.getDistinctCount() + 1;
+        } else {
+            distinct = rowCount * column.getSelectivity() / 100;
+        }
+        distinct = Math.max(distinct, 1L);
+        leadingMasks[columnIds[0]] = IndexCondition.EQUALITY;
+        // Each distinct value needs an additional lookup
+        double cost = (double) distinct * (getRowsCost(leadingMasks, rowCount, tableFilter) + 1);
+        return cost < Long.MAX_VALUE ? (long) cost : -1L;
+    }
+
+    /**
+     * Estimates the number of rows to read with the specified per-column
+     * comparison masks.
+     *
+     * @param masks per-column comparison bit masks
+     * @param rowCount the number of rows in the index plus the row offset
+     * @param tableFilter the table filter, or {@code null}
+     * @return the estimated cost of reading of rows
+     */
+    protected final long getRowsCost(int[] masks, long rowCount, TableFilter tableFilter) {
+        int totalSelectivity = 0;
+        long rowsCost = rowCount;
+        // Fractions of rows estimated with column statistics, or -1
+        double equalityFraction = tableFilter != null ? 1d : -1d, rangeFraction = 1d;
+        int equalityColumns = 0;
+        int i = 0, len = getKeyColumnCount();
+        boolean tryAdditional = false;
+        while (i < len) {
+            Column column = columns[i++];
+            int mask = getMask(masks, column);
+            if ((mask & IndexCondition.EQUALITY) == IndexCondition.EQUALITY) {
+                if (i == uniqueColumnCount && getIndexType().isUnique()) {
+                    rowsCost = 3;
+                    equalityFraction = -1d;
+                    break;
+                }
+                totalSelectivity = 100 - ((100 - totalSelectivity) *
+                        (100 - column.getSelectivity()) / 100);
+                long distinctRows = rowCount * totalSelectivity / 100;
+                if (distinctRows <= 0) {
+                    distinctRows = 1;
+                }
+                rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
+                if (equalityFraction >= 0d) {
+                    double f = getEqualityFraction(tableFilter, column);
+                    equalityFraction = f >= 0d ? equalityFraction * f : -1d;
+                }
+                equalityColumns++;
+            } else if ((mask & IndexCondition.RANGE) == IndexCondition.RANGE) {
+                rowsCost = 2 + rowsCost / 4;
+                rangeFraction = getRangeFraction(tableFilter, column, equalityColumns > 0 ? 0.25d : -1d);
+                tryAdditional = true;
+                break;
+            } else if ((mask & IndexCondition.START) == IndexCondition.START) {
+                rowsCost = 2 + rowsCost / 3;
+                rangeFraction = getRangeFraction(tableFilter, column, equalityColumns > 0 ? 0.33d : -1d);
+                tryAdditional = true;
+                break;
+            } else if ((mask & IndexCondition.END) == IndexCondition.END) {
+                rowsCost = rowsCost / 3;
+                rangeFraction = getRangeFraction(tableFilter, column, equalityColumns > 0 ? 0.33d : -1d);
+                tryAdditional = true;
+                break;
+            } else {
+                if (mask == 0) {
+                    // Adjust counter of used columns (i)
+                    i--;
+                }
+                break;
+            }
+        }
+        if (equalityFraction >= 0d && rangeFraction >= 0d && (equalityColumns > 0 || tryAdditional)) {
+            if (equalityColumns > 1 && distinctCounts != null && equalityColumns <= distinctCounts.length) {
+                // Values of different columns may be correlated
+                equalityFraction = Math.max(equalityFraction, 1d / Math.max(distinctCounts[equalityColumns - 1], 1L));
+            }
+            rowsCost = 2 + Math.max((long) (rowCount * equalityFraction * rangeFraction), 1L);
+            if (tryAdditional) {
+                // Prefer indexes that use more columns
+                rowsCost--;
+            }
+        }
+        // Some additional columns can still be used
+        if (tryAdditional) {
+            while (i < len && getMask(masks, columns[i]) != 0) {
+                i++;
+                rowsCost--;
+            }
+        }
+        // Increase cost of indexes with additional unused columns
+        rowsCost += len - i;
+        return rowsCost;
+    }
+
+    /**
+     * Returns the comparison mask of the specified column.
+     *
+     * @param masks per-column comparison bit masks
+     * @param column the column
+     * @return the mask, 0 for a column of an index expression that was created
+     *         after computation of masks
+     */
+    private static int getMask(int[] masks, Column column) {
+        int index = column.getColumnId();
+        return index < masks.length ? masks[index] : 0;
+    }
+
+    /**
+     * Estimates the fraction of rows selected by an equality condition on the
+     * specified column using its statistics.
+     *
+     * @param filter the table filter
+     * @param column the column
+     * @return the estimated fraction of rows, or -1 if column has no
+     *         statistics
+     */
+    private static double getEqualityFraction(TableFilter filter, Column column) {
+        ColumnStatistics statistics = column.getStatistics();
+        if (statistics == null) {
+            return -1d;
+        }
+        SessionLocal session = filter.getSession();
+        for (IndexCondition condition : filter.getIndexConditions()) {
+            if (condition.getColumn() != column) {
+                continue;
+            }
+            switch (condition.getCompareType()) {
+            case Comparison.EQUAL:
+            case Comparison.EQUAL_NULL_SAFE: {
+                Expression e = condition.getExpression();
+                if (e.isConstant()) {
+                    return statistics.getEqualityFraction(session, e.getValue(session));
+                }
+                break;
+            }
+            case Comparison.IN_LIST: {
+                double fraction = 0d;
+                for (Expression e : condition.getExpressionList()) {
+                    fraction += statistics.getEqualityFraction(session, e.isConstant() ? e.getValue(session) : null);
+                }
+                return Math.min(fraction, 1d);
+            }
+            }
+        }
+        return statistics.getEqualityFraction(session, null);
+    }
+
+    /**
+     * Estimates the fraction of rows selected by range conditions on the
+     * specified column using its statistics.
+     *
+     * @param filter the table filter
+     * @param column the column
+     * @param defaultFraction the fraction to return when bounds are not known
+     * @return the estimated fraction of rows, or -1 if column has no
+     *         statistics and default fraction is -1
+     */
+    private static double getRangeFraction(TableFilter filter, Column column, double defaultFraction) {
+        ColumnStatistics statistics = column.getStatistics();
+        if (filter == null || statistics == null) {
+            return defaultFraction;
+        }
+        SessionLocal session = filter.getSession();
+        Value min = null, max = null;
+        for (IndexCondition condition : filter.getIndexConditions()) {
+            if (condition.getColumn() != column) {
+                continue;
+            }
+            Expression e = condition.getExpression();
+            if (e == null || !e.isConstant()) {
+                continue;
+            }
+            Value v = e.getValue(session);
+            if (v == ValueNull.INSTANCE) {
+                continue;
+            }
+            switch (condition.getCompareType()) {
+            case Comparison.BIGGER_EQUAL:
+            case Comparison.BIGGER:
+                if (min == null || session.compare(v, min) > 0) {
+                    min = v;
+                }
+                break;
+            case Comparison.SMALLER_EQUAL:
+            case Comparison.SMALLER:
+                if (max == null || session.compare(v, max) < 0) {
+                    max = v;
+                }
+            }
+        }
+        if (min == null && max == null) {
+            return defaultFraction;
+        }
+        return statistics.getRangeFraction(session, min, max);
+    }
+
+    /**
+     * Returns the estimated numbers of distinct combinations of values of
+     * leading columns of this index.
+     *
+     * @return the estimated numbers of distinct combinations of values of
+     *         first 1, 2, ... columns, or {@code null}
+     */
+    public long[] getDistinctCounts() {
+        return distinctCounts;
+    }
+
+    /**
+     * Sets the estimated numbers of distinct combinations of values of
+     * leading columns of this index.
+     *
+     * @param distinctCounts the estimated numbers of distinct combinations of
+     *            values of first 1, 2, ... columns, or {@code null}
+     */
+    public void setDistinctCounts(long[] distinctCounts) {
+        this.distinctCounts = distinctCounts;
+    }
+
 
     /**
      * Check if this row may have duplicates with the same indexed values in the
@@ -680,15 +1136,15 @@ protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[]
     public final boolean mayHaveNullDuplicates(SearchRow searchRow) {
         switch (database.getMode().uniqueIndexNullsHandling) {
         case ALLOW_DUPLICATES_WITH_ANY_NULL:
-            for (int index : columnIds) {
-                if (searchRow.getValue(index) == ValueNull.INSTANCE) {
+            for (int i = 0; i < uniqueColumnCount; i++) {
+                if (searchRow.getValue(columnIds[i]) == ValueNull.INSTANCE) {
                     return true;
                 }
             }
             return false;
         case ALLOW_DUPLICATES_WITH_ALL_NULLS:
-            for (int index : columnIds) {
-                if (searchRow.getValue(index) != ValueNull.INSTANCE) {
+            for (int i = 0; i < uniqueColumnCount; i++) {
+                if (searchRow.getValue(columnIds[i]) != ValueNull.INSTANCE) {
                     return false;
                 }
             }
@@ -44,25 +44,72 @@ public class IndexCursor implements Cursor {
     private Value[] inList;
     private ResultInterface inResult;
 
+    /**
+     * Whether skip scan should be used.
+     */
+    private boolean skipScan;
+
+    /**
+     * The last found value of the first index column during skip scan, or
+     * {@code null} if skip scan isn't active or no values were found yet.
+     */
+    private SearchRow skipScanLast;
+
+    /**
+     * Whether skip scan is active.
+     */
+    private boolean skipScanActive;
+
     public IndexCursor() {
     }
 
     public void setIndex(Index index) {
         this.index = index;
         this.table = index.getTable();
+        skipScan = false;
         Column[] columns = table.getColumns();
-        indexColumns = new IndexColumn[columns.length];
+        int columnCount = columns.length;
+        indexColumns = new IndexColumn[table.getSearchRowColumnCount()];
         IndexColumn[] idxCols = index.getIndexColumns();
         if (idxCols != null) {
-            for (int i = 0, len = columns.length; i < len; i++) {
+            // included columns can't limit the range of index entries
+            int keyColumnCount = index.getKeyColumnCount();
+            for (int i = 0; i < columnCount; i++) {
                 int idx = index.getColumnIndex(columns[i]);
-                if (idx >= 0) {
+                if (idx >= 0 && idx < keyColumnCount) {
                     indexColumns[i] = idxCols[idx];
                 }
             }
+            for (int i = 0; i < keyColumnCount; i++) {
+                IndexColumn idxCol = idxCols[i];
+                Column column = idxCol.column;
+                if (column != null && column.isIndexExpression() && column.getColumnId() < indexColumns.length) {
+                    indexColumns[column.getColumnId()] = idxCol;
+                }
+            }
         }
     }
 
+    /**
+     * Sets whether skip scan over distinct values of the first index column
+     * should be used.
+     *
+     * @param skipScan whether skip scan should be used
+     */
+    public void setSkipScan(boolean skipScan) {
+        this.skipScan = skipScan;
+    }
+
+    /**
+     * Returns whether skip scan over distinct values of the first index column
+     * is used.
+     *
+     * @return whether skip scan is used
+     */
+    public boolean isSkipScan() {
+        return skipScan;
+    }
+
     /**
      * Prepare this index cursor to make a lookup in index.
      *
@@ -72,6 +119,8 @@ public void setIndex(Index index) {
     public void prepare(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
         session = s;
         alwaysFalse = false;
+        skipScanActive = false;
+        skipScanLast = null;
         start = end = null;
         inList = null;
         inColumn = null;
@@ -87,6 +136,10 @@ public void prepare(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
             if (index.isFindUsingFullTableScan()) {
                 continue;
             }
+            // Combinations of indexes use index conditions directly
+            if (index instanceof BitmapIndexCombination || index instanceof BitmapIndexUnion) {
+                continue;
+            }
             Column column = condition.getColumn();
             if (condition.getCompareType() == Comparison.IN_LIST) {
                 if (start == null && end == null) {
@@ -109,7 +162,7 @@ public void prepare(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
                 boolean isEnd = condition.isEnd();
                 boolean isIntersects = condition.isSpatialIntersects();
                 int columnId = column.getColumnId();
-                if (columnId != SearchRow.ROWID_INDEX) {
+                if (columnId != SearchRow.ROWID_INDEX && columnId < indexColumns.length) {
                     IndexColumn idxCol = indexColumns[columnId];
                     if (idxCol != null && (idxCol.sortType & SortOrder.DESCENDING) != 0) {
                         // if the index column is sorted the other way, we swap
@@ -139,7 +192,7 @@ public void prepare(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
             }
         }
         if (inColumn != null) {
-            start = table.getTemplateRow();
+            start = table.getSearchTemplateRow();
         }
     }
 
@@ -157,12 +210,64 @@ public void find(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
         if (!alwaysFalse) {
             if (intersects != null && index instanceof SpatialIndex) {
                 cursor = ((SpatialIndex) index).findByGeometry(session, start, end, intersects);
+            } else if (index instanceof BitmapIndexCombination) {
+                cursor = ((BitmapIndexCombination) index).find(session, indexConditions);
+            } else if (index instanceof BitmapIndexUnion) {
+                cursor = ((BitmapIndexUnion) index).find(session);
+            } else if (skipScan) {
+                if (start == null) {
+                    start = table.getSearchTemplateRow();
+                }
+                if (end == null) {
+                    end = table.getSearchTemplateRow();
+                }
+                skipScanActive = true;
+                cursor = null;
             } else if (index != null) {
                 cursor = index.find(session, start, end);
             }
         }
     }
 
+    /**
+     * Find keys of rows that match the index conditions. The index must be a
+     * {@link BitmapIndex}.
+     *
+     * @param s the session
+     * @param indexConditions the index conditions
+     * @return the set of row keys
+     */
+    public RowBitmap findRowKeys(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
+        prepare(s, indexConditions);
+        if (alwaysFalse) {
+            return new RowBitmap();
+        }
+        BitmapIndex bitmapIndex = (BitmapIndex) index;
+        if (inColumn == null) {
+            return bitmapIndex.findRowKeys(session, start, end);
+        }
+        // Sets of row keys for values from IN predicate are combined with OR
+        RowBitmap bitmap = new RowBitmap();
+        int id = inColumn.getColumnId();
+        if (inList != null) {
+            for (Value v : inList) {
+                if (v != ValueNull.INSTANCE) {
+                    start.setValue(id, inColumn.convert(session, v));
+                    bitmap.or(bitmapIndex.findRowKeys(session, start, start));
+                }
+            }
+        } else {
+            while (inResult.next()) {
+                Value v = inResult.currentRow()[0];
+                if (v != ValueNull.INSTANCE) {
+                    start.setValue(id, inColumn.convert(session, v));
+                    bitmap.or(bitmapIndex.findRowKeys(session, start, start));
+                }
+            }
+        }
+        return bitmap;
+    }
+
     private boolean canUseIndexForIn(Column column) {
         if (inColumn != null) {
             // only one IN(..) condition can be used at the same time
@@ -186,7 +291,7 @@ private boolean canUseIndexFor(Column column) {
 
     private SearchRow getSpatialSearchRow(SearchRow row, int columnId, Value v) {
         if (row == null) {
-            row = table.getTemplateRow();
+            row = table.getSearchTemplateRow();
         } else if (row.getValue(columnId) != null) {
             // if an object needs to overlap with both a and b,
             // then it needs to overlap with the union of a and b
@@ -204,7 +309,7 @@ private SearchRow getSpatialSearchRow(SearchRow row, int columnId, Value v) {
 
     private SearchRow getSearchRow(SearchRow row, int columnId, Value v, boolean max) {
         if (row == null) {
-            row = table.getTemplateRow();
+            row = table.getSearchTemplateRow();
         } else {
             v = getMax(row.getValue(columnId), v, max);
         }
@@ -308,9 +413,28 @@ private void nextCursor() {
                     break;
                 }
             }
+        } else if (skipScanActive) {
+            nextSkipScanCursor();
         }
     }
 
+    private void nextSkipScanCursor() {
+        int id = index.getColumns()[0].getColumnId();
+        Cursor c = index.findNext(session, skipScanLast, null);
+        if (!c.next()) {
+            skipScanActive = false;
+            return;
+        }
+        Value v = c.getSearchRow().getValue(id);
+        if (skipScanLast == null) {
+            skipScanLast = index.getRowFactory().createRow();
+        }
+        skipScanLast.setValue(id, v);
+        start.setValue(id, v);
+        end.setValue(id, v);
+        cursor = index.find(session, start, end);
+    }
+
     private void find(Value v) {
         v = inColumn.convert(session, v);
         int id = inColumn.getColumnId();
@@ -10,7 +10,7 @@
  */
 public class IndexType {
 
-    private boolean primaryKey, persistent, unique, hash, scan, spatial;
+    private boolean primaryKey, persistent, unique, hash, scan, spatial, bitmap;
     private boolean belongsToConstraint;
 
     /**
@@ -71,6 +71,19 @@ public static IndexType createNonUnique(boolean persistent, boolean hash,
         return type;
     }
 
+    /**
+     * Create a bitmap index.
+     *
+     * @param persistent if the index is persistent
+     * @return the index type
+     */
+    public static IndexType createBitmap(boolean persistent) {
+        IndexType type = new IndexType();
+        type.persistent = persistent;
+        type.bitmap = true;
+        return type;
+    }
+
     /**
      * Create a scan pseudo-index.
      *
@@ -112,6 +125,15 @@ public boolean isHash() {
         return hash;
     }
 
+    /**
+     * Is this a bitmap index?
+     *
+     * @return true if it is a bitmap index
+     */
+    public boolean isBitmap() {
+        return bitmap;
+    }
+
     /**
      * Is this a spatial index?
      *
@@ -170,6 +192,9 @@ public String getSQL() {
             if (spatial) {
                 buff.append("SPATIAL ");
             }
+            if (bitmap) {
+                buff.append("BITMAP ");
+            }
             buff.append("INDEX");
         }
         return buff.toString();
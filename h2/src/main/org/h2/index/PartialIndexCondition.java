@@ -0,0 +1,349 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.h2.engine.SessionLocal;
+import org.h2.expression.ArrayConstructorByQuery;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionVisitor;
+import org.h2.expression.Subquery;
+import org.h2.expression.condition.BetweenPredicate;
+import org.h2.expression.condition.Comparison;
+import org.h2.expression.condition.ConditionAndOr;
+import org.h2.expression.condition.ConditionAndOrN;
+import org.h2.expression.condition.ConditionInQuery;
+import org.h2.expression.condition.ExistsPredicate;
+import org.h2.expression.condition.UniquePredicate;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.RowColumnResolver;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * The condition of a partial index. Only rows that match this condition are
+ * stored in the index, and the index may be used only by queries whose
+ * conditions imply it.
+ */
+public final class PartialIndexCondition {
+
+    /**
+     * The maximum number of combinations of values checked when a condition
+     * is evaluated with values from equality conditions of a query.
+     */
+    private static final int MAX_COMBINATIONS = 64;
+
+    private final Table table;
+
+    private final Expression expression;
+
+    /**
+     * The resolver of columns of the condition. Rows are passed to it on each
+     * evaluation, so the condition may be evaluated concurrently.
+     */
+    private final RowColumnResolver resolver;
+
+    /**
+     * Parts of the condition combined with AND.
+     */
+    private final Expression[] parts;
+
+    /**
+     * Columns referenced by parts of the condition.
+     */
+    private final Column[][] partColumns;
+
+    /**
+     * Range index conditions equivalent to parts of the condition, or
+     * {@code null} elements for other parts.
+     */
+    private final IndexCondition[][] partRanges;
+
+    private final HashSet<Column> columns = new HashSet<>();
+
+    /**
+     * Creates a new condition of a partial index.
+     *
+     * @param session
+     *            the session
+     * @param table
+     *            the table
+     * @param condition
+     *            the condition, not yet mapped to columns
+     */
+    public PartialIndexCondition(SessionLocal session, Table table, Expression condition) {
+        this.table = table;
+        TableFilter filter = new TableFilter(session, table, null, false, null, 0, null);
+        resolver = new RowColumnResolver(filter);
+        condition.mapColumns(resolver, 0, Expression.MAP_INITIAL);
+        condition = condition.optimize(session);
+        if (!condition.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)) {
+            throw DbException.getUnsupportedException("Non-deterministic condition of partial index");
+        }
+        if (hasSubquery(condition)) {
+            throw DbException.getUnsupportedException("Subquery in condition of partial index");
+        }
+        expression = condition;
+        ArrayList<Expression> list = new ArrayList<>();
+        addParts(list, condition);
+        int length = list.size();
+        parts = list.toArray(new Expression[0]);
+        partColumns = new Column[length][];
+        partRanges = new IndexCondition[length][];
+        ArrayList<IndexCondition> indexConditions = filter.getIndexConditions();
+        for (int i = 0; i < length; i++) {
+            Expression part = parts[i];
+            HashSet<Column> set = new HashSet<>();
+            part.isEverything(ExpressionVisitor.getColumnsVisitor(set, table));
+            columns.addAll(set);
+            partColumns[i] = set.toArray(new Column[0]);
+            if (part instanceof Comparison || part instanceof BetweenPredicate) {
+                indexConditions.clear();
+                part.createIndexConditions(session, filter);
+                partRanges[i] = getRanges(indexConditions);
+            }
+        }
+        indexConditions.clear();
+    }
+
+    /**
+     * Returns whether the specified expression contains a subquery.
+     *
+     * @param e
+     *            the expression
+     * @return whether the expression contains a subquery
+     */
+    public static boolean hasSubquery(Expression e) {
+        if (e instanceof Subquery || e instanceof ArrayConstructorByQuery || e instanceof ConditionInQuery
+                || e instanceof ExistsPredicate || e instanceof UniquePredicate) {
+            return true;
+        }
+        for (int i = 0, l = e.getSubexpressionCount(); i < l; i++) {
+            if (hasSubquery(e.getSubexpression(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addParts(ArrayList<Expression> list, Expression condition) {
+        if (condition instanceof ConditionAndOr
+                && ((ConditionAndOr) condition).getAndOrType() == ConditionAndOr.AND
+                || condition instanceof ConditionAndOrN
+                        && ((ConditionAndOrN) condition).getAndOrType() == ConditionAndOr.AND) {
+            for (int i = 0, l = condition.getSubexpressionCount(); i < l; i++) {
+                addParts(list, condition.getSubexpression(i));
+            }
+        } else {
+            list.add(condition);
+        }
+    }
+
+    private static IndexCondition[] getRanges(ArrayList<IndexCondition> indexConditions) {
+        if (indexConditions.isEmpty()) {
+            return null;
+        }
+        for (IndexCondition c : indexConditions) {
+            if (!isRange(c.getCompareType()) || !c.getExpression().isConstant()) {
+                return null;
+            }
+        }
+        return indexConditions.toArray(new IndexCondition[0]);
+    }
+
+    private static boolean isRange(int compareType) {
+        switch (compareType) {
+        case Comparison.BIGGER:
+        case Comparison.BIGGER_EQUAL:
+        case Comparison.SMALLER:
+        case Comparison.SMALLER_EQUAL:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether the specified row matches this condition and should be
+     * stored in the index.
+     *
+     * @param session
+     *            the session
+     * @param row
+     *            the row
+     * @return whether the row matches this condition
+     */
+    public boolean matches(SessionLocal session, Row row) {
+        return resolver.getValue(session, expression, row).getBoolean();
+    }
+
+    /**
+     * Returns whether conditions of the specified table filter imply this
+     * condition. Only conditions with constant values are taken into account.
+     *
+     * @param session
+     *            the session
+     * @param tableFilter
+     *            the table filter of a query
+     * @return whether all rows selected by the table filter match this
+     *         condition
+     */
+    public boolean isImplied(SessionLocal session, TableFilter tableFilter) {
+        ArrayList<IndexCondition> conditions = tableFilter.getIndexConditions();
+        try {
+            for (int i = 0, l = parts.length; i < l; i++) {
+                if (!isImpliedByEqualities(session, conditions, i) && !isImpliedByRanges(session, conditions, i)) {
+                    return false;
+                }
+            }
+        } catch (DbException e) {
+            // values can't be converted or compared
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isImpliedByEqualities(SessionLocal session, ArrayList<IndexCondition> conditions, int part) {
+        Column[] cols = partColumns[part];
+        int length = cols.length;
+        Value[][] values = new Value[length][];
+        int combinations = 1;
+        for (int i = 0; i < length; i++) {
+            Value[] v = getEqualValues(session, conditions, cols[i]);
+            if (v == null || (combinations *= v.length) > MAX_COMBINATIONS) {
+                return false;
+            }
+            values[i] = v;
+        }
+        int columnCount = table.getColumns().length;
+        for (int c = 0; c < combinations; c++) {
+            Value[] data = new Value[columnCount];
+            Arrays.fill(data, ValueNull.INSTANCE);
+            for (int i = 0, rest = c; i < length; i++) {
+                Value[] v = values[i];
+                data[cols[i].getColumnId()] = v[rest % v.length];
+                rest /= v.length;
+            }
+            Row row = table.createRow(data, 1);
+            if (!resolver.getValue(session, parts[part], row).getBoolean()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Value[] getEqualValues(SessionLocal session, ArrayList<IndexCondition> conditions,
+            Column column) {
+        for (IndexCondition c : conditions) {
+            if (c.getColumn() != column) {
+                continue;
+            }
+            switch (c.getCompareType()) {
+            case Comparison.EQUAL:
+            case Comparison.EQUAL_NULL_SAFE:
+                if (c.getExpression().isConstant()) {
+                    return new Value[] { column.convert(session, c.getCurrentValue(session)) };
+                }
+                break;
+            case Comparison.IN_LIST: {
+                ArrayList<Value> list = new ArrayList<>();
+                for (Expression e : c.getExpressionList()) {
+                    if (!e.isConstant()) {
+                        list = null;
+                        break;
+                    }
+                    list.add(column.convert(session, e.getValue(session)));
+                }
+                if (list != null && !list.isEmpty()) {
+                    return list.toArray(new Value[0]);
+                }
+                break;
+            }
+            default:
+            }
+        }
+        return null;
+    }
+
+    private boolean isImpliedByRanges(SessionLocal session, ArrayList<IndexCondition> conditions, int part) {
+        IndexCondition[] ranges = partRanges[part];
+        if (ranges == null) {
+            return false;
+        }
+        loop: for (IndexCondition range : ranges) {
+            Column column = range.getColumn();
+            int type = range.getCompareType();
+            Value v = range.getCurrentValue(session);
+            if (v == ValueNull.INSTANCE) {
+                return false;
+            }
+            for (IndexCondition c : conditions) {
+                if (c.getColumn() != column || !isRange(c.getCompareType()) || !c.getExpression().isConstant()) {
+                    continue;
+                }
+                Value w = c.getCurrentValue(session);
+                if (w == ValueNull.INSTANCE) {
+                    continue;
+                }
+                int cmp = session.compare(w, v);
+                switch (c.getCompareType()) {
+                case Comparison.BIGGER:
+                    if ((type == Comparison.BIGGER || type == Comparison.BIGGER_EQUAL) && cmp >= 0) {
+                        continue loop;
+                    }
+                    break;
+                case Comparison.BIGGER_EQUAL:
+                    if (type == Comparison.BIGGER ? cmp > 0 : type == Comparison.BIGGER_EQUAL && cmp >= 0) {
+                        continue loop;
+                    }
+                    break;
+                case Comparison.SMALLER:
+                    if ((type == Comparison.SMALLER || type == Comparison.SMALLER_EQUAL) && cmp <= 0) {
+                        continue loop;
+                    }
+                    break;
+                case Comparison.SMALLER_EQUAL:
+                    if (type == Comparison.SMALLER ? cmp < 0 : type == Comparison.SMALLER_EQUAL && cmp <= 0) {
+                        continue loop;
+                    }
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the columns referenced by this condition.
+     *
+     * @return the columns
+     */
+    public HashSet<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Appends the SQL representation of this condition to the specified
+     * builder.
+     *
+     * @param builder
+     *            string builder
+     * @param sqlFlags
+     *            formatting flags
+     * @return the specified string builder
+     */
+    public StringBuilder getSQL(StringBuilder builder, int sqlFlags) {
+        return expression.getUnenclosedSQL(builder, sqlFlags);
+    }
+
+}
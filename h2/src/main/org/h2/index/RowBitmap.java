@@ -0,0 +1,540 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+
+/**
+ * A compressed set of row keys. Keys are split into chunks of
+ * {@link #CHUNK_SIZE} consecutive keys. Sparse chunks are stored as sorted
+ * arrays of low bits of keys, dense chunks are stored as bit sets, as in
+ * roaring bitmaps. Chunks can be serialized to byte arrays and deserialized
+ * independently from each other.
+ */
+public final class RowBitmap {
+
+    /**
+     * The number of low bits of a key stored in a chunk.
+     */
+    public static final int CHUNK_BITS = 12;
+
+    /**
+     * The number of keys in a chunk.
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    private static final int WORDS = CHUNK_SIZE >>> 6;
+
+    /**
+     * Chunks with fewer keys are stored as sorted arrays, arrays of this size
+     * have the same size as bit sets.
+     */
+    private static final int ARRAY_LIMIT = WORDS * 4;
+
+    private final TreeMap<Long, Container> chunks = new TreeMap<>();
+
+    /**
+     * Returns the chunk of the specified key.
+     *
+     * @param key
+     *            the key
+     * @return the chunk
+     */
+    public static long getChunk(long key) {
+        return key >> CHUNK_BITS;
+    }
+
+    /**
+     * Adds the specified key to this set.
+     *
+     * @param key
+     *            the key
+     * @return {@code true} if key was added, {@code false} if it was already
+     *         present
+     */
+    public boolean add(long key) {
+        Long chunk = getChunk(key);
+        Container c = chunks.get(chunk);
+        if (c == null) {
+            c = new Container();
+            c.array = new char[4];
+            chunks.put(chunk, c);
+        }
+        return c.add((int) key & MASK);
+    }
+
+    /**
+     * Removes the specified key from this set.
+     *
+     * @param key
+     *            the key
+     * @return {@code true} if key was removed, {@code false} if it was not
+     *         present
+     */
+    public boolean remove(long key) {
+        Long chunk = getChunk(key);
+        Container c = chunks.get(chunk);
+        if (c == null || !c.remove((int) key & MASK)) {
+            return false;
+        }
+        if (c.cardinality == 0) {
+            chunks.remove(chunk);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether this set contains the specified key.
+     *
+     * @param key
+     *            the key
+     * @return whether this set contains the specified key
+     */
+    public boolean contains(long key) {
+        Container c = chunks.get(getChunk(key));
+        return c != null && c.contains((int) key & MASK);
+    }
+
+    /**
+     * Returns whether this set is empty.
+     *
+     * @return whether this set is empty
+     */
+    public boolean isEmpty() {
+        return chunks.isEmpty();
+    }
+
+    /**
+     * Returns the number of keys in this set.
+     *
+     * @return the number of keys
+     */
+    public long getCardinality() {
+        long cardinality = 0L;
+        for (Container c : chunks.values()) {
+            cardinality += c.cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * Adds all keys from the specified set to this set.
+     *
+     * @param other
+     *            the other set
+     */
+    public void or(RowBitmap other) {
+        for (Map.Entry<Long, Container> e : other.chunks.entrySet()) {
+            Long chunk = e.getKey();
+            Container c = chunks.get(chunk);
+            chunks.put(chunk, c == null ? e.getValue().copy() : c.or(e.getValue()));
+        }
+    }
+
+    /**
+     * Removes all keys that are not present in the specified set from this
+     * set.
+     *
+     * @param other
+     *            the other set
+     */
+    public void and(RowBitmap other) {
+        for (Iterator<Map.Entry<Long, Container>> i = chunks.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Long, Container> e = i.next();
+            Container c = other.chunks.get(e.getKey());
+            if (c == null || (c = e.getValue().and(c)) == null) {
+                i.remove();
+            } else {
+                e.setValue(c);
+            }
+        }
+    }
+
+    /**
+     * Adds keys from the specified serialized chunk to this set.
+     *
+     * @param chunk
+     *            the chunk
+     * @param data
+     *            the serialized chunk
+     * @see #getChunkData(long)
+     */
+    public void orChunk(long chunk, byte[] data) {
+        Container d = Container.read(data);
+        if (d == null) {
+            return;
+        }
+        Long key = chunk;
+        Container c = chunks.get(key);
+        chunks.put(key, c == null ? d : c.or(d));
+    }
+
+    /**
+     * Serializes keys of the specified chunk.
+     *
+     * @param chunk
+     *            the chunk
+     * @return the serialized chunk, or {@code null} if this set doesn't have
+     *         keys in the specified chunk
+     */
+    public byte[] getChunkData(long chunk) {
+        Container c = chunks.get(chunk);
+        return c != null ? c.write() : null;
+    }
+
+    /**
+     * Returns an iterator over keys of this set in ascending order.
+     *
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new KeyIterator(chunks.entrySet().iterator());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (PrimitiveIterator.OfLong i = iterator(); i.hasNext();) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(i.nextLong());
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Low bits of keys in a chunk. Exactly one of {@link #array} and
+     * {@link #bits} is set; chunks with less than {@link #ARRAY_LIMIT} keys
+     * use a sorted array.
+     */
+    private static final class Container {
+
+        char[] array;
+
+        long[] bits;
+
+        int cardinality;
+
+        Container() {
+        }
+
+        static Container read(byte[] data) {
+            int length = data.length;
+            if (length == 0) {
+                return null;
+            }
+            Container c = new Container();
+            if (length == WORDS * 8) {
+                long[] bits = new long[WORDS];
+                int cardinality = 0;
+                for (int i = 0, p = 0; i < WORDS; i++) {
+                    long w = 0L;
+                    for (int j = 0; j < 8; j++) {
+                        w = w << 8 | data[p++] & 0xff;
+                    }
+                    bits[i] = w;
+                    cardinality += Long.bitCount(w);
+                }
+                c.bits = bits;
+                c.cardinality = cardinality;
+            } else {
+                int size = length >>> 1;
+                char[] array = new char[size];
+                for (int i = 0, p = 0; i < size; i++, p += 2) {
+                    array[i] = (char) ((data[p] & 0xff) << 8 | data[p + 1] & 0xff);
+                }
+                c.array = array;
+                c.cardinality = size;
+            }
+            return c;
+        }
+
+        byte[] write() {
+            byte[] data;
+            if (array != null) {
+                data = new byte[cardinality * 2];
+                for (int i = 0, p = 0; i < cardinality; i++) {
+                    char v = array[i];
+                    data[p++] = (byte) (v >>> 8);
+                    data[p++] = (byte) v;
+                }
+            } else {
+                data = new byte[WORDS * 8];
+                for (int i = 0, p = 0; i < WORDS; i++) {
+                    long w = bits[i];
+                    for (int j = 56; j >= 0; j -= 8) {
+                        data[p++] = (byte) (w >>> j);
+                    }
+                }
+            }
+            return data;
+        }
+
+        Container copy() {
+            Container c = new Container();
+            if (array != null) {
+                c.array = Arrays.copyOf(array, cardinality);
+            } else {
+                c.bits = bits.clone();
+            }
+            c.cardinality = cardinality;
+            return c;
+        }
+
+        boolean contains(int v) {
+            if (array != null) {
+                return Arrays.binarySearch(array, 0, cardinality, (char) v) >= 0;
+            }
+            return (bits[v >>> 6] & 1L << v) != 0;
+        }
+
+        boolean add(int v) {
+            if (array != null) {
+                int index = Arrays.binarySearch(array, 0, cardinality, (char) v);
+                if (index >= 0) {
+                    return false;
+                }
+                index = -index - 1;
+                if (cardinality == array.length) {
+                    array = Arrays.copyOf(array, cardinality * 2);
+                }
+                System.arraycopy(array, index, array, index + 1, cardinality - index);
+                array[index] = (char) v;
+                if (++cardinality == ARRAY_LIMIT) {
+                    toBits();
+                }
+                return true;
+            }
+            int i = v >>> 6;
+            long w = bits[i], m = 1L << v;
+            if ((w & m) != 0) {
+                return false;
+            }
+            bits[i] = w | m;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(int v) {
+            if (array != null) {
+                int index = Arrays.binarySearch(array, 0, cardinality, (char) v);
+                if (index < 0) {
+                    return false;
+                }
+                System.arraycopy(array, index + 1, array, index, --cardinality - index);
+                return true;
+            }
+            int i = v >>> 6;
+            long w = bits[i], m = 1L << v;
+            if ((w & m) == 0) {
+                return false;
+            }
+            bits[i] = w & ~m;
+            if (--cardinality < ARRAY_LIMIT) {
+                toArray();
+            }
+            return true;
+        }
+
+        Container or(Container other) {
+            if (array != null && other.array != null) {
+                char[] a = array, b = other.array;
+                int al = cardinality, bl = other.cardinality;
+                char[] result = new char[al + bl];
+                int i = 0, j = 0, k = 0;
+                while (i < al && j < bl) {
+                    char x = a[i], y = b[j];
+                    if (x < y) {
+                        result[k++] = x;
+                        i++;
+                    } else if (x > y) {
+                        result[k++] = y;
+                        j++;
+                    } else {
+                        result[k++] = x;
+                        i++;
+                        j++;
+                    }
+                }
+                while (i < al) {
+                    result[k++] = a[i++];
+                }
+                while (j < bl) {
+                    result[k++] = b[j++];
+                }
+                array = result;
+                cardinality = k;
+                if (k >= ARRAY_LIMIT) {
+                    toBits();
+                }
+                return this;
+            }
+            if (array != null) {
+                return other.copy().or(this);
+            }
+            if (other.array != null) {
+                for (int i = 0, l = other.cardinality; i < l; i++) {
+                    int v = other.array[i];
+                    bits[v >>> 6] |= 1L << v;
+                }
+            } else {
+                long[] b = other.bits;
+                for (int i = 0; i < WORDS; i++) {
+                    bits[i] |= b[i];
+                }
+            }
+            updateCardinality();
+            return this;
+        }
+
+        Container and(Container other) {
+            if (array != null || other.array != null) {
+                Container a = array != null ? this : other, b = a == this ? other : this;
+                char[] result = new char[a.cardinality];
+                int k = 0;
+                for (int i = 0, l = a.cardinality; i < l; i++) {
+                    char v = a.array[i];
+                    if (b.contains(v)) {
+                        result[k++] = v;
+                    }
+                }
+                if (k == 0) {
+                    return null;
+                }
+                array = result;
+                bits = null;
+                cardinality = k;
+                return this;
+            }
+            long[] b = other.bits;
+            for (int i = 0; i < WORDS; i++) {
+                bits[i] &= b[i];
+            }
+            updateCardinality();
+            if (cardinality == 0) {
+                return null;
+            }
+            if (cardinality < ARRAY_LIMIT) {
+                toArray();
+            }
+            return this;
+        }
+
+        private void updateCardinality() {
+            int c = 0;
+            for (long w : bits) {
+                c += Long.bitCount(w);
+            }
+            cardinality = c;
+        }
+
+        private void toBits() {
+            long[] b = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                int v = array[i];
+                b[v >>> 6] |= 1L << v;
+            }
+            bits = b;
+            array = null;
+        }
+
+        private void toArray() {
+            char[] a = new char[Math.max(cardinality, 4)];
+            int k = 0;
+            for (int i = 0; i < WORDS; i++) {
+                for (long w = bits[i]; w != 0; w &= w - 1) {
+                    a[k++] = (char) (i << 6 | Long.numberOfTrailingZeros(w));
+                }
+            }
+            array = a;
+            bits = null;
+        }
+
+    }
+
+    /**
+     * An iterator over keys in ascending order.
+     */
+    private static final class KeyIterator implements PrimitiveIterator.OfLong {
+
+        private final Iterator<Map.Entry<Long, Container>> chunks;
+
+        private long base;
+
+        private Container current;
+
+        private int index;
+
+        private long word;
+
+        private boolean fetched;
+
+        private long next;
+
+        KeyIterator(Iterator<Map.Entry<Long, Container>> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!fetched) {
+                fetched = fetch();
+            }
+            return fetched;
+        }
+
+        private boolean fetch() {
+            for (;;) {
+                Container c = current;
+                if (c != null) {
+                    if (c.array != null) {
+                        if (index < c.cardinality) {
+                            next = base | c.array[index++];
+                            return true;
+                        }
+                    } else {
+                        while (word == 0 && index < WORDS) {
+                            word = c.bits[index++];
+                        }
+                        if (word != 0) {
+                            next = base | (index - 1) << 6 | Long.numberOfTrailingZeros(word);
+                            word &= word - 1;
+                            return true;
+                        }
+                    }
+                }
+                if (!chunks.hasNext()) {
+                    current = null;
+                    return false;
+                }
+                Map.Entry<Long, Container> e = chunks.next();
+                base = e.getKey() << CHUNK_BITS;
+                current = e.getValue();
+                index = 0;
+                word = 0L;
+            }
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            fetched = false;
+            return next;
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.PrimitiveIterator;
+
+import org.h2.engine.SessionLocal;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.table.Table;
+
+/**
+ * A cursor that reads rows with keys from a set of row keys in ascending order
+ * of keys.
+ */
+public final class RowBitmapCursor implements Cursor {
+
+    private final SessionLocal session;
+
+    private final Table table;
+
+    private final PrimitiveIterator.OfLong keys;
+
+    private Row row;
+
+    /**
+     * Create a new cursor.
+     *
+     * @param session the session
+     * @param table the table
+     * @param bitmap the set of row keys
+     */
+    public RowBitmapCursor(SessionLocal session, Table table, RowBitmap bitmap) {
+        this.session = session;
+        this.table = table;
+        keys = bitmap.iterator();
+    }
+
+    @Override
+    public Row get() {
+        return row;
+    }
+
+    @Override
+    public SearchRow getSearchRow() {
+        return row;
+    }
+
+    @Override
+    public boolean next() {
+        if (keys.hasNext()) {
+            row = table.getRow(session, keys.nextLong());
+            return true;
+        }
+        row = null;
+        return false;
+    }
+
+    @Override
+    public boolean previous() {
+        throw DbException.getUnsupportedException("previous");
+    }
+
+}
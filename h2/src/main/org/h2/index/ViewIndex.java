@@ -6,6 +6,8 @@
 package org.h2.index;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 import org.h2.api.ErrorCode;
@@ -29,6 +31,8 @@
 import org.h2.table.TableView;
 import org.h2.util.IntArray;
 import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
 
 /**
  * This object represents a virtual index for a query.
@@ -47,6 +51,14 @@ public class ViewIndex extends Index implements SpatialIndex {
     private Query query;
     private final SessionLocal createSession;
 
+    private Query materializedQuery;
+    private LocalResult materializedResult;
+    private Value[] materializedParameters;
+    private long materializedModificationId;
+
+    private LocalResult lookupSource;
+    private TreeMap<Value, ArrayList<Row>> lookup;
+
     /**
      * The time in nanoseconds when this index (and its cost) was calculated.
      */
@@ -123,12 +135,19 @@ public boolean isExpired() {
 
     @Override
     public String getPlanSQL() {
-        return query == null ? null : query.getPlanSQL(TRACE_SQL_FLAGS | ADD_PLAN_INFORMATION);
+        if (query == null) {
+            return null;
+        }
+        String sql = query.getPlanSQL(TRACE_SQL_FLAGS | ADD_PLAN_INFORMATION);
+        return view.isMaterialized() ? "materialized: " + sql : sql;
     }
 
     @Override
     public void close(SessionLocal session) {
-        // nothing to do
+        if (materializedResult != null) {
+            materializedResult.close();
+            materializedResult = null;
+        }
     }
 
     @Override
@@ -145,7 +164,19 @@ public void remove(SessionLocal session, Row row) {
     public double getCost(SessionLocal session, int[] masks,
             TableFilter[] filters, int filter, SortOrder sortOrder,
             AllColumnsForPlan allColumnsSet) {
-        return recursive ? 1000 : query.getCost();
+        if (recursive) {
+            return 1000;
+        }
+        double cost = query.getCost();
+        if (masks != null && view.isMaterialized()) {
+            for (int mask : masks) {
+                if ((mask & IndexCondition.EQUALITY) != 0) {
+                    // Lookup in the materialized result
+                    return Math.min(cost, 3);
+                }
+            }
+        }
+        return cost;
     }
 
     @Override
@@ -264,11 +295,144 @@ private Cursor find(SessionLocal session, SearchRow first, SearchRow last,
         if (recursive) {
             return findRecursive(first, last);
         }
+        if (intersection == null && view.isMaterialized()) {
+            Cursor cursor = findMaterialized(session, first, last);
+            if (cursor != null) {
+                return cursor;
+            }
+        }
         setupQueryParameters(session, first, last, intersection);
         ResultInterface result = query.query(0);
         return new ViewCursor(this, result, first, last);
     }
 
+    private Cursor findMaterialized(SessionLocal session, SearchRow first, SearchRow last) {
+        LocalResult result = view.getMaterializedResult(session);
+        if (result == null) {
+            return null;
+        }
+        if (indexColumns == null) {
+            // Conditions can't be used
+            first = last = null;
+        }
+        int equalityColumns = 0;
+        if (first != null) {
+            while (equalityColumns < indexColumns.length
+                    && (indexMasks[columnIds[equalityColumns]] & IndexCondition.EQUALITY) != 0) {
+                if (first.getValue(columnIds[equalityColumns]) == null) {
+                    equalityColumns = 0;
+                    break;
+                }
+                equalityColumns++;
+            }
+        }
+        if (equalityColumns == 0) {
+            LocalResult copy = result.createShallowCopy(session);
+            return copy != null ? new ViewCursor(this, copy, first, last) : null;
+        }
+        if (lookupSource != result) {
+            lookupSource = result;
+            lookup = createLookup(session, result, equalityColumns);
+        }
+        if (lookup == null) {
+            return null;
+        }
+        ArrayList<Row> rows = lookup.get(getLookupKey(first, equalityColumns));
+        if (rows == null) {
+            rows = new ArrayList<>(0);
+        } else if (equalityColumns < indexColumns.length) {
+            ArrayList<Row> filtered = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                if (compareRows(row, first) >= 0 && (last == null || compareRows(row, last) <= 0)) {
+                    filtered.add(row);
+                }
+            }
+            rows = filtered;
+        }
+        return new MetaCursor(rows);
+    }
+
+    private TreeMap<Value, ArrayList<Row>> createLookup(SessionLocal session, LocalResult result,
+            int equalityColumns) {
+        // Large results may be stored on disk, don't load them into memory
+        if (result.getRowCount() > session.getDatabase().getMaxMemoryRows()) {
+            return null;
+        }
+        LocalResult copy = result.createShallowCopy(session);
+        if (copy == null) {
+            return null;
+        }
+        TreeMap<Value, ArrayList<Row>> map = new TreeMap<>(session.getDatabase().getCompareMode());
+        while (copy.next()) {
+            Value[] values = copy.currentRow();
+            Row row = table.getTemplateRow();
+            for (int i = 0, len = row.getColumnCount(); i < len; i++) {
+                row.setValue(i, i < values.length ? values[i] : ValueNull.INSTANCE);
+            }
+            map.computeIfAbsent(getLookupKey(row, equalityColumns), k -> new ArrayList<>()).add(row);
+        }
+        copy.close();
+        return map;
+    }
+
+    private Value getLookupKey(SearchRow row, int equalityColumns) {
+        if (equalityColumns == 1) {
+            return row.getValue(columnIds[0]);
+        }
+        Value[] values = new Value[equalityColumns];
+        for (int i = 0; i < equalityColumns; i++) {
+            values[i] = row.getValue(columnIds[i]);
+        }
+        return ValueRow.get(values);
+    }
+
+    /**
+     * Get the materialized result of the view query. This method may only be
+     * called for the main index of the view.
+     *
+     * @param session the session
+     * @return the result, or {@code null} if it can't be shared
+     */
+    public LocalResult getMaterializedResult(SessionLocal session) {
+        Query q = materializedQuery;
+        if (q == null) {
+            q = (Query) session.prepare(querySQL, true, true);
+            q.setNeverLazy(true);
+            // the result is owned by this index
+            q.disableCache();
+            materializedQuery = q;
+        }
+        Value[] params;
+        if (originalParameters != null) {
+            ArrayList<Parameter> paramList = q.getParameters();
+            int count = originalParameters.size();
+            params = new Value[count];
+            for (int i = 0; i < count; i++) {
+                Parameter orig = originalParameters.get(i);
+                Value value = orig.getValue(session);
+                params[i] = value;
+                setParameter(paramList, orig.getIndex(), value);
+            }
+        } else {
+            params = Value.EMPTY_VALUES;
+        }
+        LocalResult result = materializedResult;
+        if (result == null || !Arrays.equals(params, materializedParameters)
+                || q.getMaxDataModificationId() > materializedModificationId) {
+            close(session);
+            long now = session.getDatabase().getModificationDataId();
+            ResultInterface r = q.query(0);
+            if (!(r instanceof LocalResult)) {
+                r.close();
+                return null;
+            }
+            materializedResult = result = (LocalResult) r;
+            materializedParameters = params;
+            materializedModificationId = now;
+        }
+        return result;
+    }
+
     private static void setParameter(ArrayList<Parameter> paramList, int x,
             Value v) {
         if (x >= paramList.size()) {
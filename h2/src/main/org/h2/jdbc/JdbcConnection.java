@@ -1139,6 +1139,18 @@ CommandInterface prepareCommand(String sql, int fetchSize) {
         return session.prepareCommand(sql, fetchSize);
     }
 
+    /**
+     * Prepare a command that will be executed immediately. In remote
+     * connections preparation errors may be thrown on execution.
+     *
+     * @param sql the SQL statement
+     * @param fetchSize the fetch size (used in remote connections)
+     * @return the command
+     */
+    CommandInterface prepareCommandForExecution(String sql, int fetchSize) {
+        return session.prepareCommandForExecution(sql, fetchSize);
+    }
+
     private CommandInterface prepareCommand(String sql, CommandInterface old) {
         return old == null ? session.prepareCommand(sql, Integer.MAX_VALUE)
                 : old;
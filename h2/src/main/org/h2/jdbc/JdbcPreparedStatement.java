@@ -24,11 +24,14 @@
 import java.sql.SQLXML;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 
 import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
+import org.h2.command.CommandRemote;
+import org.h2.engine.SessionRemote;
 import org.h2.expression.ParameterInterface;
 import org.h2.message.DbException;
 import org.h2.message.TraceObject;
@@ -1211,8 +1214,9 @@ public int[] executeBatch() throws SQLException {
             int[] result = new int[size];
             SQLException exception = new SQLException();
             checkClosed();
+            long[] updateCounts = executeBatchInternal(exception);
             for (int i = 0; i < size; i++) {
-                long updateCount = executeBatchElement(batchParameters.get(i), exception);
+                long updateCount = updateCounts[i];
                 result[i] = updateCount <= Integer.MAX_VALUE ? (int) updateCount : SUCCESS_NO_INFO;
             }
             batchParameters = null;
@@ -1241,13 +1245,9 @@ public long[] executeLargeBatch() throws SQLException {
                 batchParameters = new ArrayList<>();
             }
             batchIdentities = new MergedResult();
-            int size = batchParameters.size();
-            long[] result = new long[size];
             SQLException exception = new SQLException();
             checkClosed();
-            for (int i = 0; i < size; i++) {
-                result[i] = executeBatchElement(batchParameters.get(i), exception);
-            }
+            long[] result = executeBatchInternal(exception);
             batchParameters = null;
             exception = exception.getNextException();
             if (exception != null) {
@@ -1259,6 +1259,49 @@ public long[] executeLargeBatch() throws SQLException {
         }
     }
 
+    private long[] executeBatchInternal(SQLException exception) {
+        int size = batchParameters.size();
+        if (size > 1 && command instanceof CommandRemote && ((SessionRemote) session).isSupportsBatchUpdates()) {
+            return executeBatchRemote(size, exception);
+        }
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = executeBatchElement(batchParameters.get(i), exception);
+        }
+        return result;
+    }
+
+    /**
+     * Executes the whole batch with one request to the server.
+     */
+    private long[] executeBatchRemote(int size, SQLException exception) {
+        long[] result;
+        SQLException[] errors = new SQLException[size];
+        closeOldResultSet();
+        try {
+            synchronized (session) {
+                try {
+                    setExecutingStatement(command);
+                    result = ((CommandRemote) command).executeBatchUpdate(batchParameters, generatedKeysRequest,
+                            errors, batchIdentities);
+                } finally {
+                    setExecutingStatement(null);
+                }
+            }
+        } catch (Exception e) {
+            exception.setNextException(logAndConvert(e));
+            result = new long[size];
+            Arrays.fill(result, Statement.EXECUTE_FAILED);
+            return result;
+        }
+        for (SQLException e : errors) {
+            if (e != null) {
+                exception.setNextException(logAndConvert(e));
+            }
+        }
+        return result;
+    }
+
     private long executeBatchElement(Value[] set, SQLException exception) {
         ArrayList<? extends ParameterInterface> parameters = command.getParameters();
         for (int i = 0, l = set.length; i < l; i++) {
@@ -73,7 +73,7 @@ public ResultSet executeQuery(String sql) throws SQLException {
                 checkClosed();
                 closeOldResultSet();
                 sql = JdbcConnection.translateSQL(sql, escapeProcessing);
-                CommandInterface command = conn.prepareCommand(sql, fetchSize);
+                CommandInterface command = conn.prepareCommandForExecution(sql, fetchSize);
                 ResultInterface result;
                 boolean lazy = false;
                 boolean scrollable = resultSetType != ResultSet.TYPE_FORWARD_ONLY;
@@ -167,7 +167,7 @@ private long executeUpdateInternal(String sql, Object generatedKeysRequest) {
         checkClosed();
         closeOldResultSet();
         sql = JdbcConnection.translateSQL(sql, escapeProcessing);
-        CommandInterface command = conn.prepareCommand(sql, fetchSize);
+        CommandInterface command = conn.prepareCommandForExecution(sql, fetchSize);
         synchronized (session) {
             setExecutingStatement(command);
             try {
@@ -10,6 +10,7 @@
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import org.h2.mvstore.cache.FilePathCache;
 import org.h2.store.fs.FilePath;
@@ -23,6 +24,29 @@
  */
 public class FileStore {
 
+    /**
+     * A listener for the changes of the file.
+     */
+    public interface Listener {
+
+        /**
+         * Data was written to the file.
+         *
+         * @param pos the write position
+         * @param data the written data, from the position to the limit of the
+         *            buffer; the buffer may be reused after this call
+         */
+        void written(long pos, ByteBuffer data);
+
+        /**
+         * The file was truncated.
+         *
+         * @param size the new file size
+         */
+        void truncated(long size);
+
+    }
+
     /**
      * The number of read operations.
      */
@@ -80,6 +104,11 @@ public class FileStore {
      */
     private FileLock fileLock;
 
+    /**
+     * The listeners for the changes of the file.
+     */
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
     @Override
     public String toString() {
         return fileName;
@@ -108,10 +137,16 @@ public ByteBuffer readFully(long pos, int len) {
      */
     public void writeFully(long pos, ByteBuffer src) {
         int len = src.remaining();
+        ByteBuffer data = src.duplicate();
         fileSize = Math.max(fileSize, pos + len);
         DataUtils.writeFully(file, pos, src);
         writeCount.incrementAndGet();
         writeBytes.addAndGet(len);
+        // listeners are checked after writing, so that a listener that was
+        // added concurrently either sees the data in the file or is notified
+        for (Listener listener : listeners) {
+            listener.written(pos, data.duplicate());
+        }
     }
 
     /**
@@ -230,6 +265,9 @@ public void truncate(long size) {
                 writeCount.incrementAndGet();
                 file.truncate(size);
                 fileSize = Math.min(fileSize, size);
+                for (Listener listener : listeners) {
+                    listener.truncated(size);
+                }
                 return;
             } catch (IOException e) {
                 if (++attemptCount == 10) {
@@ -244,6 +282,24 @@ public void truncate(long size) {
         }
     }
 
+    /**
+     * Add a listener for the changes of the file.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Get the file instance in use.
      * <p>
@@ -253,6 +253,19 @@ public class MVStore implements AutoCloseable {
      */
     private final ConcurrentHashMap<Integer, Chunk> chunks = new ConcurrentHashMap<>();
 
+    /**
+     * The chunks of a refreshed read-only store that were removed from the
+     * file, with the versions and the times when they were removed. Their
+     * metadata is kept while they may be needed by the readers of older
+     * versions.
+     */
+    private final ConcurrentHashMap<Integer, long[]> removedChunks = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the store was refreshed, see {@link #refresh()}.
+     */
+    private volatile boolean refreshed;
+
     private final Queue<RemovedPageInfo> removedPages = new PriorityBlockingQueue<>();
 
     private final Deque<Chunk> deadChunks = new ArrayDeque<>();
@@ -2554,6 +2567,11 @@ <K,V> Page<K,V> readPage(MVMap<K,V> map, long pos) {
             if (recoveryMode) {
                 return map.createEmptyLeaf();
             }
+            int chunkId = DataUtils.getPageChunkId(pos);
+            if (refreshed && (removedChunks.containsKey(chunkId) || !chunks.containsKey(chunkId))) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_CHUNK_NOT_FOUND,
+                        "Chunk {0} was removed by the writer of the file, the version is too old", chunkId, e);
+            }
             throw e;
         }
     }
@@ -3023,6 +3041,161 @@ public void rollbackTo(long version) {
         }
     }
 
+    /**
+     * Make the changes that were written to the file of a read-only store
+     * visible. The file needs to be changed through the file store of this
+     * store, in the same way as a writable store changes its file, for
+     * example by a process that copies the changes of another store. Open
+     * maps see the newest version after this call, while the data that
+     * was read before stays unchanged.
+     * <p>
+     * The metadata of the chunks that were removed by the writer is kept
+     * while older versions are in use, and at least for the retention time,
+     * so that the readers of older versions can still read them. The writer
+     * doesn't know about these readers and may overwrite such chunks once
+     * they are older than its own retention time; readers of their data fail
+     * with {@link DataUtils#ERROR_CHUNK_NOT_FOUND} in this case.
+     *
+     * @return whether a newer version was found
+     */
+    public boolean refresh() {
+        storeLock.lock();
+        try {
+            checkOpen();
+            DataUtils.checkArgument(isReadOnly(), "Only read-only stores can be refreshed");
+            Chunk newest;
+            saveChunkLock.lock();
+            try {
+                newest = findNewestChunk();
+                if (newest == null || lastChunk != null && newest.version <= lastChunk.version) {
+                    return false;
+                }
+                // the root page of the layout is in the newest chunk
+                Chunk previous = chunks.put(newest.id, newest);
+                if (previous != null && previous.version != newest.version) {
+                    clearCaches();
+                }
+                layout.setRootPos(newest.layoutRootPos, newest.version - 1);
+                // load the metadata of the chunks, ids of removed chunks may
+                // be used again
+                boolean reused = false;
+                HashSet<Integer> ids = new HashSet<>();
+                ids.add(newest.id);
+                Cursor<String, String> cursor = layout.cursor(DataUtils.META_CHUNK);
+                while (cursor.hasNext() && cursor.next().startsWith(DataUtils.META_CHUNK)) {
+                    Chunk c = Chunk.fromString(cursor.getValue());
+                    if (c.id == newest.id) {
+                        c = newest;
+                    }
+                    ids.add(c.id);
+                    Chunk old = chunks.get(c.id);
+                    if (old == null || old.version != c.version || old.block != c.block) {
+                        chunks.put(c.id, c);
+                        reused |= old != null && old.version != c.version;
+                    }
+                }
+                removedChunks.keySet().removeAll(ids);
+                removeChunks(ids, newest.version);
+                if (reused) {
+                    clearCaches();
+                }
+            } finally {
+                saveChunkLock.unlock();
+            }
+            long version = newest.version;
+            meta.setRootPos(getRootPos(meta.getId()), version - 1);
+            for (MVMap<?, ?> m : maps.values()) {
+                int id = m.getId();
+                // maps that were removed keep the last known data
+                if (meta.containsKey(MVMap.getMapKey(id))) {
+                    m.setRootPos(getRootPos(id), version - 1);
+                }
+            }
+            // set last, so that the store is refreshed again on failure
+            lastChunk = newest;
+            lastChunkId = newest.id;
+            lastMapId.set(newest.mapId);
+            currentVersion = version;
+            refreshed = true;
+            onVersionChange(version);
+            return true;
+        } finally {
+            unlockAndCheckPanicCondition();
+        }
+    }
+
+    /**
+     * Remove the metadata of the chunks of a refreshed read-only store that
+     * are no longer needed.
+     *
+     * @param ids the ids of the chunks of the newest version
+     * @param version the newest version
+     */
+    private void removeChunks(HashSet<Integer> ids, long version) {
+        long time = getTimeSinceCreation();
+        for (Integer id : chunks.keySet()) {
+            if (!ids.contains(id)) {
+                removedChunks.putIfAbsent(id, new long[] { version, time });
+            }
+        }
+        long oldestVersionToKeep = getOldestVersionToKeep();
+        for (Iterator<Map.Entry<Integer, long[]>> it = removedChunks.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Integer, long[]> e = it.next();
+            long[] removed = e.getValue();
+            if (removed[0] <= oldestVersionToKeep && (retentionTime < 0 || removed[1] + retentionTime <= time)) {
+                chunks.remove(e.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Find the newest chunk that was completely written. This is the chunk
+     * referenced by the store header, or a chunk written after it at the
+     * predicted position.
+     *
+     * @return the newest chunk, or null if there are no chunks
+     */
+    private Chunk findNewestChunk() {
+        Chunk newest = lastChunk;
+        ByteBuffer fileHeaderBlocks = fileStore.readFully(0, 2 * BLOCK_SIZE);
+        byte[] buff = new byte[BLOCK_SIZE];
+        for (int i = 0; i < 2; i++) {
+            fileHeaderBlocks.get(buff);
+            // the header may be incomplete
+            try {
+                HashMap<String, String> m = DataUtils.parseChecksummedMap(buff);
+                if (m != null && (newest == null || DataUtils.readHexLong(m, HDR_VERSION, 0) > newest.version)) {
+                    Chunk test = readChunkHeaderAndFooter(DataUtils.readHexLong(m, HDR_BLOCK, 2),
+                            DataUtils.readHexInt(m, HDR_CHUNK, 0));
+                    if (test != null) {
+                        newest = test;
+                    }
+                }
+            } catch (Exception ignore) {
+                // ignore
+            }
+        }
+        long blocksInStore = fileStore.size() / BLOCK_SIZE;
+        // the newest chunk is at the end of the file if it was not stored at
+        // the predicted position
+        Chunk last = readChunkFooter(blocksInStore);
+        if (last != null && (newest == null || last.version > newest.version)) {
+            Chunk test = readChunkHeaderAndFooter(last.block, last.id);
+            if (test != null) {
+                newest = test;
+            }
+        }
+        while (newest != null && newest.next != 0 && newest.next < blocksInStore) {
+            Chunk test = readChunkHeaderAndFooter(newest.next, newest.id + 1);
+            if (test == null || test.version <= newest.version) {
+                break;
+            }
+            newest = test;
+        }
+        return newest;
+    }
+
     private void clearCaches() {
         if (cache != null) {
             cache.clear();
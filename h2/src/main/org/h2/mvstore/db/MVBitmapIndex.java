@@ -0,0 +1,391 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import org.h2.api.ErrorCode;
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.Constants;
+import org.h2.engine.Database;
+import org.h2.engine.SessionLocal;
+import org.h2.index.BitmapIndex;
+import org.h2.index.Cursor;
+import org.h2.index.IndexCondition;
+import org.h2.index.IndexType;
+import org.h2.index.RowBitmap;
+import org.h2.index.RowBitmapCursor;
+import org.h2.message.DbException;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.result.Row;
+import org.h2.result.RowFactory;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.IndexColumn;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueVarbinary;
+import org.h2.value.VersionedValue;
+
+/**
+ * A bitmap index stored in a MVStore. Keys of its map are values of the
+ * indexed column combined with numbers of chunks of row keys, values of the
+ * map are compressed sets of row keys from these chunks, see
+ * {@link RowBitmap}. Such index is much smaller than a b-tree index on a
+ * column with few distinct values, and sets of row keys from different
+ * bitmap indexes can be combined without reading of rows.
+ *
+ * All rows with the same value and close row keys share the same entry of
+ * the map, so concurrent transactions that modify such rows wait for each
+ * other.
+ */
+public final class MVBitmapIndex extends MVIndex<SearchRow, Value> implements BitmapIndex {
+
+    private static final int[] INDEXES = { 0 };
+
+    /**
+     * The number of attempts to insert a new entry into the map concurrently
+     * with other transactions.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The multi-value table.
+     */
+    private final MVTable mvTable;
+
+    private final int columnId;
+
+    private final RowFactory keyFactory;
+
+    private final TransactionMap<SearchRow, Value> dataMap;
+
+    public MVBitmapIndex(Database db, MVTable table, int id, String indexName, IndexColumn[] columns,
+            IndexType indexType) {
+        super(table, id, indexName, columns, indexType);
+        this.mvTable = table;
+        if (columns.length != 1) {
+            throw DbException.getUnsupportedException("bitmap indexes may index only one column");
+        }
+        if (!database.isStarting()) {
+            checkIndexColumnTypes(columns);
+        }
+        columnId = columnIds[0];
+        keyFactory = RowFactory.getDefaultRowFactory().createRowFactory(db, db.getCompareMode(), db.getMode(), db,
+                new int[] { columns[0].sortType }, INDEXES, 1);
+        RowDataType keyType = keyFactory.getRowDataType();
+        Transaction t = mvTable.getTransactionBegin();
+        dataMap = t.openMap(getMapName(id), keyType, new ValueDataType());
+        dataMap.map.setVolatile(!table.isPersistData() || !indexType.isPersistent());
+        if (!db.isStarting()) {
+            dataMap.clear();
+        }
+        t.commit();
+        if (!keyType.equals(dataMap.getKeyType())) {
+            throw DbException.throwInternalError(
+                    "Incompatible key type, expected " + keyType + " but got "
+                            + dataMap.getKeyType() + " for index " + indexName);
+        }
+    }
+
+    /**
+     * Returns the name of the map of a bitmap index.
+     *
+     * @param id
+     *            the id of the index
+     * @return the name of the map
+     */
+    static String getMapName(int id) {
+        return "bitmap." + id;
+    }
+
+    private SearchRow createKey(Value value, long chunk) {
+        SearchRow row = keyFactory.createRow();
+        row.setValue(0, value);
+        row.setKey(chunk);
+        return row;
+    }
+
+    @Override
+    public void addRowsToBuffer(List<Row> rows, String bufferName) {
+        ArrayList<SearchRow> keys = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            keys.add(createKey(row.getValue(columnId), row.getKey()));
+        }
+        RowDataType keyType = keyFactory.getRowDataType();
+        keys.sort(keyType::compare);
+        MVMap<SearchRow, Value> map = openMap(bufferName);
+        for (SearchRow key : keys) {
+            map.append(key, ValueNull.INSTANCE);
+        }
+    }
+
+    @Override
+    public void addBufferedRows(List<String> bufferNames) {
+        RowDataType keyType = keyFactory.getRowDataType();
+        Queue<Source> queue = new PriorityQueue<>(bufferNames.size(),
+                (one, two) -> keyType.compare(one.current, two.current));
+        for (String bufferName : bufferNames) {
+            Iterator<SearchRow> iter = openMap(bufferName).keyIterator(null);
+            if (iter.hasNext()) {
+                queue.offer(new Source(iter));
+            }
+        }
+        try {
+            // Keys are sorted by values and row keys, so chunks of the same
+            // value are completed one after another
+            SearchRow entryKey = null;
+            RowBitmap bitmap = new RowBitmap();
+            while (!queue.isEmpty()) {
+                Source s = queue.poll();
+                SearchRow key = s.current;
+                long rowKey = key.getKey();
+                SearchRow k = createKey(key.getValue(0), RowBitmap.getChunk(rowKey));
+                if (entryKey == null || keyType.compare(k, entryKey) != 0) {
+                    if (entryKey != null) {
+                        putChunk(entryKey, bitmap);
+                        bitmap = new RowBitmap();
+                    }
+                    entryKey = k;
+                }
+                bitmap.add(rowKey);
+                if (s.next()) {
+                    queue.offer(s);
+                }
+            }
+            if (entryKey != null) {
+                putChunk(entryKey, bitmap);
+            }
+        } finally {
+            MVStore mvStore = database.getStore().getMvStore();
+            for (String tempMapName : bufferNames) {
+                mvStore.removeMap(tempMapName);
+            }
+        }
+    }
+
+    private void putChunk(SearchRow entryKey, RowBitmap bitmap) {
+        dataMap.putCommitted(entryKey, ValueVarbinary.getNoCopy(bitmap.getChunkData(entryKey.getKey())));
+    }
+
+    private MVMap<SearchRow, Value> openMap(String mapName) {
+        RowDataType keyType = keyFactory.getRowDataType();
+        MVMap.Builder<SearchRow, Value> builder = new MVMap.Builder<SearchRow, Value>()
+                .singleWriter()
+                .keyType(keyType)
+                .valueType(new ValueDataType());
+        return database.getStore().getMvStore().openMap(mapName, builder);
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // ok
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        if (!isRowIndexed(session, row)) {
+            return;
+        }
+        long rowKey = row.getKey();
+        SearchRow entryKey = createKey(row.getValue(columnId), RowBitmap.getChunk(rowKey));
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        try {
+            for (int attempt = 0;; attempt++) {
+                // Locks the entry, if it exists
+                Value old = map.lock(entryKey);
+                RowBitmap bitmap = new RowBitmap();
+                if (old != null) {
+                    bitmap.orChunk(entryKey.getKey(), old.getBytesNoCopy());
+                }
+                bitmap.add(rowKey);
+                Value v = ValueVarbinary.getNoCopy(bitmap.getChunkData(entryKey.getKey()));
+                if (old != null) {
+                    map.put(entryKey, v);
+                    break;
+                } else if (map.putIfAbsent(entryKey, v) == null) {
+                    break;
+                } else if (attempt == MAX_ATTEMPTS) {
+                    // The entry was inserted or removed by another
+                    // transaction
+                    throw DbException.get(ErrorCode.CONCURRENT_UPDATE_1, table.getName());
+                }
+            }
+        } catch (MVStoreException e) {
+            throw mvTable.convertException(e);
+        }
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        if (!isRowIndexed(session, row)) {
+            return;
+        }
+        long rowKey = row.getKey();
+        SearchRow entryKey = createKey(row.getValue(columnId), RowBitmap.getChunk(rowKey));
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        try {
+            Value old = map.lock(entryKey);
+            RowBitmap bitmap = new RowBitmap();
+            if (old != null) {
+                bitmap.orChunk(entryKey.getKey(), old.getBytesNoCopy());
+            }
+            if (!bitmap.remove(rowKey)) {
+                StringBuilder builder = new StringBuilder();
+                getSQL(builder, TRACE_SQL_FLAGS).append(": ").append(rowKey);
+                throw DbException.get(ErrorCode.ROW_NOT_FOUND_WHEN_DELETING_1, builder.toString());
+            }
+            byte[] data = bitmap.getChunkData(entryKey.getKey());
+            if (data == null) {
+                map.remove(entryKey);
+            } else {
+                map.put(entryKey, ValueVarbinary.getNoCopy(data));
+            }
+        } catch (MVStoreException e) {
+            throw mvTable.convertException(e);
+        }
+    }
+
+    @Override
+    public void update(SessionLocal session, Row oldRow, Row newRow) {
+        if (oldRow.getKey() != newRow.getKey() || !oldRow.getValue(columnId).equals(newRow.getValue(columnId))
+                || getCondition() != null && isRowIndexed(session, oldRow) != isRowIndexed(session, newRow)) {
+            super.update(session, oldRow, newRow);
+        }
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        return new RowBitmapCursor(session, mvTable, findRowKeys(session, first, last));
+    }
+
+    @Override
+    public RowBitmap findRowKeys(SessionLocal session, SearchRow first, SearchRow last) {
+        SearchRow from = first != null ? createKey(first.getValue(columnId), Long.MIN_VALUE) : null;
+        SearchRow to = last != null ? createKey(last.getValue(columnId), Long.MAX_VALUE) : null;
+        RowBitmap bitmap = new RowBitmap();
+        Iterator<Map.Entry<SearchRow, Value>> i = getMap(session).entryIterator(from, to);
+        while (i.hasNext()) {
+            Map.Entry<SearchRow, Value> e = i.next();
+            bitmap.orChunk(e.getKey().getKey(), e.getValue().getBytesNoCopy());
+        }
+        return bitmap;
+    }
+
+    @Override
+    public MVTable getTable() {
+        return mvTable;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        if (masks == null || (masks[columnId] & (IndexCondition.EQUALITY | IndexCondition.RANGE)) == 0) {
+            return Long.MAX_VALUE;
+        }
+        long rowCount = mvTable.getRowCountApproximation(session) + Constants.COST_ROW_OFFSET;
+        long rowsCost = getRowsCost(masks, rowCount, filters == null ? null : filters[filter]);
+        long sortingCost = sortOrder != null ? 100 + rowCount / 10 : 0L;
+        // A bitmap has one bit per row, rows are always read from the table
+        return 10 * (rowsCost / 16 + 2 + rowsCost + rowsCost + sortingCost + 20);
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        if (!map.isClosed()) {
+            Transaction t = session.getTransaction();
+            t.removeMap(map);
+        }
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        map.clear();
+    }
+
+    @Override
+    public boolean needRebuild() {
+        try {
+            return dataMap.sizeAsLongMax() == 0;
+        } catch (MVStoreException e) {
+            throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
+        }
+    }
+
+    @Override
+    public boolean canScan() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return findRowKeys(session, null, null).getCardinality();
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return mvTable.getRowCountApproximation(session);
+    }
+
+    @Override
+    public long getDiskSpaceUsed() {
+        // TODO estimate disk space usage
+        return 0;
+    }
+
+    /**
+     * Get the map to store the data.
+     *
+     * @param session the session
+     * @return the map
+     */
+    private TransactionMap<SearchRow, Value> getMap(SessionLocal session) {
+        if (session == null) {
+            return dataMap;
+        }
+        Transaction t = session.getTransaction();
+        return dataMap.getInstance(t);
+    }
+
+    @Override
+    public MVMap<SearchRow, VersionedValue<Value>> getMVMap() {
+        return dataMap.map;
+    }
+
+    private static final class Source {
+
+        private final Iterator<SearchRow> iterator;
+
+        SearchRow current;
+
+        Source(Iterator<SearchRow> iterator) {
+            this.iterator = iterator;
+            current = iterator.next();
+        }
+
+        boolean next() {
+            if (iterator.hasNext()) {
+                current = iterator.next();
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
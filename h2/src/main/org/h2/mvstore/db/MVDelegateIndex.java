@@ -9,8 +9,10 @@
 
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.engine.SessionLocal;
+import org.h2.index.BitmapIndex;
 import org.h2.index.Cursor;
 import org.h2.index.IndexType;
+import org.h2.index.RowBitmap;
 import org.h2.message.DbException;
 import org.h2.mvstore.MVMap;
 import org.h2.result.Row;
@@ -25,7 +27,7 @@
 /**
  * An index that delegates indexing to another index.
  */
-public class MVDelegateIndex extends MVIndex<Long, SearchRow> {
+public class MVDelegateIndex extends MVIndex<Long, SearchRow> implements BitmapIndex {
 
     private final MVPrimaryIndex mainIndex;
 
@@ -91,6 +93,11 @@ public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
         return mainIndex.find(session, first, last);
     }
 
+    @Override
+    public RowBitmap findRowKeys(SessionLocal session, SearchRow first, SearchRow last) {
+        return mainIndex.findRowKeys(session, first, last);
+    }
+
     @Override
     public Cursor findFirstOrLast(SessionLocal session, boolean first) {
         return mainIndex.findFirstOrLast(session, first);
@@ -117,6 +124,11 @@ public double getCost(SessionLocal session, int[] masks,
                 filters, filter, sortOrder, true, allColumnsSet);
     }
 
+    @Override
+    public long getEstimatedRowCount(SessionLocal session, int[] masks, TableFilter filter) {
+        return getEstimatedRowCountRangeIndex(masks, mainIndex.getRowCountApproximation(session), filter, true);
+    }
+
     @Override
     public boolean needRebuild() {
         return false;
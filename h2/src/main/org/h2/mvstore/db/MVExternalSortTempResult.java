@@ -0,0 +1,368 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.h2.engine.Database;
+import org.h2.expression.Expression;
+import org.h2.message.DbException;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVMap.Builder;
+import org.h2.result.ResultExternal;
+import org.h2.result.SortOrder;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueRow;
+
+/**
+ * Sorted temporary result for non-distinct results.
+ *
+ * <p>
+ * Rows are passed to this result in batches. Each batch is sorted in memory
+ * (in parallel for large batches) and is appended to its own map as a sorted
+ * run without any tree searches. Rows are returned by a k-way merge of these
+ * runs. If there are too many runs on the same level, they are merged into a
+ * one larger run of the next level.
+ * </p>
+ */
+class MVExternalSortTempResult extends MVTempResult {
+
+    /**
+     * Maximum number of runs on the same level. When this number is reached
+     * runs of this level are merged into a new run of the next level.
+     */
+    private static final int MERGE_FACTOR = 32;
+
+    /**
+     * Minimum size of a batch to be sorted in parallel.
+     */
+    private static final int MIN_PARALLEL_SORT_SIZE = 1 << 13;
+
+    /**
+     * The pool for parallel sorting of batches. The common pool isn't used,
+     * because it may be busy with tasks of the application.
+     */
+    private static final class SortPool {
+
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("H2 Sort " + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+
+    }
+
+    /**
+     * A sorted run.
+     */
+    private static final class Run {
+
+        /**
+         * The map with rows.
+         */
+        final MVMap<Long, ValueRow> map;
+
+        /**
+         * The level of this run.
+         */
+        final int level;
+
+        Run(MVMap<Long, ValueRow> map, int level) {
+            this.map = map;
+            this.level = level;
+        }
+
+    }
+
+    /**
+     * A position in a sorted run during merge.
+     */
+    private static final class RunCursor {
+
+        /**
+         * The cursor.
+         */
+        final Cursor<Long, ValueRow> cursor;
+
+        /**
+         * The current row.
+         */
+        Value[] current;
+
+        RunCursor(Cursor<Long, ValueRow> cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * Moves to the next row.
+         *
+         * @return whether there is a next row
+         */
+        boolean next() {
+            if (cursor.hasNext()) {
+                cursor.next();
+                current = cursor.getValue().getList();
+                return true;
+            }
+            current = null;
+            return false;
+        }
+
+    }
+
+    /**
+     * The sort order.
+     */
+    private final SortOrder sort;
+
+    /**
+     * Whether batches may be sorted in parallel.
+     */
+    private final boolean parallelSort;
+
+    /**
+     * The value type of rows in runs.
+     */
+    private final ValueDataType valueType;
+
+    /**
+     * Sorted runs. Only the root result may modify this list.
+     */
+    private final ArrayList<Run> runs;
+
+    /**
+     * Rows added with {@link #addRow(Value[])} and not yet written to a run.
+     */
+    private ArrayList<Value[]> pending;
+
+    /**
+     * Counter for names of maps with runs.
+     */
+    private int runId;
+
+    /**
+     * Merge queue for the {@link #next()} method.
+     */
+    private PriorityQueue<RunCursor> queue;
+
+    /**
+     * Creates a shallow copy of the result.
+     *
+     * @param parent
+     *            parent result
+     */
+    private MVExternalSortTempResult(MVExternalSortTempResult parent) {
+        super(parent);
+        this.sort = parent.sort;
+        this.parallelSort = parent.parallelSort;
+        this.valueType = parent.valueType;
+        this.runs = parent.runs;
+        this.rowCount = parent.rowCount;
+    }
+
+    /**
+     * Creates a new sorted temporary result.
+     *
+     * @param database
+     *            database
+     * @param expressions
+     *            column expressions
+     * @param visibleColumnCount
+     *            count of visible columns
+     * @param resultColumnCount
+     *            the number of columns including visible columns and additional
+     *            virtual columns for ORDER BY clause
+     * @param sort
+     *            sort order
+     */
+    MVExternalSortTempResult(Database database, Expression[] expressions, int visibleColumnCount,
+            int resultColumnCount, SortOrder sort) {
+        super(database, expressions, visibleColumnCount, resultColumnCount);
+        this.sort = sort;
+        // Collators aren't thread-safe
+        boolean parallelSort = CompareMode.OFF.equals(database.getCompareMode().getName());
+        if (parallelSort) {
+            for (int idx : sort.getQueryColumnIndexes()) {
+                // Comparison of LOBs may need to read them
+                if (DataType.isLargeObject(expressions[idx].getType().getValueType())) {
+                    parallelSort = false;
+                    break;
+                }
+            }
+        }
+        this.parallelSort = parallelSort;
+        valueType = new ValueDataType(database, new int[resultColumnCount]);
+        runs = new ArrayList<>();
+    }
+
+    @Override
+    public int addRow(Value[] values) {
+        assert parent == null;
+        if (pending == null) {
+            pending = new ArrayList<>();
+        }
+        pending.add(values);
+        return ++rowCount;
+    }
+
+    @Override
+    public int addRows(Collection<Value[]> rows) {
+        assert parent == null;
+        int size = rows.size();
+        if (size == 0) {
+            return rowCount;
+        }
+        Value[][] array;
+        if (pending != null) {
+            pending.addAll(rows);
+            array = pending.toArray(new Value[0][]);
+            pending = null;
+        } else {
+            array = rows.toArray(new Value[0][]);
+        }
+        if (parallelSort && array.length >= MIN_PARALLEL_SORT_SIZE) {
+            // Tasks of the parallel sort are forked into the pool of the
+            // current worker thread
+            SortPool.POOL.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(array, sort)));
+        } else {
+            Arrays.sort(array, sort);
+        }
+        MVMap<Long, ValueRow> map = openRunMap();
+        long key = 0;
+        for (Value[] row : array) {
+            map.append(key++, ValueRow.get(row));
+        }
+        addRun(new Run(map, 0));
+        rowCount += size;
+        return rowCount;
+    }
+
+    private MVMap<Long, ValueRow> openRunMap() {
+        Builder<Long, ValueRow> builder = new MVMap.Builder<Long, ValueRow>().valueType(valueType).singleWriter();
+        return store.openMap("run" + runId++, builder);
+    }
+
+    private void addRun(Run run) {
+        runs.add(run);
+        int level = run.level;
+        int count = 0;
+        for (Run r : runs) {
+            if (r.level == level) {
+                count++;
+            }
+        }
+        if (count >= MERGE_FACTOR) {
+            mergeLevel(level);
+        }
+    }
+
+    private void mergeLevel(int level) {
+        ArrayList<Run> source = new ArrayList<>(MERGE_FACTOR);
+        for (int i = runs.size(); --i >= 0;) {
+            Run r = runs.get(i);
+            if (r.level == level) {
+                source.add(r);
+                runs.remove(i);
+            }
+        }
+        PriorityQueue<RunCursor> queue = createQueue(source);
+        MVMap<Long, ValueRow> map = openRunMap();
+        long key = 0;
+        RunCursor c;
+        while ((c = queue.poll()) != null) {
+            map.append(key++, ValueRow.get(c.current));
+            if (c.next()) {
+                queue.offer(c);
+            }
+        }
+        for (Run r : source) {
+            store.removeMap(r.map);
+        }
+        addRun(new Run(map, level + 1));
+    }
+
+    private PriorityQueue<RunCursor> createQueue(ArrayList<Run> source) {
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>(Math.max(source.size(), 1),
+                (a, b) -> sort.compare(a.current, b.current));
+        for (Run r : source) {
+            RunCursor c = new RunCursor(r.map.cursor(null));
+            if (c.next()) {
+                queue.offer(c);
+            }
+        }
+        return queue;
+    }
+
+    @Override
+    public boolean contains(Value[] values) {
+        throw DbException.getUnsupportedException("contains()");
+    }
+
+    @Override
+    public synchronized ResultExternal createShallowCopy() {
+        if (parent != null) {
+            return parent.createShallowCopy();
+        }
+        if (closed) {
+            return null;
+        }
+        flushPending();
+        childCount++;
+        return new MVExternalSortTempResult(this);
+    }
+
+    private void flushPending() {
+        if (pending != null) {
+            ArrayList<Value[]> rows = pending;
+            pending = null;
+            rowCount -= rows.size();
+            addRows(rows);
+        }
+    }
+
+    @Override
+    public Value[] next() {
+        if (queue == null) {
+            if (parent == null) {
+                flushPending();
+            }
+            queue = createQueue(runs);
+        }
+        RunCursor c = queue.poll();
+        if (c == null) {
+            return null;
+        }
+        Value[] currentRow = c.current;
+        if (c.next()) {
+            queue.offer(c);
+        }
+        if (hasEnum) {
+            fixEnum(currentRow);
+        }
+        return currentRow;
+    }
+
+    @Override
+    public int removeRow(Value[] values) {
+        throw DbException.getUnsupportedException("removeRow()");
+    }
+
+    @Override
+    public void reset() {
+        queue = null;
+    }
+
+}
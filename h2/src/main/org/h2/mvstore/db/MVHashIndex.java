@@ -0,0 +1,648 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import org.h2.api.ErrorCode;
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.Constants;
+import org.h2.engine.Database;
+import org.h2.engine.SessionLocal;
+import org.h2.index.Cursor;
+import org.h2.index.IndexCondition;
+import org.h2.index.IndexType;
+import org.h2.message.DbException;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.mvstore.tx.TransactionStore;
+import org.h2.result.Row;
+import org.h2.result.RowFactory;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+import org.h2.table.TableFilter;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueDate;
+import org.h2.value.ValueInterval;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueTime;
+import org.h2.value.ValueTimestamp;
+import org.h2.value.ValueUuid;
+import org.h2.value.VersionedValue;
+
+/**
+ * A hash index stored in a MVStore. Keys of its map are 64-bit hash codes of
+ * values of indexed columns combined with row keys. Such keys have a fixed
+ * small size, so pages of the map hold many more entries than pages of a
+ * b-tree index on the same columns, and a lookup reads fewer pages. Values of
+ * rows with the same hash code are compared with the searched values. Only
+ * equality conditions on all columns can be used with this index.
+ */
+public final class MVHashIndex extends MVIndex<SearchRow, Value> {
+
+    private static final int[] SORT_TYPES = { SortOrder.ASCENDING };
+
+    private static final int[] INDEXES = { 0 };
+
+    /**
+     * The version of the hash function. It must be incremented on every
+     * change of {@link #hash(Value)}, because hash codes are persisted.
+     */
+    private static final int HASH_VERSION = 1;
+
+    private static final long MULTIPLIER = 0x9e37_79b9_7f4a_7c15L;
+
+    /**
+     * The multi-value table.
+     */
+    private final MVTable mvTable;
+
+    private final RowFactory keyFactory;
+
+    private final TransactionMap<SearchRow, Value> dataMap;
+
+    public MVHashIndex(Database db, MVTable table, int id, String indexName, IndexColumn[] columns,
+            int keyColumnCount, IndexType indexType) {
+        super(table, id, indexName, columns, keyColumnCount, indexType);
+        this.mvTable = table;
+        if (!database.isStarting()) {
+            checkIndexColumnTypes(columns);
+        }
+        keyFactory = RowFactory.getDefaultRowFactory().createRowFactory(db, db.getCompareMode(), db.getMode(), db,
+                SORT_TYPES, INDEXES, 1);
+        RowDataType keyType = keyFactory.getRowDataType();
+        if (db.isStarting()) {
+            MVStore mvStore = db.getStore().getMvStore();
+            for (int version = 0; version < HASH_VERSION; version++) {
+                String name = getMapName(id, version);
+                if (mvStore.hasMap(name)) {
+                    // empty map of the current version is rebuilt
+                    mvStore.removeMap(name);
+                }
+            }
+        }
+        Transaction t = mvTable.getTransactionBegin();
+        dataMap = t.openMap(getMapName(id), keyType, new ValueDataType());
+        dataMap.map.setVolatile(!table.isPersistData() || !indexType.isPersistent());
+        if (!db.isStarting()) {
+            dataMap.clear();
+        }
+        t.commit();
+        if (!keyType.equals(dataMap.getKeyType())) {
+            throw DbException.throwInternalError(
+                    "Incompatible key type, expected " + keyType + " but got "
+                            + dataMap.getKeyType() + " for index " + indexName);
+        }
+    }
+
+    /**
+     * Returns the name of the map of a hash index. The name contains the
+     * version of the hash function, maps with hash codes computed by other
+     * versions are rebuilt.
+     *
+     * @param id
+     *            the id of the index
+     * @return the name of the map
+     */
+    static String getMapName(int id) {
+        return getMapName(id, HASH_VERSION);
+    }
+
+    private static String getMapName(int id, int version) {
+        // the first version used Value.hashCode() and had no version suffix
+        return version == 0 ? "hash." + id : "hash" + version + '.' + id;
+    }
+
+    /**
+     * Returns whether a map of a hash index with any version of the hash
+     * function exists.
+     *
+     * @param store
+     *            the transaction store
+     * @param id
+     *            the id of the index
+     * @return whether a map exists
+     */
+    static boolean hasMap(TransactionStore store, int id) {
+        for (int version = 0; version <= HASH_VERSION; version++) {
+            if (store.hasMap(getMapName(id, version))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a hash index can be created on the specified columns.
+     * Equal values of these columns must have equal hash codes.
+     *
+     * @param db
+     *            the database
+     * @param columns
+     *            the index columns
+     * @param keyColumnCount
+     *            the number of leading key columns
+     * @return whether a hash index can be used
+     */
+    static boolean isHashable(Database db, IndexColumn[] columns, int keyColumnCount) {
+        if (keyColumnCount < columns.length) {
+            // included columns
+            return false;
+        }
+        for (IndexColumn c : columns) {
+            if (c.column.isIndexExpression()) {
+                return false;
+            }
+            int valueType = c.column.getType().getValueType();
+            switch (valueType) {
+            case Value.CHAR:
+            case Value.VARCHAR:
+                if (!CompareMode.OFF.equals(db.getCompareMode().getName())) {
+                    return false;
+                }
+                break;
+            case Value.GEOMETRY:
+            case Value.JAVA_OBJECT:
+                return false;
+            default:
+                if (!DataType.hasTotalOrdering(valueType)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the hash code of values of indexed columns.
+     *
+     * @param row
+     *            the row with values of indexed columns
+     * @return the hash code
+     */
+    private long hash(SearchRow row) {
+        long h = 0L;
+        for (int id : columnIds) {
+            h = (h + hash(row.getValue(id))) * MULTIPLIER;
+        }
+        // Spread high bits of the product
+        return h ^ h >>> 31;
+    }
+
+    /**
+     * Computes the hash code of a value. Unlike {@link Value#hashCode()} it
+     * doesn't depend on the JVM and may be persisted. Equal values of the same
+     * data type must have equal hash codes, other values are compared after
+     * lookup.
+     *
+     * @param v
+     *            the value
+     * @return the hash code
+     */
+    private static long hash(Value v) {
+        switch (v.getValueType()) {
+        case Value.NULL:
+            return 0L;
+        case Value.BOOLEAN:
+            return v.getBoolean() ? 1L : 2L;
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.ENUM:
+            return v.getInt();
+        case Value.BIGINT:
+            return v.getLong();
+        case Value.REAL:
+            return Float.floatToIntBits(v.getFloat());
+        case Value.DOUBLE:
+            return Double.doubleToLongBits(v.getDouble());
+        case Value.DATE:
+            return ((ValueDate) v).getDateValue();
+        case Value.TIME:
+            return ((ValueTime) v).getNanos();
+        case Value.TIMESTAMP: {
+            ValueTimestamp t = (ValueTimestamp) v;
+            return t.getDateValue() * MULTIPLIER + t.getTimeNanos();
+        }
+        case Value.UUID: {
+            ValueUuid u = (ValueUuid) v;
+            return u.getHigh() * MULTIPLIER + u.getLow();
+        }
+        case Value.BINARY:
+        case Value.VARBINARY: {
+            long h = 0L;
+            for (byte b : v.getBytesNoCopy()) {
+                h = (h + b) * MULTIPLIER;
+            }
+            return h;
+        }
+        case Value.CHAR:
+        case Value.VARCHAR: {
+            String s = v.getString();
+            long h = 0L;
+            for (int i = 0, l = s.length(); i < l; i++) {
+                h = (h + s.charAt(i)) * MULTIPLIER;
+            }
+            return h;
+        }
+        default:
+            if (DataType.isIntervalType(v.getValueType())) {
+                ValueInterval i = (ValueInterval) v;
+                long h = i.getLeading() * MULTIPLIER + i.getRemaining();
+                return i.isNegative() ? ~h : h;
+            }
+            throw DbException.throwInternalError("type=" + v.getValueType());
+        }
+    }
+
+    private SearchRow createKey(long hash, long key) {
+        SearchRow row = keyFactory.createRow();
+        row.setValue(0, ValueBigint.get(hash));
+        row.setKey(key);
+        return row;
+    }
+
+    /**
+     * Checks whether values of indexed columns are equal.
+     *
+     * @param row
+     *            the row
+     * @param other
+     *            the other row, or {@code null}
+     * @return whether values are equal
+     */
+    private boolean equalValues(SearchRow row, SearchRow other) {
+        if (other == null) {
+            return false;
+        }
+        for (int id : columnIds) {
+            if (!row.getValue(id).equals(other.getValue(id))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void addRowsToBuffer(List<Row> rows, String bufferName) {
+        ArrayList<SearchRow> keys = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            keys.add(createKey(hash(row), row.getKey()));
+        }
+        RowDataType keyType = keyFactory.getRowDataType();
+        keys.sort(keyType::compare);
+        MVMap<SearchRow, Value> map = openMap(bufferName);
+        for (SearchRow key : keys) {
+            map.append(key, ValueNull.INSTANCE);
+        }
+    }
+
+    @Override
+    public void addBufferedRows(List<String> bufferNames) {
+        RowDataType keyType = keyFactory.getRowDataType();
+        Queue<Source> queue = new PriorityQueue<>(bufferNames.size(),
+                (one, two) -> keyType.compare(one.current, two.current));
+        for (String bufferName : bufferNames) {
+            Iterator<SearchRow> iter = openMap(bufferName).keyIterator(null);
+            if (iter.hasNext()) {
+                queue.offer(new Source(iter));
+            }
+        }
+        try {
+            while (!queue.isEmpty()) {
+                Source s = queue.poll();
+                SearchRow key = s.current;
+                if (indexType.isUnique()) {
+                    Row row = getPrimaryIndex().getCommittedRow(key.getKey());
+                    if (row != null && !mayHaveNullDuplicates(row)) {
+                        checkUnique(null, true, dataMap, row, key.getKey());
+                    }
+                }
+                dataMap.putCommitted(key, ValueNull.INSTANCE);
+                if (s.next()) {
+                    queue.offer(s);
+                }
+            }
+        } finally {
+            MVStore mvStore = database.getStore().getMvStore();
+            for (String tempMapName : bufferNames) {
+                mvStore.removeMap(tempMapName);
+            }
+        }
+    }
+
+    private MVMap<SearchRow, Value> openMap(String mapName) {
+        RowDataType keyType = keyFactory.getRowDataType();
+        MVMap.Builder<SearchRow, Value> builder = new MVMap.Builder<SearchRow, Value>()
+                .singleWriter()
+                .keyType(keyType)
+                .valueType(new ValueDataType());
+        return database.getStore().getMvStore().openMap(mapName, builder);
+    }
+
+    private MVPrimaryIndex getPrimaryIndex() {
+        return (MVPrimaryIndex) mvTable.getScanIndex(null);
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // ok
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        if (!isRowIndexed(session, row)) {
+            return;
+        }
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        boolean checkRequired = indexType.isUnique() && !mayHaveNullDuplicates(row);
+        boolean allowNonRepeatableRead = checkRequired && session.getTransaction().allowNonRepeatableRead();
+        if (checkRequired) {
+            checkUnique(session, allowNonRepeatableRead, map, row, Long.MIN_VALUE);
+        }
+        try {
+            map.put(createKey(hash(row), row.getKey()), ValueNull.INSTANCE);
+        } catch (MVStoreException e) {
+            throw mvTable.convertException(e);
+        }
+        if (checkRequired) {
+            checkUnique(session, allowNonRepeatableRead, map, row, row.getKey());
+        }
+    }
+
+    private void checkUnique(SessionLocal session, boolean allowNonRepeatableRead,
+            TransactionMap<SearchRow, Value> map, SearchRow row, long newKey) {
+        long hash = hash(row);
+        SearchRow from = createKey(hash, Long.MIN_VALUE), to = createKey(hash, Long.MAX_VALUE);
+        if (!allowNonRepeatableRead) {
+            Iterator<SearchRow> it = map.keyIterator(from, to);
+            while (it.hasNext()) {
+                SearchRow k = it.next();
+                if (newKey != k.getKey() && !map.isDeletedByCurrentTransaction(k)
+                        && equalValues(row, mvTable.getRow(session, k.getKey()))) {
+                    throw getDuplicateKeyException(getValuesSQL(row));
+                }
+            }
+        }
+        Iterator<SearchRow> it = map.keyIteratorUncommitted(from, to);
+        while (it.hasNext()) {
+            SearchRow k = it.next();
+            if (newKey != k.getKey()) {
+                if (map.getImmediate(k) != null) {
+                    // committed
+                    if (equalValues(row, getPrimaryIndex().getCommittedRow(k.getKey()))) {
+                        throw getDuplicateKeyException(getValuesSQL(row));
+                    }
+                } else if (equalValues(row, getPrimaryIndex().getUncommittedRow(k.getKey()))) {
+                    // uncommitted row of another transaction with the same
+                    // values, it may be committed later
+                    throw DbException.get(ErrorCode.CONCURRENT_UPDATE_1, table.getName());
+                }
+            }
+        }
+    }
+
+    private String getValuesSQL(SearchRow row) {
+        StringBuilder builder = new StringBuilder("( /* key:").append(row.getKey()).append(" */ ");
+        for (int i = 0, l = columnIds.length; i < l; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            row.getValue(columnIds[i]).getSQL(builder, TRACE_SQL_FLAGS);
+        }
+        return builder.append(')').toString();
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        if (!isRowIndexed(session, row)) {
+            return;
+        }
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        try {
+            if (map.remove(createKey(hash(row), row.getKey())) == null) {
+                StringBuilder builder = new StringBuilder();
+                getSQL(builder, TRACE_SQL_FLAGS).append(": ").append(row.getKey());
+                throw DbException.get(ErrorCode.ROW_NOT_FOUND_WHEN_DELETING_1, builder.toString());
+            }
+        } catch (MVStoreException e) {
+            throw mvTable.convertException(e);
+        }
+    }
+
+    @Override
+    public void update(SessionLocal session, Row oldRow, Row newRow) {
+        if (oldRow.getKey() != newRow.getKey() || !equalValues(oldRow, newRow)
+                || getCondition() != null && isRowIndexed(session, oldRow) != isRowIndexed(session, newRow)) {
+            super.update(session, oldRow, newRow);
+        }
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        if (first == null || last == null) {
+            throw DbException.throwInternalError(first + " " + last);
+        }
+        SearchRow search = getRowFactory().createRow();
+        for (int i = 0, l = columnIds.length; i < l; i++) {
+            int id = columnIds[i];
+            Value v = first.getValue(id);
+            if (v == null || !v.equals(last.getValue(id))) {
+                throw DbException.throwInternalError(first + " " + last);
+            }
+            /*
+             * The searched value may have a different data type, it needs to
+             * be converted to get the same hash code.
+             */
+            search.setValue(id, columns[i].convert(session, v));
+        }
+        long hash = hash(search);
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        return new MVHashCursor(session, map.keyIterator(createKey(hash, Long.MIN_VALUE),
+                createKey(hash, Long.MAX_VALUE)), search);
+    }
+
+    @Override
+    public MVTable getTable() {
+        return mvTable;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        if (masks == null) {
+            return Long.MAX_VALUE;
+        }
+        for (Column column : columns) {
+            if ((masks[column.getColumnId()] & IndexCondition.EQUALITY) != IndexCondition.EQUALITY) {
+                return Long.MAX_VALUE;
+            }
+        }
+        long rowCount;
+        try {
+            rowCount = dataMap.sizeAsLongMax() + Constants.COST_ROW_OFFSET;
+        } catch (MVStoreException e) {
+            throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
+        }
+        long rowsCost = getRowsCost(masks, rowCount, filters == null ? null : filters[filter]);
+        long sortingCost = sortOrder != null ? 100 + rowCount / 10 : 0L;
+        // Rows are always read from the table, but the lookup is cheaper than
+        // in a b-tree index on the same columns
+        return 10 * (rowsCost + rowsCost + sortingCost + 10);
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        if (!map.isClosed()) {
+            Transaction t = session.getTransaction();
+            t.removeMap(map);
+        }
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        map.clear();
+    }
+
+    @Override
+    public boolean needRebuild() {
+        try {
+            return dataMap.sizeAsLongMax() == 0;
+        } catch (MVStoreException e) {
+            throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
+        }
+    }
+
+    @Override
+    public boolean canScan() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        TransactionMap<SearchRow, Value> map = getMap(session);
+        return map.sizeAsLong();
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        try {
+            return dataMap.sizeAsLongMax();
+        } catch (MVStoreException e) {
+            throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
+        }
+    }
+
+    @Override
+    public long getDiskSpaceUsed() {
+        // TODO estimate disk space usage
+        return 0;
+    }
+
+    /**
+     * Get the map to store the data.
+     *
+     * @param session the session
+     * @return the map
+     */
+    private TransactionMap<SearchRow, Value> getMap(SessionLocal session) {
+        if (session == null) {
+            return dataMap;
+        }
+        Transaction t = session.getTransaction();
+        return dataMap.getInstance(t);
+    }
+
+    @Override
+    public MVMap<SearchRow, VersionedValue<Value>> getMVMap() {
+        return dataMap.map;
+    }
+
+    private static final class Source {
+
+        private final Iterator<SearchRow> iterator;
+
+        SearchRow current;
+
+        Source(Iterator<SearchRow> iterator) {
+            this.iterator = iterator;
+            current = iterator.next();
+        }
+
+        boolean next() {
+            if (iterator.hasNext()) {
+                current = iterator.next();
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * A cursor that returns rows with the searched values.
+     */
+    private final class MVHashCursor implements Cursor {
+
+        private final SessionLocal session;
+
+        private final Iterator<SearchRow> it;
+
+        private final SearchRow search;
+
+        private Row row;
+
+        MVHashCursor(SessionLocal session, Iterator<SearchRow> it, SearchRow search) {
+            this.session = session;
+            this.it = it;
+            this.search = search;
+        }
+
+        @Override
+        public Row get() {
+            return row;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return row;
+        }
+
+        @Override
+        public boolean next() {
+            while (it.hasNext()) {
+                Row r = mvTable.getRow(session, it.next().getKey());
+                if (equalValues(search, r)) {
+                    row = r;
+                    return true;
+                }
+            }
+            row = null;
+            return false;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous");
+        }
+
+    }
+
+}
@@ -24,6 +24,11 @@ protected MVIndex(Table newTable, int id, String name, IndexColumn[] newIndexCol
         super(newTable, id, name, newIndexColumns, newIndexType);
     }
 
+    protected MVIndex(Table newTable, int id, String name, IndexColumn[] newIndexColumns, int keyColumnCount,
+            IndexType newIndexType) {
+        super(newTable, id, name, newIndexColumns, keyColumnCount, newIndexType);
+    }
+
     /**
      * Add the rows to a temporary storage (not to the index yet). The rows are
      * sorted by the index columns. This is to more quickly build the index.
@@ -5,9 +5,12 @@
  */
 package org.h2.mvstore.db;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import org.h2.api.ErrorCode;
 import org.h2.command.query.AllColumnsForPlan;
@@ -15,6 +18,7 @@
 import org.h2.engine.SessionLocal;
 import org.h2.index.Cursor;
 import org.h2.index.IndexType;
+import org.h2.index.RowBitmap;
 import org.h2.index.SingleRowCursor;
 import org.h2.message.DbException;
 import org.h2.mvstore.MVMap;
@@ -281,6 +285,15 @@ public double getCost(SessionLocal session, int[] masks,
         }
     }
 
+    @Override
+    public long getEstimatedRowCount(SessionLocal session, int[] masks, TableFilter filter) {
+        try {
+            return getEstimatedRowCountRangeIndex(masks, dataMap.sizeAsLongMax(), filter, true);
+        } catch (MVStoreException e) {
+            throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
+        }
+    }
+
     @Override
     public int getColumnIndex(Column col) {
         // can not use this index - use the delegate index instead
@@ -383,6 +396,36 @@ Cursor find(SessionLocal session, Value first, Value last) {
         return find(session, from, to);
     }
 
+    /**
+     * Find keys of rows with values of the main index column within the
+     * specified range.
+     *
+     * @param session the session
+     * @param first the lower bound, or null for no limit
+     * @param last the upper bound, or null for no limit
+     * @return the set of row keys
+     */
+    RowBitmap findRowKeys(SessionLocal session, SearchRow first, SearchRow last) {
+        RowBitmap bitmap = new RowBitmap();
+        Iterator<Long> i = getMap(session).keyIterator(getKeyBound(first, Long.MIN_VALUE),
+                getKeyBound(last, Long.MAX_VALUE));
+        while (i.hasNext()) {
+            bitmap.add(i.next());
+        }
+        return bitmap;
+    }
+
+    private long getKeyBound(SearchRow row, long defaultValue) {
+        if (row != null && mainIndexColumn != SearchRow.ROWID_INDEX) {
+            // Bounds may also have values of other columns
+            Value v = row.getValue(mainIndexColumn);
+            if (v != null && v != ValueNull.INSTANCE) {
+                return v.getLong();
+            }
+        }
+        return defaultValue;
+    }
+
     private Cursor find(SessionLocal session, Long first, Long last) {
         TransactionMap<Long,SearchRow> map = getMap(session);
         if (first != null && last != null && first.longValue() == last.longValue()) {
@@ -398,6 +441,63 @@ public boolean isRowIdIndex() {
         return true;
     }
 
+    /**
+     * Returns a cursor over rows at approximately evenly distributed positions
+     * in this index. Rows that are not visible in the specified session are
+     * skipped.
+     *
+     * @param session the session
+     * @param count the number of positions to read
+     * @return the cursor
+     */
+    public Cursor findSample(SessionLocal session, int count) {
+        TransactionMap<Long,SearchRow> map = getMap(session);
+        long size = map.map.sizeAsLong();
+        ArrayList<Entry<Long,SearchRow>> list = new ArrayList<>(count);
+        if (size > 0) {
+            long step = Math.max(size / count, 1L);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < count; i++) {
+                long position = Math.min(i * size / count + random.nextLong(step), size - 1);
+                Long key = map.map.getKey(position);
+                if (key != null) {
+                    SearchRow row = map.getFromSnapshot(key);
+                    if (row != null) {
+                        list.add(new AbstractMap.SimpleImmutableEntry<>(key, row));
+                    }
+                }
+            }
+        }
+        return new MVStoreCursor(list.iterator());
+    }
+
+    /**
+     * Returns the latest committed version of the row with the specified key.
+     *
+     * @param key the row key
+     * @return the row, or {@code null} if committed row with this key doesn't
+     *         exist
+     */
+    Row getCommittedRow(long key) {
+        Row row = (Row) dataMap.getImmediate(key);
+        ensureRowKey(row, key);
+        return row;
+    }
+
+    /**
+     * Get the latest version of the row with the specified key, including
+     * uncommitted changes of other transactions.
+     *
+     * @param key the row key
+     * @return the row, or {@code null}
+     */
+    Row getUncommittedRow(long key) {
+        VersionedValue<SearchRow> v = dataMap.map.get(key);
+        Row row = v != null ? (Row) v.getCurrentValue() : null;
+        ensureRowKey(row, key);
+        return row;
+    }
+
     /**
      * Get the map to store the data.
      *
@@ -5,8 +5,10 @@
  */
 package org.h2.mvstore.db;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -14,8 +16,10 @@
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.engine.Database;
 import org.h2.engine.SessionLocal;
+import org.h2.index.BitmapIndex;
 import org.h2.index.Cursor;
 import org.h2.index.IndexType;
+import org.h2.index.RowBitmap;
 import org.h2.index.SingleRowCursor;
 import org.h2.message.DbException;
 import org.h2.mvstore.MVMap;
@@ -25,18 +29,20 @@
 import org.h2.mvstore.tx.TransactionMap;
 import org.h2.mvstore.type.DataType;
 import org.h2.result.Row;
+import org.h2.result.RowFactory;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
 import org.h2.table.IndexColumn;
 import org.h2.table.TableFilter;
 import org.h2.value.Value;
 import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
 import org.h2.value.VersionedValue;
 
 /**
  * An index stored in a MVStore.
  */
-public final class MVSecondaryIndex extends MVIndex<SearchRow, Value> {
+public final class MVSecondaryIndex extends MVIndex<SearchRow, Value> implements BitmapIndex {
 
     /**
      * The multi-value table.
@@ -44,15 +50,25 @@ public final class MVSecondaryIndex extends MVIndex<SearchRow, Value> {
     private final MVTable                         mvTable;
     private final TransactionMap<SearchRow,Value> dataMap;
 
+    /**
+     * The factory of keys of entries. Keys contain only key columns, values
+     * of included columns are stored in values of entries.
+     */
+    private final RowFactory keyFactory;
+
     public MVSecondaryIndex(Database db, MVTable table, int id, String indexName,
-                IndexColumn[] columns, IndexType indexType) {
-        super(table, id, indexName, columns, indexType);
+                IndexColumn[] columns, int keyColumnCount, IndexType indexType) {
+        super(table, id, indexName, columns, keyColumnCount, indexType);
         this.mvTable = table;
         if (!database.isStarting()) {
             checkIndexColumnTypes(columns);
         }
+        keyFactory = keyColumnCount < columns.length
+                ? db.getRowFactory().createRowFactory(db, db.getCompareMode(), db.getMode(), db,
+                        table.getColumns(), Arrays.copyOf(columns, keyColumnCount))
+                : getRowFactory();
         String mapName = "index." + getId();
-        RowDataType keyType = getRowFactory().getRowDataType();
+        RowDataType keyType = keyFactory.getRowDataType();
         ValueDataType valueType = new ValueDataType();
         Transaction t = mvTable.getTransactionBegin();
         dataMap = t.openMap(mapName, keyType, valueType);
@@ -79,28 +95,26 @@ public MVSecondaryIndex(Database db, MVTable table, int id, String indexName,
     public void addRowsToBuffer(List<Row> rows, String bufferName) {
         MVMap<SearchRow,Value> map = openMap(bufferName);
         for (Row row : rows) {
-            SearchRow r = getRowFactory().createRow();
-            r.copyFrom(row);
-            map.append(r, ValueNull.INSTANCE);
+            map.append(convertToKey(row, null), getIncludedValues(row));
         }
     }
 
     private static final class Source {
 
-        private final Iterator<SearchRow> iterator;
+        private final org.h2.mvstore.Cursor<SearchRow,Value> cursor;
 
         SearchRow currentRowData;
 
-        public Source(Iterator<SearchRow> iterator) {
-            assert iterator.hasNext();
-            this.iterator = iterator;
-            this.currentRowData = iterator.next();
+        public Source(org.h2.mvstore.Cursor<SearchRow,Value> cursor) {
+            assert cursor.hasNext();
+            this.cursor = cursor;
+            this.currentRowData = cursor.next();
         }
 
         public boolean hasNext() {
-            boolean result = iterator.hasNext();
+            boolean result = cursor.hasNext();
             if(result) {
-                currentRowData = iterator.next();
+                currentRowData = cursor.next();
             }
             return result;
         }
@@ -109,6 +123,10 @@ public SearchRow next() {
             return currentRowData;
         }
 
+        public Value getValue() {
+            return cursor.getValue();
+        }
+
         static final class Comparator implements java.util.Comparator<Source> {
 
             private final DataType<SearchRow> type;
@@ -128,11 +146,11 @@ public int compare(Source one, Source two) {
     public void addBufferedRows(List<String> bufferNames) {
         int buffersCount = bufferNames.size();
         Queue<Source> queue = new PriorityQueue<>(buffersCount,
-                                new Source.Comparator(getRowFactory().getRowDataType()));
+                                new Source.Comparator(keyFactory.getRowDataType()));
         for (String bufferName : bufferNames) {
-            Iterator<SearchRow> iter = openMap(bufferName).keyIterator(null);
-            if (iter.hasNext()) {
-                queue.offer(new Source(iter));
+            org.h2.mvstore.Cursor<SearchRow,Value> cursor = openMap(bufferName).cursor(null);
+            if (cursor.hasNext()) {
+                queue.offer(new Source(cursor));
             }
         }
 
@@ -145,7 +163,7 @@ public void addBufferedRows(List<String> bufferNames) {
                     checkUnique(true, dataMap, row, Long.MIN_VALUE);
                 }
 
-                dataMap.putCommitted(row, ValueNull.INSTANCE);
+                dataMap.putCommitted(row, s.getValue());
 
                 if (s.hasNext()) {
                     queue.offer(s);
@@ -160,7 +178,7 @@ public void addBufferedRows(List<String> bufferNames) {
     }
 
     private MVMap<SearchRow,Value> openMap(String mapName) {
-        RowDataType keyType = getRowFactory().getRowDataType();
+        RowDataType keyType = keyFactory.getRowDataType();
         ValueDataType valueType = new ValueDataType();
         MVMap.Builder<SearchRow,Value> builder = new MVMap.Builder<SearchRow,Value>()
                                                 .singleWriter()
@@ -183,6 +201,10 @@ public void close(SessionLocal session) {
 
     @Override
     public void add(SessionLocal session, Row row) {
+        if (!isRowIndexed(session, row)) {
+            return;
+        }
+        row = getRowWithExpressions(session, row);
         TransactionMap<SearchRow,Value> map = getMap(session);
         SearchRow key = convertToKey(row, null);
         boolean checkRequired, allowNonRepeatableRead;
@@ -198,7 +220,7 @@ public void add(SessionLocal session, Row row) {
         }
 
         try {
-            map.put(key, ValueNull.INSTANCE);
+            map.put(key, getIncludedValues(row));
         } catch (MVStoreException e) {
             throw mvTable.convertException(e);
         }
@@ -236,7 +258,10 @@ private void checkUnique(boolean allowNonRepeatableRead, TransactionMap<SearchRo
 
     @Override
     public void remove(SessionLocal session, Row row) {
-        SearchRow searchRow = convertToKey(row, null);
+        if (!isRowIndexed(session, row)) {
+            return;
+        }
+        SearchRow searchRow = convertToKey(getRowWithExpressions(session, row), null);
         TransactionMap<SearchRow,Value> map = getMap(session);
         try {
             if (map.remove(searchRow) == null) {
@@ -251,9 +276,10 @@ public void remove(SessionLocal session, Row row) {
 
     @Override
     public void update(SessionLocal session, Row oldRow, Row newRow) {
-        SearchRow searchRowOld = convertToKey(oldRow, null);
-        SearchRow searchRowNew = convertToKey(newRow, null);
-        if (!rowsAreEqual(searchRowOld, searchRowNew)) {
+        oldRow = getRowWithExpressions(session, oldRow);
+        newRow = getRowWithExpressions(session, newRow);
+        if (!rowsAreEqual(oldRow, newRow)
+                || getCondition() != null && isRowIndexed(session, oldRow) != isRowIndexed(session, newRow)) {
             super.update(session, oldRow, newRow);
         }
     }
@@ -281,7 +307,20 @@ private Cursor find(SessionLocal session, SearchRow first, boolean bigger, Searc
         SearchRow min = convertToKey(first, bigger);
         TransactionMap<SearchRow,Value> map = getMap(session);
         SearchRow max = convertToKey(last, Boolean.TRUE);
-        return new MVStoreCursor(session, map.keyIterator(min, max), mvTable);
+        Iterator<SearchRow> it = keyFactory == getRowFactory() ? map.keyIterator(min, max)
+                : new IncludedColumnsIterator(map.entryIterator(min, max));
+        return new MVStoreCursor(session, it, mvTable);
+    }
+
+    @Override
+    public RowBitmap findRowKeys(SessionLocal session, SearchRow first, SearchRow last) {
+        RowBitmap bitmap = new RowBitmap();
+        Iterator<SearchRow> i = getMap(session).keyIterator(convertToKey(first, false),
+                convertToKey(last, Boolean.TRUE));
+        while (i.hasNext()) {
+            bitmap.add(i.next().getKey());
+        }
+        return bitmap;
     }
 
     private SearchRow convertToKey(SearchRow r, Boolean minMax) {
@@ -289,7 +328,7 @@ private SearchRow convertToKey(SearchRow r, Boolean minMax) {
             return null;
         }
 
-        SearchRow row = getRowFactory().createRow();
+        SearchRow row = keyFactory.createRow();
         row.copyFrom(r);
         if (minMax != null) {
             row.setKey(minMax ? Long.MAX_VALUE : Long.MIN_VALUE);
@@ -297,6 +336,18 @@ private SearchRow convertToKey(SearchRow r, Boolean minMax) {
         return row;
     }
 
+    private Value getIncludedValues(SearchRow row) {
+        if (keyFactory == getRowFactory()) {
+            return ValueNull.INSTANCE;
+        }
+        int keyColumnCount = getKeyColumnCount(), count = columnIds.length - keyColumnCount;
+        Value[] values = new Value[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = row.getValue(columnIds[keyColumnCount + i]);
+        }
+        return ValueRow.get(values);
+    }
+
     @Override
     public MVTable getTable() {
         return mvTable;
@@ -314,6 +365,15 @@ public double getCost(SessionLocal session, int[] masks,
         }
     }
 
+    @Override
+    public long getEstimatedRowCount(SessionLocal session, int[] masks, TableFilter filter) {
+        try {
+            return getEstimatedRowCountRangeIndex(masks, dataMap.sizeAsLongMax(), filter, false);
+        } catch (MVStoreException e) {
+            throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
+        }
+    }
+
     @Override
     public void remove(SessionLocal session) {
         TransactionMap<SearchRow,Value> map = getMap(session);
@@ -408,6 +468,37 @@ public MVMap<SearchRow,VersionedValue<Value>> getMVMap() {
         return dataMap.map;
     }
 
+    /**
+     * An iterator over entries of an index with included columns that returns
+     * rows with values of key and included columns.
+     */
+    private final class IncludedColumnsIterator implements Iterator<SearchRow> {
+
+        private final Iterator<Entry<SearchRow,Value>> it;
+
+        IncludedColumnsIterator(Iterator<Entry<SearchRow,Value>> it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public SearchRow next() {
+            Entry<SearchRow,Value> entry = it.next();
+            SearchRow row = getRowFactory().createRow();
+            row.copyFrom(entry.getKey());
+            Value[] values = ((ValueRow) entry.getValue()).getList();
+            for (int i = 0, keyColumnCount = getKeyColumnCount(); i < values.length; i++) {
+                row.setValue(columnIds[keyColumnCount + i], values[i]);
+            }
+            return row;
+        }
+
+    }
+
     /**
      * A cursor.
      */
@@ -13,11 +13,13 @@
 import org.h2.api.ErrorCode;
 import org.h2.command.ddl.CreateTableData;
 import org.h2.engine.Constants;
+import org.h2.engine.DbSettings;
 import org.h2.engine.SessionLocal;
 import org.h2.engine.SysProperties;
 import org.h2.index.Cursor;
 import org.h2.index.Index;
 import org.h2.index.IndexType;
+import org.h2.index.PartialIndexCondition;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.mvstore.DataUtils;
@@ -309,17 +311,35 @@ public Row getRow(SessionLocal session, long key) {
     @Override
     public Index addIndex(SessionLocal session, String indexName, int indexId, IndexColumn[] cols, IndexType indexType,
             boolean create, String indexComment) {
+        return addIndex(session, indexName, indexId, cols, cols.length, indexType, create, indexComment, null);
+    }
+
+    @Override
+    public Index addIndex(SessionLocal session, String indexName, int indexId, IndexColumn[] cols,
+            int keyColumnCount, IndexType indexType, boolean create, String indexComment) {
+        return addIndex(session, indexName, indexId, cols, keyColumnCount, indexType, create, indexComment, null);
+    }
+
+    @Override
+    public Index addIndex(SessionLocal session, String indexName, int indexId, IndexColumn[] cols,
+            int keyColumnCount, IndexType indexType, boolean create, String indexComment,
+            PartialIndexCondition condition) {
+        if (condition != null && indexType.isSpatial()) {
+            throw DbException.getUnsupportedException("Partial spatial index");
+        }
         cols = prepareColumns(database, cols, indexType);
         boolean isSessionTemporary = isTemporary() && !isGlobalTemporary();
         if (!isSessionTemporary) {
             database.lockMeta(session);
         }
         MVIndex<?,?> index;
-        int mainIndexColumn = primaryIndex.getMainIndexColumn() != SearchRow.ROWID_INDEX
+        int mainIndexColumn = primaryIndex.getMainIndexColumn() != SearchRow.ROWID_INDEX || condition != null
                 ? SearchRow.ROWID_INDEX : getMainIndexColumn(indexType, cols);
         if (database.isStarting()) {
             // if index does exists as a separate map it can't be a delegate
-            if (transactionStore.hasMap("index." + indexId)) {
+            if (transactionStore.hasMap("index." + indexId)
+                    || MVHashIndex.hasMap(transactionStore, indexId)
+                    || transactionStore.hasMap(MVBitmapIndex.getMapName(indexId))) {
                 // we can not reuse primary index
                 mainIndexColumn = SearchRow.ROWID_INDEX;
             }
@@ -334,10 +354,17 @@ public Index addIndex(SessionLocal session, String indexName, int indexId, Index
         } else if (indexType.isSpatial()) {
             index = new MVSpatialIndex(session.getDatabase(), this, indexId,
                     indexName, cols, indexType);
+        } else if (indexType.isBitmap()) {
+            index = new MVBitmapIndex(session.getDatabase(), this, indexId,
+                    indexName, cols, indexType);
+        } else if (indexType.isHash() && isHashIndex(indexId, cols, keyColumnCount)) {
+            index = new MVHashIndex(session.getDatabase(), this, indexId,
+                    indexName, cols, keyColumnCount, indexType);
         } else {
             index = new MVSecondaryIndex(session.getDatabase(), this, indexId,
-                    indexName, cols, indexType);
+                    indexName, cols, keyColumnCount, indexType);
         }
+        index.setCondition(condition);
         if (index.needRebuild()) {
             rebuildIndex(session, index, indexName);
         }
@@ -355,6 +382,18 @@ public Index addIndex(SessionLocal session, String indexName, int indexId, Index
         return index;
     }
 
+    private boolean isHashIndex(int indexId, IndexColumn[] cols, int keyColumnCount) {
+        if (database.isStarting()) {
+            // hash indexes from older versions are stored as b-tree indexes
+            if (MVHashIndex.hasMap(transactionStore, indexId)) {
+                return true;
+            } else if (transactionStore.hasMap("index." + indexId)) {
+                return false;
+            }
+        }
+        return MVHashIndex.isHashable(database, cols, keyColumnCount);
+    }
+
     private void rebuildIndex(SessionLocal session, MVIndex<?,?> index, String indexName) {
         try {
             if (session.getDatabase().getStore() == null ||
@@ -404,8 +443,12 @@ private void rebuildIndexBlockMerge(SessionLocal session, MVIndex<?,?> index) {
         ArrayList<String> bufferNames = Utils.newSmallArrayList();
         while (cursor.next()) {
             Row row = cursor.get();
-            buffer.add(row);
             database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n, i++, total);
+            remaining--;
+            if (!index.isRowIndexed(session, row)) {
+                continue;
+            }
+            buffer.add(index.getRowWithExpressions(session, row));
             if (buffer.size() >= bufferSize) {
                 sortRows(buffer, index);
                 String mapName = store.nextTemporaryMapName();
@@ -413,7 +456,6 @@ private void rebuildIndexBlockMerge(SessionLocal session, MVIndex<?,?> index) {
                 bufferNames.add(mapName);
                 buffer.clear();
             }
-            remaining--;
         }
         sortRows(buffer, index);
         if (!bufferNames.isEmpty()) {
@@ -442,7 +484,7 @@ private void rebuildIndexBuffered(SessionLocal session, Index index) {
         String n = getName() + ":" + index.getName();
         while (cursor.next()) {
             Row row = cursor.get();
-            buffer.add(row);
+            buffer.add(index.getRowWithExpressions(session, row));
             database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n, i++, total);
             if (buffer.size() >= bufferSize) {
                 addRowsToIndex(session, buffer, index);
@@ -544,7 +586,12 @@ public Row lockRow(SessionLocal session, Row row) {
     private void analyzeIfRequired(SessionLocal session) {
         if (changesUntilAnalyze != null) {
             if (changesUntilAnalyze.decrementAndGet() == 0) {
-                if (nextAnalyze <= Integer.MAX_VALUE / 2) {
+                DbSettings settings = database.getSettings();
+                if (settings.analyzeBackground) {
+                    // Refresh statistics after changes of 10% of rows
+                    nextAnalyze = (int) Math.min(Math.max(settings.analyzeAuto,
+                            primaryIndex.getRowCountApproximation(session) / 10), Integer.MAX_VALUE);
+                } else if (nextAnalyze <= Integer.MAX_VALUE / 2) {
                     nextAnalyze *= 2;
                 }
                 changesUntilAnalyze.set(nextAnalyze);
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.h2.api.ErrorCode;
+import org.h2.engine.ConnectionInfo;
+import org.h2.engine.Database;
+import org.h2.engine.SessionRemote;
+import org.h2.message.DbException;
+import org.h2.message.Trace;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+import org.h2.store.fs.FileUtils;
+import org.h2.value.Transfer;
+
+/**
+ * Maintains the file of a read-only replica of a database. The changes of the
+ * file of the primary database are received from {@link ReplicationSender},
+ * written to the file of the replica, and made visible to the sessions of the
+ * replica. The replica is closed when the definitions of the database objects
+ * are changed (changes of their statistics are applied to the replica), and the primary database is connected again if the connection
+ * is broken.
+ */
+final class ReplicationReceiver implements Runnable {
+
+    /**
+     * The delay before the primary database is connected again, in
+     * milliseconds.
+     */
+    private static final int RECONNECT_DELAY = 1000;
+
+    /**
+     * The name of the map of the meta table.
+     */
+    private static final String META_TABLE_MAP_NAME = "table.0";
+
+    /**
+     * A file store that is read-only for the store that uses it, and that is
+     * written only by the receiver.
+     */
+    private static final class ReplicaFileStore extends FileStore {
+
+        @Override
+        public boolean isReadOnly() {
+            return true;
+        }
+
+    }
+
+    private final Database database;
+
+    private final ConnectionInfo source;
+
+    private final ReplicaFileStore fileStore;
+
+    private final Trace trace;
+
+    private Transfer transfer;
+
+    /**
+     * Whether the file is a consistent copy of the file of the primary
+     * database since the last connection.
+     */
+    private boolean synced;
+
+    private byte[] buffer;
+
+    private Store store;
+
+    private MVStore mvStore;
+
+    private HashMap<Integer, String> metaDefinitions;
+
+    private Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * Open the file of the replica and copy the file of the primary database.
+     *
+     * @param database the replica
+     * @param source the connection information of the primary database
+     * @param fileName the name of the file
+     * @param encryptionKey the encryption key of the file, or null
+     */
+    ReplicationReceiver(Database database, ConnectionInfo source, String fileName, char[] encryptionKey) {
+        this.database = database;
+        this.source = source;
+        this.trace = database.getTrace(Trace.DATABASE);
+        fileStore = new ReplicaFileStore();
+        FileUtils.createDirectories(FileUtils.getParent(fileName));
+        try {
+            fileStore.open(fileName, false, encryptionKey);
+        } catch (MVStoreException e) {
+            if (e.getErrorCode() == DataUtils.ERROR_FILE_LOCKED) {
+                throw DbException.get(ErrorCode.DATABASE_ALREADY_OPEN_1, e, fileName);
+            }
+            throw DbException.get(ErrorCode.IO_EXCEPTION_1, e, fileName);
+        }
+        try {
+            connect();
+            receive(true);
+        } catch (IOException e) {
+            close();
+            throw DbException.convertIOException(e, source.getURL());
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the file store of the replica.
+     *
+     * @return the file store
+     */
+    FileStore getFileStore() {
+        return fileStore;
+    }
+
+    /**
+     * Start to apply the changes in a background thread.
+     *
+     * @param store the store that uses the file
+     */
+    synchronized void start(Store store) {
+        if (closed || thread != null) {
+            return;
+        }
+        this.store = store;
+        mvStore = store.getMvStore();
+        metaDefinitions = database.readMetaDefinitions();
+        thread = new Thread(this, "H2 Replication " + database.getShortName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                if (transfer == null) {
+                    connect();
+                    trace.info("replication connected to {0}", source.getURL());
+                }
+                receive(false);
+            } catch (Exception e) {
+                if (closed) {
+                    break;
+                }
+                trace.error(e, "replication from {0}", source.getURL());
+                closeTransfer();
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException e2) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private void connect() {
+        ConnectionInfo ci;
+        try {
+            ci = source.clone();
+        } catch (CloneNotSupportedException e) {
+            throw DbException.convert(e);
+        }
+        SessionRemote session = new SessionRemote(ci);
+        session.connectEmbeddedOrServer(false);
+        transfer = session.replicate();
+        synced = false;
+    }
+
+    /**
+     * Apply the received changes.
+     *
+     * @param untilSynced whether this method should return when the file is
+     *            a consistent copy of the file of the primary database,
+     *            otherwise the changes are made visible after they were
+     *            applied
+     * @throws IOException on I/O exception
+     */
+    private void receive(boolean untilSynced) throws IOException {
+        while (!closed) {
+            int type = transfer.readInt();
+            switch (type) {
+            case ReplicationSender.WRITE: {
+                long pos = transfer.readLong();
+                int length = transfer.readInt();
+                byte[] buff = buffer;
+                if (buff == null || buff.length < length) {
+                    buffer = buff = new byte[length];
+                }
+                transfer.readBytes(buff, 0, length);
+                fileStore.writeFully(pos, ByteBuffer.wrap(buff, 0, length));
+                break;
+            }
+            case ReplicationSender.TRUNCATE:
+                fileStore.truncate(transfer.readLong());
+                break;
+            case ReplicationSender.SYNC:
+                synced = true;
+                if (untilSynced) {
+                    return;
+                }
+                break;
+            default:
+                throw DbException.get(ErrorCode.CONNECTION_BROKEN_1, "replication message " + type);
+            }
+            if (synced && !transfer.hasBufferedInput()) {
+                refresh();
+            }
+        }
+    }
+
+    /**
+     * Make the changes visible to the sessions of the replica, or close the
+     * replica if the definitions of the database objects were changed.
+     */
+    private void refresh() {
+        String metaRoot = getMetaTableRoot();
+        if (!mvStore.refresh()) {
+            return;
+        }
+        store.getTransactionStore().refresh();
+        // results of queries that were cached by the sessions are outdated
+        store.markTablesModified();
+        if (!Objects.equals(metaRoot, getMetaTableRoot())) {
+            // sequences change the meta table too
+            HashMap<Integer, String> definitions = database.readMetaDefinitions();
+            if (!definitions.equals(metaDefinitions)) {
+                if (!updateStatistics(definitions)) {
+                    trace.info("closing the replica because database objects were changed");
+                    closed = true;
+                    database.closeAllSessionsAndDatabase();
+                    return;
+                }
+                metaDefinitions = definitions;
+            }
+        }
+    }
+
+    /**
+     * Apply the changed statistics of tables and indexes, such as the ones
+     * collected by ANALYZE, to the database objects of the replica.
+     *
+     * @param definitions the new definitions of the database objects
+     * @return whether only the statistics were changed
+     */
+    private boolean updateStatistics(HashMap<Integer, String> definitions) {
+        if (!definitions.keySet().equals(metaDefinitions.keySet())) {
+            return false;
+        }
+        for (Map.Entry<Integer, String> entry : definitions.entrySet()) {
+            Integer id = entry.getKey();
+            String sql = entry.getValue();
+            if (!sql.equals(metaDefinitions.get(id)) && !database.updateStatistics(id, sql)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getMetaTableRoot() {
+        String id = mvStore.getMetaMap().get(DataUtils.META_NAME + META_TABLE_MAP_NAME);
+        return id == null ? null : mvStore.getLayoutMap().get(DataUtils.META_ROOT + id);
+    }
+
+    private synchronized void closeTransfer() {
+        if (transfer != null) {
+            transfer.close();
+            transfer = null;
+        }
+    }
+
+    /**
+     * Stop to apply the changes and close the file.
+     */
+    void close() {
+        closed = true;
+        closeTransfer();
+        fileStore.close();
+    }
+
+}
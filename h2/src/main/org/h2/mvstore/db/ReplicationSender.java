@@ -0,0 +1,216 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import org.h2.engine.Database;
+import org.h2.message.DbException;
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+import org.h2.value.Transfer;
+
+/**
+ * Sends the changes of the file of a database to a read-only replica, see
+ * {@link ReplicationReceiver}. A copy of the whole file is sent first,
+ * followed by the writes and truncations of the file in the order they are
+ * made. The replica is disconnected if it can't keep up with the changes.
+ */
+public final class ReplicationSender implements FileStore.Listener, Runnable {
+
+    /**
+     * A block of data was written: the position, the length, and the data.
+     */
+    static final int WRITE = 0;
+
+    /**
+     * The file was truncated: the new size.
+     */
+    static final int TRUNCATE = 1;
+
+    /**
+     * The file of the replica is a consistent copy of the file.
+     */
+    static final int SYNC = 2;
+
+    /**
+     * The size of the blocks of the initial copy of the file.
+     */
+    private static final int COPY_BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * The maximum size of the data that was not sent yet.
+     */
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * A change of the file.
+     */
+    private static final class Change {
+
+        /**
+         * The position of the data, or the new size of the file.
+         */
+        final long pos;
+
+        /**
+         * The data, or null if the file was truncated.
+         */
+        final byte[] data;
+
+        Change(long pos, byte[] data) {
+            this.pos = pos;
+            this.data = data;
+        }
+
+    }
+
+    /**
+     * Returned by {@link #next(boolean)} when all known changes were sent
+     * after the copy of the file.
+     */
+    private static final Change SYNC_MARKER = new Change(0, null);
+
+    private final MVStore mvStore;
+
+    private final FileStore fileStore;
+
+    private final Transfer transfer;
+
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+
+    private long pendingBytes;
+
+    private boolean overflow;
+
+    /**
+     * Create a new sender.
+     *
+     * @param database the database
+     * @param transfer the connection to the replica
+     */
+    public ReplicationSender(Database database, Transfer transfer) {
+        Store store = database.getStore();
+        FileStore fileStore = store == null ? null : store.getMvStore().getFileStore();
+        if (fileStore == null) {
+            throw DbException.getUnsupportedException("replication of a database without a file");
+        }
+        this.mvStore = store.getMvStore();
+        this.fileStore = fileStore;
+        this.transfer = transfer;
+    }
+
+    /**
+     * Send the file and its changes until the store is closed, the replica is
+     * disconnected, or too many changes were not sent yet.
+     */
+    @Override
+    public void run() {
+        // changes are collected while the file is copied
+        fileStore.addListener(this);
+        try {
+            // committed changes that were not stored yet are sent as changes
+            mvStore.commit();
+            long size = fileStore.size();
+            transfer.writeInt(TRUNCATE).writeLong(size);
+            for (long pos = 0; pos < size; pos += COPY_BLOCK_SIZE) {
+                int length = (int) Math.min(COPY_BLOCK_SIZE, Math.min(size, fileStore.size()) - pos);
+                if (length <= 0) {
+                    break;
+                }
+                ByteBuffer buff = fileStore.readFully(pos, length);
+                transfer.writeInt(WRITE).writeLong(pos).writeInt(length).writeBytes(buff.array(), 0, length);
+            }
+            boolean synced = false;
+            for (Change change; (change = next(synced)) != null;) {
+                if (change == SYNC_MARKER) {
+                    transfer.writeInt(SYNC);
+                    synced = true;
+                } else if (change.data == null) {
+                    transfer.writeInt(TRUNCATE).writeLong(change.pos);
+                } else {
+                    transfer.writeInt(WRITE).writeLong(change.pos).writeInt(change.data.length)
+                            .writeBytes(change.data, 0, change.data.length);
+                }
+            }
+        } catch (IOException | MVStoreException e) {
+            // the replica was disconnected, or the store was closed
+        } finally {
+            fileStore.removeListener(this);
+        }
+    }
+
+    /**
+     * Get the next change to send. All sent data is flushed before this
+     * method waits for new changes.
+     *
+     * @param synced whether the replica has a consistent copy of the file
+     * @return the next change, {@link #SYNC_MARKER}, or null if the
+     *         replication should stop
+     * @throws IOException on I/O exception
+     */
+    private Change next(boolean synced) throws IOException {
+        boolean flushed = false;
+        while (true) {
+            synchronized (this) {
+                if (overflow || mvStore.isClosed() || transfer.isClosed()) {
+                    return null;
+                }
+                Change change = changes.poll();
+                if (change != null) {
+                    if (change.data != null) {
+                        pendingBytes -= change.data.length;
+                    }
+                    return change;
+                } else if (!synced) {
+                    return SYNC_MARKER;
+                } else if (flushed) {
+                    try {
+                        wait(1000);
+                    } catch (InterruptedException e) {
+                        return null;
+                    }
+                    continue;
+                }
+            }
+            // flush without holding the lock, writers of the file are
+            // notified while the file is written
+            transfer.flush();
+            flushed = true;
+        }
+    }
+
+    @Override
+    public void written(long pos, ByteBuffer data) {
+        byte[] b = new byte[data.remaining()];
+        data.get(b);
+        add(new Change(pos, b), b.length);
+    }
+
+    @Override
+    public void truncated(long size) {
+        add(new Change(size, null), 0);
+    }
+
+    private synchronized void add(Change change, int length) {
+        if (overflow) {
+            return;
+        }
+        pendingBytes += length;
+        if (pendingBytes > MAX_PENDING_BYTES) {
+            // the replica needs to copy the whole file again
+            overflow = true;
+            changes.clear();
+        } else {
+            changes.add(change);
+        }
+        notifyAll();
+    }
+
+}
@@ -16,6 +16,7 @@
 
 import org.h2.api.ErrorCode;
 import org.h2.command.ddl.CreateTableData;
+import org.h2.engine.ConnectionInfo;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.SessionLocal;
@@ -77,6 +78,12 @@ static char[] decodePassword(byte[] key) {
 
     private final String fileName;
 
+    /**
+     * The receiver of the changes of the primary database if the database
+     * is a read-only replica, or null.
+     */
+    private final ReplicationReceiver replicationReceiver;
+
     /**
      * Creates the store.
      *
@@ -87,9 +94,21 @@ public Store(Database db) {
         String dbPath = db.getDatabasePath();
         MVStore.Builder builder = new MVStore.Builder();
         boolean encrypted = false;
+        ConnectionInfo replicationSource = db.getReplicationSource();
+        ReplicationReceiver replicationReceiver = null;
+        if (replicationSource != null && dbPath == null) {
+            throw DbException.getUnsupportedException("REPLICATE_FROM && inMemory");
+        }
         if (dbPath != null) {
             String fileName = dbPath + Constants.SUFFIX_MV_FILE;
             MVStoreTool.compactCleanUp(fileName);
+            if (replicationSource != null) {
+                // the file is copied from the primary database before it is
+                // opened
+                replicationReceiver = new ReplicationReceiver(db, replicationSource, fileName,
+                        key == null ? null : decodePassword(key));
+                builder.fileStore(replicationReceiver.getFileStore());
+            }
             builder.fileName(fileName);
             builder.pageSplitSize(db.getPageSize());
             if (db.isReadOnly()) {
@@ -125,6 +144,7 @@ public Store(Database db) {
             builder.autoCommitDisabled();
         }
         this.encrypted = encrypted;
+        this.replicationReceiver = replicationReceiver;
         try {
             this.mvStore = builder.open();
             FileStore fs = mvStore.getFileStore();
@@ -137,6 +157,9 @@ public Store(Database db) {
                     new MetaType<>(db, mvStore.backgroundExceptionHandler), new ValueDataType(db, null),
                     db.getLockTimeout());
         } catch (MVStoreException e) {
+            if (replicationReceiver != null) {
+                replicationReceiver.close();
+            }
             throw convertMVStoreException(e);
         }
     }
@@ -201,6 +224,16 @@ public MVTable createTable(CreateTableData data) {
         }
     }
 
+    /**
+     * Mark all tables as modified, for example after changes that were not
+     * made by the sessions of this database.
+     */
+    void markTablesModified() {
+        for (MVTable table : tableMap.values()) {
+            table.commit();
+        }
+    }
+
     /**
      * Remove a table.
      *
@@ -235,6 +268,19 @@ public void closeImmediately() {
             return;
         }
         mvStore.closeImmediately();
+        if (replicationReceiver != null) {
+            replicationReceiver.close();
+        }
+    }
+
+    /**
+     * Start to apply the changes of the primary database if the database is
+     * a read-only replica. Called after the database was opened.
+     */
+    public void startReplication() {
+        if (replicationReceiver != null) {
+            replicationReceiver.start(this);
+        }
     }
 
     /**
@@ -246,7 +292,8 @@ public void removeTemporaryMaps(BitSet objectIds) {
         for (String mapName : mvStore.getMapNames()) {
             if (mapName.startsWith("temp.")) {
                 mvStore.removeMap(mapName);
-            } else if (mapName.startsWith("table.") || mapName.startsWith("index.")) {
+            } else if (mapName.startsWith("table.") || mapName.startsWith("index.")
+                    || mapName.startsWith("hash") || mapName.startsWith("bitmap.")) {
                 int id = StringUtils.parseUInt31(mapName, mapName.indexOf('.') + 1, mapName.length());
                 if (!objectIds.get(id)) {
                     mvStore.removeMap(mapName);
@@ -370,6 +417,10 @@ public void close(int allowedCompactionTime) {
             }
             mvStore.closeImmediately();
             throw DbException.get(ErrorCode.IO_EXCEPTION_1, e, "Closing");
+        } finally {
+            if (replicationReceiver != null) {
+                replicationReceiver.close();
+            }
         }
     }
 
@@ -181,7 +181,11 @@ private static MVMap<String, DataType<?>> openTypeRegistry(MVStore store, MetaTy
      * in which case the store can only be used for reading.
      */
     public void init() {
-        if (!init) {
+        if (!init && store.isReadOnly()) {
+            // transactions found in the file are not continued by this store
+            refresh();
+            init = true;
+        } else if (!init) {
             for (String mapName : store.getMapNames()) {
                 if (mapName.startsWith(UNDO_LOG_NAME_PREFIX)) {
                     // Unexpectedly short name may be encountered upon upgrade from older version
@@ -240,6 +244,42 @@ public void init() {
         }
     }
 
+    /**
+     * Open the undo logs of the transactions of another store that writes the
+     * file of this read-only store. This is needed after the data of the store
+     * was refreshed, because uncommitted changes of these transactions are
+     * counted with the help of their undo logs, and changes of transactions
+     * that were marked as committed need to be visible.
+     */
+    public void refresh() {
+        DataUtils.checkArgument(store.isReadOnly(), "Only transactions of read-only stores can be refreshed");
+        BitSet present = new BitSet();
+        BitSet committing = new BitSet();
+        for (String mapName : store.getMapNames()) {
+            int prefixLength = UNDO_LOG_NAME_PREFIX.length() + 1;
+            if (mapName.startsWith(UNDO_LOG_NAME_PREFIX) && mapName.length() > prefixLength) {
+                int transactionId = StringUtils.parseUInt31(mapName, prefixLength, mapName.length());
+                if (transactionId >= undoLogs.length) {
+                    continue;
+                }
+                MVMap<Long, Record<?,?>> undoLog = undoLogs[transactionId];
+                if (undoLog == null || !mapName.equals(undoLog.getName())) {
+                    undoLogs[transactionId] = undoLog = store.openMap(mapName, undoLogBuilder);
+                }
+                present.set(transactionId);
+                Long lastUndoKey = undoLog.lastKey();
+                if (lastUndoKey != null && (getLogId(lastUndoKey) == LOG_ID_MASK
+                        || mapName.charAt(UNDO_LOG_NAME_PREFIX.length()) == UNDO_LOG_COMMITTED)) {
+                    committing.set(transactionId);
+                }
+            }
+        }
+        for (int i = present.nextClearBit(0); i < undoLogs.length; i = present.nextClearBit(i + 1)) {
+            undoLogs[i] = null;
+        }
+        committingTransactions.set(committing);
+    }
+
     private void markUndoLogAsCommitted(int transactionId) {
         addUndoLogRecord(transactionId, LOG_ID_MASK, Record.COMMIT_MARKER);
     }
@@ -384,12 +424,16 @@ private Transaction registerTransaction(int txId, int status, String name, long
         do {
             VersionedBitSet original = openTransactions.get();
             if (txId == 0) {
-                transactionId = original.nextClearBit(1);
+                // the file of a read-only store may be written by another
+                // store that uses low ids for its transactions
+                transactionId = store.isReadOnly()
+                        ? original.previousClearBit(Math.min(maxTransactionId, MAX_OPEN_TRANSACTIONS - 1))
+                        : original.nextClearBit(1);
             } else {
                 transactionId = txId;
                 assert !original.get(transactionId);
             }
-            if (transactionId > maxTransactionId) {
+            if (transactionId > maxTransactionId || transactionId < 1) {
                 throw DataUtils.newMVStoreException(
                         DataUtils.ERROR_TOO_MANY_OPEN_TRANSACTIONS,
                         "There are {0} open transactions",
@@ -408,7 +452,7 @@ private Transaction registerTransaction(int txId, int status, String name, long
         assert transactions.get(transactionId) == null;
         transactions.set(transactionId, transaction);
 
-        if (undoLogs[transactionId] == null) {
+        if (undoLogs[transactionId] == null && !store.isReadOnly()) {
             String undoName = getUndoLogName(transactionId);
             MVMap<Long,Record<?,?>> undoLog = store.openMap(undoName, undoLogBuilder);
             undoLogs[transactionId] = undoLog;
@@ -439,6 +483,10 @@ void storeTransaction(Transaction t) {
      */
     long addUndoLogRecord(int transactionId, long logId, Record<?,?> record) {
         MVMap<Long, Record<?,?>> undoLog = undoLogs[transactionId];
+        if (undoLog == null) {
+            // transactions of read-only stores open their undo logs on demand
+            undoLogs[transactionId] = undoLog = store.openMap(getUndoLogName(transactionId), undoLogBuilder);
+        }
         long undoKey = getOperationId(transactionId, logId);
         if (logId == 0 && !undoLog.isEmpty()) {
             throw DataUtils.newMVStoreException(
@@ -633,6 +681,16 @@ void endTransaction(Transaction t, boolean hasChanges) {
      */
     RootReference<Long,Record<?,?>>[] collectUndoLogRootReferences() {
         BitSet opentransactions = openTransactions.get();
+        if (store.isReadOnly()) {
+            // the file may contain changes of transactions of another store,
+            // these transactions are not open in this store
+            opentransactions = new BitSet();
+            for (int i = 0; i < undoLogs.length; i++) {
+                if (undoLogs[i] != null) {
+                    opentransactions.set(i);
+                }
+            }
+        }
         @SuppressWarnings("unchecked")
         RootReference<Long,Record<?,?>>[] undoLogRootReferences = new RootReference[opentransactions.length()];
         for (int i = opentransactions.nextSetBit(0); i >= 0; i = opentransactions.nextSetBit(i+1)) {
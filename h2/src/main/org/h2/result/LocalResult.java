@@ -7,6 +7,7 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 
 import org.h2.engine.Database;
@@ -37,6 +38,16 @@ public class LocalResult implements ResultInterface, ResultTarget {
     private Expression[] expressions;
     private int rowId, rowCount;
     private ArrayList<Value[]> rows;
+    /**
+     * The best rows seen so far when only first rows in the sort order are
+     * needed. The head of this queue is the last of these rows.
+     */
+    private PriorityQueue<Value[]> topRows;
+    /**
+     * Rows that are equal to the head of {@link #topRows}, they are retained
+     * for WITH TIES clause only.
+     */
+    private ArrayList<Value[]> topTies;
     private SortOrder sort;
     // HashSet cannot be used here, because we need to compare values of
     // different type or scale properly.
@@ -355,6 +366,13 @@ public void addRow(Value... values) {
                 rowCount = external.addRow(values);
             }
         } else {
+            if (rowCount == 0 && canRetainTopRows()) {
+                topRows = new PriorityQueue<>(sort.reversed());
+            }
+            if (topRows != null) {
+                addTopRow(values);
+                return;
+            }
             rows.add(values);
             rowCount++;
             if (rows.size() > maxMemoryRows) {
@@ -363,6 +381,70 @@ public void addRow(Value... values) {
         }
     }
 
+    /**
+     * Checks whether only first rows in the sort order need to be retained.
+     * This is possible when sort order, offset, and limit were set before
+     * addition of rows.
+     *
+     * @return whether only first rows need to be retained
+     */
+    private boolean canRetainTopRows() {
+        return sort != null && limit > 0 && !fetchPercent && !limitsWereApplied && !isAnyDistinct()
+                && external == null && rows.isEmpty() && (long) Math.max(offset, 0) + limit <= maxMemoryRows;
+    }
+
+    private void addTopRow(Value[] values) {
+        PriorityQueue<Value[]> topRows = this.topRows;
+        if (topRows.size() < Math.max(offset, 0) + limit) {
+            topRows.add(values);
+        } else {
+            Value[] last = topRows.peek();
+            int cmp = sort.compare(values, last);
+            if (cmp > 0) {
+                return;
+            }
+            if (cmp == 0) {
+                if (withTiesSortOrder == null) {
+                    return;
+                }
+                addTopTie(values);
+            } else {
+                topRows.poll();
+                topRows.add(values);
+                if (withTiesSortOrder != null) {
+                    if (sort.compare(last, topRows.peek()) == 0) {
+                        addTopTie(last);
+                    } else if (topTies != null) {
+                        topTies.clear();
+                    }
+                }
+            }
+        }
+        rowCount = topRows.size() + (topTies != null ? topTies.size() : 0);
+        if (rowCount > maxMemoryRows) {
+            // Too many tied rows, process them in a usual way
+            moveTopRows();
+            addRowsToDisk();
+        }
+    }
+
+    private void addTopTie(Value[] values) {
+        if (topTies == null) {
+            topTies = Utils.newSmallArrayList();
+        }
+        topTies.add(values);
+    }
+
+    private void moveTopRows() {
+        rows.addAll(topRows);
+        if (topTies != null) {
+            rows.addAll(topTies);
+            topTies = null;
+        }
+        topRows = null;
+        rowCount = rows.size();
+    }
+
     private void addRowsToDisk() {
         if (external == null) {
             createExternalResult();
@@ -380,6 +462,9 @@ public int getVisibleColumnCount() {
      * This method is called after all rows have been added.
      */
     public void done() {
+        if (topRows != null) {
+            moveTopRows();
+        }
         if (external != null) {
             addRowsToDisk();
         } else {
@@ -8,6 +8,7 @@
 import java.io.IOException;
 import java.util.ArrayList;
 
+import org.h2.api.ErrorCode;
 import org.h2.engine.Session;
 import org.h2.engine.SessionRemote;
 import org.h2.engine.SysProperties;
@@ -21,10 +22,29 @@
  * The client side part of a result set that is kept on the server.
  * In many cases, the complete data is kept on the client side,
  * but for large results only a subset is in-memory.
+ * The next subset is requested when a half of the current one is read,
+ * and its response is read only when it is needed.
  */
-public class ResultRemote implements ResultInterface {
+public class ResultRemote implements ResultInterface, SessionRemote.PendingResponse {
+
+    /**
+     * The approximate maximum memory of rows in one subset when the fetch size
+     * is adjusted automatically.
+     */
+    private static final int MAX_FETCH_MEMORY = 1024 * 1024;
+
+    /**
+     * The maximum number of rows in one subset when the fetch size is adjusted
+     * automatically.
+     */
+    private static final int MAX_FETCH_SIZE = 16 * 1024;
 
     private int fetchSize;
+    private boolean adaptiveFetchSize;
+    private boolean prefetching;
+    private int prefetchCount;
+    private ArrayList<Value[]> prefetched;
+    private DbException prefetchError;
     private SessionRemote session;
     private Transfer transfer;
     private int id;
@@ -47,9 +67,12 @@ public ResultRemote(SessionRemote session, Transfer transfer, int id,
             columns[i] = new ResultColumn(transfer);
         }
         rowId = -1;
-        result = new ArrayList<>(Math.min(fetchSize, rowCount));
         this.fetchSize = fetchSize;
-        fetchRows(false);
+        adaptiveFetchSize = fetchSize == SysProperties.SERVER_RESULT_SET_FETCH_SIZE && !session.isClustered();
+        result = readRows(transfer, Math.min(fetchSize, rowCount));
+        if (result.size() >= rowCount) {
+            sendClose();
+        }
     }
 
     @Override
@@ -102,6 +125,12 @@ public void reset() {
         synchronized (session) {
             session.checkClosed();
             try {
+                if (prefetching) {
+                    session.readPendingResponses(this);
+                    prefetching = false;
+                }
+                prefetched = null;
+                prefetchError = null;
                 session.traceOperation("RESULT_RESET", id);
                 transfer.writeInt(SessionRemote.RESULT_RESET).writeInt(id).flush();
             } catch (IOException e) {
@@ -121,10 +150,16 @@ public boolean next() {
             rowId++;
             remapIfOld();
             if (rowId < rowCount) {
-                if (rowId - rowOffset >= result.size()) {
-                    fetchRows(true);
+                int index = rowId - rowOffset;
+                if (index >= result.size()) {
+                    fetchRows();
+                    index = rowId - rowOffset;
+                }
+                currentRow = result.get(index);
+                if (index == result.size() >> 1 && !prefetching && prefetched == null && session != null
+                        && !session.isClustered()) {
+                    prefetchRows();
                 }
-                currentRow = result.get(rowId - rowOffset);
                 return true;
             }
             currentRow = null;
@@ -201,33 +236,44 @@ private void remapIfOld() {
         }
     }
 
-    private void fetchRows(boolean sendFetch) {
+    private void fetchRows() {
         synchronized (session) {
             session.checkClosed();
             try {
-                rowOffset += result.size();
-                result.clear();
-                int fetch = Math.min(fetchSize, rowCount - rowOffset);
-                if (sendFetch) {
+                ArrayList<Value[]> rows;
+                if (prefetching || prefetched != null) {
+                    if (prefetching) {
+                        if (adaptiveFetchSize && !transfer.hasBufferedInput()) {
+                            // rows are read faster than they arrive
+                            fetchSize = Math.min(fetchSize << 1, MAX_FETCH_SIZE);
+                        }
+                        session.readPendingResponses(this);
+                        if (prefetching) {
+                            // the connection was re-established
+                            prefetching = false;
+                            throw DbException.get(ErrorCode.CONNECTION_BROKEN_1, "result " + id);
+                        }
+                    }
+                    rows = prefetched;
+                    prefetched = null;
+                    if (prefetchError != null) {
+                        DbException e = prefetchError;
+                        prefetchError = null;
+                        throw e;
+                    }
+                } else {
+                    int fetch = Math.min(fetchSize, rowCount - rowOffset - result.size());
                     session.traceOperation("RESULT_FETCH_ROWS", id);
-                    transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).
-                            writeInt(id).writeInt(fetch);
+                    transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch);
                     session.done(transfer);
+                    rows = readRows(transfer, fetch);
                 }
-                for (int r = 0; r < fetch; r++) {
-                    boolean row = transfer.readBoolean();
-                    if (!row) {
-                        break;
-                    }
-                    int len = columns.length;
-                    Value[] values = new Value[len];
-                    for (int i = 0; i < len; i++) {
-                        Value v = transfer.readValue();
-                        values[i] = v;
-                    }
-                    result.add(values);
+                rowOffset += result.size();
+                result = rows;
+                if (adaptiveFetchSize) {
+                    limitFetchSize(rows);
                 }
-                if (rowOffset + result.size() >= rowCount) {
+                if (rowOffset + rows.size() >= rowCount) {
                     sendClose();
                 }
             } catch (IOException e) {
@@ -236,6 +282,86 @@ private void fetchRows(boolean sendFetch) {
         }
     }
 
+    /**
+     * Requests the next subset of rows without waiting for the response.
+     * Subsets that are expected to be larger than {@link #MAX_FETCH_MEMORY}
+     * are not prefetched, they are requested only when they are needed.
+     */
+    private void prefetchRows() {
+        synchronized (session) {
+            int fetch = Math.min(fetchSize, rowCount - rowOffset - result.size());
+            if (fetch <= 0 || getMemory(result) * fetch / result.size() > MAX_FETCH_MEMORY) {
+                return;
+            }
+            try {
+                session.traceOperation("RESULT_FETCH_ROWS", id);
+                transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch).flush();
+            } catch (IOException e) {
+                throw DbException.convertIOException(e, null);
+            }
+            prefetching = true;
+            prefetchCount = fetch;
+            session.addLargePendingResponse(this);
+        }
+    }
+
+    @Override
+    public void readResponse(SessionRemote s, Transfer t) throws IOException {
+        prefetching = false;
+        try {
+            s.readStatus(t);
+        } catch (DbException e) {
+            prefetchError = e;
+            prefetched = new ArrayList<>(0);
+            return;
+        }
+        prefetched = readRows(t, prefetchCount);
+    }
+
+    private ArrayList<Value[]> readRows(Transfer t, int fetch) throws IOException {
+        ArrayList<Value[]> rows = new ArrayList<>(fetch);
+        for (int r = 0; r < fetch; r++) {
+            boolean row = t.readBoolean();
+            if (!row) {
+                break;
+            }
+            int len = columns.length;
+            Value[] values = new Value[len];
+            for (int i = 0; i < len; i++) {
+                Value v = t.readValue();
+                values[i] = v;
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * Limits the fetch size by the approximate memory of the specified rows.
+     *
+     * @param rows the rows
+     */
+    private void limitFetchSize(ArrayList<Value[]> rows) {
+        int size = rows.size();
+        if (size == 0) {
+            return;
+        }
+        long limit = MAX_FETCH_MEMORY * (long) size / Math.max(getMemory(rows), 1);
+        if (fetchSize > limit) {
+            fetchSize = (int) Math.max(limit, SysProperties.SERVER_RESULT_SET_FETCH_SIZE);
+        }
+    }
+
+    private static long getMemory(ArrayList<Value[]> rows) {
+        long memory = 0;
+        for (Value[] row : rows) {
+            for (Value v : row) {
+                memory += v.getMemory();
+            }
+        }
+        return memory;
+    }
+
     @Override
     public String toString() {
         return "columns: " + columns.length + " rows: " + rowCount + " pos: " + rowId;
@@ -120,8 +120,13 @@ public RowFactory createRowFactory(CastDataProvider provider, CompareMode compar
                     sortTypes = new int[len];
                     for (int i = 0; i < len; i++) {
                         IndexColumn indexColumn = indexColumns[i];
-                        indexes[i] = indexColumn.column.getColumnId();
+                        int columnId = indexColumn.column.getColumnId();
+                        indexes[i] = columnId;
                         sortTypes[i] = indexColumn.sortType;
+                        // columns of index expressions follow columns of the table
+                        if (columnId >= columnCount) {
+                            columnCount = columnId + 1;
+                        }
                     }
                 }
             }
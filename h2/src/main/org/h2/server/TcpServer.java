@@ -65,6 +65,8 @@ public class TcpServer implements Service {
     private String baseDir;
     private boolean allowOthers;
     private boolean isDaemon;
+    private int workers;
+    private volatile TcpServerSelector selector;
     private boolean ifExists = true;
     private Connection managementDb;
     private PreparedStatement managementDbAdd;
@@ -190,6 +192,8 @@ public void init(String... args) {
                 allowOthers = true;
             } else if (Tool.isOption(a, "-tcpDaemon")) {
                 isDaemon = true;
+            } else if (Tool.isOption(a, "-tcpWorkers")) {
+                workers = Integer.decode(args[++i]);
             } else if (Tool.isOption(a, "-ifExists")) {
                 ifExists = true;
             } else if (Tool.isOption(a, "-ifNotExists")) {
@@ -238,14 +242,26 @@ boolean allow(Socket socket) {
         }
     }
 
+    /**
+     * Returns whether connections are served by a bounded pool of worker
+     * threads instead of a thread per connection. Channels can't be used with
+     * SSL, so such servers always use a thread per connection.
+     *
+     * @return whether a pool of worker threads is used
+     */
+    private boolean useWorkers() {
+        return workers > 0 && !ssl;
+    }
+
     @Override
     public synchronized void start() throws SQLException {
         stop = false;
+        boolean channel = useWorkers();
         try {
-            serverSocket = NetUtils.createServerSocket(port, ssl);
+            serverSocket = NetUtils.createServerSocket(port, ssl, channel);
         } catch (DbException e) {
             if (!portIsSet) {
-                serverSocket = NetUtils.createServerSocket(0, ssl);
+                serverSocket = NetUtils.createServerSocket(0, ssl, channel);
             } else {
                 throw e;
             }
@@ -259,16 +275,23 @@ public void listen() {
         listenerThread = Thread.currentThread();
         String threadName = listenerThread.getName();
         try {
+            if (useWorkers()) {
+                selector = new TcpServerSelector(this, threadName, workers, isDaemon);
+            }
             while (!stop) {
                 Socket s = serverSocket.accept();
                 NetUtils2.setTcpQuickack(s, true);
                 int id = nextThreadId++;
                 TcpServerThread c = new TcpServerThread(s, this, id);
                 running.add(c);
-                Thread thread = new Thread(c, threadName + " thread-" + id);
-                thread.setDaemon(isDaemon);
-                c.setThread(thread);
-                thread.start();
+                if (selector != null) {
+                    selector.accept(c);
+                } else {
+                    Thread thread = new Thread(c, threadName + " thread-" + id);
+                    thread.setDaemon(isDaemon);
+                    c.setThread(thread);
+                    thread.start();
+                }
             }
             serverSocket = NetUtils.closeSilently(serverSocket);
         } catch (Exception e) {
@@ -327,13 +350,20 @@ public void stop() {
         for (TcpServerThread c : new ArrayList<>(running)) {
             if (c != null) {
                 c.close();
-                try {
-                    c.getThread().join(100);
-                } catch (Exception e) {
-                    DbException.traceThrowable(e);
+                Thread thread = c.getThread();
+                if (thread != null) {
+                    try {
+                        thread.join(100);
+                    } catch (Exception e) {
+                        DbException.traceThrowable(e);
+                    }
                 }
             }
         }
+        if (selector != null) {
+            selector.stop();
+            selector = null;
+        }
     }
 
     /**
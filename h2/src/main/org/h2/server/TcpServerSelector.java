@@ -0,0 +1,213 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.message.DbException;
+
+/**
+ * Dispatches requests of TCP server connections to a bounded pool of worker
+ * threads. Idle connections are watched by a single selector thread and don't
+ * hold a thread of their own. When a request arrives, the connection is
+ * removed from the selector, switched to blocking mode, and processed by a
+ * worker with the usual protocol implementation. After that the connection is
+ * returned to the selector. New connections are watched by the selector too,
+ * the handshake is performed only when the client has sent data.
+ */
+final class TcpServerSelector implements Runnable {
+
+    private final TcpServer server;
+
+    private final Selector selector;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentLinkedQueue<TcpServerThread> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * New connections without a completed handshake.
+     */
+    private final Set<TcpServerThread> accepted = ConcurrentHashMap.newKeySet();
+
+    private final Thread thread;
+
+    private final ConcurrentLinkedQueue<Thread> workerThreads = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean stop;
+
+    /**
+     * Creates and starts a new selector.
+     *
+     * @param server the TCP server
+     * @param threadName the base name of threads
+     * @param workers the number of worker threads
+     * @param daemon whether daemon threads should be used
+     * @throws IOException on failure
+     */
+    TcpServerSelector(TcpServer server, String threadName, int workers, boolean daemon) throws IOException {
+        this.server = server;
+        selector = Selector.open();
+        AtomicInteger nextWorkerId = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, threadName + " worker-" + nextWorkerId.getAndIncrement());
+                    t.setDaemon(daemon);
+                    workerThreads.add(t);
+                    return t;
+                });
+        thread = new Thread(this, threadName + " selector");
+        thread.setDaemon(daemon);
+        thread.start();
+    }
+
+    /**
+     * Registers a new connection in this selector. The handshake is performed
+     * on a worker thread when the client sends it, so idle clients don't
+     * occupy workers.
+     *
+     * @param c the new connection
+     */
+    void accept(TcpServerThread c) {
+        accepted.add(c);
+        register(c);
+    }
+
+    private void execute(TcpServerThread c, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            // rejected after shutdown
+            c.close();
+        }
+    }
+
+    private void register(TcpServerThread c) {
+        try {
+            c.getTransfer().getSocket().getChannel().configureBlocking(false);
+        } catch (Exception e) {
+            server.traceError(e);
+            accepted.remove(c);
+            c.close();
+            return;
+        }
+        pending.add(c);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        ArrayList<TcpServerThread> ready = new ArrayList<>();
+        try {
+            while (!stop) {
+                for (TcpServerThread c; (c = pending.poll()) != null;) {
+                    SocketChannel channel = c.getTransfer().getSocket().getChannel();
+                    try {
+                        channel.register(selector, SelectionKey.OP_READ, c);
+                    } catch (Exception e) {
+                        server.traceError(e);
+                        accepted.remove(c);
+                        c.close();
+                    }
+                }
+                selector.select();
+                for (Iterator<SelectionKey> i = selector.selectedKeys().iterator(); i.hasNext();) {
+                    SelectionKey key = i.next();
+                    i.remove();
+                    key.cancel();
+                    ready.add((TcpServerThread) key.attachment());
+                }
+                if (!ready.isEmpty()) {
+                    // deregister cancelled keys, channels may be switched to
+                    // blocking mode only after that
+                    selector.selectNow();
+                    for (TcpServerThread c : ready) {
+                        execute(c, () -> process(c));
+                    }
+                    ready.clear();
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // stopped
+        } catch (Exception e) {
+            if (!stop) {
+                DbException.traceThrowable(e);
+            }
+        }
+    }
+
+    private void process(TcpServerThread c) {
+        try {
+            c.getTransfer().getSocket().getChannel().configureBlocking(true);
+        } catch (Exception e) {
+            server.traceError(e);
+            accepted.remove(c);
+            c.close();
+            return;
+        }
+        if (accepted.remove(c)) {
+            boolean connected, buffered = false;
+            try {
+                connected = c.connect();
+                if (connected) {
+                    // the client may send the first requests together with
+                    // the handshake, the selector doesn't see data that was
+                    // already read into the buffer
+                    buffered = c.getTransfer().hasBufferedInput();
+                }
+            } catch (Throwable e) {
+                server.traceError(e);
+                connected = false;
+            }
+            if (!connected) {
+                c.close();
+            } else if (!buffered || c.processAvailable()) {
+                register(c);
+            }
+        } else if (c.processAvailable()) {
+            register(c);
+        }
+    }
+
+    /**
+     * Stops the selector thread and the worker threads.
+     */
+    void stop() {
+        stop = true;
+        try {
+            selector.close();
+        } catch (IOException e) {
+            DbException.traceThrowable(e);
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+            thread.join(1000);
+            // the executor may terminate before its threads exit
+            for (Thread t : workerThreads) {
+                t.join(1000);
+            }
+        } catch (InterruptedException e) {
+            DbException.traceThrowable(e);
+        }
+    }
+
+}
@@ -6,6 +6,7 @@
 package org.h2.server;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,6 +32,8 @@
 import org.h2.jdbc.JdbcException;
 import org.h2.jdbc.meta.DatabaseMetaServer;
 import org.h2.message.DbException;
+import org.h2.mvstore.db.ReplicationSender;
+import org.h2.result.MergedResult;
 import org.h2.result.ResultColumn;
 import org.h2.result.ResultInterface;
 import org.h2.result.ResultWithGeneratedKeys;
@@ -44,14 +47,25 @@
 import org.h2.value.Value;
 
 /**
- * One server thread is opened per client connection.
+ * One server thread is opened per client connection, unless the server uses a
+ * pool of worker threads.
  */
 public class TcpServerThread implements Runnable {
 
+    /**
+     * The maximum length of a block of LOB data sent to the client.
+     */
+    private static final int MAX_LOB_BLOCK_SIZE = 1024 * 1024;
+
     protected final Transfer transfer;
     private final TcpServer server;
     private SessionLocal session;
     private boolean stop;
+    /**
+     * Whether the connection is used by another thread, and must not be
+     * closed by the thread that processed the requests.
+     */
+    private boolean detached;
     private Thread thread;
     private Command commit;
     private final SmallMap cache =
@@ -64,6 +78,7 @@ public class TcpServerThread implements Runnable {
     private int clientVersion;
     private String sessionId;
     private long lastRemoteSettingsId;
+    private byte[] lobBuffer;
 
     TcpServerThread(Socket socket, TcpServer server, int id) {
         this.server = server;
@@ -78,124 +93,181 @@ private void trace(String s) {
     @Override
     public void run() {
         try {
-            transfer.init();
-            trace("Connect");
-            // TODO server: should support a list of allowed databases
-            // and a list of allowed clients
-            try {
-                Socket socket = transfer.getSocket();
-                if (socket == null) {
-                    // the transfer is already closed, prevent NPE in TcpServer#allow(Socket)
-                    return;
-                }
-                if (!server.allow(transfer.getSocket())) {
-                    throw DbException.get(ErrorCode.REMOTE_CONNECTION_NOT_ALLOWED);
-                }
-                int minClientVersion = transfer.readInt();
-                if (minClientVersion < 6) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
-                }
-                int maxClientVersion = transfer.readInt();
-                if (maxClientVersion < Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(maxClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
-                } else if (minClientVersion > Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED);
-                }
-                if (maxClientVersion >= Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
-                    clientVersion = Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED;
-                } else {
-                    clientVersion = maxClientVersion;
-                }
-                transfer.setVersion(clientVersion);
-                String db = transfer.readString();
-                String originalURL = transfer.readString();
-                if (db == null && originalURL == null) {
-                    String targetSessionId = transfer.readString();
-                    int command = transfer.readInt();
-                    stop = true;
-                    if (command == SessionRemote.SESSION_CANCEL_STATEMENT) {
-                        // cancel a running statement
-                        int statementId = transfer.readInt();
-                        server.cancelStatement(targetSessionId, statementId);
-                    } else if (command == SessionRemote.SESSION_CHECK_KEY) {
-                        // check if this is the correct server
-                        db = server.checkKeyAndGetDatabaseName(targetSessionId);
-                        if (!targetSessionId.equals(db)) {
-                            transfer.writeInt(SessionRemote.STATUS_OK);
-                        } else {
-                            transfer.writeInt(SessionRemote.STATUS_ERROR);
-                        }
+            if (connect()) {
+                while (!stop) {
+                    try {
+                        process();
+                    } catch (Throwable e) {
+                        sendError(e);
                     }
                 }
-                String baseDir = server.getBaseDir();
-                if (baseDir == null) {
-                    baseDir = SysProperties.getBaseDir();
-                }
-                db = server.checkKeyAndGetDatabaseName(db);
-                ConnectionInfo ci = new ConnectionInfo(db);
-                ci.setOriginalURL(originalURL);
-                ci.setUserName(transfer.readString());
-                ci.setUserPasswordHash(transfer.readBytes());
-                ci.setFilePasswordHash(transfer.readBytes());
-                int len = transfer.readInt();
-                for (int i = 0; i < len; i++) {
-                    ci.setProperty(transfer.readString(), transfer.readString());
-                }
-                // override client's requested properties with server settings
-                if (baseDir != null) {
-                    ci.setBaseDir(baseDir);
-                }
-                if (server.getIfExists()) {
-                    ci.setProperty("FORBID_CREATION", "TRUE");
-                }
-                transfer.writeInt(SessionRemote.STATUS_OK);
-                transfer.writeInt(clientVersion);
-                transfer.flush();
-                if (ci.getFilePasswordHash() != null) {
-                    ci.setFileEncryptionKey(transfer.readBytes());
-                }
-                ci.setNetworkConnectionInfo(new NetworkConnectionInfo(
-                        NetUtils.ipToShortForm(new StringBuilder(server.getSSL() ? "ssl://" : "tcp://"),
-                                socket.getLocalAddress().getAddress(), true) //
-                                .append(':').append(socket.getLocalPort()).toString(), //
-                        socket.getInetAddress().getAddress(), socket.getPort(),
-                        new StringBuilder().append('P').append(clientVersion).toString()));
-                if (clientVersion < Constants.TCP_PROTOCOL_VERSION_20) {
-                    // For DatabaseMetaData
-                    ci.setProperty("OLD_INFORMATION_SCHEMA", "TRUE");
-                    // For H2 Console
-                    ci.setProperty("NON_KEYWORDS", "VALUE");
-                }
-                session = Engine.createSession(ci);
-                transfer.setSession(session);
-                server.addConnection(threadId, originalURL, ci.getUserName());
-                trace("Connected");
-            } catch (OutOfMemoryError e) {
-                // catch this separately otherwise such errors will never hit the console
-                server.traceError(e);
-                sendError(e);
-                stop = true;
-            } catch (Throwable e) {
-                sendError(e);
+                trace("Disconnect");
+            }
+        } catch (Throwable e) {
+            server.traceError(e);
+        } finally {
+            if (!detached) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Performs the handshake and opens the session.
+     *
+     * @return {@code true} on success, {@code false} if the connection should
+     *         be closed
+     * @throws IOException on I/O exception
+     */
+    boolean connect() throws IOException {
+        transfer.init();
+        trace("Connect");
+        // TODO server: should support a list of allowed databases
+        // and a list of allowed clients
+        try {
+            Socket socket = transfer.getSocket();
+            if (socket == null) {
+                // the transfer is already closed, prevent NPE in TcpServer#allow(Socket)
+                return false;
+            }
+            if (!server.allow(transfer.getSocket())) {
+                throw DbException.get(ErrorCode.REMOTE_CONNECTION_NOT_ALLOWED);
+            }
+            int minClientVersion = transfer.readInt();
+            if (minClientVersion < 6) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
+            }
+            int maxClientVersion = transfer.readInt();
+            if (maxClientVersion < Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(maxClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
+            } else if (minClientVersion > Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED);
+            }
+            if (maxClientVersion >= Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
+                clientVersion = Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED;
+            } else {
+                clientVersion = maxClientVersion;
+            }
+            transfer.setVersion(clientVersion);
+            String db = transfer.readString();
+            String originalURL = transfer.readString();
+            if (db == null && originalURL == null) {
+                String targetSessionId = transfer.readString();
+                int command = transfer.readInt();
                 stop = true;
+                if (command == SessionRemote.SESSION_CANCEL_STATEMENT) {
+                    // cancel a running statement
+                    int statementId = transfer.readInt();
+                    server.cancelStatement(targetSessionId, statementId);
+                } else if (command == SessionRemote.SESSION_CHECK_KEY) {
+                    // check if this is the correct server
+                    db = server.checkKeyAndGetDatabaseName(targetSessionId);
+                    if (!targetSessionId.equals(db)) {
+                        transfer.writeInt(SessionRemote.STATUS_OK);
+                    } else {
+                        transfer.writeInt(SessionRemote.STATUS_ERROR);
+                    }
+                }
+            }
+            String baseDir = server.getBaseDir();
+            if (baseDir == null) {
+                baseDir = SysProperties.getBaseDir();
+            }
+            db = server.checkKeyAndGetDatabaseName(db);
+            ConnectionInfo ci = new ConnectionInfo(db);
+            ci.setOriginalURL(originalURL);
+            ci.setUserName(transfer.readString());
+            ci.setUserPasswordHash(transfer.readBytes());
+            ci.setFilePasswordHash(transfer.readBytes());
+            int len = transfer.readInt();
+            for (int i = 0; i < len; i++) {
+                ci.setProperty(transfer.readString(), transfer.readString());
+            }
+            // override client's requested properties with server settings
+            if (baseDir != null) {
+                ci.setBaseDir(baseDir);
+            }
+            if (server.getIfExists()) {
+                ci.setProperty("FORBID_CREATION", "TRUE");
             }
-            lastRemoteSettingsId = session.getDatabase().getRemoteSettingsId();
-            while (!stop) {
+            transfer.writeInt(SessionRemote.STATUS_OK);
+            transfer.writeInt(clientVersion);
+            transfer.flush();
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_21
+                    && ci.getProperty("NETWORK_COMPRESSION", false)) {
+                transfer.enableCompression();
+            }
+            if (ci.getFilePasswordHash() != null) {
+                ci.setFileEncryptionKey(transfer.readBytes());
+            }
+            ci.setNetworkConnectionInfo(new NetworkConnectionInfo(
+                    NetUtils.ipToShortForm(new StringBuilder(server.getSSL() ? "ssl://" : "tcp://"),
+                            socket.getLocalAddress().getAddress(), true) //
+                            .append(':').append(socket.getLocalPort()).toString(), //
+                    socket.getInetAddress().getAddress(), socket.getPort(),
+                    new StringBuilder().append('P').append(clientVersion).toString()));
+            if (clientVersion < Constants.TCP_PROTOCOL_VERSION_20) {
+                // For DatabaseMetaData
+                ci.setProperty("OLD_INFORMATION_SCHEMA", "TRUE");
+                // For H2 Console
+                ci.setProperty("NON_KEYWORDS", "VALUE");
+            }
+            session = Engine.createSession(ci);
+            transfer.setSession(session);
+            server.addConnection(threadId, originalURL, ci.getUserName());
+            trace("Connected");
+        } catch (OutOfMemoryError e) {
+            // catch this separately otherwise such errors will never hit the console
+            server.traceError(e);
+            sendError(e);
+            stop = true;
+        } catch (Throwable e) {
+            sendError(e);
+            stop = true;
+        }
+        if (stop || session == null) {
+            return false;
+        }
+        lastRemoteSettingsId = session.getDatabase().getRemoteSettingsId();
+        return true;
+    }
+
+    /**
+     * Processes the incoming request and all following requests that are
+     * already received. Used when connections are served by a pool of worker
+     * threads. The connection is closed if the client disconnected or the
+     * session was closed.
+     *
+     * @return {@code true} if the connection is still open, {@code false} if
+     *         it was closed
+     */
+    boolean processAvailable() {
+        try {
+            do {
                 try {
                     process();
+                } catch (EOFException e) {
+                    // the client has disconnected
+                    stop = true;
                 } catch (Throwable e) {
                     sendError(e);
                 }
-            }
-            trace("Disconnect");
+            } while (!stop && transfer.hasBufferedInput());
         } catch (Throwable e) {
             server.traceError(e);
-        } finally {
+            stop = true;
+        }
+        if (detached) {
+            return false;
+        } else if (stop) {
+            trace("Disconnect");
             close();
+            return false;
         }
+        return true;
     }
 
     private void closeSession() {
@@ -236,23 +308,9 @@ void close() {
 
     private void sendError(Throwable t) {
         try {
-            SQLException e = DbException.convert(t).getSQLException();
-            StringWriter writer = new StringWriter();
-            e.printStackTrace(new PrintWriter(writer));
-            String trace = writer.toString();
-            String message;
-            String sql;
-            if (e instanceof JdbcException) {
-                JdbcException j = (JdbcException) e;
-                message = j.getOriginalMessage();
-                sql = j.getSQL();
-            } else {
-                message = e.getMessage();
-                sql = null;
-            }
-            transfer.writeInt(SessionRemote.STATUS_ERROR).
-                    writeString(e.getSQLState()).writeString(message).
-                    writeString(sql).writeInt(e.getErrorCode()).writeString(trace).flush();
+            transfer.writeInt(SessionRemote.STATUS_ERROR);
+            writeException(t);
+            transfer.flush();
         } catch (Exception e2) {
             if (!transfer.isClosed()) {
                 server.traceError(e2);
@@ -262,12 +320,81 @@ private void sendError(Throwable t) {
         }
     }
 
-    private void setParameters(Command command) throws IOException {
+    private void writeException(Throwable t) throws IOException {
+        SQLException e = DbException.convert(t).getSQLException();
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        String trace = writer.toString();
+        String message;
+        String sql;
+        if (e instanceof JdbcException) {
+            JdbcException j = (JdbcException) e;
+            message = j.getOriginalMessage();
+            sql = j.getSQL();
+        } else {
+            message = e.getMessage();
+            sql = null;
+        }
+        transfer.writeString(e.getSQLState()).writeString(message).
+                writeString(sql).writeInt(e.getErrorCode()).writeString(trace);
+    }
+
+    private Object readGeneratedKeysRequest() throws IOException {
+        int mode = transfer.readInt();
+        switch (mode) {
+        case GeneratedKeysMode.NONE:
+            return false;
+        case GeneratedKeysMode.AUTO:
+            return true;
+        case GeneratedKeysMode.COLUMN_NUMBERS: {
+            int len = transfer.readInt();
+            int[] keys = new int[len];
+            for (int i = 0; i < len; i++) {
+                keys[i] = transfer.readInt();
+            }
+            return keys;
+        }
+        case GeneratedKeysMode.COLUMN_NAMES: {
+            int len = transfer.readInt();
+            String[] keys = new String[len];
+            for (int i = 0; i < len; i++) {
+                keys[i] = transfer.readString();
+            }
+            return keys;
+        }
+        default:
+            throw DbException.get(ErrorCode.CONNECTION_BROKEN_1,
+                    "Unsupported generated keys' mode " + mode);
+        }
+    }
+
+    private void writeGeneratedKeys(ResultInterface generatedKeys) throws IOException {
+        int columnCount = generatedKeys.getVisibleColumnCount();
+        transfer.writeInt(columnCount);
+        int rowCount = generatedKeys.getRowCount();
+        transfer.writeInt(rowCount);
+        for (int i = 0; i < columnCount; i++) {
+            ResultColumn.writeColumn(transfer, generatedKeys, i);
+        }
+        for (int i = 0; i < rowCount; i++) {
+            sendRow(generatedKeys);
+        }
+        generatedKeys.close();
+    }
+
+    private Value[] readParameters() throws IOException {
         int len = transfer.readInt();
-        ArrayList<? extends ParameterInterface> params = command.getParameters();
+        Value[] values = new Value[len];
         for (int i = 0; i < len; i++) {
-            Parameter p = (Parameter) params.get(i);
-            p.setValue(transfer.readValue());
+            values[i] = transfer.readValue();
+        }
+        return values;
+    }
+
+    private static void setParameters(Command command, Value[] values) {
+        ArrayList<? extends ParameterInterface> params = command.getParameters();
+        for (int i = 0, len = values.length; i < len; i++) {
+            ((Parameter) params.get(i)).setValue(values[i]);
         }
     }
 
@@ -340,8 +467,11 @@ private void process() throws IOException {
             int objectId = transfer.readInt();
             int maxRows = transfer.readInt();
             int fetchSize = transfer.readInt();
+            Value[] parameters = readParameters();
+            // the whole request is read before the lookup, the client may send
+            // it together with the preparation request that can fail
             Command command = (Command) cache.getObject(id, false);
-            setParameters(command);
+            setParameters(command, parameters);
             int old = session.getModificationId();
             ResultInterface result;
             synchronized (session) {
@@ -365,46 +495,16 @@ private void process() throws IOException {
         }
         case SessionRemote.COMMAND_EXECUTE_UPDATE: {
             int id = transfer.readInt();
-            Command command = (Command) cache.getObject(id, false);
-            setParameters(command);
-            boolean supportsGeneratedKeys = clientVersion >= Constants.TCP_PROTOCOL_VERSION_17;
-            boolean writeGeneratedKeys = supportsGeneratedKeys;
+            Value[] parameters = readParameters();
             Object generatedKeysRequest;
-            if (supportsGeneratedKeys) {
-                int mode = transfer.readInt();
-                switch (mode) {
-                case GeneratedKeysMode.NONE:
-                    generatedKeysRequest = false;
-                    writeGeneratedKeys = false;
-                    break;
-                case GeneratedKeysMode.AUTO:
-                    generatedKeysRequest = true;
-                    break;
-                case GeneratedKeysMode.COLUMN_NUMBERS: {
-                    int len = transfer.readInt();
-                    int[] keys = new int[len];
-                    for (int i = 0; i < len; i++) {
-                        keys[i] = transfer.readInt();
-                    }
-                    generatedKeysRequest = keys;
-                    break;
-                }
-                case GeneratedKeysMode.COLUMN_NAMES: {
-                    int len = transfer.readInt();
-                    String[] keys = new String[len];
-                    for (int i = 0; i < len; i++) {
-                        keys[i] = transfer.readString();
-                    }
-                    generatedKeysRequest = keys;
-                    break;
-                }
-                default:
-                    throw DbException.get(ErrorCode.CONNECTION_BROKEN_1,
-                            "Unsupported generated keys' mode " + mode);
-                }
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_17) {
+                generatedKeysRequest = readGeneratedKeysRequest();
             } else {
                 generatedKeysRequest = false;
             }
+            Command command = (Command) cache.getObject(id, false);
+            setParameters(command, parameters);
+            boolean writeGeneratedKeys = GeneratedKeysMode.valueOf(generatedKeysRequest) != GeneratedKeysMode.NONE;
             int old = session.getModificationId();
             ResultWithGeneratedKeys result;
             synchronized (session) {
@@ -426,18 +526,62 @@ private void process() throws IOException {
             }
             transfer.writeBoolean(session.getAutoCommit());
             if (writeGeneratedKeys) {
-                ResultInterface generatedKeys = result.getGeneratedKeys();
-                int columnCount = generatedKeys.getVisibleColumnCount();
-                transfer.writeInt(columnCount);
-                int rowCount = generatedKeys.getRowCount();
-                transfer.writeInt(rowCount);
-                for (int i = 0; i < columnCount; i++) {
-                    ResultColumn.writeColumn(transfer, generatedKeys, i);
+                writeGeneratedKeys(result.getGeneratedKeys());
+            }
+            transfer.flush();
+            break;
+        }
+        case SessionRemote.COMMAND_EXECUTE_BATCH: {
+            int id = transfer.readInt();
+            Object generatedKeysRequest = readGeneratedKeysRequest();
+            boolean writeGeneratedKeys = GeneratedKeysMode.valueOf(generatedKeysRequest) != GeneratedKeysMode.NONE;
+            int size = transfer.readInt();
+            ArrayList<Value[]> batchParameters = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batchParameters.add(readParameters());
+            }
+            Command command = (Command) cache.getObject(id, false);
+            int old = session.getModificationId();
+            long[] updateCounts = new long[size];
+            Throwable[] errors = new Throwable[size];
+            MergedResult generatedKeys = writeGeneratedKeys ? new MergedResult() : null;
+            for (int i = 0; i < size; i++) {
+                try {
+                    ResultWithGeneratedKeys result;
+                    synchronized (session) {
+                        setParameters(command, batchParameters.get(i));
+                        result = command.executeUpdate(generatedKeysRequest);
+                    }
+                    updateCounts[i] = result.getUpdateCount();
+                    if (writeGeneratedKeys) {
+                        ResultInterface keys = result.getGeneratedKeys();
+                        generatedKeys.add(keys);
+                        keys.close();
+                    }
+                } catch (Throwable e) {
+                    errors[i] = e;
                 }
-                for (int i = 0; i < rowCount; i++) {
-                    sendRow(generatedKeys);
+            }
+            int status;
+            if (session.isClosed()) {
+                status = SessionRemote.STATUS_CLOSED;
+                stop = true;
+            } else {
+                status = getState(old);
+            }
+            transfer.writeInt(status);
+            for (int i = 0; i < size; i++) {
+                Throwable e = errors[i];
+                if (e == null) {
+                    transfer.writeBoolean(true).writeLong(updateCounts[i]);
+                } else {
+                    transfer.writeBoolean(false);
+                    writeException(e);
                 }
-                generatedKeys.close();
+            }
+            transfer.writeBoolean(session.getAutoCommit());
+            if (writeGeneratedKeys) {
+                writeGeneratedKeys(generatedKeys.getResult());
             }
             transfer.flush();
             break;
@@ -518,11 +662,20 @@ private void process() throws IOException {
                 InputStream lobIn = lobStorage.getInputStream(lobId, -1);
                 in = new CachedInputStream(lobIn);
                 lobs.put(lobId, in);
-                lobIn.skip(offset);
+                // skip through the cached stream to keep its position
+                for (long skip = offset, skipped; skip > 0; skip -= skipped) {
+                    skipped = in.skip(skip);
+                    if (skipped <= 0) {
+                        break;
+                    }
+                }
             }
             // limit the buffer size
-            length = Math.min(16 * Constants.IO_BUFFER_SIZE, length);
-            byte[] buff = new byte[length];
+            length = Math.max(Math.min(MAX_LOB_BLOCK_SIZE, length), 0);
+            byte[] buff = lobBuffer;
+            if (buff == null || buff.length < length) {
+                lobBuffer = buff = new byte[length];
+            }
             length = IOUtils.readFully(in, buff, length);
             transfer.writeInt(SessionRemote.STATUS_OK);
             transfer.writeInt(length);
@@ -530,6 +683,25 @@ private void process() throws IOException {
             transfer.flush();
             break;
         }
+        case SessionRemote.REPLICATE: {
+            session.getUser().checkAdmin();
+            ReplicationSender sender = new ReplicationSender(session.getDatabase(), transfer);
+            transfer.writeInt(SessionRemote.STATUS_OK).flush();
+            // the connection is used only to send the changes from now on
+            stop = true;
+            detached = true;
+            Thread t = new Thread(() -> {
+                try {
+                    sender.run();
+                } finally {
+                    trace("Replication stopped");
+                    close();
+                }
+            }, server.getName() + " replication-" + threadId);
+            t.setDaemon(true);
+            t.start();
+            break;
+        }
         case SessionRemote.GET_JDBC_META: {
             int code = transfer.readInt();
             int length = transfer.readInt();
@@ -588,6 +760,10 @@ private void sendRow(ResultInterface result) throws IOException {
         }
     }
 
+    Transfer getTransfer() {
+        return transfer;
+    }
+
     void setThread(Thread thread) {
         this.thread = thread;
     }
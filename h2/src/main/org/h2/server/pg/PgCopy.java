@@ -0,0 +1,740 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.server.pg;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.h2.message.DbException;
+import org.h2.util.StringUtils;
+
+/**
+ * A parsed PostgreSQL COPY FROM STDIN or COPY TO STDOUT statement with methods
+ * to read and write rows in the text and CSV formats.
+ */
+final class PgCopy {
+
+    /**
+     * The text format.
+     */
+    static final int TEXT = 0;
+
+    /**
+     * The CSV format.
+     */
+    static final int CSV = 1;
+
+    /**
+     * The binary format.
+     */
+    static final int BINARY = 2;
+
+    /**
+     * The signature at the start of data in the binary format.
+     */
+    static final byte[] BINARY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0 };
+
+    private final String sql;
+
+    private int index;
+
+    private String table;
+
+    private String columns;
+
+    private String query;
+
+    private boolean from;
+
+    private int format;
+
+    private char delimiter;
+
+    private String nullString;
+
+    private boolean header;
+
+    private char quote = '"';
+
+    private char escape;
+
+    private Reader reader;
+
+    private char[] buffer;
+
+    private int pos, limit;
+
+    private boolean endOfData;
+
+    private byte[] delimiterBytes, nullBytes;
+
+    private PgCopy(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Parses the COPY statement.
+     *
+     * @param sql the SQL statement
+     * @return the parsed statement, or {@code null} if this is not a COPY
+     *         statement
+     * @throws DbException on syntax error or if the statement is not supported
+     */
+    static PgCopy parse(String sql) {
+        PgCopy copy = new PgCopy(sql);
+        if (!copy.readIf("COPY")) {
+            return null;
+        }
+        copy.parse();
+        return copy;
+    }
+
+    private void parse() {
+        boolean binary = readIf("BINARY");
+        if (readIf("(")) {
+            int start = index;
+            skipParenthesized();
+            query = sql.substring(start, index - 1);
+        } else {
+            int start = skipWhitespace();
+            readIdentifier();
+            if (readIf(".")) {
+                readIdentifier();
+            }
+            table = sql.substring(start, index);
+            if (readIf("(")) {
+                StringBuilder builder = new StringBuilder();
+                do {
+                    if (builder.length() > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append(readIdentifier());
+                } while (readIf(","));
+                read(")");
+                columns = builder.toString();
+            }
+        }
+        if (readIf("FROM")) {
+            from = true;
+            if (query != null || !readIf("STDIN")) {
+                throw unsupported();
+            }
+        } else {
+            read("TO");
+            if (!readIf("STDOUT")) {
+                throw unsupported();
+            }
+        }
+        if (binary) {
+            format = BINARY;
+        }
+        readIf("WITH");
+        if (readIf("(")) {
+            do {
+                parseOption();
+            } while (readIf(","));
+            read(")");
+        } else {
+            parseLegacyOptions();
+        }
+        readIf(";");
+        if (skipWhitespace() < sql.length()) {
+            throw syntaxError();
+        }
+        if (format != CSV) {
+            quote = 0;
+            escape = 0;
+        } else if (escape == 0) {
+            escape = quote;
+        }
+        if (delimiter == 0) {
+            delimiter = format == CSV ? ',' : '\t';
+        }
+        if (nullString == null) {
+            nullString = format == CSV ? "" : "\\N";
+        }
+        if (format == BINARY && header) {
+            throw unsupported();
+        }
+        if (delimiter == quote || delimiter == '\r' || delimiter == '\n' || format == TEXT && delimiter == '\\') {
+            throw DbException.getInvalidValueException("DELIMITER", delimiter);
+        }
+    }
+
+    private void parseOption() {
+        String option = StringUtils.toUpperEnglish(readIdentifier());
+        switch (option) {
+        case "FORMAT":
+            String name = StringUtils.toUpperEnglish(readIdentifier());
+            switch (name) {
+            case "TEXT":
+                format = TEXT;
+                break;
+            case "CSV":
+                format = CSV;
+                break;
+            case "BINARY":
+                format = BINARY;
+                break;
+            default:
+                throw DbException.getInvalidValueException("FORMAT", name);
+            }
+            break;
+        case "DELIMITER":
+            delimiter = readCharacter(option);
+            break;
+        case "NULL":
+            nullString = readString();
+            break;
+        case "HEADER":
+            header = readBoolean();
+            break;
+        case "QUOTE":
+            quote = readCharacter(option);
+            break;
+        case "ESCAPE":
+            escape = readCharacter(option);
+            break;
+        case "FREEZE":
+            readBoolean();
+            break;
+        default:
+            throw unsupported();
+        }
+    }
+
+    private void parseLegacyOptions() {
+        if (readIf("BINARY")) {
+            format = BINARY;
+        }
+        if (readIf("DELIMITER")) {
+            readIf("AS");
+            delimiter = readCharacter("DELIMITER");
+        }
+        if (readIf("NULL")) {
+            readIf("AS");
+            nullString = readString();
+        }
+        if (readIf("CSV")) {
+            format = CSV;
+            header = readIf("HEADER");
+            if (readIf("QUOTE")) {
+                readIf("AS");
+                quote = readCharacter("QUOTE");
+            }
+            if (readIf("ESCAPE")) {
+                readIf("AS");
+                escape = readCharacter("ESCAPE");
+            }
+        }
+    }
+
+    private boolean readBoolean() {
+        int start = skipWhitespace();
+        if (start < sql.length()) {
+            char c = sql.charAt(start);
+            if (c == ',' || c == ')') {
+                return true;
+            }
+        }
+        String value = StringUtils.toUpperEnglish(c() == '\'' ? readString() : readIdentifier());
+        switch (value) {
+        case "TRUE":
+        case "ON":
+        case "1":
+            return true;
+        case "FALSE":
+        case "OFF":
+        case "0":
+            return false;
+        default:
+            throw syntaxError();
+        }
+    }
+
+    private char readCharacter(String option) {
+        String s = readString();
+        if (s.length() != 1 || s.charAt(0) >= 128) {
+            throw DbException.getInvalidValueException(option, s);
+        }
+        return s.charAt(0);
+    }
+
+    private String readString() {
+        skipWhitespace();
+        if (c() != '\'') {
+            throw syntaxError();
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = index + 1, l = sql.length(); i < l; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < l && sql.charAt(i + 1) == '\'') {
+                    i++;
+                } else {
+                    index = i + 1;
+                    return builder.toString();
+                }
+            }
+            builder.append(c);
+        }
+        throw syntaxError();
+    }
+
+    private String readIdentifier() {
+        int start = skipWhitespace();
+        int l = sql.length();
+        if (start < l && sql.charAt(start) == '"') {
+            for (int i = start + 1; i < l; i++) {
+                if (sql.charAt(i) == '"') {
+                    if (i + 1 < l && sql.charAt(i + 1) == '"') {
+                        i++;
+                    } else {
+                        index = i + 1;
+                        return sql.substring(start, index);
+                    }
+                }
+            }
+            throw syntaxError();
+        }
+        int i = start;
+        while (i < l) {
+            char c = sql.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '$') {
+                break;
+            }
+            i++;
+        }
+        if (i == start) {
+            throw syntaxError();
+        }
+        index = i;
+        return sql.substring(start, i);
+    }
+
+    private void skipParenthesized() {
+        int level = 1;
+        for (int l = sql.length(); index < l;) {
+            char c = sql.charAt(index++);
+            switch (c) {
+            case '(':
+                level++;
+                break;
+            case ')':
+                if (--level == 0) {
+                    return;
+                }
+                break;
+            case '\'':
+            case '"':
+                while (index < l && sql.charAt(index++) != c) {
+                    // skip
+                }
+                break;
+            default:
+            }
+        }
+        throw syntaxError();
+    }
+
+    private boolean readIf(String token) {
+        int start = skipWhitespace();
+        int end = start + token.length();
+        if (!sql.regionMatches(true, start, token, 0, token.length())) {
+            return false;
+        }
+        if (Character.isLetter(token.charAt(0)) && end < sql.length()) {
+            char c = sql.charAt(end);
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                return false;
+            }
+        }
+        index = end;
+        return true;
+    }
+
+    private void read(String token) {
+        if (!readIf(token)) {
+            throw syntaxError();
+        }
+    }
+
+    private char c() {
+        return index < sql.length() ? sql.charAt(index) : 0;
+    }
+
+    private int skipWhitespace() {
+        for (int l = sql.length(); index < l;) {
+            char c = sql.charAt(index);
+            if (c == '-' && sql.startsWith("--", index)) {
+                int end = sql.indexOf('\n', index);
+                index = end < 0 ? l : end + 1;
+            } else if (c == '/' && sql.startsWith("/*", index)) {
+                int end = sql.indexOf("*/", index + 2);
+                index = end < 0 ? l : end + 2;
+            } else if (Character.isWhitespace(c)) {
+                index++;
+            } else {
+                break;
+            }
+        }
+        return index;
+    }
+
+    private DbException syntaxError() {
+        return DbException.getSyntaxError(sql, index);
+    }
+
+    private DbException unsupported() {
+        return DbException.getUnsupportedException(sql);
+    }
+
+    /**
+     * Returns whether this is a COPY FROM STDIN statement.
+     *
+     * @return {@code true} for COPY FROM STDIN, {@code false} for COPY TO
+     *         STDOUT
+     */
+    boolean isFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the format of data.
+     *
+     * @return {@link #TEXT}, {@link #CSV}, or {@link #BINARY}
+     */
+    int getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns whether the data starts with a header line.
+     *
+     * @return whether the data starts with a header line
+     */
+    boolean hasHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the query to read the data.
+     *
+     * @return the query
+     */
+    String getQuery() {
+        if (query != null) {
+            return query;
+        }
+        return "SELECT " + (columns != null ? columns : "*") + " FROM " + table;
+    }
+
+    /**
+     * Returns the statement to insert a row.
+     *
+     * @param columnCount the number of columns
+     * @return the INSERT statement with parameters
+     */
+    String getInsert(int columnCount) {
+        StringBuilder builder = new StringBuilder("INSERT INTO ").append(table);
+        if (columns != null) {
+            builder.append(" (").append(columns).append(')');
+        }
+        builder.append(" VALUES (");
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('?');
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Starts reading of rows in the text or CSV format.
+     *
+     * @param r the reader
+     */
+    void startReading(Reader r) {
+        reader = r;
+        buffer = new char[8192];
+    }
+
+    /**
+     * Reads the next row in the text or CSV format.
+     *
+     * @param columnCount the expected number of columns, or -1 to accept any
+     *            number of columns
+     * @return the values of columns, or {@code null} at the end of data
+     * @throws IOException on I/O exception
+     */
+    String[] readRow(int columnCount) throws IOException {
+        if (endOfData) {
+            return null;
+        }
+        int ch = read();
+        if (ch < 0) {
+            endOfData = true;
+            return null;
+        }
+        if (ch == '\\' && peek() == '.') {
+            read();
+            int next = read();
+            if (next == '\r' && peek() == '\n') {
+                next = read();
+            }
+            if (next < 0 || next == '\n' || next == '\r') {
+                // end-of-data marker
+                endOfData = true;
+                return null;
+            }
+            unread(2);
+        }
+        ArrayList<String> row = new ArrayList<>(Math.max(columnCount, 4));
+        StringBuilder builder = new StringBuilder();
+        boolean csv = format == CSV;
+        for (;;) {
+            boolean quoted = false, escaped = false;
+            builder.setLength(0);
+            while (ch >= 0 && ch != '\n' && ch != '\r' && ch != delimiter) {
+                if (csv && ch == quote) {
+                    quoted = true;
+                    readQuoted(builder);
+                } else {
+                    builder.append((char) ch);
+                    if (!csv && ch == '\\') {
+                        escaped = true;
+                        if ((ch = read()) < 0) {
+                            break;
+                        }
+                        builder.append((char) ch);
+                    }
+                }
+                ch = read();
+            }
+            String value = builder.toString();
+            if (!quoted && value.equals(nullString)) {
+                value = null;
+            } else if (escaped) {
+                value = unescape(value);
+            }
+            row.add(value);
+            if (ch != delimiter) {
+                break;
+            }
+            ch = read();
+        }
+        if (ch == '\r' && peek() == '\n') {
+            read();
+        }
+        if (columnCount >= 0 && row.size() != columnCount) {
+            throw DbException.getInvalidValueException("row", row.size() + " columns");
+        }
+        return row.toArray(new String[0]);
+    }
+
+    private void readQuoted(StringBuilder builder) throws IOException {
+        for (;;) {
+            int ch = read();
+            if (ch < 0) {
+                throw DbException.getInvalidValueException("CSV", "unterminated quoted field");
+            }
+            if (ch == escape && escape != quote) {
+                int next = peek();
+                if (next == quote || next == escape) {
+                    builder.append((char) read());
+                    continue;
+                }
+            } else if (ch == quote) {
+                if (escape == quote && peek() == quote) {
+                    builder.append((char) read());
+                    continue;
+                }
+                return;
+            }
+            builder.append((char) ch);
+        }
+    }
+
+    private static String unescape(String s) {
+        int l = s.length();
+        StringBuilder builder = new StringBuilder(l);
+        for (int i = 0; i < l; i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || ++i == l) {
+                builder.append(c);
+                continue;
+            }
+            c = s.charAt(i);
+            switch (c) {
+            case 'b':
+                builder.append('\b');
+                break;
+            case 'f':
+                builder.append('\f');
+                break;
+            case 'n':
+                builder.append('\n');
+                break;
+            case 'r':
+                builder.append('\r');
+                break;
+            case 't':
+                builder.append('\t');
+                break;
+            case 'v':
+                builder.append('\u000b');
+                break;
+            case 'x': {
+                int v = 0, j = i + 1;
+                for (int d; j < l && j < i + 3 && (d = Character.digit(s.charAt(j), 16)) >= 0; j++) {
+                    v = (v << 4) + d;
+                }
+                if (j == i + 1) {
+                    builder.append('x');
+                } else {
+                    builder.append((char) v);
+                    i = j - 1;
+                }
+                break;
+            }
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7': {
+                int v = 0, j = i;
+                for (int d; j < l && j < i + 3 && (d = s.charAt(j) - '0') >= 0 && d < 8; j++) {
+                    v = (v << 3) + d;
+                }
+                builder.append((char) (v & 0xff));
+                i = j - 1;
+                break;
+            }
+            default:
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private int read() throws IOException {
+        if (pos >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private void unread(int count) {
+        pos -= count;
+    }
+
+    private boolean fill() throws IOException {
+        // keep two characters for unread()
+        int keep = Math.min(limit, 2);
+        if (keep > 0) {
+            System.arraycopy(buffer, limit - keep, buffer, 0, keep);
+        }
+        int len = reader.read(buffer, keep, buffer.length - keep);
+        pos = keep;
+        limit = keep;
+        if (len <= 0) {
+            return false;
+        }
+        limit += len;
+        return true;
+    }
+
+    /**
+     * Starts writing of rows in the text or CSV format.
+     *
+     * @param encoding the encoding of data
+     */
+    void startWriting(Charset encoding) {
+        delimiterBytes = String.valueOf(delimiter).getBytes(encoding);
+        nullBytes = nullString.getBytes(encoding);
+    }
+
+    /**
+     * Writes a value in the text or CSV format.
+     *
+     * @param out the output stream
+     * @param data the text representation of the value in the encoding of
+     *            data, or {@code null} for NULL
+     * @param first whether this is the first value in a row
+     * @throws IOException on I/O exception
+     */
+    void writeValue(OutputStream out, byte[] data, boolean first) throws IOException {
+        if (!first) {
+            out.write(delimiterBytes);
+        }
+        if (data == null) {
+            out.write(nullBytes);
+        } else if (format == CSV) {
+            boolean needQuotes = data.length == 0 || Arrays.equals(data, nullBytes);
+            for (int i = 0, l = data.length; i < l && !needQuotes; i++) {
+                int b = data[i];
+                needQuotes = b == delimiter || b == quote || b == '\n' || b == '\r';
+            }
+            if (data.length == 2 && data[0] == '\\' && data[1] == '.') {
+                needQuotes = true;
+            }
+            if (needQuotes) {
+                out.write(quote);
+                for (byte b : data) {
+                    if (b == quote || b == escape) {
+                        out.write(escape);
+                    }
+                    out.write(b);
+                }
+                out.write(quote);
+            } else {
+                out.write(data);
+            }
+        } else {
+            for (byte b : data) {
+                switch (b) {
+                case '\\':
+                    out.write('\\');
+                    out.write('\\');
+                    break;
+                case '\n':
+                    out.write('\\');
+                    out.write('n');
+                    break;
+                case '\r':
+                    out.write('\\');
+                    out.write('r');
+                    break;
+                case '\t':
+                    out.write('\\');
+                    out.write('t');
+                    break;
+                default:
+                    if (b == delimiter) {
+                        out.write('\\');
+                    }
+                    out.write(b);
+                }
+            }
+        }
+    }
+
+}
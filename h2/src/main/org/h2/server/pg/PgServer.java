@@ -51,6 +51,7 @@ public class PgServer implements Service {
     public static final int PG_TYPE_INT8 = 20;
     public static final int PG_TYPE_INT2 = 21;
     public static final int PG_TYPE_INT4 = 23;
+    public static final int PG_TYPE_JSON = 114;
     public static final int PG_TYPE_TEXT = 25;
     public static final int PG_TYPE_FLOAT4 = 700;
     public static final int PG_TYPE_FLOAT8 = 701;
@@ -64,6 +65,7 @@ public class PgServer implements Service {
     public static final int PG_TYPE_TIMESTAMP = 1114;
     public static final int PG_TYPE_TIMESTAMPTZ = 1184;
     public static final int PG_TYPE_NUMERIC = 1700;
+    public static final int PG_TYPE_UUID = 2950;
 
     private final HashSet<Integer> typeSet = new HashSet<>();
 
@@ -394,6 +396,7 @@ public static int convertType(TypeInfo type) {
             return PG_TYPE_TEXT;
         case Value.CHAR:
             return PG_TYPE_BPCHAR;
+        case Value.TINYINT:
         case Value.SMALLINT:
             return PG_TYPE_INT2;
         case Value.INTEGER:
@@ -420,6 +423,10 @@ public static int convertType(TypeInfo type) {
         case Value.BINARY:
         case Value.VARBINARY:
             return PG_TYPE_BYTEA;
+        case Value.UUID:
+            return PG_TYPE_UUID;
+        case Value.JSON:
+            return PG_TYPE_JSON;
         case Value.ARRAY: {
             type = (TypeInfo) type.getExtTypeInfo();
             switch (type.getValueType()) {
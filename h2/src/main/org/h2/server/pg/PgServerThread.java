@@ -5,6 +5,8 @@
  */
 package org.h2.server.pg;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -12,8 +14,12 @@
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.net.Socket;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -21,9 +27,11 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -47,6 +55,7 @@
 import org.h2.table.Column;
 import org.h2.table.Table;
 import org.h2.util.DateTimeUtils;
+import org.h2.util.IOUtils;
 import org.h2.util.JdbcUtils;
 import org.h2.util.MathUtils;
 import org.h2.util.NetUtils;
@@ -58,12 +67,23 @@
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
 import org.h2.value.ValueArray;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueBoolean;
 import org.h2.value.ValueDate;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueJson;
 import org.h2.value.ValueNull;
+import org.h2.value.ValueNumeric;
+import org.h2.value.ValueReal;
+import org.h2.value.ValueSmallint;
 import org.h2.value.ValueTime;
 import org.h2.value.ValueTimeTimeZone;
 import org.h2.value.ValueTimestamp;
 import org.h2.value.ValueTimestampTimeZone;
+import org.h2.value.ValueUuid;
+import org.h2.value.ValueVarbinary;
+import org.h2.value.ValueVarchar;
 
 /**
  * One server thread is opened for each client.
@@ -108,8 +128,9 @@ public void run() {
         try {
             server.trace("Connect");
             InputStream ins = socket.getInputStream();
-            out = socket.getOutputStream();
-            dataInRaw = new DataInputStream(ins);
+            // flushed after each processed message
+            out = new BufferedOutputStream(socket.getOutputStream(), Constants.IO_BUFFER_SIZE);
+            dataInRaw = new DataInputStream(new BufferedInputStream(ins, Constants.IO_BUFFER_SIZE));
             while (!stop) {
                 process();
                 out.flush();
@@ -444,6 +465,9 @@ private void process() throws IOException {
                         break;
                     }
                     s = getSQL(s);
+                    if (copy(s)) {
+                        continue;
+                    }
                     stat = (JdbcStatement) conn.createStatement();
                     setActiveRequest(stat);
                     boolean result = stat.execute(s);
@@ -483,6 +507,12 @@ private void process() throws IOException {
             close();
             break;
         }
+        case 'd':
+        case 'c':
+        case 'f':
+            // the rest of a failed COPY FROM STDIN
+            server.trace("Copy data ignored");
+            break;
         default:
             server.trace("Unsupported: " + x + " (" + (char) x + ")");
             break;
@@ -503,6 +533,242 @@ private String getSQL(String s) {
         return s;
     }
 
+    /**
+     * Executes a COPY FROM STDIN or COPY TO STDOUT statement.
+     *
+     * @param sql the SQL statement
+     * @return {@code false} if this is not a COPY statement
+     */
+    private boolean copy(String sql) throws IOException, SQLException {
+        try {
+            PgCopy copy = PgCopy.parse(sql);
+            if (copy == null) {
+                return false;
+            }
+            long count = copy.isFrom() ? copyIn(copy) : copyOut(copy);
+            startMessage('C');
+            writeString("COPY " + count);
+            sendMessage();
+            return true;
+        } catch (DbException e) {
+            throw DbException.toSQLException(e);
+        }
+    }
+
+    private long copyIn(PgCopy copy) throws IOException, SQLException {
+        int columnCount;
+        int[] pgTypes;
+        try (PreparedStatement query = conn.prepareStatement(copy.getQuery())) {
+            JdbcResultSetMetaData meta = (JdbcResultSetMetaData) query.getMetaData();
+            columnCount = meta.getColumnCount();
+            pgTypes = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                pgTypes[i] = PgServer.convertType(meta.getColumnInternalType(i + 1));
+            }
+        }
+        JdbcPreparedStatement prep = (JdbcPreparedStatement) conn.prepareStatement(copy.getInsert(columnCount));
+        // the whole COPY is rolled back on failure
+        boolean autoCommit = conn.getAutoCommit();
+        Savepoint savepoint = null;
+        CopyInputStream in = new CopyInputStream();
+        try {
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            } else {
+                savepoint = conn.setSavepoint();
+            }
+            setActiveRequest(prep);
+            sendCopyResponse('G', copy.getFormat(), columnCount);
+            out.flush();
+            long count = 0;
+            if (copy.getFormat() == PgCopy.BINARY) {
+                DataInputStream data = new DataInputStream(new BufferedInputStream(in, Constants.IO_BUFFER_SIZE));
+                try {
+                    readCopyBinaryHeader(data);
+                    dataIn = data;
+                    int[] formatCodes = new int[columnCount];
+                    Arrays.fill(formatCodes, 1);
+                    for (int fields; (fields = data.readShort()) != -1; count++) {
+                        if (fields != columnCount) {
+                            throw DbException.getInvalidValueException("tuple", fields + " fields");
+                        }
+                        for (int i = 0; i < columnCount; i++) {
+                            setParameter(prep, pgTypes[i], i, formatCodes);
+                        }
+                        prep.executeUpdate();
+                    }
+                } catch (EOFException e) {
+                    throw DbException.getInvalidValueException("COPY", "unexpected end of data");
+                }
+            } else {
+                copy.startReading(new InputStreamReader(in, getEncoding()));
+                if (copy.hasHeader()) {
+                    copy.readRow(-1);
+                }
+                for (String[] row; (row = copy.readRow(columnCount)) != null; count++) {
+                    for (int i = 0; i < columnCount; i++) {
+                        String v = row[i];
+                        if (v == null) {
+                            prep.setNull(i + 1, Types.NULL);
+                        } else if (pgTypes[i] == PgServer.PG_TYPE_BYTEA) {
+                            prep.setBytes(i + 1, decodeBytea(v));
+                        } else {
+                            prep.setString(i + 1, v);
+                        }
+                    }
+                    prep.executeUpdate();
+                }
+            }
+            in.skipToEnd();
+            if (autoCommit) {
+                conn.commit();
+            }
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            in.skipMessage();
+            rollbackCopy(savepoint);
+            throw e;
+        } catch (IOException e) {
+            rollbackCopy(savepoint);
+            throw e;
+        } finally {
+            setActiveRequest(null);
+            JdbcUtils.closeSilently(prep);
+            if (autoCommit) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void readCopyBinaryHeader(DataInputStream data) throws IOException {
+        byte[] signature = new byte[PgCopy.BINARY_SIGNATURE.length];
+        data.readFully(signature);
+        if (!Arrays.equals(signature, PgCopy.BINARY_SIGNATURE)) {
+            throw DbException.getInvalidValueException("COPY", "invalid signature");
+        }
+        int flags = data.readInt();
+        if ((flags & 0x1_0000) != 0) {
+            throw DbException.getUnsupportedException("OIDS");
+        }
+        IOUtils.skipFully(data, data.readInt());
+    }
+
+    private void rollbackCopy(Savepoint savepoint) {
+        try {
+            if (savepoint != null) {
+                conn.rollback(savepoint);
+            } else {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            server.traceError(e);
+        }
+    }
+
+    /**
+     * Decodes a bytea value in the hex or escape text format.
+     *
+     * @param s the text
+     * @return the bytes
+     */
+    private static byte[] decodeBytea(String s) {
+        int length = s.length();
+        if (length >= 2 && s.charAt(0) == '\\' && s.charAt(1) == 'x') {
+            return StringUtils.convertHexToBytes(s.substring(2));
+        }
+        ByteArrayOutputStream buff = new ByteArrayOutputStream(length);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                c = s.charAt(++i);
+                if (c != '\\') {
+                    if (i + 2 >= length) {
+                        throw DbException.getInvalidValueException("bytea", s);
+                    }
+                    c = (char) Integer.parseInt(s.substring(i, i + 3), 8);
+                    i += 2;
+                }
+            }
+            buff.write(c);
+        }
+        return buff.toByteArray();
+    }
+
+    private long copyOut(PgCopy copy) throws IOException, SQLException {
+        JdbcStatement stat = (JdbcStatement) conn.createStatement();
+        try {
+            setActiveRequest(stat);
+            JdbcResultSet rs = (JdbcResultSet) stat.executeQuery(copy.getQuery());
+            JdbcResultSetMetaData meta = (JdbcResultSetMetaData) rs.getMetaData();
+            int columnCount = meta.getColumnCount();
+            int[] pgTypes = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                pgTypes[i] = PgServer.convertType(meta.getColumnInternalType(i + 1));
+            }
+            int format = copy.getFormat();
+            sendCopyResponse('H', format, columnCount);
+            long count = 0;
+            if (format == PgCopy.BINARY) {
+                startMessage('d');
+                write(PgCopy.BINARY_SIGNATURE);
+                // flags and length of the header extension
+                writeInt(0);
+                writeInt(0);
+                sendMessage();
+                for (; rs.next(); count++) {
+                    startMessage('d');
+                    writeShort(columnCount);
+                    for (int i = 0; i < columnCount; i++) {
+                        writeDataColumn(rs, i + 1, pgTypes[i], false);
+                    }
+                    sendMessage();
+                }
+                startMessage('d');
+                writeShort(-1);
+                sendMessage();
+            } else {
+                Charset encoding = getEncoding();
+                copy.startWriting(encoding);
+                if (copy.hasHeader()) {
+                    startMessage('d');
+                    for (int i = 0; i < columnCount; i++) {
+                        String name = StringUtils.toLowerEnglish(meta.getColumnName(i + 1));
+                        copy.writeValue(dataOut, name.getBytes(encoding), i == 0);
+                    }
+                    write('\n');
+                    sendMessage();
+                }
+                for (; rs.next(); count++) {
+                    startMessage('d');
+                    for (int i = 0; i < columnCount; i++) {
+                        Value v = rs.get(i + 1);
+                        copy.writeValue(dataOut, v == ValueNull.INSTANCE ? null : getTextBytes(v, pgTypes[i]),
+                                i == 0);
+                    }
+                    write('\n');
+                    sendMessage();
+                }
+            }
+            startMessage('c');
+            sendMessage();
+            return count;
+        } finally {
+            setActiveRequest(null);
+            JdbcUtils.closeSilently(stat);
+        }
+    }
+
+    private void sendCopyResponse(int messageType, int format, int columnCount) throws IOException {
+        int formatCode = format == PgCopy.BINARY ? 1 : 0;
+        startMessage(messageType);
+        write(formatCode);
+        writeShort(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            writeShort(formatCode);
+        }
+        sendMessage();
+    }
+
     private void sendCommandComplete(JdbcStatement stat, long updateCount)
             throws IOException {
         startMessage('C');
@@ -559,139 +825,243 @@ private void writeDataColumn(JdbcResultSet rs, int column, int pgType, boolean t
         }
         if (text) {
             // plain text
-            switch (pgType) {
-            case PgServer.PG_TYPE_BOOL:
-                writeInt(1);
-                dataOut.writeByte(v.getBoolean() ? 't' : 'f');
-                break;
-            case PgServer.PG_TYPE_BYTEA: {
-                byte[] bytes = v.getBytesNoCopy();
-                int length = bytes.length;
-                int cnt = length;
-                for (int i = 0; i < length; i++) {
-                    byte b = bytes[i];
-                    if (b < 32 || b > 126) {
-                        cnt += 3;
-                    } else if (b == 92) {
-                        cnt++;
-                    }
+            byte[] data = getTextBytes(v, pgType);
+            writeInt(data.length);
+            write(data);
+        } else {
+            // binary
+            writeBinaryValue(v, pgType);
+        }
+    }
+
+    private void writeBinaryValue(Value v, int pgType) throws IOException {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL:
+            writeInt(1);
+            dataOut.writeByte(v.getBoolean() ? 't' : 'f');
+            break;
+        case PgServer.PG_TYPE_INT2:
+            writeInt(2);
+            writeShort(v.getShort());
+            break;
+        case PgServer.PG_TYPE_INT4:
+            writeInt(4);
+            writeInt(v.getInt());
+            break;
+        case PgServer.PG_TYPE_INT8:
+            writeInt(8);
+            dataOut.writeLong(v.getLong());
+            break;
+        case PgServer.PG_TYPE_FLOAT4:
+            writeInt(4);
+            dataOut.writeFloat(v.getFloat());
+            break;
+        case PgServer.PG_TYPE_FLOAT8:
+            writeInt(8);
+            dataOut.writeDouble(v.getDouble());
+            break;
+        case PgServer.PG_TYPE_NUMERIC:
+            writeNumericBinary(v.getBigDecimal());
+            break;
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] data = v.getBytesNoCopy();
+            writeInt(data.length);
+            write(data);
+            break;
+        }
+        case PgServer.PG_TYPE_UUID: {
+            ValueUuid u = (ValueUuid) v;
+            writeInt(16);
+            dataOut.writeLong(u.getHigh());
+            dataOut.writeLong(u.getLow());
+            break;
+        }
+        case PgServer.PG_TYPE_DATE:
+            writeInt(4);
+            writeInt((int) (toPostgreDays(((ValueDate) v).getDateValue())));
+            break;
+        case PgServer.PG_TYPE_TIME:
+            writeTimeBinary(((ValueTime) v).getNanos(), 8);
+            break;
+        case PgServer.PG_TYPE_TIMETZ: {
+            ValueTimeTimeZone t = (ValueTimeTimeZone) v;
+            long m = t.getNanos();
+            writeTimeBinary(m, 12);
+            dataOut.writeInt(-t.getTimeZoneOffsetSeconds());
+            break;
+        }
+        case PgServer.PG_TYPE_TIMESTAMP: {
+            ValueTimestamp t = (ValueTimestamp) v;
+            long m = toPostgreDays(t.getDateValue()) * 86_400;
+            long nanos = t.getTimeNanos();
+            writeTimestampBinary(m, nanos);
+            break;
+        }
+        case PgServer.PG_TYPE_TIMESTAMPTZ: {
+            ValueTimestampTimeZone t = (ValueTimestampTimeZone) v;
+            long m = toPostgreDays(t.getDateValue()) * 86_400;
+            long nanos = t.getTimeNanos() - t.getTimeZoneOffsetSeconds() * 1_000_000_000L;
+            if (nanos < 0L) {
+                m--;
+                nanos += DateTimeUtils.NANOS_PER_DAY;
+            }
+            writeTimestampBinary(m, nanos);
+            break;
+        }
+        case PgServer.PG_TYPE_INT2_ARRAY:
+            writeArrayBinary((ValueArray) v, PgServer.PG_TYPE_INT2);
+            break;
+        case PgServer.PG_TYPE_INT4_ARRAY:
+            writeArrayBinary((ValueArray) v, PgServer.PG_TYPE_INT4);
+            break;
+        case PgServer.PG_TYPE_VARCHAR_ARRAY:
+            writeArrayBinary((ValueArray) v, PgServer.PG_TYPE_VARCHAR);
+            break;
+        default: {
+            // the binary format of character strings, JSON, and unknown
+            // values is the same as the text format
+            byte[] data = getTextBytes(v, pgType);
+            writeInt(data.length);
+            write(data);
+        }
+        }
+    }
+
+    private void writeNumericBinary(BigDecimal value) throws IOException {
+        int scale = value.scale();
+        BigInteger unscaled = value.unscaledValue();
+        int sign = unscaled.signum();
+        unscaled = unscaled.abs();
+        int displayScale = Math.max(scale, 0);
+        if (scale < 0) {
+            unscaled = unscaled.multiply(BigInteger.TEN.pow(-scale));
+            scale = 0;
+        }
+        // align the decimal point with base 10000 digits
+        int pad = (4 - scale % 4) % 4;
+        if (pad > 0) {
+            unscaled = unscaled.multiply(BigInteger.TEN.pow(pad));
+            scale += pad;
+        }
+        ArrayList<Integer> digits = new ArrayList<>();
+        BigInteger base = BigInteger.valueOf(10_000);
+        while (unscaled.signum() != 0) {
+            BigInteger[] qr = unscaled.divideAndRemainder(base);
+            digits.add(qr[1].intValue());
+            unscaled = qr[0];
+        }
+        int weight = digits.size() - scale / 4 - 1;
+        // trailing zero digits are not written
+        int low = 0;
+        while (low < digits.size() && digits.get(low) == 0) {
+            low++;
+        }
+        int count = digits.size() - low;
+        writeInt(8 + count * 2);
+        writeShort(count);
+        writeShort(count == 0 ? 0 : weight);
+        writeShort(sign < 0 ? 0x4000 : 0);
+        writeShort(displayScale);
+        for (int i = digits.size() - 1; i >= low; i--) {
+            writeShort(digits.get(i));
+        }
+    }
+
+    private void writeArrayBinary(ValueArray array, int elementType) throws IOException {
+        Value[] values = array.getList();
+        DataOutputStream old = dataOut;
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        dataOut = new DataOutputStream(buff);
+        try {
+            boolean hasNull = false;
+            for (Value v : values) {
+                if (v == ValueNull.INSTANCE) {
+                    hasNull = true;
+                    break;
                 }
-                byte[] data = new byte[cnt];
-                for (int i = 0, j = 0; i < length; i++) {
-                    byte b = bytes[i];
-                    if (b < 32 || b > 126) {
-                        data[j++] = '\\';
-                        data[j++] = (byte) (((b >>> 6) & 3) + '0');
-                        data[j++] = (byte) (((b >>> 3) & 7) + '0');
-                        data[j++] = (byte) ((b & 7) + '0');
-                    } else if (b == 92) {
-                        data[j++] = '\\';
-                        data[j++] = '\\';
+            }
+            int length = values.length;
+            // dimensions, flags, and type of elements
+            writeInt(length > 0 ? 1 : 0);
+            writeInt(hasNull ? 1 : 0);
+            writeInt(elementType);
+            if (length > 0) {
+                // size and lower bound
+                writeInt(length);
+                writeInt(1);
+                for (Value v : values) {
+                    if (v == ValueNull.INSTANCE) {
+                        writeInt(-1);
                     } else {
-                        data[j++] = b;
+                        writeBinaryValue(v, elementType);
                     }
                 }
-                writeInt(data.length);
-                write(data);
-                break;
             }
-            case PgServer.PG_TYPE_INT2_ARRAY:
-            case PgServer.PG_TYPE_INT4_ARRAY:
-            case PgServer.PG_TYPE_VARCHAR_ARRAY:
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                baos.write('{');
-                Value[] values = ((ValueArray) v).getList();
-                Charset encoding = getEncoding();
-                for (int i = 0; i < values.length; i++) {
-                    if (i > 0) {
-                        baos.write(',');
-                    }
-                    String s = values[i].getString();
-                    if (SHOULD_QUOTE.matcher(s).matches()) {
-                        List<String> ss = new ArrayList<>();
-                        for (String s0 : s.split("\\\\")) {
-                            ss.add(s0.replace("\"", "\\\""));
-                        }
-                        s = "\"" + String.join("\\\\", ss) + "\"";
-                    }
-                    baos.write(s.getBytes(encoding));
+        } finally {
+            dataOut = old;
+        }
+        writeInt(buff.size());
+        buff.writeTo(dataOut);
+    }
+
+    private byte[] getTextBytes(Value v, int pgType) throws IOException {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL:
+            return new byte[] { (byte) (v.getBoolean() ? 't' : 'f') };
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] bytes = v.getBytesNoCopy();
+            int length = bytes.length;
+            int cnt = length;
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b < 32 || b > 126) {
+                    cnt += 3;
+                } else if (b == 92) {
+                    cnt++;
                 }
-                baos.write('}');
-                writeInt(baos.size());
-                write(baos.toByteArray());
-                break;
-            default:
-                byte[] data = v.getString().getBytes(getEncoding());
-                writeInt(data.length);
-                write(data);
-            }
-        } else {
-            // binary
-            switch (pgType) {
-            case PgServer.PG_TYPE_BOOL:
-                writeInt(1);
-                dataOut.writeByte(v.getBoolean() ? 't' : 'f');
-                break;
-            case PgServer.PG_TYPE_INT2:
-                writeInt(2);
-                writeShort(v.getShort());
-                break;
-            case PgServer.PG_TYPE_INT4:
-                writeInt(4);
-                writeInt(v.getInt());
-                break;
-            case PgServer.PG_TYPE_INT8:
-                writeInt(8);
-                dataOut.writeLong(v.getLong());
-                break;
-            case PgServer.PG_TYPE_FLOAT4:
-                writeInt(4);
-                dataOut.writeFloat(v.getFloat());
-                break;
-            case PgServer.PG_TYPE_FLOAT8:
-                writeInt(8);
-                dataOut.writeDouble(v.getDouble());
-                break;
-            case PgServer.PG_TYPE_BYTEA: {
-                byte[] data = v.getBytesNoCopy();
-                writeInt(data.length);
-                write(data);
-                break;
             }
-            case PgServer.PG_TYPE_DATE:
-                writeInt(4);
-                writeInt((int) (toPostgreDays(((ValueDate) v).getDateValue())));
-                break;
-            case PgServer.PG_TYPE_TIME:
-                writeTimeBinary(((ValueTime) v).getNanos(), 8);
-                break;
-            case PgServer.PG_TYPE_TIMETZ: {
-                ValueTimeTimeZone t = (ValueTimeTimeZone) v;
-                long m = t.getNanos();
-                writeTimeBinary(m, 12);
-                dataOut.writeInt(-t.getTimeZoneOffsetSeconds());
-                break;
-            }
-            case PgServer.PG_TYPE_TIMESTAMP: {
-                ValueTimestamp t = (ValueTimestamp) v;
-                long m = toPostgreDays(t.getDateValue()) * 86_400;
-                long nanos = t.getTimeNanos();
-                writeTimestampBinary(m, nanos);
-                break;
-            }
-            case PgServer.PG_TYPE_TIMESTAMPTZ: {
-                ValueTimestampTimeZone t = (ValueTimestampTimeZone) v;
-                long m = toPostgreDays(t.getDateValue()) * 86_400;
-                long nanos = t.getTimeNanos() - t.getTimeZoneOffsetSeconds() * 1_000_000_000L;
-                if (nanos < 0L) {
-                    m--;
-                    nanos += DateTimeUtils.NANOS_PER_DAY;
+            byte[] data = new byte[cnt];
+            for (int i = 0, j = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b < 32 || b > 126) {
+                    data[j++] = '\\';
+                    data[j++] = (byte) (((b >>> 6) & 3) + '0');
+                    data[j++] = (byte) (((b >>> 3) & 7) + '0');
+                    data[j++] = (byte) ((b & 7) + '0');
+                } else if (b == 92) {
+                    data[j++] = '\\';
+                    data[j++] = '\\';
+                } else {
+                    data[j++] = b;
                 }
-                writeTimestampBinary(m, nanos);
-                break;
             }
-            default: throw new IllegalStateException("output binary format is undefined");
+            return data;
+        }
+        case PgServer.PG_TYPE_INT2_ARRAY:
+        case PgServer.PG_TYPE_INT4_ARRAY:
+        case PgServer.PG_TYPE_VARCHAR_ARRAY:
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            baos.write('{');
+            Value[] values = ((ValueArray) v).getList();
+            Charset encoding = getEncoding();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    baos.write(',');
+                }
+                String s = values[i].getString();
+                if (SHOULD_QUOTE.matcher(s).matches()) {
+                    List<String> ss = new ArrayList<>();
+                    for (String s0 : s.split("\\\\")) {
+                        ss.add(s0.replace("\"", "\\\""));
+                    }
+                    s = "\"" + String.join("\\\\", ss) + "\"";
+                }
+                baos.write(s.getBytes(encoding));
             }
+            baos.write('}');
+            return baos.toByteArray();
+        default:
+            return v.getString().getBytes(getEncoding());
         }
     }
 
@@ -762,39 +1132,140 @@ private void setParameter(PreparedStatement prep,
             prep.setString(col, str);
         } else {
             // binary
-            switch (pgType) {
-            case PgServer.PG_TYPE_INT2:
-                checkParamLength(2, paramLen);
-                prep.setShort(col, readShort());
-                break;
-            case PgServer.PG_TYPE_INT4:
-                checkParamLength(4, paramLen);
-                prep.setInt(col, readInt());
-                break;
-            case PgServer.PG_TYPE_INT8:
-                checkParamLength(8, paramLen);
-                prep.setLong(col, dataIn.readLong());
-                break;
-            case PgServer.PG_TYPE_FLOAT4:
-                checkParamLength(4, paramLen);
-                prep.setFloat(col, dataIn.readFloat());
-                break;
-            case PgServer.PG_TYPE_FLOAT8:
-                checkParamLength(8, paramLen);
-                prep.setDouble(col, dataIn.readDouble());
-                break;
-            case PgServer.PG_TYPE_BYTEA:
-                byte[] d1 = Utils.newBytes(paramLen);
-                readFully(d1);
-                prep.setBytes(col, d1);
-                break;
-            default:
-                server.trace("Binary format for type: "+pgType+" is unsupported");
-                byte[] d2 = Utils.newBytes(paramLen);
-                readFully(d2);
-                prep.setString(col, new String(d2, getEncoding()));
-            }
+            prep.setObject(col, readBinaryValue(pgType, paramLen));
+        }
+    }
+
+    private Value readBinaryValue(int pgType, int length) throws IOException {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL: {
+            checkParamLength(1, length);
+            byte b = readByte();
+            return ValueBoolean.get(b == 1 || b == 't');
+        }
+        case PgServer.PG_TYPE_INT2:
+            checkParamLength(2, length);
+            return ValueSmallint.get(readShort());
+        case PgServer.PG_TYPE_INT4:
+            checkParamLength(4, length);
+            return ValueInteger.get(readInt());
+        case PgServer.PG_TYPE_INT8:
+            checkParamLength(8, length);
+            return ValueBigint.get(dataIn.readLong());
+        case PgServer.PG_TYPE_FLOAT4:
+            checkParamLength(4, length);
+            return ValueReal.get(dataIn.readFloat());
+        case PgServer.PG_TYPE_FLOAT8:
+            checkParamLength(8, length);
+            return ValueDouble.get(dataIn.readDouble());
+        case PgServer.PG_TYPE_NUMERIC:
+            return readNumericBinary(length);
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] data = Utils.newBytes(length);
+            readFully(data);
+            return ValueVarbinary.getNoCopy(data);
+        }
+        case PgServer.PG_TYPE_UUID:
+            checkParamLength(16, length);
+            return ValueUuid.get(dataIn.readLong(), dataIn.readLong());
+        case PgServer.PG_TYPE_DATE:
+            checkParamLength(4, length);
+            return ValueDate.fromDateValue(DateTimeUtils.dateValueFromAbsoluteDay(readInt() + 10_957L));
+        case PgServer.PG_TYPE_TIME:
+            checkParamLength(8, length);
+            return ValueTime.fromNanos(readTimeBinary());
+        case PgServer.PG_TYPE_TIMETZ: {
+            checkParamLength(12, length);
+            long nanos = readTimeBinary();
+            return ValueTimeTimeZone.fromNanos(nanos, -readInt());
+        }
+        case PgServer.PG_TYPE_TIMESTAMP:
+        case PgServer.PG_TYPE_TIMESTAMPTZ: {
+            checkParamLength(8, length);
+            long nanos = readTimestampBinary();
+            long dateValue = DateTimeUtils.dateValueFromAbsoluteDay(
+                    Math.floorDiv(nanos, DateTimeUtils.NANOS_PER_DAY) + 10_957L);
+            long timeNanos = Math.floorMod(nanos, DateTimeUtils.NANOS_PER_DAY);
+            return pgType == PgServer.PG_TYPE_TIMESTAMP ? ValueTimestamp.fromDateValueAndNanos(dateValue, timeNanos)
+                    : ValueTimestampTimeZone.fromDateValueAndNanos(dateValue, timeNanos, 0);
+        }
+        case PgServer.PG_TYPE_INT2_ARRAY:
+        case PgServer.PG_TYPE_INT4_ARRAY:
+        case PgServer.PG_TYPE_VARCHAR_ARRAY:
+            return readArrayBinary();
+        case PgServer.PG_TYPE_JSON: {
+            byte[] data = Utils.newBytes(length);
+            readFully(data);
+            return ValueJson.fromJson(data);
+        }
+        default: {
+            byte[] data = Utils.newBytes(length);
+            readFully(data);
+            return ValueVarchar.get(new String(data, getEncoding()));
+        }
+        }
+    }
+
+    private Value readNumericBinary(int length) throws IOException {
+        int count = readShort() & 0xffff;
+        checkParamLength(8 + count * 2, length);
+        int weight = readShort();
+        int sign = readShort() & 0xffff;
+        int displayScale = readShort();
+        if (sign != 0 && sign != 0x4000) {
+            throw DbException.getInvalidValueException("numeric sign", sign);
+        }
+        BigInteger unscaled = BigInteger.ZERO;
+        BigInteger base = BigInteger.valueOf(10_000);
+        for (int i = 0; i < count; i++) {
+            unscaled = unscaled.multiply(base).add(BigInteger.valueOf(readShort()));
+        }
+        if (sign != 0) {
+            unscaled = unscaled.negate();
+        }
+        BigDecimal value = new BigDecimal(unscaled, (count - weight - 1) * 4);
+        return ValueNumeric.get(value.setScale(displayScale, RoundingMode.DOWN));
+    }
+
+    private Value readArrayBinary() throws IOException {
+        int dimensions = readInt();
+        // flags
+        readInt();
+        int elementType = readInt();
+        if (dimensions == 0) {
+            return ValueArray.get(Value.EMPTY_VALUES, null);
+        } else if (dimensions != 1) {
+            throw DbException.getUnsupportedException("multidimensional arrays");
+        }
+        int length = readInt();
+        // lower bound
+        readInt();
+        Value[] values = new Value[length];
+        for (int i = 0; i < length; i++) {
+            int elementLength = readInt();
+            values[i] = elementLength == -1 ? ValueNull.INSTANCE : readBinaryValue(elementType, elementLength);
+        }
+        return ValueArray.get(values, null);
+    }
+
+    private long readTimeBinary() throws IOException {
+        if (INTEGER_DATE_TYPES) {
+            // long format
+            return dataIn.readLong() * 1_000;
         }
+        // double format
+        return Math.round(dataIn.readDouble() * 1_000_000_000d);
+    }
+
+    private long readTimestampBinary() throws IOException {
+        if (INTEGER_DATE_TYPES) {
+            // long format
+            return dataIn.readLong() * 1_000;
+        }
+        // double format
+        double seconds = dataIn.readDouble();
+        long s = (long) Math.floor(seconds);
+        return s * 1_000_000_000L + Math.round((seconds - s) * 1_000_000_000d);
     }
 
     private static void checkParamLength(int expected, int got) {
@@ -1103,7 +1574,6 @@ private void sendMessage() throws IOException {
         dataOut.write(messageType);
         dataOut.writeInt(len + 4);
         dataOut.write(buff);
-        dataOut.flush();
     }
 
     private void sendParameterStatus(String param, String value)
@@ -1148,6 +1618,104 @@ private synchronized void cancelRequest() {
         }
     }
 
+    /**
+     * An input stream with data of CopyData messages of COPY FROM STDIN.
+     */
+    private final class CopyInputStream extends InputStream {
+
+        private int remaining;
+
+        private boolean done;
+
+        CopyInputStream() {
+        }
+
+        private boolean next() throws IOException {
+            while (remaining == 0) {
+                if (done) {
+                    return false;
+                }
+                int x = dataInRaw.read();
+                if (x < 0) {
+                    throw new EOFException();
+                }
+                int len = dataInRaw.readInt() - 4;
+                switch (x) {
+                case 'd':
+                    remaining = len;
+                    break;
+                case 'c':
+                    server.trace("CopyDone");
+                    IOUtils.skipFully(dataInRaw, len);
+                    done = true;
+                    return false;
+                case 'f': {
+                    server.trace("CopyFail");
+                    byte[] data = Utils.newBytes(len);
+                    dataInRaw.readFully(data, 0, len);
+                    done = true;
+                    int end = len > 0 && data[len - 1] == 0 ? len - 1 : len;
+                    throw DbException.fromUser("57014",
+                            "COPY from stdin failed: " + new String(data, 0, end, getEncoding()));
+                }
+                case 'H':
+                case 'S':
+                    IOUtils.skipFully(dataInRaw, len);
+                    break;
+                default:
+                    IOUtils.skipFully(dataInRaw, len);
+                    done = true;
+                    throw DbException.fromUser("08P01",
+                            "unexpected message type " + x + " during COPY from stdin");
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!next()) {
+                return -1;
+            }
+            remaining--;
+            return dataInRaw.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!next()) {
+                return -1;
+            }
+            int n = dataInRaw.read(b, off, Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            remaining -= n;
+            return n;
+        }
+
+        /**
+         * Skips the rest of the current CopyData message.
+         */
+        void skipMessage() throws IOException {
+            IOUtils.skipFully(dataInRaw, remaining);
+            remaining = 0;
+        }
+
+        /**
+         * Skips the remaining data up to the CopyDone message.
+         */
+        void skipToEnd() throws IOException {
+            while (next()) {
+                skipMessage();
+            }
+        }
+
+    }
+
     /**
      * Represents a PostgreSQL Prepared object.
      */
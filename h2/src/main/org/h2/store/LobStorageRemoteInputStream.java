@@ -7,15 +7,30 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import org.h2.api.ErrorCode;
+import org.h2.engine.Constants;
 import org.h2.engine.SessionRemote;
 import org.h2.message.DbException;
 import org.h2.mvstore.DataUtils;
+import org.h2.value.Transfer;
 
 /**
  * An input stream used by the client side of a tcp connection to fetch LOB data
- * on demand from the server.
+ * on demand from the server. The data is fetched in blocks that grow up to
+ * {@link #MAX_BLOCK_SIZE}, and the next block is requested while the current
+ * one is read.
  */
-public class LobStorageRemoteInputStream extends InputStream {
+public class LobStorageRemoteInputStream extends InputStream implements SessionRemote.PendingResponse {
+
+    /**
+     * The size of the first requested block.
+     */
+    private static final int MIN_BLOCK_SIZE = 16 * Constants.IO_BUFFER_SIZE;
+
+    /**
+     * The maximum size of a requested block.
+     */
+    private static final int MAX_BLOCK_SIZE = 1024 * 1024;
 
     private final SessionRemote sessionRemote;
 
@@ -31,6 +46,31 @@ public class LobStorageRemoteInputStream extends InputStream {
      */
     private long pos;
 
+    private int blockSize = MIN_BLOCK_SIZE;
+
+    private byte[] buffer;
+    private int bufferPos;
+    private int bufferLength;
+
+    /**
+     * Whether the next block was requested and the response was not read yet.
+     */
+    private boolean prefetching;
+
+    /**
+     * The next block, or the array to reuse for it.
+     */
+    private byte[] next;
+
+    /**
+     * The length of the next block, or -1 if it isn't available.
+     */
+    private int nextLength = -1;
+
+    private DbException prefetchError;
+
+    private boolean eof;
+
     public LobStorageRemoteInputStream(SessionRemote handler, long lobId, byte[] hmac) {
         this.sessionRemote = handler;
         this.lobId = lobId;
@@ -39,9 +79,11 @@ public LobStorageRemoteInputStream(SessionRemote handler, long lobId, byte[] hma
 
     @Override
     public int read() throws IOException {
-        byte[] buff = new byte[1];
-        int len = read(buff, 0, 1);
-        return len < 0 ? len : (buff[0] & 255);
+        if (bufferPos >= bufferLength && !fillBuffer()) {
+            return -1;
+        }
+        pos++;
+        return buffer[bufferPos++] & 255;
     }
 
     @Override
@@ -55,22 +97,121 @@ public int read(byte[] buff, int off, int length) throws IOException {
         if (length == 0) {
             return 0;
         }
-        try {
-            length = sessionRemote.readLob(lobId, hmac, pos, buff, off, length);
-        } catch (DbException e) {
-            throw DataUtils.convertToIOException(e);
-        }
-        if (length == 0) {
+        if (bufferPos >= bufferLength && !fillBuffer()) {
             return -1;
         }
+        length = Math.min(length, bufferLength - bufferPos);
+        System.arraycopy(buffer, bufferPos, buff, off, length);
+        bufferPos += length;
         pos += length;
         return length;
     }
 
     @Override
     public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        int remaining = bufferLength - bufferPos;
+        if (n <= remaining) {
+            bufferPos += (int) n;
+        } else {
+            // the buffered and the requested data are not needed
+            bufferPos = bufferLength = 0;
+            discardPrefetched();
+            eof = false;
+        }
         pos += n;
         return n;
     }
 
+    @Override
+    public int available() {
+        return bufferLength - bufferPos;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (eof) {
+            return false;
+        }
+        try {
+            synchronized (sessionRemote) {
+                if (prefetching || nextLength >= 0 || prefetchError != null) {
+                    if (prefetching) {
+                        sessionRemote.readPendingResponses(this);
+                        if (prefetching) {
+                            // the connection was re-established
+                            prefetching = false;
+                            throw DbException.get(ErrorCode.CONNECTION_BROKEN_1, "lob " + lobId);
+                        }
+                    }
+                    if (prefetchError != null) {
+                        DbException e = prefetchError;
+                        prefetchError = null;
+                        throw e;
+                    }
+                    byte[] b = buffer;
+                    buffer = next;
+                    bufferLength = nextLength;
+                    next = b;
+                    nextLength = -1;
+                } else {
+                    buffer = ensureCapacity(buffer, blockSize);
+                    bufferLength = sessionRemote.readLob(lobId, hmac, pos, buffer, 0, blockSize);
+                }
+                bufferPos = 0;
+                if (bufferLength <= 0) {
+                    bufferLength = 0;
+                    eof = true;
+                    return false;
+                }
+                if (bufferLength == blockSize) {
+                    // the data is read sequentially, use larger blocks
+                    blockSize = Math.min(blockSize << 1, MAX_BLOCK_SIZE);
+                }
+                if (!sessionRemote.isClustered()) {
+                    prefetching = sessionRemote.requestLob(lobId, hmac, pos + bufferLength, blockSize, this);
+                }
+            }
+        } catch (DbException e) {
+            throw DataUtils.convertToIOException(e);
+        }
+        return true;
+    }
+
+    private void discardPrefetched() {
+        synchronized (sessionRemote) {
+            if (prefetching) {
+                try {
+                    // the response needs to be read even if it isn't used
+                    sessionRemote.readPendingResponses(this);
+                } catch (IOException e) {
+                    // the next request fails too
+                }
+                prefetching = false;
+            }
+            nextLength = -1;
+            prefetchError = null;
+        }
+    }
+
+    @Override
+    public void readResponse(SessionRemote s, Transfer t) throws IOException {
+        prefetching = false;
+        try {
+            s.readStatus(t);
+        } catch (DbException e) {
+            prefetchError = e;
+            return;
+        }
+        int length = Math.max(t.readInt(), 0);
+        next = ensureCapacity(next, length);
+        t.readBytes(next, 0, length);
+        nextLength = length;
+    }
+
+    private static byte[] ensureCapacity(byte[] b, int length) {
+        return b != null && b.length >= length ? b : new byte[length];
+    }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.h2.index.Index;
+
+/**
+ * Numbers of rows actually read by table filters of a query. They are
+ * collected after execution of the query and are used to correct estimated
+ * costs of indexes when the same command is optimized again.
+ */
+public final class CardinalityFeedback {
+
+    /**
+     * The minimum number of actually read or estimated rows to take an
+     * observation into account.
+     */
+    private static final int MIN_ROWS = 1_000;
+
+    /**
+     * The ratio between actual and estimated values that is considered as
+     * a significant error of estimation.
+     */
+    private static final double THRESHOLD = 4d;
+
+    /**
+     * The maximum correction factor.
+     */
+    private static final double MAX_FACTOR = 1_000_000d;
+
+    /**
+     * The maximum number of additional optimizations of the same command.
+     */
+    private static final int MAX_OPTIMIZATIONS = 3;
+
+    /**
+     * Correction factors for costs of indexes.
+     */
+    private final HashMap<String, Double> factors = new HashMap<>();
+
+    private int optimizations;
+
+    private boolean changed;
+
+    /**
+     * Returns the corrected cost of the specified index.
+     *
+     * @param filter
+     *            the table filter
+     * @param index
+     *            the index
+     * @param masks
+     *            per-column comparison bit masks, or {@code null}
+     * @param cost
+     *            the estimated cost
+     * @return the corrected cost
+     */
+    public double adjustCost(TableFilter filter, Index index, int[] masks, double cost) {
+        Double factor = factors.get(getKey(filter, index, masks));
+        return factor != null ? cost * factor : cost;
+    }
+
+    /**
+     * Records the actual number of rows read by the specified table filter
+     * during the last execution and resets its counters.
+     *
+     * @param filter
+     *            the table filter
+     */
+    public void record(TableFilter filter) {
+        long lookups = filter.getLookupCount();
+        long planned = filter.getPlannedRows();
+        filter.resetLookupCount();
+        Index index = filter.getIndex();
+        if (lookups == 0 || planned < 0L || index == null) {
+            return;
+        }
+        long rows = Math.max(filter.getScanCount() - lookups, 0L);
+        if (Math.max(rows, (double) planned * lookups) < MIN_ROWS) {
+            return;
+        }
+        // compare numbers of rows per one lookup
+        double ratio = ((double) rows / lookups + 1d) / (planned + 1d);
+        if (ratio < THRESHOLD && ratio > 1d / THRESHOLD) {
+            return;
+        }
+        /*
+         * The planned number of rows is not corrected, so the ratio replaces
+         * the previous factor instead of being multiplied with it.
+         */
+        double factor = Math.min(Math.max(ratio, 1d / MAX_FACTOR), MAX_FACTOR);
+        String key = getKey(filter, index, filter.getMasks());
+        Double old = factors.put(key, factor);
+        if (old != null) {
+            double change = factor / old;
+            if (change < THRESHOLD && change > 1d / THRESHOLD) {
+                return;
+            }
+        }
+        changed = true;
+    }
+
+    /**
+     * Returns whether the command should be optimized again with the recorded
+     * values.
+     *
+     * @return whether the command should be optimized again
+     */
+    public boolean isOptimizationRequired() {
+        return changed && optimizations < MAX_OPTIMIZATIONS;
+    }
+
+    /**
+     * Notifies this object that command was optimized again.
+     */
+    public void optimized() {
+        if (changed) {
+            changed = false;
+            optimizations++;
+        }
+    }
+
+    private static String getKey(TableFilter filter, Index index, int[] masks) {
+        StringBuilder builder = new StringBuilder().append(index.getSchema().getName()).append('.')
+                .append(index.getName()).append(' ').append(filter.getTableAlias());
+        if (!index.getIndexType().isScan()) {
+            builder.append(Arrays.toString(masks));
+        }
+        return builder.toString();
+    }
+
+}
@@ -6,6 +6,7 @@
 package org.h2.table;
 
 import java.sql.ResultSetMetaData;
+import java.util.HashSet;
 import java.util.Objects;
 
 import org.h2.api.ErrorCode;
@@ -19,6 +20,7 @@
 import org.h2.expression.ValueExpression;
 import org.h2.message.DbException;
 import org.h2.result.Row;
+import org.h2.result.SearchRow;
 import org.h2.schema.Domain;
 import org.h2.schema.Schema;
 import org.h2.schema.Sequence;
@@ -72,9 +74,12 @@ public final class Column implements HasSQL, Typed, ColumnTemplate {
     private boolean isGeneratedAlways;
     private GeneratedColumnResolver generatedTableFilter;
     private int selectivity;
+    private volatile ColumnStatistics statistics;
     private String comment;
     private boolean primaryKey;
     private boolean visible = true;
+    private Expression indexExpression;
+    private RowColumnResolver indexExpressionResolver;
     private boolean rowId;
     private Domain domain;
 
@@ -149,7 +154,7 @@ public boolean equals(Object o) {
                 name == null || other.name == null) {
             return false;
         }
-        if (table != other.table) {
+        if (table != other.table || (indexExpression == null) != (other.indexExpression == null)) {
             return false;
         }
         return name.equals(other.name);
@@ -274,11 +279,17 @@ public int getColumnId() {
 
     @Override
     public String getSQL(int sqlFlags) {
+        if (indexExpression != null) {
+            return getSQL(new StringBuilder(), sqlFlags).toString();
+        }
         return rowId ? name : Parser.quoteIdentifier(name, sqlFlags);
     }
 
     @Override
     public StringBuilder getSQL(StringBuilder builder, int sqlFlags) {
+        if (indexExpression != null) {
+            return indexExpression.getUnenclosedSQL(builder.append('('), sqlFlags | NO_COLUMN_QUALIFIERS).append(')');
+        }
         return rowId ? builder.append(name) : ParserUtil.quoteIdentifier(builder, name, sqlFlags);
     }
 
@@ -314,6 +325,68 @@ public void setVisible(boolean b) {
         visible = b;
     }
 
+    /**
+     * Returns whether this column is a column of an index expression. Such
+     * columns don't belong to the list of columns of the table.
+     *
+     * @return whether this column is a column of an index expression
+     */
+    public boolean isIndexExpression() {
+        return indexExpression != null;
+    }
+
+    /**
+     * Sets the expression of this column of an index expression.
+     *
+     * @param session
+     *            the session
+     * @param expression
+     *            the expression with columns of the table, not mapped yet
+     */
+    void setIndexExpression(SessionLocal session, Expression expression) {
+        RowColumnResolver resolver = new RowColumnResolver(table);
+        expression.mapColumns(resolver, 0, Expression.MAP_INITIAL);
+        indexExpression = expression.optimize(session);
+        indexExpressionResolver = resolver;
+    }
+
+    /**
+     * Returns the SQL of the index expression of this column without column
+     * qualifiers.
+     *
+     * @return the SQL of the index expression
+     */
+    String getIndexExpressionSQL() {
+        return indexExpression.getUnenclosedSQL(new StringBuilder(), NO_COLUMN_QUALIFIERS).toString();
+    }
+
+    /**
+     * Returns whether the index expression of this column references the
+     * specified column of the table.
+     *
+     * @param column
+     *            the column of the table
+     * @return whether the column is referenced
+     */
+    boolean isIndexExpressionReferencing(Column column) {
+        HashSet<Column> columns = new HashSet<>();
+        indexExpression.isEverything(ExpressionVisitor.getColumnsVisitor(columns, table));
+        return columns.contains(column);
+    }
+
+    /**
+     * Computes the value of the index expression of this column.
+     *
+     * @param session
+     *            the session
+     * @param row
+     *            the row of the table
+     * @return the value of the index expression
+     */
+    public Value getIndexExpressionValue(SessionLocal session, SearchRow row) {
+        return indexExpressionResolver.getValue(session, indexExpression, row).convertTo(type, session);
+    }
+
     @Override
     public Domain getDomain() {
         return domain;
@@ -535,6 +608,9 @@ private String getCreateSQL(StringBuilder builder, boolean forMeta) {
         if (selectivity != 0) {
             builder.append(" SELECTIVITY ").append(selectivity);
         }
+        if (forMeta && statistics != null) {
+            statistics.getSQL(builder.append(' '));
+        }
         if (comment != null) {
             StringUtils.quoteStringSQL(builder.append(" COMMENT "), comment);
         }
@@ -684,6 +760,34 @@ public void setSelectivity(int selectivity) {
         this.selectivity = selectivity;
     }
 
+    /**
+     * Get the statistics of values of this column.
+     *
+     * @return the statistics, or {@code null} if they were not collected
+     */
+    public ColumnStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set the statistics of values of this column.
+     *
+     * @param statistics the new statistics, or {@code null}
+     */
+    public void setStatistics(ColumnStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Copy the selectivity and the statistics of values from another column.
+     *
+     * @param source the column to copy from
+     */
+    public void copyStatistics(Column source) {
+        selectivity = source.selectivity;
+        statistics = source.statistics;
+    }
+
     @Override
     public String getDefaultSQL() {
         return defaultExpression == null ? null
@@ -812,6 +916,7 @@ public void copy(Column source) {
         generatedTableFilter = source.generatedTableFilter;
         isGeneratedAlways = source.isGeneratedAlways;
         selectivity = source.selectivity;
+        statistics = source.statistics;
         primaryKey = source.primaryKey;
         visible = source.visible;
     }
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import static org.h2.util.HasSQL.DEFAULT_SQL_FLAGS;
+
+import org.h2.engine.SessionLocal;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * Statistics of values of a column collected by ANALYZE: the number of NULL
+ * values, the estimated number of distinct values, the list of the most common
+ * values with their frequencies, and an equi-depth histogram of remaining
+ * values.
+ */
+public final class ColumnStatistics {
+
+    /**
+     * The number of sampled rows.
+     */
+    private final long sampleRows;
+
+    /**
+     * The number of NULL values in sampled rows.
+     */
+    private final long nullCount;
+
+    /**
+     * The estimated number of distinct non-NULL values in the table.
+     */
+    private final long distinctCount;
+
+    /**
+     * The most common values in ascending order.
+     */
+    private final Value[] mostCommonValues;
+
+    /**
+     * The numbers of occurrences of the most common values in sampled rows.
+     */
+    private final long[] mostCommonCounts;
+
+    /**
+     * Bounds of buckets of the equi-depth histogram in ascending order, or an
+     * empty array. Each bucket contains the same number of sampled values
+     * excluding NULL and the most common values.
+     */
+    private final Value[] histogram;
+
+    /**
+     * The number of sampled values covered by the histogram.
+     */
+    private final long histogramCount;
+
+    /**
+     * Creates new column statistics.
+     *
+     * @param sampleRows
+     *            the number of sampled rows
+     * @param nullCount
+     *            the number of NULL values in sampled rows
+     * @param distinctCount
+     *            the estimated number of distinct non-NULL values in the table
+     * @param mostCommonValues
+     *            the most common values in ascending order
+     * @param mostCommonCounts
+     *            the numbers of occurrences of the most common values
+     * @param histogram
+     *            bounds of buckets of the histogram in ascending order
+     */
+    public ColumnStatistics(long sampleRows, long nullCount, long distinctCount, Value[] mostCommonValues,
+            long[] mostCommonCounts, Value[] histogram) {
+        this.sampleRows = sampleRows;
+        this.nullCount = nullCount;
+        this.distinctCount = distinctCount;
+        this.mostCommonValues = mostCommonValues;
+        this.mostCommonCounts = mostCommonCounts;
+        this.histogram = histogram;
+        long count = sampleRows - nullCount;
+        for (long c : mostCommonCounts) {
+            count -= c;
+        }
+        histogramCount = Math.max(count, 0L);
+    }
+
+    /**
+     * Returns the estimated fraction of rows with the specified value.
+     *
+     * @param session
+     *            the session
+     * @param value
+     *            the value, or {@code null} if value is not known
+     * @return the estimated fraction of rows
+     */
+    public double getEqualityFraction(SessionLocal session, Value value) {
+        if (value == null) {
+            return (double) (sampleRows - nullCount) / sampleRows / Math.max(distinctCount, 1L);
+        } else if (value == ValueNull.INSTANCE) {
+            return (double) nullCount / sampleRows;
+        }
+        int index = binarySearch(session, mostCommonValues, value);
+        if (index >= 0) {
+            return (double) mostCommonCounts[index] / sampleRows;
+        }
+        int length = histogram.length;
+        if (histogramCount == 0L || length >= 2 && (session.compare(value, histogram[0]) < 0
+                || session.compare(value, histogram[length - 1]) > 0)) {
+            // The value wasn't sampled or was inserted after ANALYZE, estimate
+            // it as a value that occurs only once in sampled rows
+            return 1d / Math.max(sampleRows, 1L);
+        }
+        return (double) histogramCount / sampleRows / Math.max(distinctCount - mostCommonValues.length, 1L);
+    }
+
+    /**
+     * Returns the estimated fraction of rows with values in the specified
+     * range.
+     *
+     * @param session
+     *            the session
+     * @param min
+     *            the lower bound, or {@code null}
+     * @param max
+     *            the upper bound, or {@code null}
+     * @return the estimated fraction of rows
+     */
+    public double getRangeFraction(SessionLocal session, Value min, Value max) {
+        long count = 0L;
+        for (int i = 0, l = mostCommonValues.length; i < l; i++) {
+            Value v = mostCommonValues[i];
+            if ((min == null || session.compare(v, min) >= 0) && (max == null || session.compare(v, max) <= 0)) {
+                count += mostCommonCounts[i];
+            }
+        }
+        double fraction = (double) count / sampleRows;
+        if (histogramCount > 0L) {
+            double position;
+            if (histogram.length < 2) {
+                // Unknown distribution, the same estimation as without statistics
+                position = min != null && max != null ? 0.25d : 0.33d;
+            } else {
+                position = Math.max((max != null ? getPosition(session, max) : 1d)
+                        - (min != null ? getPosition(session, min) : 0d), 0d);
+            }
+            fraction += position * histogramCount / sampleRows;
+        }
+        return fraction;
+    }
+
+    /**
+     * Returns the position of the specified value in the histogram.
+     *
+     * @param session
+     *            the session
+     * @param value
+     *            the value
+     * @return the position, from 0 to 1
+     */
+    private double getPosition(SessionLocal session, Value value) {
+        int buckets = histogram.length - 1;
+        if (session.compare(value, histogram[0]) <= 0) {
+            return 0d;
+        } else if (session.compare(value, histogram[buckets]) >= 0) {
+            return 1d;
+        }
+        int index = binarySearch(session, histogram, value);
+        if (index >= 0) {
+            return (double) index / buckets;
+        }
+        int bucket = -index - 2;
+        Value low = histogram[bucket], high = histogram[bucket + 1];
+        double part = 0.5d;
+        if (DataType.isNumericType(value.getValueType()) && DataType.isNumericType(low.getValueType())) {
+            double l = low.getDouble(), h = high.getDouble();
+            if (h > l) {
+                part = Math.min(Math.max((value.getDouble() - l) / (h - l), 0d), 1d);
+            }
+        }
+        return (bucket + part) / buckets;
+    }
+
+    private static int binarySearch(SessionLocal session, Value[] array, Value value) {
+        int low = 0, high = array.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = session.compare(array[mid], value);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the estimated number of distinct non-NULL values in the table.
+     *
+     * @return the estimated number of distinct values
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * Appends the SQL representation of these statistics to the specified
+     * builder.
+     *
+     * @param builder
+     *            string builder
+     * @return the specified string builder
+     */
+    public StringBuilder getSQL(StringBuilder builder) {
+        builder.append("STATISTICS(").append(sampleRows).append(", ").append(nullCount).append(", ")
+                .append(distinctCount).append(", ");
+        writeValues(builder, mostCommonValues).append(", (");
+        for (int i = 0, l = mostCommonCounts.length; i < l; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(mostCommonCounts[i]);
+        }
+        builder.append("), ");
+        return writeValues(builder, histogram).append(')');
+    }
+
+    private static StringBuilder writeValues(StringBuilder builder, Value[] values) {
+        builder.append('(');
+        for (int i = 0, l = values.length; i < l; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            values[i].getSQL(builder, DEFAULT_SQL_FLAGS);
+        }
+        return builder.append(')');
+    }
+
+}
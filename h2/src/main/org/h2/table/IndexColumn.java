@@ -48,11 +48,31 @@ public class IndexColumn {
      * @return the specified string builder
      */
     public static StringBuilder writeColumns(StringBuilder builder, IndexColumn[] columns, int sqlFlags) {
-        for (int i = 0, l = columns.length; i < l; i++) {
-            if (i > 0) {
+        return writeColumns(builder, columns, 0, columns.length, sqlFlags);
+    }
+
+    /**
+     * Appends the specified columns to the specified builder.
+     *
+     * @param builder
+     *            string builder
+     * @param columns
+     *            index columns
+     * @param startOffset
+     *            start offset, inclusive
+     * @param endOffset
+     *            end offset, exclusive
+     * @param sqlFlags
+     *            formatting flags
+     * @return the specified string builder
+     */
+    public static StringBuilder writeColumns(StringBuilder builder, IndexColumn[] columns, int startOffset,
+            int endOffset, int sqlFlags) {
+        for (int i = startOffset; i < endOffset; i++) {
+            if (i > startOffset) {
                 builder.append(", ");
             }
-            columns[i].getSQL(builder,  sqlFlags);
+            columns[i].getSQL(builder, sqlFlags);
         }
         return builder;
     }
@@ -156,12 +176,15 @@ public static IndexColumn[] wrap(Column[] columns) {
     /**
      * Map the columns using the column names and the specified table.
      *
-     * @param indexColumns the column list with column names set
+     * @param indexColumns the column list with column names set, or with
+     *            columns of index expressions
      * @param table the table from where to map the column names to columns
      */
     public static void mapColumns(IndexColumn[] indexColumns, Table table) {
         for (IndexColumn col : indexColumns) {
-            col.column = table.getColumn(col.columnName);
+            if (col.columnName != null) {
+                col.column = table.getColumn(col.columnName);
+            }
         }
     }
 
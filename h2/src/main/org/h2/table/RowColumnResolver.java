@@ -0,0 +1,109 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.result.SearchRow;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+
+/**
+ * Column resolver that reads values of columns of a table from a row passed to
+ * {@link #getValue(SessionLocal, Expression, SearchRow)}. The row is visible
+ * only to the evaluating thread, so an expression mapped to this resolver may
+ * be evaluated concurrently.
+ */
+public final class RowColumnResolver implements ColumnResolver {
+
+    private final Table table;
+
+    private final TableFilter filter;
+
+    private final ThreadLocal<SearchRow> current = new ThreadLocal<>();
+
+    /**
+     * Creates a new column resolver for the specified table.
+     *
+     * @param table
+     *            the table
+     */
+    public RowColumnResolver(Table table) {
+        this.table = table;
+        filter = null;
+    }
+
+    /**
+     * Creates a new column resolver for the table of the specified table
+     * filter. The filter is returned from {@link #getTableFilter()}, so index
+     * conditions can be created from expressions mapped to this resolver, but
+     * values are still read only from the passed rows.
+     *
+     * @param filter
+     *            the table filter
+     */
+    public RowColumnResolver(TableFilter filter) {
+        this.table = filter.getTable();
+        this.filter = filter;
+    }
+
+    /**
+     * Evaluates the specified expression mapped to this resolver for the
+     * specified row.
+     *
+     * @param session
+     *            the session
+     * @param expression
+     *            the expression
+     * @param row
+     *            the row of the table
+     * @return the value of the expression
+     */
+    public Value getValue(SessionLocal session, Expression expression, SearchRow row) {
+        SearchRow old = current.get();
+        current.set(row);
+        try {
+            return expression.getValue(session);
+        } finally {
+            if (old == null) {
+                current.remove();
+            } else {
+                current.set(old);
+            }
+        }
+    }
+
+    @Override
+    public Column[] getColumns() {
+        return table.getColumns();
+    }
+
+    @Override
+    public Column findColumn(String name) {
+        return table.findColumn(name);
+    }
+
+    @Override
+    public Value getValue(Column column) {
+        SearchRow row = current.get();
+        int columnId = column.getColumnId();
+        if (columnId == -1) {
+            return ValueBigint.get(row.getKey());
+        }
+        return row.getValue(columnId);
+    }
+
+    @Override
+    public TableFilter getTableFilter() {
+        return filter;
+    }
+
+    @Override
+    public Column getRowIdColumn() {
+        return table.getRowIdColumn();
+    }
+
+}
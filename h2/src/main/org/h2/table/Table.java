@@ -13,6 +13,7 @@
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.h2.api.ErrorCode;
+import org.h2.command.Parser;
 import org.h2.command.Prepared;
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.constraint.Constraint;
@@ -22,9 +23,13 @@
 import org.h2.engine.Right;
 import org.h2.engine.SessionLocal;
 import org.h2.engine.UndoLogRecord;
+import org.h2.expression.Expression;
 import org.h2.expression.ExpressionVisitor;
+import org.h2.index.BitmapIndex;
+import org.h2.index.BitmapIndexCombination;
 import org.h2.index.Index;
 import org.h2.index.IndexType;
+import org.h2.index.PartialIndexCondition;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.result.DefaultRow;
@@ -38,6 +43,7 @@
 import org.h2.schema.SchemaObject;
 import org.h2.schema.Sequence;
 import org.h2.schema.TriggerObject;
+import org.h2.util.HasSQL;
 import org.h2.util.Utils;
 import org.h2.value.CompareMode;
 import org.h2.value.Value;
@@ -90,6 +96,7 @@ public abstract class Table extends SchemaObject {
     private boolean checkForeignKeyConstraints = true;
     private boolean onCommitDrop, onCommitTruncate;
     private volatile Row nullRow;
+    private volatile Column[] indexExpressionColumns = new Column[0];
     private RowFactory rowFactory = RowFactory.getRowFactory();
     private boolean tableExpression;
 
@@ -160,6 +167,56 @@ public abstract Index addIndex(SessionLocal session, String indexName,
             int indexId, IndexColumn[] cols, IndexType indexType,
             boolean create, String indexComment);
 
+    /**
+     * Create an index with included columns for this table. Tables that
+     * support included columns override this method, other tables throw an
+     * exception if some columns of the index aren't key columns.
+     *
+     * @param session the session
+     * @param indexName the name of the index
+     * @param indexId the id
+     * @param cols the index columns
+     * @param keyColumnCount the number of leading key columns, remaining
+     *            columns are included columns
+     * @param indexType the index type
+     * @param create whether this is a new index
+     * @param indexComment the comment
+     * @return the index
+     */
+    public Index addIndex(SessionLocal session, String indexName, int indexId, IndexColumn[] cols,
+            int keyColumnCount, IndexType indexType, boolean create, String indexComment) {
+        if (keyColumnCount != cols.length) {
+            throw DbException.getUnsupportedException("INCLUDE");
+        }
+        return addIndex(session, indexName, indexId, cols, indexType, create, indexComment);
+    }
+
+    /**
+     * Create a partial index for this table. Tables that support partial
+     * indexes override this method, other tables throw an exception if a
+     * condition is specified.
+     *
+     * @param session the session
+     * @param indexName the name of the index
+     * @param indexId the id
+     * @param cols the index columns
+     * @param keyColumnCount the number of leading key columns, remaining
+     *            columns are included columns
+     * @param indexType the index type
+     * @param create whether this is a new index
+     * @param indexComment the comment
+     * @param condition the condition of a partial index, or {@code null}
+     * @return the index
+     */
+    public Index addIndex(SessionLocal session, String indexName, int indexId, IndexColumn[] cols,
+            int keyColumnCount, IndexType indexType, boolean create, String indexComment,
+            PartialIndexCondition condition) {
+        if (condition != null) {
+            throw DbException.getUnsupportedException("Partial index");
+        }
+        return addIndex(session, indexName, indexId, cols, keyColumnCount, indexType, create, indexComment);
+    }
+
     /**
      * Get the given row.
      *
@@ -644,7 +701,11 @@ public void dropMultipleColumnsConstraintsAndIndexes(SessionLocal session,
                     if (index.getCreateSQL() == null) {
                         continue;
                     }
-                    if (index.getColumnIndex(col) < 0) {
+                    if (index.getColumnIndex(col) < 0 && !isReferencedByIndexExpression(index, col)) {
+                        PartialIndexCondition condition = index.getCondition();
+                        if (condition != null && condition.getColumns().contains(col)) {
+                            throw DbException.get(ErrorCode.COLUMN_IS_REFERENCED_1, index.getTraceSQL());
+                        }
                         continue;
                     }
                     if (index.getColumns().length == 1) {
@@ -669,6 +730,15 @@ public void dropMultipleColumnsConstraintsAndIndexes(SessionLocal session,
         }
     }
 
+    private static boolean isReferencedByIndexExpression(Index index, Column column) {
+        for (Column c : index.getColumns()) {
+            if (c.isIndexExpression() && c.isIndexExpressionReferencing(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public RowFactory getRowFactory() {
         return rowFactory;
     }
@@ -702,6 +772,16 @@ public Row getTemplateRow() {
         return createRow(new Value[getColumns().length], DefaultRow.MEMORY_CALCULATE);
     }
 
+    /**
+     * Get a new row object for index searches. The row has place for values
+     * of all columns and of all index expressions of this table.
+     *
+     * @return the row object
+     */
+    public SearchRow getSearchTemplateRow() {
+        return new DefaultRow(new Value[getSearchRowColumnCount()]);
+    }
+
     /**
      * Get a new simple row object.
      *
@@ -797,6 +877,63 @@ public boolean doesColumnExist(String columnName) {
         return columnMap.containsKey(columnName);
     }
 
+    /**
+     * Returns the column of an index expression with the same expression as the
+     * specified one. A new column is created if it doesn't exist yet. Such
+     * columns aren't columns of the table, their ids follow ids of columns of
+     * the table, and they exist only in memory.
+     *
+     * @param session the session
+     * @param expression the optimized expression with columns of this table
+     * @return the column of the index expression
+     */
+    public synchronized Column getIndexExpressionColumn(SessionLocal session, Expression expression) {
+        Column column = findIndexExpressionColumn(expression);
+        if (column == null) {
+            Column[] expressionColumns = indexExpressionColumns;
+            int count = expressionColumns.length;
+            String sql = expression.getUnenclosedSQL(new StringBuilder(), HasSQL.NO_COLUMN_QUALIFIERS).toString();
+            column = new Column(sql, expression.getType(), this, columns.length + count);
+            // the column needs own copy of the expression
+            column.setIndexExpression(session, new Parser(session).parseExpression(sql));
+            expressionColumns = Arrays.copyOf(expressionColumns, count + 1);
+            expressionColumns[count] = column;
+            indexExpressionColumns = expressionColumns;
+        }
+        return column;
+    }
+
+    /**
+     * Returns the column of an index expression with the same expression as the
+     * specified one.
+     *
+     * @param expression the optimized expression with columns of this table
+     * @return the column of the index expression, or {@code null}
+     */
+    public Column findIndexExpressionColumn(Expression expression) {
+        Column[] expressionColumns = indexExpressionColumns;
+        if (expressionColumns.length > 0) {
+            String sql = expression.getUnenclosedSQL(new StringBuilder(), HasSQL.NO_COLUMN_QUALIFIERS).toString();
+            for (Column column : expressionColumns) {
+                if (sql.equals(column.getIndexExpressionSQL())) {
+                    return column;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of column ids that may be used in search rows and
+     * masks of index conditions: ids of columns of this table followed by ids
+     * of columns of index expressions.
+     *
+     * @return the number of column ids
+     */
+    public int getSearchRowColumnCount() {
+        return columns.length + indexExpressionColumns.length;
+    }
+
     /**
      * Returns first identity column, or {@code null}.
      *
@@ -829,6 +966,10 @@ public PlanItem getBestPlanItem(SessionLocal session, int[] masks,
         PlanItem item = new PlanItem();
         item.setIndex(getScanIndex(session));
         item.cost = item.getIndex().getCost(session, null, filters, filter, null, allColumnsSet);
+        TableFilter tableFilter = filters != null ? filters[filter] : null;
+        if (tableFilter != null) {
+            item.cost = tableFilter.adjustCost(item.getIndex(), null, item.cost);
+        }
         Trace t = session.getTrace();
         if (t.isDebugEnabled()) {
             t.debug("Table      :     potential plan item cost {0} index {1}",
@@ -838,28 +979,74 @@ public PlanItem getBestPlanItem(SessionLocal session, int[] masks,
         IndexHints indexHints = getIndexHints(filters, filter);
 
         if (indexes != null && masks != null) {
+            ArrayList<Index> bitmapIndexes = null;
             for (int i = 1, size = indexes.size(); i < size; i++) {
                 Index index = indexes.get(i);
 
-                if (isIndexExcludedByHints(indexHints, index)) {
+                if (isIndexExcludedByHints(indexHints, index) || !index.isUsableFor(session, tableFilter)) {
                     continue;
                 }
 
                 double cost = index.getCost(session, masks, filters, filter,
                         sortOrder, allColumnsSet);
-                if (t.isDebugEnabled()) {
-                    t.debug("Table      :     potential plan item cost {0} index {1}",
-                            cost, index.getPlanSQL());
-                }
-                if (cost < item.cost) {
-                    item.cost = cost;
-                    item.setIndex(index);
+                if (index instanceof BitmapIndex && cost < Long.MAX_VALUE
+                        && masks[index.getColumns()[0].getColumnId()] != 0) {
+                    bitmapIndexes = addBitmapIndex(bitmapIndexes, index);
                 }
+                checkPlanItem(t, item, tableFilter, masks, index, cost);
+            }
+            if (bitmapIndexes != null && bitmapIndexes.size() > 1) {
+                Index index = new BitmapIndexCombination(this, bitmapIndexes.toArray(new Index[0]));
+                checkPlanItem(t, item, tableFilter, masks, index,
+                        index.getCost(session, masks, filters, filter, sortOrder, allColumnsSet));
             }
         }
         return item;
     }
 
+    private static void checkPlanItem(Trace t, PlanItem item, TableFilter tableFilter, int[] masks, Index index,
+            double cost) {
+        if (tableFilter != null) {
+            cost = tableFilter.adjustCost(index, masks, cost);
+        }
+        if (t.isDebugEnabled()) {
+            t.debug("Table      :     potential plan item cost {0} index {1}",
+                    cost, index.getPlanSQL());
+        }
+        if (cost < item.cost) {
+            item.cost = cost;
+            item.setIndex(index);
+        }
+    }
+
+    /**
+     * Adds an index that can return sets of row keys to the list of indexes
+     * that may be combined. Only one index with the same first column is
+     * kept, bitmap indexes are preferred.
+     *
+     * @param bitmapIndexes the list of indexes, or {@code null}
+     * @param index the index to add, conditions on its first column must exist
+     * @return the list of indexes
+     */
+    private static ArrayList<Index> addBitmapIndex(ArrayList<Index> bitmapIndexes, Index index) {
+        if (bitmapIndexes == null) {
+            bitmapIndexes = Utils.newSmallArrayList();
+        } else {
+            Column column = index.getColumns()[0];
+            for (int i = 0, size = bitmapIndexes.size(); i < size; i++) {
+                Index old = bitmapIndexes.get(i);
+                if (old.getColumns()[0] == column) {
+                    if (index.getIndexType().isBitmap() && !old.getIndexType().isBitmap()) {
+                        bitmapIndexes.set(i, index);
+                    }
+                    return bitmapIndexes;
+                }
+            }
+        }
+        bitmapIndexes.add(index);
+        return bitmapIndexes;
+    }
+
     private static boolean isIndexExcludedByHints(IndexHints indexHints, Index index) {
         return indexHints != null && !indexHints.allowIndex(index);
     }
@@ -1274,6 +1461,9 @@ public Index getIndexForColumn(Column column,
                 if (needFindNext && !index.canFindNext()) {
                     continue;
                 }
+                if (index.getCondition() != null) {
+                    continue;
+                }
                 // choose the minimal covering index with the needed first
                 // column to work consistently with execution plan from
                 // Optimizer
@@ -6,9 +6,11 @@
 package org.h2.table;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.h2.api.ErrorCode;
@@ -18,8 +20,13 @@
 import org.h2.engine.Right;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
+import org.h2.index.BitmapIndex;
+import org.h2.index.BitmapIndexCombination;
+import org.h2.index.BitmapIndexUnion;
 import org.h2.index.Index;
 import org.h2.index.IndexCondition;
 import org.h2.index.IndexCursor;
@@ -73,6 +80,9 @@ public class TableFilter implements ColumnResolver {
     private final IndexHints indexHints;
     private int[] masks;
     private int scanCount;
+    private int lookupCount;
+    private long plannedRows = -1L;
+    private CardinalityFeedback cardinalityFeedback;
     private boolean evaluatable;
 
     /**
@@ -90,6 +100,13 @@ public class TableFilter implements ColumnResolver {
      */
     private final ArrayList<IndexCondition> indexConditions = Utils.newSmallArrayList();
 
+    /**
+     * Lists of index conditions for each operand of OR conditions, or
+     * {@code null}. Rows that match any of them can be found with a union of
+     * row keys from different indexes.
+     */
+    private ArrayList<List<ArrayList<IndexCondition>>> indexConditionUnions;
+
     /**
      * Whether new window conditions should not be accepted.
      */
@@ -228,10 +245,10 @@ public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filte
             item1 = new PlanItem();
             item1.setIndex(table.getScanIndex(s, null, filters, filter,
                     sortOrder, allColumnsSet));
-            item1.cost = item1.getIndex().getCost(s, null, filters, filter,
-                    sortOrder, allColumnsSet);
+            item1.cost = adjustCost(item1.getIndex(), null, item1.getIndex().getCost(s, null, filters, filter,
+                    sortOrder, allColumnsSet));
         }
-        int len = table.getColumns().length;
+        int len = table.getSearchRowColumnCount();
         int[] masks = new int[len];
         for (IndexCondition condition : indexConditions) {
             if (condition.isEvaluatable()) {
@@ -256,6 +273,22 @@ public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filte
             item = item1;
         }
 
+        if (masks != null && indexConditionUnions != null) {
+            for (List<ArrayList<IndexCondition>> union : indexConditionUnions) {
+                Index index = getIndexUnion(s, union, filters, filter, allColumnsSet);
+                if (index != null) {
+                    double cost = adjustCost(index, masks,
+                            index.getCost(s, masks, filters, filter, sortOrder, allColumnsSet));
+                    if (cost < item.cost) {
+                        item = new PlanItem();
+                        item.cost = cost;
+                        item.setIndex(index);
+                        item.setMasks(masks);
+                    }
+                }
+            }
+        }
+
         if (nestedJoin != null) {
             setEvaluatable(true);
             item.setNestedJoinPlan(nestedJoin.getBestPlanItem(s, filters, filter, allColumnsSet));
@@ -276,6 +309,64 @@ public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filte
         return item;
     }
 
+    /**
+     * Creates a union of indexes for the specified lists of index conditions
+     * if an index that can return sets of row keys may be used for each of
+     * them.
+     *
+     * @param s the session
+     * @param union the lists of index conditions for each operand of OR
+     *            condition
+     * @param filters all joined table filters
+     * @param filter the current table filter index
+     * @param allColumnsSet the set of all columns
+     * @return the union of indexes, or {@code null}
+     */
+    private Index getIndexUnion(SessionLocal s, List<ArrayList<IndexCondition>> union, TableFilter[] filters,
+            int filter, AllColumnsForPlan allColumnsSet) {
+        int length = union.size(), count = 0;
+        Index[] indexes = new Index[length];
+        int[][] unionMasks = new int[length][];
+        ArrayList<ArrayList<IndexCondition>> unionConditions = new ArrayList<>(length);
+        int len = table.getSearchRowColumnCount();
+        loop: for (ArrayList<IndexCondition> conditions : union) {
+            int[] masks = new int[len];
+            ArrayList<IndexCondition> evaluatable = Utils.newSmallArrayList();
+            for (IndexCondition condition : conditions) {
+                if (condition.isEvaluatable()) {
+                    if (condition.isAlwaysFalse()) {
+                        // No rows match this operand
+                        continue loop;
+                    }
+                    int id = condition.getColumn().getColumnId();
+                    if (id >= 0) {
+                        masks[id] |= condition.getMask(conditions);
+                        evaluatable.add(condition);
+                    }
+                }
+            }
+            if (evaluatable.isEmpty()) {
+                return null;
+            }
+            Index index = table.getBestPlanItem(s, masks, filters, filter, null, allColumnsSet).getIndex();
+            if (!(index instanceof BitmapIndex || index instanceof BitmapIndexCombination)
+                    || index.isSkipScan(s, masks, this)) {
+                return null;
+            }
+            indexes[count] = index;
+            unionMasks[count++] = masks;
+            unionConditions.add(evaluatable);
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (count < length) {
+            indexes = Arrays.copyOf(indexes, count);
+            unionMasks = Arrays.copyOf(unionMasks, count);
+        }
+        return new BitmapIndexUnion(table, indexes, unionMasks, unionConditions);
+    }
+
     /**
      * Set what plan item (index, cost, masks) to use.
      *
@@ -289,6 +380,8 @@ public void setPlanItem(PlanItem item) {
         }
         setIndex(item.getIndex());
         masks = item.getMasks();
+        cursor.setSkipScan(index.isSkipScan(session, masks, this));
+        plannedRows = index.getEstimatedRowCount(session, masks, this);
         if (nestedJoin != null) {
             if (item.getNestedJoinPlan() != null) {
                 nestedJoin.setPlanItem(item.getNestedJoinPlan());
@@ -332,7 +425,9 @@ public void prepare() {
             if (!condition.isAlwaysFalse()) {
                 Column col = condition.getColumn();
                 if (col.getColumnId() >= 0) {
-                    if (index.getColumnIndex(col) < 0) {
+                    // included columns of the index can't be used too
+                    int idx = index.getColumnIndex(col);
+                    if (idx < 0 || idx >= index.getKeyColumnCount()) {
                         indexConditions.remove(i);
                         i--;
                     }
@@ -367,6 +462,7 @@ public void prepare() {
     public void startQuery(SessionLocal s) {
         this.session = s;
         scanCount = 0;
+        lookupCount = 0;
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
@@ -399,6 +495,7 @@ public boolean next() {
             return false;
         } else if (state == BEFORE_FIRST) {
             cursor.find(session, indexConditions);
+            lookupCount++;
             if (!cursor.isAlwaysFalse()) {
                 if (nestedJoin != null) {
                     nestedJoin.reset();
@@ -548,6 +645,47 @@ public String getTableAlias() {
         return table.getName();
     }
 
+    /**
+     * Returns a column of this table filter to be used in index conditions
+     * for the specified expression. The expression may be a column of this
+     * table filter or an expression of an index of the table.
+     *
+     * @param expression the expression
+     * @return the column expression, or {@code null}
+     */
+    public ExpressionColumn getIndexConditionColumn(Expression expression) {
+        if (expression instanceof ExpressionColumn) {
+            ExpressionColumn c = (ExpressionColumn) expression;
+            return c.getTableFilter() == this ? c : null;
+        }
+        if (expression.isConstant() || !hasOnlyOwnColumns(expression)
+                || !expression.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)) {
+            return null;
+        }
+        Column column = table.findIndexExpressionColumn(expression);
+        return column != null ? new ExpressionColumn(session.getDatabase(), column) : null;
+    }
+
+    private boolean hasOnlyOwnColumns(Expression expression) {
+        int count = expression.getSubexpressionCount();
+        if (count == 0) {
+            return expression instanceof ExpressionColumn
+                    && ((ExpressionColumn) expression).getTableFilter() == this;
+        }
+        boolean hasColumns = false;
+        for (int i = 0; i < count; i++) {
+            Expression e = expression.getSubexpression(i);
+            if (e.isConstant()) {
+                continue;
+            }
+            if (!hasOnlyOwnColumns(e)) {
+                return false;
+            }
+            hasColumns = true;
+        }
+        return hasColumns;
+    }
+
     /**
      * Add an index condition.
      *
@@ -559,6 +697,40 @@ public void addIndexCondition(IndexCondition condition) {
         }
     }
 
+    /**
+     * Add lists of index conditions created from each operand of an OR
+     * condition. Nothing is added if index conditions can't be created for
+     * some operand.
+     *
+     * @param session the session
+     * @param operands the operands of the OR condition
+     */
+    public void addIndexConditionUnion(SessionLocal session, List<Expression> operands) {
+        if (doneWithIndexConditions) {
+            return;
+        }
+        int size = indexConditions.size(), count = operands.size();
+        int unionCount = indexConditionUnions != null ? indexConditionUnions.size() : 0;
+        ArrayList<ArrayList<IndexCondition>> union = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            operands.get(i).createIndexConditions(session, this);
+            // Nested unions aren't used
+            if (indexConditionUnions != null) {
+                indexConditionUnions.subList(unionCount, indexConditionUnions.size()).clear();
+            }
+            List<IndexCondition> added = indexConditions.subList(size, indexConditions.size());
+            if (added.isEmpty()) {
+                return;
+            }
+            union.add(new ArrayList<>(added));
+            added.clear();
+        }
+        if (indexConditionUnions == null) {
+            indexConditionUnions = Utils.newSmallArrayList();
+        }
+        indexConditionUnions.add(union);
+    }
+
     /**
      * Used to reject all additional index conditions.
      */
@@ -787,6 +959,9 @@ public StringBuilder getPlanSQL(StringBuilder builder, boolean isJoin, int sqlFl
                 planBuilder.append('\n');
             }
             StringUtils.indent(builder, planBuilder.append(" */").toString(), 4, false);
+            if (cursor.isSkipScan()) {
+                builder.append("\n    /* skip scan */");
+            }
         }
         if (isJoin) {
             builder.append("\n    ON ");
@@ -830,6 +1005,70 @@ public int[] getMasks() {
         return masks;
     }
 
+    /**
+     * Returns the number of rows read from the index cursor (including the
+     * final attempts without a row) since the start of the query.
+     *
+     * @return the number of reads
+     */
+    int getScanCount() {
+        return scanCount;
+    }
+
+    /**
+     * Returns the number of index lookups since the start of the query or since
+     * the last invocation of {@link #resetLookupCount()}.
+     *
+     * @return the number of index lookups
+     */
+    int getLookupCount() {
+        return lookupCount;
+    }
+
+    /**
+     * Resets the number of index lookups.
+     */
+    void resetLookupCount() {
+        lookupCount = 0;
+    }
+
+    /**
+     * Returns the estimated number of rows read by one lookup in the selected
+     * index, or a negative value if it is not known.
+     *
+     * @return the estimated number of rows read by one lookup
+     */
+    long getPlannedRows() {
+        return plannedRows;
+    }
+
+    /**
+     * Sets the actual numbers of rows from previous executions of the command.
+     *
+     * @param cardinalityFeedback
+     *            the actual numbers of rows, or {@code null}
+     */
+    public void setCardinalityFeedback(CardinalityFeedback cardinalityFeedback) {
+        this.cardinalityFeedback = cardinalityFeedback;
+    }
+
+    /**
+     * Corrects the estimated cost of the specified index using actual numbers
+     * of rows from previous executions of the command, if they are known.
+     *
+     * @param index
+     *            the index
+     * @param masks
+     *            per-column comparison bit masks, or {@code null}
+     * @param cost
+     *            the estimated cost
+     * @return the corrected cost
+     */
+    double adjustCost(Index index, int[] masks, double cost) {
+        CardinalityFeedback feedback = cardinalityFeedback;
+        return feedback != null ? feedback.adjustCost(this, index, masks, cost) : cost;
+    }
+
     public ArrayList<IndexCondition> getIndexConditions() {
         return indexConditions;
     }
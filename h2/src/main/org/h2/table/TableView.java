@@ -16,6 +16,7 @@
 import org.h2.command.ddl.CreateTableData;
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.command.query.Query;
+import org.h2.command.query.Select;
 import org.h2.engine.Database;
 import org.h2.engine.DbObject;
 import org.h2.engine.SessionLocal;
@@ -27,6 +28,7 @@
 import org.h2.index.IndexType;
 import org.h2.index.ViewIndex;
 import org.h2.message.DbException;
+import org.h2.result.LocalResult;
 import org.h2.result.ResultInterface;
 import org.h2.result.Row;
 import org.h2.result.SortOrder;
@@ -59,6 +61,9 @@ public class TableView extends Table {
     private ResultInterface recursiveResult;
     private boolean isRecursiveQueryDetected;
     private boolean isTableExpression;
+    private Boolean materialized;
+    private int referenceCount;
+    private int materializedState;
 
     public TableView(Schema schema, int id, String name, String querySQL,
             ArrayList<Parameter> params, Column[] columnTemplates, SessionLocal session,
@@ -102,6 +107,7 @@ private synchronized void init(String querySQL, ArrayList<Parameter> params,
         this.allowRecursive = allowRecursive;
         this.isRecursiveQueryDetected = false;
         this.isTableExpression = isTableExpression;
+        materializedState = 0;
         index = new ViewIndex(this, querySQL, params, allowRecursive);
         initColumnsAndTables(session, literalsChecked);
     }
@@ -390,6 +396,9 @@ public void removeChildrenAndResources(SessionLocal session) {
         super.removeChildrenAndResources(session);
         database.removeMeta(session, getId());
         querySQL = null;
+        if (index != null) {
+            index.close(session);
+        }
         index = null;
         clearIndexCaches(database);
         invalidate();
@@ -556,6 +565,72 @@ public boolean isRecursive() {
         return allowRecursive;
     }
 
+    /**
+     * Set the materialization hint of a common table expression.
+     *
+     * @param materialized {@code true} for MATERIALIZED, {@code false} for NOT
+     *            MATERIALIZED, or {@code null} if the hint wasn't specified
+     */
+    public void setMaterialized(Boolean materialized) {
+        this.materialized = materialized;
+        materializedState = 0;
+    }
+
+    /**
+     * Set the number of references to this common table expression from the
+     * statement where it is defined.
+     *
+     * @param referenceCount the number of references
+     */
+    public void setReferenceCount(int referenceCount) {
+        this.referenceCount = referenceCount;
+        materializedState = 0;
+    }
+
+    /**
+     * Check whether the result of this common table expression should be
+     * evaluated only once and shared between all references and lookups.
+     * Without a hint it is done for deterministic non-recursive expressions
+     * that are referenced more than once or that are grouped or distinct
+     * queries, because conditions pushed into them can't use indexes.
+     *
+     * @return whether the result should be materialized
+     */
+    public boolean isMaterialized() {
+        int state = materializedState;
+        if (state == 0) {
+            boolean m;
+            if (!isTableExpression || !isTemporary() || allowRecursive || viewQuery == null
+                    || Boolean.FALSE.equals(materialized)) {
+                m = false;
+            } else if (materialized != null) {
+                m = true;
+            } else if (!isDeterministic()) {
+                m = false;
+            } else if (referenceCount > 1) {
+                m = true;
+            } else if (viewQuery instanceof Select) {
+                Select select = (Select) viewQuery;
+                m = select.isGroupQuery() || select.isAnyDistinct();
+            } else {
+                m = false;
+            }
+            materializedState = state = m ? 1 : -1;
+        }
+        return state > 0;
+    }
+
+    /**
+     * Get the materialized result of this common table expression, evaluate
+     * it if it wasn't evaluated yet or if it is outdated.
+     *
+     * @param session the session
+     * @return the result, or {@code null} if it can't be shared
+     */
+    public LocalResult getMaterializedResult(SessionLocal session) {
+        return index.getMaterializedResult(session);
+    }
+
     @Override
     public boolean isDeterministic() {
         if (allowRecursive || viewQuery == null) {
@@ -31,6 +31,12 @@ public interface HasSQL {
      */
     int ADD_PLAN_INFORMATION = 8;
 
+    /**
+     * Don't qualify column names with schema and table names. Used to compare
+     * expressions written with different qualification of columns.
+     */
+    int NO_COLUMN_QUALIFIERS = 16;
+
     /**
      * Default flags.
      */
@@ -13,6 +13,7 @@
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 
 import org.h2.api.ErrorCode;
 import org.h2.engine.SysProperties;
@@ -165,11 +166,27 @@ public static Socket createSocket(InetAddress address, int port, boolean ssl, in
      * @return the server socket
      */
     public static ServerSocket createServerSocket(int port, boolean ssl) {
+        return createServerSocket(port, ssl, false);
+    }
+
+    /**
+     * Create a server socket. The system property h2.bindAddress is used if
+     * set. If a channel is requested, sockets accepted by the returned server
+     * socket have a {@link java.nio.channels.SocketChannel} that can be used
+     * with a {@link java.nio.channels.Selector}; channels can't be combined
+     * with SSL.
+     *
+     * @param port the port to listen on
+     * @param ssl if SSL should be used
+     * @param channel if the server socket should be backed by a channel
+     * @return the server socket
+     */
+    public static ServerSocket createServerSocket(int port, boolean ssl, boolean channel) {
         try {
-            return createServerSocketTry(port, ssl);
+            return createServerSocketTry(port, ssl, channel);
         } catch (Exception e) {
             // try again
-            return createServerSocketTry(port, ssl);
+            return createServerSocketTry(port, ssl, channel);
         }
     }
 
@@ -192,12 +209,22 @@ private static InetAddress getBindAddress() throws UnknownHostException {
         return cachedBindAddress;
     }
 
-    private static ServerSocket createServerSocketTry(int port, boolean ssl) {
+    private static ServerSocket createServerSocketTry(int port, boolean ssl, boolean channel) {
         try {
             InetAddress bindAddress = getBindAddress();
             if (ssl) {
                 return CipherFactory.createServerSocket(port, bindAddress);
             }
+            if (channel) {
+                ServerSocketChannel serverChannel = ServerSocketChannel.open();
+                try {
+                    serverChannel.socket().bind(new InetSocketAddress(bindAddress, port));
+                } catch (IOException e) {
+                    serverChannel.close();
+                    throw e;
+                }
+                return serverChannel.socket();
+            }
             if (bindAddress == null) {
                 return new ServerSocket(port);
             }
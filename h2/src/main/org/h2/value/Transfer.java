@@ -20,6 +20,8 @@
 
 import org.h2.api.ErrorCode;
 import org.h2.api.IntervalQualifier;
+import org.h2.compress.LZFTransferInputStream;
+import org.h2.compress.LZFTransferOutputStream;
 import org.h2.engine.Constants;
 import org.h2.engine.Session;
 import org.h2.message.DbException;
@@ -168,6 +170,19 @@ public synchronized void init() throws IOException {
         }
     }
 
+    /**
+     * Enables compression of transferred data in both directions. Must be
+     * invoked on both sides at the same point of the protocol, when the other
+     * side doesn't send data.
+     *
+     * @throws IOException on I/O exception
+     */
+    public synchronized void enableCompression() throws IOException {
+        out.flush();
+        in = new DataInputStream(new LZFTransferInputStream(in));
+        out = new DataOutputStream(new LZFTransferOutputStream(out));
+    }
+
     /**
      * Write pending changes.
      */
@@ -175,6 +190,16 @@ public void flush() throws IOException {
         out.flush();
     }
 
+    /**
+     * Checks whether some input was already received and can be read without
+     * blocking.
+     *
+     * @return whether some input is available
+     */
+    public boolean hasBufferedInput() throws IOException {
+        return in.available() > 0;
+    }
+
     /**
      * Write a boolean.
      *
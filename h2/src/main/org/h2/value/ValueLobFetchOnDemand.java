@@ -5,7 +5,6 @@
  */
 package org.h2.value;
 
-import java.io.BufferedInputStream;
 import java.io.InputStream;
 import org.h2.engine.CastDataProvider;
 import org.h2.engine.SessionRemote;
@@ -119,7 +118,7 @@ public int compareTypeSafe(Value v, CompareMode mode, CastDataProvider provider)
 
     @Override
     public InputStream getInputStream() {
-        return new BufferedInputStream(new LobStorageRemoteInputStream(handler, lobId, hmac));
+        return new LobStorageRemoteInputStream(handler, lobId, hmac);
     }
 
     @Override
@@ -128,8 +127,7 @@ public InputStream getInputStream(long oneBasedOffset, long length) {
             // Cannot usefully into index into a unicode based stream with a byte offset
             throw DbException.throwInternalError();
         }
-        final InputStream inputStream = new BufferedInputStream(
-                new LobStorageRemoteInputStream(handler, lobId, hmac));
+        final InputStream inputStream = new LobStorageRemoteInputStream(handler, lobId, hmac);
         return rangeInputStream(inputStream, oneBasedOffset, length, precision);
     }
 
@@ -65,6 +65,7 @@
 import org.h2.test.db.TestPowerOff;
 import org.h2.test.db.TestQueryCache;
 import org.h2.test.db.TestReadOnly;
+import org.h2.test.db.TestReplication;
 import org.h2.test.db.TestRecursiveQueries;
 import org.h2.test.db.TestRights;
 import org.h2.test.db.TestRunscript;
@@ -126,6 +127,7 @@
 import org.h2.test.server.TestAutoServer;
 import org.h2.test.server.TestInit;
 import org.h2.test.server.TestNestedLoop;
+import org.h2.test.server.TestTcpServerWorkers;
 import org.h2.test.server.TestWeb;
 import org.h2.test.store.TestCacheConcurrentLIRS;
 import org.h2.test.store.TestCacheLIRS;
@@ -213,6 +215,7 @@
 import org.h2.test.unit.TestReader;
 import org.h2.test.unit.TestRecovery;
 import org.h2.test.unit.TestReopen;
+import org.h2.test.unit.TestRowBitmap;
 import org.h2.test.unit.TestSampleApps;
 import org.h2.test.unit.TestScriptReader;
 import org.h2.test.unit.TestSecurity;
@@ -811,6 +814,7 @@ private void test() throws SQLException {
             // server
             addTest(new TestAutoServer());
             addTest(new TestNestedLoop());
+            addTest(new TestTcpServerWorkers());
 
             // mvcc & row level locking
             addTest(new TestMvcc1());
@@ -896,6 +900,7 @@ private void testAdditional() {
         runAddedTests();
 
         addTest(new TestCluster());
+        addTest(new TestReplication());
         addTest(new TestFileLockProcess());
         addTest(new TestDefrag());
         addTest(new TestTools());
@@ -958,6 +963,7 @@ private void testUtils() {
         addTest(new TestOverflow());
         addTest(new TestPerfectHash());
         addTest(new TestReader());
+        addTest(new TestRowBitmap());
         addTest(new TestScriptReader());
         addTest(new TestSecurity());
         addTest(new TestShell());
@@ -49,6 +49,7 @@ public boolean isEnabled() {
     public void test() throws SQLException {
         testLargeSubquery();
         testSortingAndDistinct();
+        testExternalSort();
         testLOB();
         testLargeUpdateDelete();
         testCloseConnectionDelete();
@@ -303,6 +304,42 @@ private void testSortingAndDistinct4SortingOnly(Statement stat, String sql, int
         assertFalse(rs.next());
     }
 
+    private void testExternalSort() throws SQLException {
+        deleteDb("bigResult");
+        Connection conn = getConnection("bigResult");
+        Statement stat = conn.createStatement();
+        int count = getSize(1000, 4000);
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT) AS SELECT X, "
+                + "CASE WHEN MOD(X, 17) = 0 THEN NULL ELSE MOD(X * 7919, 1000) END FROM SYSTEM_RANGE(1, " + count
+                + ')');
+        // Many sorted runs with merges of runs
+        for (int maxRows : new int[] { 1, 10, count / 3 }) {
+            stat.execute("SET MAX_MEMORY_ROWS " + maxRows);
+            ResultSet rs = stat.executeQuery("SELECT V, ID FROM TEST ORDER BY V DESC NULLS LAST");
+            BitSet set = new BitSet(count + 1);
+            int last = Integer.MAX_VALUE;
+            boolean wasNull = false;
+            for (int i = 0; i < count; i++) {
+                assertTrue(rs.next());
+                int v = rs.getInt(1);
+                if (rs.wasNull()) {
+                    wasNull = true;
+                } else {
+                    assertFalse(wasNull);
+                    assertTrue(v <= last);
+                    last = v;
+                }
+                int id = rs.getInt(2);
+                assertFalse(set.get(id));
+                set.set(id);
+            }
+            assertFalse(rs.next());
+            assertEquals(count + 1, set.nextClearBit(1));
+        }
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
     private void testLOB() throws SQLException {
         if (config.traceLevelFile == TraceSystem.DEBUG) {
             // Trace system on this level can throw OOME with such large
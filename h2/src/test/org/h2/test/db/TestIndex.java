@@ -60,6 +60,12 @@ public void test() throws SQLException {
         }
         testNonUniqueHashIndex();
         testRenamePrimaryKey();
+        testIncludeColumns();
+        testPartialIndex();
+        testExpressionIndex();
+        testMVHashIndex();
+        testMVBitmapIndex();
+        testIndexUnion();
         testRandomized();
         testDescIndex();
         testHashIndex();
@@ -364,6 +370,253 @@ private void testRenamePrimaryKey() throws SQLException {
         stat.execute("drop table test");
     }
 
+    private void testIncludeColumns() throws SQLException {
+        if (config.memory || !config.mvStore) {
+            return;
+        }
+        reconnect();
+        stat.execute("create table test(id int primary key, code int, name varchar)");
+        stat.execute("create unique index test_code on test(code) include(name)");
+        stat.execute("insert into test values (1, 1, 'a'), (2, 2, 'a')");
+        reconnect();
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("insert into test values (3, 2, 'b')");
+        stat.execute("insert into test values (3, 3, 'a')");
+        ResultSet rs = stat.executeQuery("select name from test where code = 3");
+        rs.next();
+        assertEquals("a", rs.getString(1));
+        stat.execute("drop table test");
+        stat.execute("create table test(id int primary key, v int, name varchar)");
+        stat.execute("insert into test select x, mod(x, 10), 'Name' || x from system_range(1, 100)");
+        stat.execute("create index test_v on test(v) include(name)");
+        reconnect();
+        stat.execute("update test set name = 'Other' where id = 10");
+        stat.execute("insert into test values (101, 0, 'Name101')");
+        rs = stat.executeQuery("explain select name from test where v = 0");
+        rs.next();
+        assertContains(rs.getString(1), "TEST_V: V = 0");
+        rs = stat.executeQuery("select name from test where v = 0 and name > 'Name9' order by name");
+        rs.next();
+        assertEquals("Name90", rs.getString(1));
+        rs.next();
+        assertEquals("Other", rs.getString(1));
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select count(*) from test where v = 0");
+        rs.next();
+        assertEquals(11, rs.getInt(1));
+        stat.execute("drop table test");
+    }
+
+    private void testPartialIndex() throws SQLException {
+        if (config.memory || !config.mvStore) {
+            return;
+        }
+        reconnect();
+        stat.execute("create table test(id int primary key, code int, active boolean)");
+        stat.execute("insert into test select x, mod(x, 10), x > 90 from system_range(1, 100)");
+        stat.execute("create unique index test_code on test(code) where active");
+        reconnect();
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("insert into test values (101, 1, true)");
+        stat.execute("insert into test values (101, 1, false)");
+        stat.execute("update test set active = false where id = 91");
+        stat.execute("update test set active = true where id = 101");
+        ResultSet rs = stat.executeQuery("explain select id from test where code = 1 and active");
+        rs.next();
+        assertContains(rs.getString(1), "TEST_CODE");
+        rs = stat.executeQuery("select id from test where code = 1 and active");
+        rs.next();
+        assertEquals(101, rs.getInt(1));
+        assertFalse(rs.next());
+        stat.execute("drop table test");
+    }
+
+    private void testExpressionIndex() throws SQLException {
+        if (config.memory || !config.mvStore) {
+            return;
+        }
+        reconnect();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test select x, 'Name' || x from system_range(1, 100)");
+        stat.execute("create index test_name on test(upper(name))");
+        reconnect();
+        stat.execute("insert into test values (101, 'name101')");
+        stat.execute("update test set name = 'Other' where id = 10");
+        ResultSet rs = stat.executeQuery("explain select id from test where upper(name) = 'NAME101'");
+        rs.next();
+        assertContains(rs.getString(1), "TEST_NAME");
+        rs = stat.executeQuery("select id from test where upper(name) in ('NAME10', 'NAME101', 'OTHER') order by id");
+        rs.next();
+        assertEquals(10, rs.getInt(1));
+        rs.next();
+        assertEquals(101, rs.getInt(1));
+        assertFalse(rs.next());
+        stat.execute("create index test_id on test((id * 2))");
+        stat.execute("drop index test_name");
+        reconnect();
+        rs = stat.executeQuery("select count(*) from information_schema.columns where table_name = 'TEST'");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        rs = stat.executeQuery("explain select name from test where id * 2 = 20");
+        rs.next();
+        assertContains(rs.getString(1), "TEST_ID");
+        rs = stat.executeQuery("select name from test where id * 2 = 20");
+        rs.next();
+        assertEquals("Other", rs.getString(1));
+        assertFalse(rs.next());
+        stat.execute("drop table test");
+    }
+
+    private void testMVHashIndex() throws SQLException {
+        if (config.memory || !config.mvStore) {
+            return;
+        }
+        reconnect();
+        stat.execute("create table test(id int primary key, code varchar, v int)");
+        stat.execute("insert into test select x, 'c' || x, mod(x, 10) from system_range(1, 1000)");
+        stat.execute("create unique hash index test_code on test(code)");
+        stat.execute("create hash index test_v on test(v)");
+        reconnect();
+        ResultSet rs = stat.executeQuery("explain select id from test where code = 'c500'");
+        rs.next();
+        assertContains(rs.getString(1), "TEST_CODE");
+        rs = stat.executeQuery("select id from test where code = 'c500'");
+        rs.next();
+        assertEquals(500, rs.getInt(1));
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select count(*) from test where v = 5");
+        rs.next();
+        assertEquals(100, rs.getInt(1));
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("insert into test values (1001, 'c500', 0)");
+        conn.setAutoCommit(false);
+        stat.execute("delete from test where code = 'c500'");
+        stat.execute("insert into test values (1001, 'c500', 5)");
+        conn.rollback();
+        conn.setAutoCommit(true);
+        rs = stat.executeQuery("select id from test where code = 'c500'");
+        rs.next();
+        assertEquals(500, rs.getInt(1));
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select count(*) from test where v = 5");
+        rs.next();
+        assertEquals(100, rs.getInt(1));
+        stat.execute("drop table test");
+        // (0, 0) and (1, 0x61c8_8646_80b5_83eb) have the same hash code
+        stat.execute("create table test(a int, b bigint)");
+        stat.execute("create unique hash index test_a_b on test(a, b)");
+        try (Connection conn2 = getConnection("index")) {
+            conn2.setAutoCommit(false);
+            Statement stat2 = conn2.createStatement();
+            stat2.execute("insert into test values (1, 7046029254386353131)");
+            stat.execute("insert into test values (0, 0)");
+            // only the uncommitted row with the same values is a conflict
+            assertThrows(ErrorCode.LOCK_TIMEOUT_1, stat)
+                    .execute("insert into test values (1, 7046029254386353131)");
+            conn2.commit();
+        }
+        rs = stat.executeQuery("select count(*) from test where a = 1 and b = 7046029254386353131");
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        stat.execute("drop table test");
+    }
+
+    private void testMVBitmapIndex() throws SQLException {
+        if (config.memory || !config.mvStore) {
+            return;
+        }
+        reconnect();
+        stat.execute("create table test(id int primary key, a int, b varchar, c int)");
+        stat.execute("insert into test select x, mod(x, 5), 'b' || mod(x, 3), mod(x, 7) from system_range(1, 30000)");
+        // build the first index with sorted buffers
+        stat.execute("set max_memory_rows 1000");
+        stat.execute("create bitmap index test_a on test(a)");
+        stat.execute("set max_memory_rows 40000");
+        stat.execute("create bitmap index test_b on test(b)");
+        reconnect();
+        ResultSet rs = stat.executeQuery("explain select id from test where a = 1 and b = 'b2'");
+        rs.next();
+        assertContains(rs.getString(1), "TEST_A AND PUBLIC.TEST_B");
+        assertBitmapCount("a = 1 and b = 'b2'", "mod(id, 5) = 1 and mod(id, 3) = 2");
+        assertBitmapCount("a in (1, 4) and b = 'b0'", "mod(id, 5) in (1, 4) and mod(id, 3) = 0");
+        assertBitmapCount("a >= 3 and b < 'b2'", "mod(id, 5) >= 3 and mod(id, 3) < 2");
+        assertBitmapCount("a = 2 and c = 3", "mod(id, 5) = 2 and mod(id, 7) = 3");
+        stat.execute("delete from test where id between 1000 and 20000");
+        stat.execute("update test set a = 4 where a = 3 and id < 25000");
+        assertBitmapCount("a = 4 and b = 'b1'", "mod(id, 5) in (3, 4) and id < 25000 and mod(id, 3) = 1"
+                + " or mod(id, 5) = 4 and id >= 25000 and mod(id, 3) = 1");
+        conn.setAutoCommit(false);
+        stat.execute("delete from test where a = 4");
+        stat.execute("insert into test values (40000, 4, 'b1', 0)");
+        assertBitmapCount("a = 4", "id = 40000");
+        conn.rollback();
+        conn.setAutoCommit(true);
+        reconnect();
+        assertBitmapCount("a = 4 and b = 'b1'", "mod(id, 5) in (3, 4) and id < 25000 and mod(id, 3) = 1"
+                + " or mod(id, 5) = 4 and id >= 25000 and mod(id, 3) = 1");
+        assertBitmapCount("a = 0", "mod(id, 5) = 0");
+        stat.execute("drop table test");
+    }
+
+    private void assertBitmapCount(String condition, String expected) throws SQLException {
+        ResultSet rs = stat.executeQuery("select count(*) from test where " + expected);
+        rs.next();
+        int count = rs.getInt(1);
+        rs = stat.executeQuery("select count(*) from test where " + condition);
+        rs.next();
+        assertEquals(condition, count, rs.getInt(1));
+    }
+
+    private void testIndexUnion() throws SQLException {
+        reconnect();
+        stat.execute("create table test(id int primary key, a int, b int, c int, d int, e varchar)");
+        stat.execute("insert into test select x, mod(x, 50), mod(x, 47), mod(x, 10), x, 'e' || mod(x, 4)"
+                + " from system_range(1, 5000)");
+        stat.execute("create index test_a on test(a)");
+        stat.execute("create index test_b on test(b)");
+        stat.execute("create index test_c_d on test(c, d)");
+        stat.execute("create bitmap index test_e on test(e)");
+        stat.execute("analyze table test");
+        if (config.mvStore) {
+            ResultSet rs = stat.executeQuery("explain select id from test where a = 1 or b = 2");
+            rs.next();
+            assertContains(rs.getString(1), "OR PUBLIC.TEST_B: B = 2");
+            rs = stat.executeQuery("explain select id from test where a = 1 and b = 2");
+            rs.next();
+            assertContains(rs.getString(1), "TEST_A AND PUBLIC.TEST_B");
+        }
+        Random r = new Random(1);
+        String[] conditions = { "a = ?", "a in (?, 7, 11)", "a between ? and 30", "b = ?", "b < ?",
+                "c = mod(?, 10) and d > 1000", "c = mod(?, 10)", "id = ?", "id > ? * 100", "e = 'e' || mod(?, 4)" };
+        for (int i = 0; i < 200; i++) {
+            StringBuilder builder = new StringBuilder();
+            for (int j = 0, count = 1 + r.nextInt(4); j < count; j++) {
+                if (j > 0) {
+                    builder.append(r.nextBoolean() ? " and " : " or ");
+                }
+                builder.append(conditions[r.nextInt(conditions.length)].replace("?",
+                        Integer.toString(r.nextInt(50))));
+            }
+            assertIndexUnionCount(builder.toString());
+            if (i == 100) {
+                conn.setAutoCommit(false);
+                stat.execute("delete from test where mod(id, 3) = 0");
+                stat.execute("update test set a = b, b = a where mod(id, 5) = 0");
+            }
+        }
+        conn.rollback();
+        conn.setAutoCommit(true);
+        assertIndexUnionCount("a = 1 or b = 2");
+        stat.execute("drop table test");
+    }
+
+    private void assertIndexUnionCount(String condition) throws SQLException {
+        ResultSet rs = stat.executeQuery("select count(*), sum(id) from test use index () where " + condition);
+        rs.next();
+        int count = rs.getInt(1), sum = rs.getInt(2);
+        rs = stat.executeQuery("select count(*), sum(id) from test where " + condition);
+        rs.next();
+        assertEquals(condition, count, rs.getInt(1));
+        assertEquals(condition, sum, rs.getInt(2));
+    }
+
     private void testRandomized() throws SQLException {
         boolean reopen = !config.memory;
         Random rand = new Random(1);
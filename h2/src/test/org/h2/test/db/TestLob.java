@@ -90,6 +90,7 @@ public void test() throws Exception {
         testLobServerMemory();
         testUpdatingLobRow();
         testBufferedInputStreamBug();
+        testLobStreaming();
         if (config.memory) {
             return;
         }
@@ -1553,6 +1554,70 @@ private void testBufferedInputStreamBug() throws SQLException {
         conn.close();
     }
 
+    private void testLobStreaming() throws Exception {
+        deleteDb("lob");
+        Connection conn = getConnection("lob");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, DATA BLOB)");
+        PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST VALUES(?, ?)");
+        int len1 = 5 * 1024 * 1024 + 17, len2 = 3 * 1024 * 1024;
+        prep.setInt(1, 1);
+        prep.setBinaryStream(2, getRandomStream(len1, 1), -1);
+        prep.execute();
+        prep.setInt(1, 2);
+        prep.setBinaryStream(2, getRandomStream(len2, 2), -1);
+        prep.execute();
+        ResultSet rs = stat.executeQuery("SELECT DATA FROM TEST ORDER BY ID");
+        rs.next();
+        InputStream in1 = rs.getBinaryStream(1);
+        rs.next();
+        Blob blob = rs.getBlob(1);
+        InputStream in2 = blob.getBinaryStream();
+        InputStream expected1 = getRandomStream(len1, 1), expected2 = getRandomStream(len2, 2);
+        Random random = new Random(1);
+        byte[] buff = new byte[100_000], buff2 = new byte[100_000];
+        int pos1 = 0;
+        boolean eof2 = false;
+        while (true) {
+            // read both streams and run other commands in between
+            int l = in1.read(buff, 0, 1 + random.nextInt(buff.length));
+            if (l < 0) {
+                break;
+            }
+            IOUtils.readFully(expected1, buff2, l);
+            for (int i = 0; i < l; i++) {
+                assertEquals(buff2[i], buff[i]);
+            }
+            pos1 += l;
+            if (random.nextInt(4) == 0 && pos1 < len1 - 3_000_000) {
+                int skip = random.nextInt(3_000_000);
+                assertEquals(skip, in1.skip(skip));
+                assertEquals(skip, expected1.skip(skip));
+                pos1 += skip;
+            }
+            if (!eof2) {
+                int b = in2.read();
+                assertEquals(expected2.read(), b);
+                eof2 = b < 0;
+            }
+            ResultSet rs2 = stat.executeQuery("SELECT COUNT(*) FROM TEST");
+            rs2.next();
+            assertEquals(2, rs2.getInt(1));
+        }
+        assertEquals(len1, pos1);
+        assertEquals(-1, expected1.read());
+        if (!eof2) {
+            assertEqualStreams(expected2, in2, -1);
+        }
+        in1.close();
+        in2.close();
+        InputStream in = blob.getBinaryStream(2_000_001, 1_000_000);
+        InputStream expected = getRandomStream(len2, 2);
+        assertEquals(2_000_000, expected.skip(2_000_000));
+        assertEqualStreams(expected, in, 1_000_000);
+        conn.close();
+    }
+
     private static Reader getRandomReader(int len, int seed) {
         return new CharArrayReader(getRandomChars(len, seed));
     }
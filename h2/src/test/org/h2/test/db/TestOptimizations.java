@@ -17,6 +17,11 @@
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import org.h2.api.ErrorCode;
+import org.h2.command.query.Select;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.table.CardinalityFeedback;
+import org.h2.table.TableFilter;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
 import org.h2.tools.SimpleResultSet;
@@ -85,6 +90,13 @@ public void test() throws Exception {
         testIndexUseDespiteNullsFirst();
         testConvertOrToIn();
         testConditionAndOrDistributiveLaw();
+        testJoinOrderOfManyTables();
+        testCardinalityFeedback();
+        testCardinalityFeedbackAccurateEstimate();
+        testCardinalityFeedbackStable();
+        testColumnStatistics();
+        testBackgroundAnalyze();
+        testCorrelatedSubqueryCache();
         deleteDb("optimizations");
     }
 
@@ -1194,6 +1206,218 @@ private void testConditionAndOrDistributiveLaw() throws SQLException {
         conn.close();
     }
 
+    private void testJoinOrderOfManyTables() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        int tables = 10;
+        StringBuilder builder = new StringBuilder("CREATE TABLE T0(ID INT PRIMARY KEY");
+        for (int i = 1; i < tables; i++) {
+            builder.append(", X").append(i).append(" INT");
+            stat.execute("CREATE TABLE T" + i + "(ID INT PRIMARY KEY, V INT) AS "
+                    + "SELECT X, X * 10 FROM SYSTEM_RANGE(1, 100)");
+        }
+        stat.execute(builder.append(')').toString());
+        builder.setLength(0);
+        builder.append("INSERT INTO T0 SELECT X");
+        for (int i = 1; i < tables; i++) {
+            builder.append(", MOD(X, ").append(i * 10).append(") + 1");
+        }
+        stat.execute(builder.append(" FROM SYSTEM_RANGE(1, 2000)").toString());
+        stat.execute("ANALYZE");
+        builder.setLength(0);
+        builder.append("SELECT COUNT(*), SUM(T").append(tables - 1).append(".V) FROM ");
+        for (int i = tables; --i > 0;) {
+            builder.append('T').append(i).append(", ");
+        }
+        builder.append("T0 WHERE T0.ID > 0");
+        for (int i = 1; i < tables; i++) {
+            builder.append(" AND T").append(i).append(".ID = T0.X").append(i);
+        }
+        String sql = builder.toString();
+        ResultSet rs = stat.executeQuery("EXPLAIN " + sql);
+        rs.next();
+        String plan = rs.getString(1);
+        assertContains(plan, "FROM \"PUBLIC\".\"T0\"");
+        for (int i = 1; i < tables; i++) {
+            assertContains(plan, ": ID = T0.X" + i + " */");
+        }
+        rs = stat.executeQuery(sql);
+        rs.next();
+        assertEquals(2000, rs.getInt(1));
+        conn.close();
+    }
+
+    private void testCardinalityFeedback() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations;ANALYZE_AUTO=0");
+        Statement stat = conn.createStatement();
+        if (config.lazy) {
+            stat.execute("SET LAZY_QUERY_EXECUTION FALSE");
+        }
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B INT)");
+        stat.execute("INSERT INTO TEST SELECT X, 1, X FROM SYSTEM_RANGE(1, 10000)");
+        // Without statistics both indexes have the same estimated cost
+        stat.execute("CREATE INDEX TEST_A_IDX ON TEST(A)");
+        stat.execute("CREATE INDEX TEST_B_IDX ON TEST(B)");
+        PreparedStatement prep = conn.prepareStatement("EXPLAIN ANALYZE SELECT * FROM TEST WHERE A = ? AND B = ?");
+        prep.setInt(1, 1);
+        prep.setInt(2, 5);
+        ResultSet rs = prep.executeQuery();
+        rs.next();
+        assertContains(rs.getString(1), "PUBLIC.TEST_A_IDX");
+        rs = prep.executeQuery();
+        rs.next();
+        assertContains(rs.getString(1), "PUBLIC.TEST_B_IDX");
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
+    private void testCardinalityFeedbackAccurateEstimate() throws SQLException {
+        if (config.networked) {
+            return;
+        }
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations;ANALYZE_AUTO=0");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, A INT)");
+        stat.execute("INSERT INTO TEST SELECT X, MOD(X, 5) FROM SYSTEM_RANGE(1, 10000)");
+        stat.execute("CREATE INDEX TEST_A_IDX ON TEST(A)");
+        stat.execute("ANALYZE");
+        SessionLocal session = (SessionLocal) ((JdbcConnection) conn).getSession();
+        // estimated numbers of rows match the actual ones
+        for (String sql : new String[] { "SELECT * FROM TEST", "SELECT * FROM TEST WHERE A = 1",
+                "SELECT * FROM TEST WHERE ID > 2000" }) {
+            Select select = (Select) session.prepare(sql);
+            select.query(0).close();
+            CardinalityFeedback feedback = new CardinalityFeedback();
+            select.recordCardinalityFeedback(feedback);
+            assertFalse(sql, feedback.isOptimizationRequired());
+        }
+        // a wrong estimate is corrected
+        stat.execute("UPDATE TEST SET A = 1");
+        Select select = (Select) session.prepare("SELECT * FROM TEST WHERE A = 1");
+        select.query(0).close();
+        CardinalityFeedback feedback = new CardinalityFeedback();
+        select.recordCardinalityFeedback(feedback);
+        assertTrue(feedback.isOptimizationRequired());
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
+    private void testCardinalityFeedbackStable() throws SQLException {
+        if (config.networked) {
+            return;
+        }
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations;ANALYZE_AUTO=0");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, A INT)");
+        stat.execute("INSERT INTO TEST SELECT X, MOD(X, 5) FROM SYSTEM_RANGE(1, 10000)");
+        stat.execute("CREATE INDEX TEST_A_IDX ON TEST(A)");
+        stat.execute("ANALYZE");
+        stat.execute("UPDATE TEST SET A = 1");
+        SessionLocal session = (SessionLocal) ((JdbcConnection) conn).getSession();
+        Select select = (Select) session.prepare("SELECT * FROM TEST WHERE A = 1");
+        TableFilter filter = select.getTopTableFilter();
+        CardinalityFeedback feedback = new CardinalityFeedback();
+        double cost = 0d;
+        // the same query is executed again with the same estimate
+        for (int i = 0; i < 5; i++) {
+            select.query(0).close();
+            select.recordCardinalityFeedback(feedback);
+            assertEquals(i == 0, feedback.isOptimizationRequired());
+            feedback.optimized();
+            double c = feedback.adjustCost(filter, filter.getIndex(), filter.getMasks(), 1d);
+            if (i == 0) {
+                assertTrue(c > 4d);
+                cost = c;
+            } else {
+                assertEquals(cost, c);
+            }
+        }
+        stat.execute("DROP TABLE TEST");
+        conn.close();
+    }
+
+    private void testColumnStatistics() throws SQLException {
+        deleteDb("optimizations");
+        String url = "optimizations;ANALYZE_AUTO=0";
+        Connection conn = getConnection(url);
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B VARCHAR, C INT)");
+        stat.execute("INSERT INTO TEST SELECT X, CASE WHEN X <= 9000 THEN 1 ELSE X END, "
+                + "CASE WHEN MOD(X, 100) = 0 THEN 'NEW' ELSE 'DONE' END, X / 10 FROM SYSTEM_RANGE(1, 10000)");
+        stat.execute("CREATE INDEX TEST_A_IDX ON TEST(A)");
+        stat.execute("CREATE INDEX TEST_B_IDX ON TEST(B)");
+        stat.execute("CREATE INDEX TEST_C_A_IDX ON TEST(C, A)");
+        stat.execute("ANALYZE");
+        String sql = "EXPLAIN SELECT ID FROM TEST WHERE A = 1 AND B = 'NEW'";
+        ResultSet rs = stat.executeQuery(sql);
+        rs.next();
+        assertContains(rs.getString(1), "PUBLIC.TEST_B_IDX");
+        if (!config.memory) {
+            conn.close();
+            conn = getConnection(url);
+            stat = conn.createStatement();
+            rs = stat.executeQuery(sql);
+            rs.next();
+            assertContains(rs.getString(1), "PUBLIC.TEST_B_IDX");
+            rs = stat.executeQuery("SELECT COUNT(*) FROM TEST WHERE C = 5 AND A = 1");
+            rs.next();
+            assertEquals(10, rs.getInt(1));
+        }
+        conn.close();
+    }
+
+    private void testBackgroundAnalyze() throws Exception {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations;ANALYZE_AUTO=100");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+        stat.execute("INSERT INTO TEST SELECT X, 1 FROM SYSTEM_RANGE(1, 1000)");
+        String sql = "SELECT SELECTIVITY FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_NAME = 'TEST' AND COLUMN_NAME = 'V'";
+        int selectivity = 50;
+        for (int i = 0; i < 100 && selectivity == 50; i++) {
+            ResultSet rs = stat.executeQuery(sql);
+            rs.next();
+            selectivity = rs.getInt(1);
+            if (selectivity == 50) {
+                Thread.sleep(50);
+            }
+        }
+        assertEquals(1, selectivity);
+        conn.close();
+    }
+
+    private void testCorrelatedSubqueryCache() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE PARENT(ID INT PRIMARY KEY, K INT) AS SELECT X, MOD(X, 3) FROM SYSTEM_RANGE(1, 30)");
+        stat.execute("CREATE TABLE CHILD(K INT, V INT) AS SELECT MOD(X, 3), X FROM SYSTEM_RANGE(1, 9)");
+        PreparedStatement prep = conn.prepareStatement(
+                "SELECT COUNT(*) FROM PARENT P WHERE EXISTS(SELECT 1 FROM CHILD C WHERE C.K = P.K + 0 AND C.V > ?)");
+        prep.setInt(1, 7);
+        ResultSet rs = prep.executeQuery();
+        rs.next();
+        // V = 8 (K = 2) and V = 9 (K = 0)
+        assertEquals(20, rs.getInt(1));
+        // Cached results must not be reused for other parameter values
+        prep.setInt(1, 8);
+        rs = prep.executeQuery();
+        rs.next();
+        assertEquals(10, rs.getInt(1));
+        // and after modifications of data
+        stat.execute("DELETE FROM CHILD WHERE V = 9");
+        rs = prep.executeQuery();
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+        stat.execute("DROP TABLE PARENT, CHILD");
+        conn.close();
+    }
+
     private void testConditionsStackOverflow() throws SQLException {
         deleteDb("optimizations");
         Connection conn = getConnection("optimizations");
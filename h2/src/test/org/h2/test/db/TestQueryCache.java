@@ -9,8 +9,12 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
 
 import org.h2.api.ErrorCode;
+import org.h2.command.Command;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
 
@@ -33,6 +37,8 @@ public void test() throws Exception {
         deleteDb("queryCache");
         test1();
         testClearingCacheWithTableStructureChanges();
+        testSharedCache();
+        testSharedCacheAggregates();
         deleteDb("queryCache");
     }
 
@@ -107,4 +113,88 @@ private void testClearingCacheWithTableStructureChanges() throws Exception {
                     prepareStatement("SELECT * FROM TEST");
         }
     }
+
+    private void testSharedCache() throws Exception {
+        deleteDb("queryCache");
+        String url = "queryCache;QUERY_CACHE_SIZE=1";
+        String sql = "SELECT SUM(V) FROM TEST WHERE ID > ?";
+        try (Connection conn1 = getConnection(url); Connection conn2 = getConnection(url)) {
+            Statement stat1 = conn1.createStatement();
+            Statement stat2 = conn2.createStatement();
+            stat1.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+            stat1.execute("INSERT INTO TEST VALUES (1, 10), (2, 20)");
+            stat1.execute("CREATE USER TEST_USER PASSWORD 'test'");
+            stat1.execute("CREATE SCHEMA S2");
+            stat1.execute("CREATE TABLE S2.TEST(ID INT, V INT)");
+            stat1.execute("INSERT INTO S2.TEST VALUES (1, 1)");
+            if (!config.networked) {
+                SessionLocal session1 = (SessionLocal) ((JdbcConnection) conn1).getSession();
+                SessionLocal session2 = (SessionLocal) ((JdbcConnection) conn2).getSession();
+                Command command = session1.prepareLocal(sql);
+                ArrayList<?> parameters = command.getParameters();
+                command.close();
+                // the first session passes the statement to other sessions
+                session1.prepareLocal("SELECT 1").close();
+                command = session2.prepareLocal(sql);
+                assertTrue(parameters == command.getParameters());
+                command.close();
+                session2.prepareLocal("SELECT 1").close();
+            }
+            // uncommitted rows of another session are not visible
+            conn1.setAutoCommit(false);
+            stat1.execute("INSERT INTO TEST VALUES (3, 30)");
+            assertEquals(60, querySum(conn1, sql));
+            conn1.rollback();
+            conn1.setAutoCommit(true);
+            assertEquals(30, querySum(conn2, sql));
+            // statements are not shared between schemas
+            stat2.execute("SET SCHEMA S2");
+            assertEquals(30, querySum(conn1, sql));
+            assertEquals(1, querySum(conn2, sql));
+            stat2.execute("SET SCHEMA PUBLIC");
+            // nor with other users
+            assertEquals(30, querySum(conn1, sql));
+            try (Connection conn3 = getConnection(url, "TEST_USER", getPassword("test"))) {
+                assertThrows(ErrorCode.NOT_ENOUGH_RIGHTS_FOR_1, conn3).prepareStatement(sql);
+            }
+        }
+    }
+
+    private void testSharedCacheAggregates() throws Exception {
+        deleteDb("queryCache");
+        String sql = "SELECT COUNT(*), SUM(V) FROM TEST WHERE ID = ?";
+        try (Connection conn = getConnection("queryCache;QUERY_CACHE_SIZE=1")) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+            stat.execute("INSERT INTO TEST VALUES (1, 10), (2, 20)");
+            for (int i = 1; i <= 3; i++) {
+                // the statement is evicted from the session cache and taken
+                // back from the shared cache every time
+                try (PreparedStatement prep = conn.prepareStatement(sql)) {
+                    prep.setInt(1, 1);
+                    try (ResultSet rs = prep.executeQuery()) {
+                        rs.next();
+                        assertEquals(1, rs.getInt(1));
+                        assertEquals(10 * i, rs.getInt(2));
+                    }
+                }
+                conn.prepareStatement("SELECT 1").close();
+                stat.execute("UPDATE TEST SET V = V + 10 WHERE ID = 1");
+            }
+        }
+    }
+
+    private static int querySum(Connection conn, String sql) throws Exception {
+        int sum;
+        try (PreparedStatement prep = conn.prepareStatement(sql)) {
+            prep.setInt(1, 0);
+            try (ResultSet rs = prep.executeQuery()) {
+                rs.next();
+                sum = rs.getInt(1);
+            }
+        }
+        // push the statement out of the query cache of the session
+        conn.prepareStatement("SELECT 1").close();
+        return sum;
+    }
 }
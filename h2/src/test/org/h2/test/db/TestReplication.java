@@ -0,0 +1,408 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.db;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.h2.api.ErrorCode;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.store.fs.FileUtils;
+import org.h2.test.TestBase;
+import org.h2.test.TestDb;
+import org.h2.test.utils.SelfDestructor;
+import org.h2.tools.Server;
+
+/**
+ * Tests read-only replicas that receive the changes of the file of a primary
+ * database. The primary database runs in a new process.
+ */
+public class TestReplication extends TestDb {
+
+    private static final long TIMEOUT = 10_000;
+
+    private Process primary;
+
+    private int port;
+
+    /**
+     * This method is called when executing this application from the command
+     * line.
+     *
+     * @param args the command line parameters
+     */
+    public static void main(String... args) throws Exception {
+        if (args.length == 0) {
+            TestBase.createCaller().init().testFromMain();
+            return;
+        }
+        // the primary database process
+        SelfDestructor.startCountdown(60);
+        Server server = Server.createTcpServer("-ifNotExists", "-tcpPort", args[0]).start();
+        System.out.println(server.getPort());
+        System.out.flush();
+        // wait until the test closes the input
+        while (System.in.read() >= 0) {
+            // ignore
+        }
+        server.stop();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        if (config.memory || config.networked || config.cipher != null || config.codeCoverage) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void test() throws Exception {
+        testReplicate();
+        testSchemaChange();
+        testAnalyze();
+        testReconnect();
+        testRemovedChunks();
+        testNotAdmin();
+    }
+
+    private void testReplicate() throws Exception {
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+        startPrimary(0);
+        try {
+            Connection conn = DriverManager.getConnection(getPrimaryURL(), getUser(), getPassword());
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+            stat.execute("INSERT INTO TEST SELECT X, 'Name ' || X FROM SYSTEM_RANGE(1, 100)");
+            Connection replica = DriverManager.getConnection(getReplicaURL(), getUser(), getPassword());
+            Statement replicaStat = replica.createStatement();
+            assertCount(replicaStat, 100);
+            assertThrows(ErrorCode.DATABASE_IS_READ_ONLY, replicaStat).execute("INSERT INTO TEST VALUES (0, 'x')");
+
+            stat.execute("INSERT INTO TEST SELECT X, 'Name ' || X FROM SYSTEM_RANGE(101, 200)");
+            stat.execute("CHECKPOINT");
+            waitForCount(replicaStat, 200);
+            ResultSet rs = replicaStat.executeQuery("SELECT NAME FROM TEST WHERE ID = 150");
+            assertTrue(rs.next());
+            assertEquals("Name 150", rs.getString(1));
+
+            // uncommitted changes are not visible
+            Connection conn2 = DriverManager.getConnection(getPrimaryURL(), getUser(), getPassword());
+            conn2.setAutoCommit(false);
+            Statement stat2 = conn2.createStatement();
+            stat2.execute("INSERT INTO TEST SELECT X, 'Name ' || X FROM SYSTEM_RANGE(201, 300)");
+            stat2.execute("DELETE FROM TEST WHERE ID <= 50");
+            stat.execute("UPDATE TEST SET NAME = 'Updated' WHERE ID = 150");
+            stat.execute("CHECKPOINT");
+            rs = replicaStat.executeQuery("SELECT NAME FROM TEST WHERE ID = 150");
+            long start = System.nanoTime();
+            while (rs.next() && !"Updated".equals(rs.getString(1))) {
+                checkTimeout(start);
+                Thread.sleep(10);
+                rs = replicaStat.executeQuery("SELECT NAME FROM TEST WHERE ID = 150");
+            }
+            assertCount(replicaStat, 200);
+            rs = replicaStat.executeQuery("SELECT COUNT(*) FROM TEST WHERE ID <= 50 OR ID > 200");
+            rs.next();
+            assertEquals(50, rs.getInt(1));
+            conn2.commit();
+            stat.execute("CHECKPOINT");
+            waitForCount(replicaStat, 250);
+            rs = replicaStat.executeQuery("SELECT MIN(ID), MAX(ID) FROM TEST");
+            rs.next();
+            assertEquals(51, rs.getInt(1));
+            assertEquals(300, rs.getInt(2));
+            conn2.close();
+            replica.close();
+            conn.close();
+        } finally {
+            stopPrimary();
+        }
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+    }
+
+    private void testSchemaChange() throws Exception {
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+        startPrimary(0);
+        try {
+            Connection conn = DriverManager.getConnection(getPrimaryURL(), getUser(), getPassword());
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY)");
+            Connection replica = DriverManager.getConnection(getReplicaURL(), getUser(), getPassword());
+            Statement replicaStat = replica.createStatement();
+            assertCount(replicaStat, 0);
+            // values of sequences don't close the replica
+            for (int i = 0; i < 100; i++) {
+                stat.execute("INSERT INTO TEST DEFAULT VALUES");
+            }
+            stat.execute("CHECKPOINT");
+            waitForCount(replicaStat, 100);
+            stat.execute("CREATE TABLE TEST2(ID INT)");
+            stat.execute("INSERT INTO TEST2 VALUES 1");
+            stat.execute("CHECKPOINT");
+            long start = System.nanoTime();
+            try {
+                while (true) {
+                    checkTimeout(start);
+                    replicaStat.executeQuery("SELECT COUNT(*) FROM TEST").next();
+                    Thread.sleep(10);
+                }
+            } catch (SQLException e) {
+                // the replica was closed
+            }
+            replica.close();
+            replica = DriverManager.getConnection(getReplicaURL(), getUser(), getPassword());
+            replicaStat = replica.createStatement();
+            ResultSet rs = replicaStat.executeQuery("SELECT * FROM TEST2");
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertCount(replicaStat, 100);
+            replica.close();
+            conn.close();
+        } finally {
+            stopPrimary();
+        }
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+    }
+
+    private void testAnalyze() throws Exception {
+        deleteDb("replicationPrimary");
+        String dir = getBaseDir() + "/replicationDir";
+        FileUtils.deleteRecursive(dir, false);
+        startPrimary(0);
+        try {
+            Connection conn = DriverManager.getConnection(getPrimaryURL(), getUser(), getPassword());
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+            stat.execute("CREATE INDEX TEST_V_IDX ON TEST(V)");
+            stat.execute("INSERT INTO TEST SELECT X, MOD(X, 10) FROM SYSTEM_RANGE(1, 100)");
+            // the directory of the replica doesn't exist
+            Connection replica = DriverManager.getConnection(getReplicaURL(dir + "/replicationReplica"), getUser(),
+                    getPassword());
+            Statement replicaStat = replica.createStatement();
+            ResultSet rs = replica.createStatement().executeQuery("SELECT ID FROM TEST ORDER BY ID");
+            // statistics don't close the replica
+            stat.execute("ANALYZE");
+            stat.execute("INSERT INTO TEST SELECT X, MOD(X, 10) FROM SYSTEM_RANGE(101, 200)");
+            stat.execute("CHECKPOINT");
+            waitForCount(replicaStat, 200);
+            for (int i = 1; i <= 100; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+            }
+            assertFalse(rs.next());
+            // the statistics are applied after the data is visible
+            long start = System.nanoTime();
+            while (true) {
+                rs = replicaStat.executeQuery("SELECT SELECTIVITY FROM INFORMATION_SCHEMA.COLUMNS"
+                        + " WHERE TABLE_NAME = 'TEST' AND COLUMN_NAME = 'V'");
+                rs.next();
+                if (rs.getInt(1) == 10) {
+                    break;
+                }
+                checkTimeout(start);
+                Thread.sleep(10);
+            }
+            replica.close();
+            conn.close();
+        } finally {
+            stopPrimary();
+        }
+        deleteDb("replicationPrimary");
+        FileUtils.deleteRecursive(dir, false);
+    }
+
+    private void testReconnect() throws Exception {
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+        startPrimary(0);
+        Connection replica;
+        try {
+            Connection conn = DriverManager.getConnection(getPrimaryURL(), getUser(), getPassword());
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY)");
+            stat.execute("INSERT INTO TEST SELECT X FROM SYSTEM_RANGE(1, 10)");
+            replica = DriverManager.getConnection(getReplicaURL(), getUser(), getPassword());
+            conn.close();
+        } finally {
+            stopPrimary();
+        }
+        // the replica is available when the primary database is not
+        Statement replicaStat = replica.createStatement();
+        assertCount(replicaStat, 10);
+        startPrimary(port);
+        try {
+            Connection conn = DriverManager.getConnection(getPrimaryURL(), getUser(), getPassword());
+            Statement stat = conn.createStatement();
+            stat.execute("INSERT INTO TEST SELECT X FROM SYSTEM_RANGE(11, 20)");
+            stat.execute("CHECKPOINT");
+            waitForCount(replicaStat, 20);
+            replica.close();
+            conn.close();
+        } finally {
+            stopPrimary();
+        }
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+    }
+
+    private void testNotAdmin() throws Exception {
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+        startPrimary(0);
+        try {
+            Connection conn = DriverManager.getConnection(getPrimaryURL(), getUser(), getPassword());
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE USER TEST_USER PASSWORD 'test'");
+            try {
+                DriverManager.getConnection(getReplicaURL(), "TEST_USER", "test");
+                fail();
+            } catch (SQLException e) {
+                assertEquals(ErrorCode.ADMIN_RIGHTS_REQUIRED, e.getErrorCode());
+            }
+            conn.close();
+        } finally {
+            stopPrimary();
+        }
+        deleteDb("replicationPrimary");
+        deleteDb("replicationReplica");
+    }
+
+    private void testRemovedChunks() {
+        String fileName = getBaseDir() + "/replicationChunks.mv.db";
+        String copyName = getBaseDir() + "/replicationChunksCopy.mv.db";
+        FileUtils.delete(fileName);
+        FileUtils.delete(copyName);
+        FileStore copy = new FileStore() {
+            @Override
+            public boolean isReadOnly() {
+                return true;
+            }
+        };
+        copy.open(copyName, false, null);
+        FileStore fileStore = new FileStore();
+        fileStore.open(fileName, false, null);
+        fileStore.addListener(new FileStore.Listener() {
+            @Override
+            public void written(long pos, ByteBuffer data) {
+                copy.writeFully(pos, data);
+            }
+
+            @Override
+            public void truncated(long size) {
+                copy.truncate(size);
+            }
+        });
+        MVStore store = new MVStore.Builder().fileStore(fileStore).autoCommitDisabled().open();
+        store.setRetentionTime(0);
+        store.setVersionsToKeep(0);
+        // the data of removed chunks is not overwritten
+        store.setReuseSpace(false);
+        MVMap<Integer, String> map = store.openMap("data");
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i, "Value " + i);
+        }
+        store.commit();
+        MVStore replica = new MVStore.Builder().fileStore(copy).open();
+        MVMap<Integer, String> replicaMap = replica.openMap("data");
+        Cursor<Integer, String> cursor = replicaMap.cursor(null);
+        assertTrue(cursor.hasNext());
+        assertEquals(0, cursor.next().intValue());
+        // the first chunk is removed
+        for (int j = 0; j < 5; j++) {
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "New " + i);
+            }
+            // the metadata is changed too
+            store.openMap("map" + j);
+            store.commit();
+        }
+        assertFalse(store.getLayoutMap().containsKey(DataUtils.META_CHUNK + "1"));
+        assertTrue(replica.refresh());
+        assertEquals("New 5", replicaMap.get(5));
+        // readers of the old version still see the old data
+        for (int i = 1; i < 10_000; i++) {
+            assertTrue(cursor.hasNext());
+            assertEquals(i, cursor.next().intValue());
+            assertEquals("Value " + i, cursor.getValue());
+        }
+        assertFalse(cursor.hasNext());
+        replica.close();
+        store.close();
+        copy.close();
+        FileUtils.delete(fileName);
+        FileUtils.delete(copyName);
+    }
+
+    private void startPrimary(int tcpPort) throws Exception {
+        String[] procDef = { getJVM(), SelfDestructor.getPropertyString(60), "-cp", getClassPath(),
+                getClass().getName(), Integer.toString(tcpPort) };
+        primary = Runtime.getRuntime().exec(procDef);
+        String line = new BufferedReader(new InputStreamReader(primary.getInputStream())).readLine();
+        if (line == null) {
+            throw new AssertionError("the primary database process has not started");
+        }
+        port = Integer.parseInt(line.trim());
+    }
+
+    private void stopPrimary() throws Exception {
+        primary.getOutputStream().close();
+        assertEquals(0, primary.waitFor());
+    }
+
+    private String getPrimaryURL() {
+        return "jdbc:h2:tcp://localhost:" + port + '/' + getBaseDir() + "/replicationPrimary";
+    }
+
+    private String getReplicaURL() {
+        return getReplicaURL(getBaseDir() + "/replicationReplica");
+    }
+
+    private String getReplicaURL(String name) {
+        return "jdbc:h2:" + name + ";REPLICATE_FROM=tcp://localhost:" + port + '/' + getBaseDir()
+                + "/replicationPrimary";
+    }
+
+    private void assertCount(Statement stat, int expected) throws SQLException {
+        ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM TEST");
+        rs.next();
+        assertEquals(expected, rs.getInt(1));
+    }
+
+    private static void waitForCount(Statement stat, int expected) throws Exception {
+        long start = System.nanoTime();
+        while (true) {
+            ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM TEST");
+            rs.next();
+            if (rs.getInt(1) == expected) {
+                return;
+            }
+            checkTimeout(start);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void checkTimeout(long start) {
+        if (System.nanoTime() - start > TIMEOUT * 1_000_000) {
+            throw new AssertionError("timeout");
+        }
+    }
+
+}
@@ -13,6 +13,7 @@
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 
 import org.h2.api.ErrorCode;
 import org.h2.test.TestBase;
@@ -65,6 +66,7 @@ public void test() throws SQLException {
         testRootCause();
         testExecuteCall();
         testException();
+        testLargeBatch();
         testCoffee();
         deleteDb("batchUpdates");
     }
@@ -163,6 +165,51 @@ private void testException() throws SQLException {
         conn.close();
     }
 
+    private void testLargeBatch() throws SQLException {
+        deleteDb("batchUpdates");
+        conn = getConnection("batchUpdates");
+        stat = conn.createStatement();
+        stat.execute("create table test(id int generated by default as identity primary key, v int unique)");
+        prep = conn.prepareStatement("insert into test(v) values(?)", Statement.RETURN_GENERATED_KEYS);
+        int size = 10_000;
+        for (int i = 0; i < size; i++) {
+            prep.setInt(1, i == 5_000 ? 1 : i);
+            prep.addBatch();
+        }
+        try {
+            prep.executeLargeBatch();
+            fail();
+        } catch (BatchUpdateException e) {
+            assertEquals(ErrorCode.DUPLICATE_KEY_1, e.getNextException().getErrorCode());
+            assertNull(e.getNextException().getNextException());
+            long[] counts = e.getLargeUpdateCounts();
+            assertEquals(size, counts.length);
+            for (int i = 0; i < size; i++) {
+                assertEquals(i == 5_000 ? Statement.EXECUTE_FAILED : 1, counts[i]);
+            }
+        }
+        ResultSet rs = prep.getGeneratedKeys();
+        for (int i = 1; i < size; i++) {
+            assertTrue(rs.next());
+            assertEquals(i <= 5_000 ? i : i + 1, rs.getInt(1));
+        }
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select count(*) from test");
+        rs.next();
+        assertEquals(size - 1, rs.getInt(1));
+        prep = conn.prepareStatement("update test set v = v + ? where id <= ?");
+        for (int i = 1; i <= 3; i++) {
+            prep.setInt(1, size);
+            prep.setInt(2, i * 10);
+            prep.addBatch();
+        }
+        assertEquals("[10, 20, 30]", Arrays.toString(prep.executeBatch()));
+        rs = stat.executeQuery("select v from test where id = 1");
+        rs.next();
+        assertEquals(3 * size, rs.getInt(1));
+        conn.close();
+    }
+
     private void testCoffee() throws SQLException {
         deleteDb("batchUpdates");
         conn = getConnection("batchUpdates");
@@ -91,6 +91,8 @@ public void test() throws Exception {
         testColumnLabelColumnName();
         testAbsolute();
         testFetchSize();
+        testLargeResult();
+        testLargeRequestsBetweenFetches();
         testOwnUpdates();
         testUpdatePrimaryKey();
         testFindColumn();
@@ -432,6 +434,60 @@ private void testFetchSize() throws SQLException {
         assertEquals(a + 1, b);
     }
 
+    private void testLargeResult() throws SQLException {
+        Statement stat2 = conn.createStatement();
+        stat2.setFetchSize(7);
+        ResultSet rs = stat.executeQuery("SELECT X, SPACE(X / 1000) FROM SYSTEM_RANGE(1, 50000)");
+        ResultSet rs2 = stat2.executeQuery("SELECT X FROM SYSTEM_RANGE(1, 100000)");
+        for (int i = 1; i <= 50000; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals(i / 1000, rs.getString(2).length());
+            assertTrue(rs2.next());
+            assertEquals(i, rs2.getInt(1));
+            if (i % 5000 == 0) {
+                // other requests between fetches of the results
+                ResultSet rs3 = conn.createStatement().executeQuery("SELECT " + i);
+                assertTrue(rs3.next());
+                assertEquals(i, rs3.getInt(1));
+            }
+        }
+        assertFalse(rs.next());
+        // close the result with pending rows
+        rs2.close();
+        rs = stat.executeQuery("SELECT COUNT(*) FROM SYSTEM_RANGE(1, 10)");
+        assertTrue(rs.next());
+        assertEquals(10, rs.getInt(1));
+        stat2.close();
+    }
+
+    private void testLargeRequestsBetweenFetches() throws SQLException {
+        if (!config.networked || config.memory) {
+            return;
+        }
+        stat.execute("CREATE TABLE TEST_A(ID INT PRIMARY KEY, S VARCHAR)");
+        stat.execute("INSERT INTO TEST_A SELECT X, REPEAT('x', 4000) FROM SYSTEM_RANGE(1, 6000)");
+        stat.execute("CREATE TABLE TEST_B(ID INT PRIMARY KEY, DATA VARBINARY)");
+        PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST_B VALUES (?, ?)");
+        byte[] data = new byte[16 * 1024 * 1024];
+        Statement stat2 = conn.createStatement();
+        stat2.setFetchSize(2000);
+        ResultSet rs = stat2.executeQuery("SELECT ID, S FROM TEST_A ORDER BY ID");
+        for (int i = 1; i <= 6000; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            if (i % 1500 == 0) {
+                // a large request while the next batch of rows may be pending
+                prep.setInt(1, i);
+                prep.setBytes(2, data);
+                assertEquals(1, prep.executeUpdate());
+            }
+        }
+        assertFalse(rs.next());
+        stat2.close();
+        stat.execute("DROP TABLE TEST_A, TEST_B");
+    }
+
     private void testOwnUpdates() throws SQLException {
         DatabaseMetaData meta = conn.getMetaData();
         for (int i = 0; i < 3; i++) {
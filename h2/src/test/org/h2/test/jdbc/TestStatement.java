@@ -47,6 +47,7 @@ public void test() throws Exception {
         testSavepoint();
         testConnectionRollback();
         testStatement();
+        testExecuteErrors();
         testPreparedStatement();
         testCloseOnCompletion();
         testIdentityMerge();
@@ -56,6 +57,28 @@ public void test() throws Exception {
         deleteDb("statement");
     }
 
+    private void testExecuteErrors() throws SQLException {
+        Statement stat = conn.createStatement();
+        // remote connections send preparation and execution requests together
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ErrorCode.SYNTAX_ERROR_2, stat).executeQuery("SELEC 1");
+            assertThrows(ErrorCode.DIVISION_BY_ZERO_1, stat).executeUpdate("CALL 1 / 0");
+            assertThrows(ErrorCode.PARAMETER_NOT_SET_1, stat).executeQuery("SELECT ?");
+            assertThrows(ErrorCode.METHOD_ONLY_ALLOWED_FOR_QUERY, stat).executeQuery("CREATE TABLE T(ID INT)");
+            ResultSet rs = stat.executeQuery("SELECT " + i);
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals(0, stat.executeUpdate("CREATE TABLE T(ID INT)"));
+            assertEquals(1, stat.executeUpdate("INSERT INTO T VALUES " + i));
+            rs = stat.executeQuery("SELECT ID FROM T");
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertFalse(rs.next());
+            stat.executeUpdate("DROP TABLE T");
+        }
+        assertThrows(ErrorCode.SYNTAX_ERROR_2, conn).prepareStatement("SELEC 1");
+    }
+
     private void testUnwrap() throws SQLException {
         Statement stat = conn.createStatement();
         assertTrue(stat.isWrapperFor(Object.class));
@@ -217,7 +217,7 @@ public void test() throws Exception {
                 "data-change-delta-table", "field-reference", "help", "sequence", "set" }) {
             testScript("other/" + s + ".sql");
         }
-        for (String s : new String[] { "between", "distinct", "in", "like", "null", "type", "unique" }) {
+        for (String s : new String[] { "between", "distinct", "exists", "in", "like", "null", "type", "unique" }) {
             testScript("predicates/" + s + ".sql");
         }
         for (String s : new String[] { "derived-column-names", "distinct", "joins", "query-optimisations", "select",
@@ -65,3 +65,34 @@ SELECT SELECTIVITY FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'TEST' AND
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, TENANT INT, STATUS VARCHAR(10));
+> ok
+
+INSERT INTO TEST SELECT X, CASE WHEN X <= 9000 THEN 1 ELSE X END,
+    CASE WHEN MOD(X, 100) = 0 THEN 'NEW' ELSE 'DONE' END FROM SYSTEM_RANGE(1, 10000);
+> update count: 10000
+
+CREATE INDEX TEST_TENANT_IDX ON TEST(TENANT);
+> ok
+
+CREATE INDEX TEST_STATUS_IDX ON TEST(STATUS);
+> ok
+
+ANALYZE TABLE TEST;
+> ok
+
+EXPLAIN SELECT ID FROM TEST WHERE TENANT = 1 AND STATUS = 'NEW';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS_IDX: STATUS = 'NEW' */ WHERE ("TENANT" = 1) AND ("STATUS" = 'NEW')
+
+EXPLAIN SELECT ID FROM TEST WHERE TENANT = 9500 AND STATUS = 'DONE';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_TENANT_IDX: TENANT = 9500 */ WHERE ("TENANT" = 9500) AND ("STATUS" = 'DONE')
+
+EXPLAIN SELECT ID FROM TEST WHERE TENANT > 9990 AND STATUS = 'DONE';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_TENANT_IDX: TENANT > 9990 */ WHERE ("TENANT" > 9990) AND ("STATUS" = 'DONE')
+
+EXPLAIN SELECT ID FROM TEST WHERE TENANT IN (1, 9500) AND STATUS = 'NEW';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS_IDX: STATUS = 'NEW' */ WHERE ("TENANT" IN(1, 9500)) AND ("STATUS" = 'NEW')
+
+DROP TABLE TEST;
+> ok
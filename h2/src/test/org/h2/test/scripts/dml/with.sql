@@ -223,3 +223,34 @@ SET MODE Regular;
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, G INT, V INT) AS SELECT X, MOD(X, 4), X FROM SYSTEM_RANGE(1, 20);
+> ok
+
+EXPLAIN WITH S AS (SELECT G, SUM(V) S FROM TEST GROUP BY G) SELECT A.G, A.S, B.S FROM S A JOIN S B ON A.G = B.G + 1;
+>> SELECT "A"."G", "A"."S", "B"."S" FROM ( SELECT "G", SUM("V") AS "S" FROM "PUBLIC"."TEST" GROUP BY "G" ) "B" /* materialized: SELECT G, SUM(V) AS S FROM PUBLIC.TEST /* PUBLIC.TEST.tableScan */ GROUP BY G */ INNER JOIN ( SELECT "G", SUM("V") AS "S" FROM "PUBLIC"."TEST" GROUP BY "G" ) "A" /* materialized: SELECT G, SUM(V) AS S FROM PUBLIC.TEST /* PUBLIC.TEST.tableScan */ WHERE G IS NOT DISTINCT FROM ?1 GROUP BY G: G = (B.G + 1) */ ON 1=1 WHERE "A"."G" = ("B"."G" + 1)
+
+WITH S AS (SELECT G, SUM(V) S FROM TEST GROUP BY G) SELECT A.G, A.S, B.S FROM S A JOIN S B ON A.G = B.G + 1;
+> G S  S
+> - -- --
+> 1 45 60
+> 2 50 45
+> 3 55 50
+> rows: 3
+
+EXPLAIN WITH S AS NOT MATERIALIZED (SELECT G, SUM(V) S FROM TEST GROUP BY G) SELECT A.G FROM S A JOIN S B ON A.G = B.G + 1;
+>> SELECT "A"."G" FROM ( SELECT "G", SUM("V") AS "S" FROM "PUBLIC"."TEST" GROUP BY "G" ) "B" /* SELECT G, SUM(V) AS S FROM PUBLIC.TEST /* PUBLIC.TEST.tableScan */ GROUP BY G */ INNER JOIN ( SELECT "G", SUM("V") AS "S" FROM "PUBLIC"."TEST" GROUP BY "G" ) "A" /* SELECT G, SUM(V) AS S FROM PUBLIC.TEST /* PUBLIC.TEST.tableScan */ WHERE G IS NOT DISTINCT FROM ?1 GROUP BY G: G = (B.G + 1) */ ON 1=1 WHERE "A"."G" = ("B"."G" + 1)
+
+WITH S AS MATERIALIZED (SELECT ID, V FROM TEST) SELECT S.V FROM TEST JOIN S ON TEST.ID = S.ID WHERE TEST.ID BETWEEN 5 AND 7;
+> V
+> -
+> 5
+> 6
+> 7
+> rows: 3
+
+WITH S AS MATERIALIZED (SELECT ID, RAND() R FROM TEST) SELECT COUNT(*) FROM S A JOIN S B ON A.ID = B.ID AND A.R = B.R;
+>> 20
+
+DROP TABLE TEST;
+> ok
@@ -195,7 +195,7 @@ CREATE TABLE TEST(X INT) AS VALUES 1, 2, 3;
 > ok
 
 EXPLAIN SELECT ROW_NUMBER() OVER (ORDER BY 'a') FROM TEST;
->> SELECT ROW_NUMBER() OVER () FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */
+>> SELECT ROW_NUMBER() OVER () FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ /* window sorted */
 
 EXPLAIN SELECT RANK() OVER (ORDER BY 'a') FROM TEST;
 >> SELECT CAST(1 AS BIGINT) FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */
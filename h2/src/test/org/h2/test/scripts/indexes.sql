@@ -329,14 +329,21 @@ EXPLAIN SELECT * FROM TEST WHERE A > 0 AND B >= 0;
 INSERT INTO TEST (SELECT X / 100, X, X FROM SYSTEM_RANGE(1, 3000));
 > update count: 3000
 
+ANALYZE TABLE TEST;
+> ok
+
 EXPLAIN SELECT * FROM TEST WHERE A = 0;
 >> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A1: A = 0 */ WHERE "A" = 0
 
 EXPLAIN SELECT * FROM TEST WHERE A = 0 AND B >= 0;
 >> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A_B: A = 0 AND B >= 0 */ WHERE ("A" = 0) AND ("B" >= 0)
 
+EXPLAIN SELECT * FROM TEST WHERE A > 28 AND B >= 0;
+>> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A_B: A > 28 AND B >= 0 */ WHERE ("A" > 28) AND ("B" >= 0)
+
+-- Collected statistics show that almost all rows match
 EXPLAIN SELECT * FROM TEST WHERE A > 0 AND B >= 0;
->> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.T_A_B: A > 0 AND B >= 0 */ WHERE ("A" > 0) AND ("B" >= 0)
+>> SELECT "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B", "PUBLIC"."TEST"."C" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("A" > 0) AND ("B" >= 0)
 
 -- Test that creation order of indexes has no effect
 CREATE INDEX T_A2 ON TEST(A);
@@ -410,3 +417,587 @@ SELECT * FROM TEST WHERE _ROWID_ >= 2 AND _ROWID_ <= 3;
 
 DROP TABLE TEST;
 > ok
+
+CREATE MEMORY TABLE TEST(ID INT PRIMARY KEY, CODE INT, NAME VARCHAR, V INT);
+> ok
+
+CREATE UNIQUE INDEX TEST_V_IDX ON TEST(V) INCLUDE(V);
+> exception DUPLICATE_COLUMN_NAME_1
+
+CREATE PRIMARY KEY ON TEST(ID) INCLUDE(NAME);
+> exception SYNTAX_ERROR_1
+
+#+mvStore#CREATE INDEX TEST_V_IDX ON TEST(V) INCLUDE(NAME);
+#+mvStore#> ok
+
+#-mvStore#CREATE INDEX TEST_V_IDX ON TEST(V) INCLUDE(NAME);
+#-mvStore#> exception FEATURE_NOT_SUPPORTED_1
+
+INSERT INTO TEST VALUES (1, 1, 'a', 10), (2, 2, 'a', 20);
+> update count: 2
+
+#+mvStore#EXPLAIN SELECT NAME FROM TEST WHERE V = 20;
+#+mvStore#>> SELECT "NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_V_IDX: V = 20 */ WHERE "V" = 20
+
+#+mvStore#EXPLAIN SELECT NAME FROM TEST WHERE V = 20 AND NAME = 'a';
+#+mvStore#>> SELECT "NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_V_IDX: V = 20 */ WHERE ("V" = 20) AND ("NAME" = 'a')
+
+#+mvStore#EXPLAIN SELECT V, NAME FROM TEST WHERE V > 0 ORDER BY V, NAME;
+#+mvStore#>> SELECT "V", "NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_V_IDX: V > 0 */ WHERE "V" > 0 ORDER BY 1, 2
+
+UPDATE TEST SET NAME = 'c' WHERE ID = 2;
+> update count: 1
+
+SELECT NAME FROM TEST WHERE V = 20;
+>> c
+
+INSERT INTO TEST VALUES (3, 3, 'b', 20);
+> update count: 1
+
+SELECT ID, NAME FROM TEST WHERE V = 20 ORDER BY V, NAME;
+> ID NAME
+> -- ----
+> 3  b
+> 2  c
+> rows (ordered): 2
+
+DELETE FROM TEST WHERE ID = 3;
+> update count: 1
+
+#+mvStore#CREATE UNIQUE INDEX TEST_CODE_IDX ON TEST(CODE) INCLUDE(NAME);
+#+mvStore#> ok
+
+#+mvStore#INSERT INTO TEST VALUES (3, 1, 'b', 30);
+#+mvStore#> exception DUPLICATE_KEY_1
+
+#+mvStore#SCRIPT NODATA NOPASSWORDS NOSETTINGS TABLE TEST;
+#+mvStore#> SCRIPT
+#+mvStore#> --------------------------------------------------------------------------------------------------------------------
+#+mvStore#> -- 2 +/- SELECT COUNT(*) FROM PUBLIC.TEST;
+#+mvStore#> ALTER TABLE "PUBLIC"."TEST" ADD CONSTRAINT "PUBLIC"."CONSTRAINT_2" PRIMARY KEY("ID");
+#+mvStore#> CREATE INDEX "PUBLIC"."TEST_V_IDX" ON "PUBLIC"."TEST"("V" NULLS FIRST) INCLUDE("NAME");
+#+mvStore#> CREATE MEMORY TABLE "PUBLIC"."TEST"( "ID" INTEGER NOT NULL, "CODE" INTEGER, "NAME" CHARACTER VARYING, "V" INTEGER );
+#+mvStore#> CREATE UNIQUE INDEX "PUBLIC"."TEST_CODE_IDX" ON "PUBLIC"."TEST"("CODE" NULLS FIRST) INCLUDE("NAME");
+#+mvStore#> CREATE USER IF NOT EXISTS "SA" PASSWORD '' ADMIN;
+#+mvStore#> rows: 6
+
+#+mvStore#EXPLAIN SELECT NAME FROM TEST WHERE CODE = 2;
+#+mvStore#>> SELECT "NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_CODE_IDX: CODE = 2 */ WHERE "CODE" = 2
+
+#+mvStore#ALTER TABLE TEST ADD CONSTRAINT TEST_CODE_UNIQUE UNIQUE(CODE);
+#+mvStore#> ok
+
+#+mvStore#SELECT INDEX_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE CONSTRAINT_NAME = 'TEST_CODE_UNIQUE';
+#+mvStore#>> TEST_CODE_IDX
+
+#-mvStore#CREATE UNIQUE INDEX TEST_CODE_IDX ON TEST(CODE) INCLUDE(NAME);
+#-mvStore#> exception FEATURE_NOT_SUPPORTED_1
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B INT);
+> ok
+
+CREATE INDEX TEST_A_B_IDX ON TEST(A, B DESC);
+> ok
+
+INSERT INTO TEST SELECT X, CASE WHEN MOD(X, 5) = 0 THEN NULL ELSE MOD(X, 5) END, X / 5 FROM SYSTEM_RANGE(1, 10000);
+> update count: 10000
+
+ANALYZE TABLE TEST;
+> ok
+
+EXPLAIN SELECT * FROM TEST WHERE B = 10;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_B_IDX: B = 10 */ /* skip scan */ WHERE "B" = 10
+
+SELECT * FROM TEST WHERE B = 10;
+> ID A    B
+> -- ---- --
+> 50 null 10
+> 51 1    10
+> 52 2    10
+> 53 3    10
+> 54 4    10
+> rows: 5
+
+SELECT ID FROM TEST WHERE B BETWEEN 10 AND 11 AND ID > 52;
+> ID
+> --
+> 53
+> 54
+> 55
+> 56
+> 57
+> 58
+> 59
+> rows: 7
+
+SELECT COUNT(*) FROM TEST WHERE B < 3;
+>> 14
+
+EXPLAIN SELECT * FROM TEST WHERE B IN (10, 20);
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_B_IDX: B IN(10, 20) */ WHERE "B" IN(10, 20)
+
+SELECT * FROM TEST WHERE B IN (10, 20) AND A = 1 ORDER BY ID;
+> ID  A B
+> --- - --
+> 51  1 10
+> 101 1 20
+> rows (ordered): 2
+
+DROP TABLE TEST;
+> ok
+
+CREATE MEMORY TABLE TEST(ID BIGINT PRIMARY KEY, STATUS VARCHAR(10), V INT);
+> ok
+
+INSERT INTO TEST SELECT X, CASE WHEN MOD(X, 100) = 0 THEN 'PENDING' ELSE 'DONE' END, X FROM SYSTEM_RANGE(1, 1000);
+> update count: 1000
+
+#-mvStore#CREATE INDEX TEST_V_IDX ON TEST(V) WHERE STATUS = 'PENDING';
+#-mvStore#> exception FEATURE_NOT_SUPPORTED_1
+
+#+mvStore#CREATE INDEX TEST_V_IDX ON TEST(V) WHERE STATUS = 'PENDING';
+#+mvStore#> ok
+
+#+mvStore#CREATE INDEX TEST_STATUS_IDX ON TEST(STATUS) WHERE V BETWEEN 900 AND 950;
+#+mvStore#> ok
+
+#+mvStore#SCRIPT NODATA NOPASSWORDS NOSETTINGS TABLE TEST;
+#+mvStore#> SCRIPT
+#+mvStore#> ---------------------------------------------------------------------------------------------------------------
+#+mvStore#> -- 1000 +/- SELECT COUNT(*) FROM PUBLIC.TEST;
+#+mvStore#> ALTER TABLE "PUBLIC"."TEST" ADD CONSTRAINT "PUBLIC"."CONSTRAINT_2" PRIMARY KEY("ID");
+#+mvStore#> CREATE INDEX "PUBLIC"."TEST_STATUS_IDX" ON "PUBLIC"."TEST"("STATUS" NULLS FIRST) WHERE "V" BETWEEN 900 AND 950;
+#+mvStore#> CREATE INDEX "PUBLIC"."TEST_V_IDX" ON "PUBLIC"."TEST"("V" NULLS FIRST) WHERE "STATUS" = 'PENDING';
+#+mvStore#> CREATE MEMORY TABLE "PUBLIC"."TEST"( "ID" BIGINT NOT NULL, "STATUS" CHARACTER VARYING(10), "V" INTEGER );
+#+mvStore#> CREATE USER IF NOT EXISTS "SA" PASSWORD '' ADMIN;
+#+mvStore#> rows: 6
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE STATUS = 'PENDING' AND V > 500;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_V_IDX: V > 500 */ WHERE ("STATUS" = 'PENDING') AND ("V" > 500)
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE V > 500;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE "V" > 500
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE STATUS IN ('PENDING', 'DONE') AND V > 500;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("STATUS" IN('PENDING', 'DONE')) AND ("V" > 500)
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE STATUS = 'DONE' AND V >= 910 AND V < 920;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS_IDX: STATUS = 'DONE' */ WHERE ("V" < 920) AND ("STATUS" = 'DONE') AND ("V" >= 910)
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE STATUS = 'DONE' AND V >= 910 AND V < 960;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("V" < 960) AND ("STATUS" = 'DONE') AND ("V" >= 910)
+
+SELECT ID FROM TEST WHERE STATUS = 'PENDING' AND V > 500;
+> ID
+> ----
+> 1000
+> 600
+> 700
+> 800
+> 900
+> rows: 5
+
+UPDATE TEST SET STATUS = 'DONE' WHERE ID = 600;
+> update count: 1
+
+UPDATE TEST SET STATUS = 'PENDING' WHERE ID = 601;
+> update count: 1
+
+UPDATE TEST SET V = 602 WHERE ID = 601;
+> update count: 1
+
+SELECT ID, V FROM TEST WHERE STATUS = 'PENDING' AND V BETWEEN 590 AND 610;
+> ID  V
+> --- ---
+> 601 602
+> rows: 1
+
+DELETE FROM TEST WHERE ID = 601;
+> update count: 1
+
+SELECT ID FROM TEST WHERE STATUS = 'PENDING' AND V BETWEEN 590 AND 710;
+>> 700
+
+SELECT MAX(V) FROM TEST;
+>> 1000
+
+#+mvStore#ALTER TABLE TEST DROP COLUMN STATUS;
+#+mvStore#> exception COLUMN_IS_REFERENCED_1
+
+#+mvStore#CREATE INDEX TEST_ID_IDX ON TEST(ID) WHERE RAND() > 0.5;
+#+mvStore#> exception FEATURE_NOT_SUPPORTED_1
+
+#+mvStore#CREATE INDEX TEST_ID_IDX ON TEST(ID) WHERE V IN (SELECT V FROM TEST);
+#+mvStore#> exception FEATURE_NOT_SUPPORTED_1
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, CODE INT, ACTIVE BOOLEAN);
+> ok
+
+#+mvStore#CREATE UNIQUE INDEX TEST_CODE_IDX ON TEST(CODE) WHERE ACTIVE;
+#+mvStore#> ok
+
+INSERT INTO TEST VALUES (1, 1, TRUE), (2, 1, FALSE), (3, 1, FALSE);
+> update count: 3
+
+#+mvStore#INSERT INTO TEST VALUES (4, 1, TRUE);
+#+mvStore#> exception DUPLICATE_KEY_1
+
+#+mvStore#UPDATE TEST SET ACTIVE = TRUE WHERE ID = 2;
+#+mvStore#> exception DUPLICATE_KEY_1
+
+UPDATE TEST SET ACTIVE = FALSE WHERE ID = 1;
+> update count: 1
+
+UPDATE TEST SET ACTIVE = TRUE WHERE ID = 2;
+> update count: 1
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE CODE = 1 AND ACTIVE;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_CODE_IDX: CODE = 1 */ WHERE "ACTIVE" AND ("CODE" = 1)
+
+SELECT ID FROM TEST WHERE CODE = 1 AND ACTIVE;
+>> 2
+
+DROP TABLE TEST;
+> ok
+
+CREATE MEMORY TABLE TEST(ID INT PRIMARY KEY, EMAIL VARCHAR(100), A INT, B INT);
+> ok
+
+INSERT INTO TEST VALUES (1, 'One@Example.com', 1, 2), (2, 'two@example.COM', 2, 3), (3, 'three@example.com', 3, 4);
+> update count: 3
+
+CREATE INDEX TEST_EMAIL_IDX ON TEST(LOWER(EMAIL));
+> ok
+
+CREATE INDEX TEST_SUM_IDX ON TEST((A + B) DESC, LOWER(EMAIL));
+> ok
+
+SCRIPT NODATA NOPASSWORDS NOSETTINGS TABLE TEST;
+> SCRIPT
+> -----------------------------------------------------------------------------------------------------------------------
+> -- 3 +/- SELECT COUNT(*) FROM PUBLIC.TEST;
+> ALTER TABLE "PUBLIC"."TEST" ADD CONSTRAINT "PUBLIC"."CONSTRAINT_2" PRIMARY KEY("ID");
+> CREATE INDEX "PUBLIC"."TEST_EMAIL_IDX" ON "PUBLIC"."TEST"((LOWER("EMAIL")) NULLS FIRST);
+> CREATE INDEX "PUBLIC"."TEST_SUM_IDX" ON "PUBLIC"."TEST"(("A" + "B") DESC NULLS LAST, (LOWER("EMAIL")) NULLS FIRST);
+> CREATE MEMORY TABLE "PUBLIC"."TEST"( "ID" INTEGER NOT NULL, "EMAIL" CHARACTER VARYING(100), "A" INTEGER, "B" INTEGER );
+> CREATE USER IF NOT EXISTS "SA" PASSWORD '' ADMIN;
+> rows: 6
+
+SELECT INDEX_NAME, COLUMN_NAME, ORDINAL_POSITION, ORDERING_SPECIFICATION FROM INFORMATION_SCHEMA.INDEX_COLUMNS
+    WHERE TABLE_NAME = 'TEST' AND INDEX_NAME <> 'PRIMARY_KEY_2' ORDER BY INDEX_NAME, ORDINAL_POSITION;
+> INDEX_NAME     COLUMN_NAME    ORDINAL_POSITION ORDERING_SPECIFICATION
+> -------------- -------------- ---------------- ----------------------
+> TEST_EMAIL_IDX LOWER("EMAIL") 1                ASC
+> TEST_SUM_IDX   "A" + "B"      1                DESC
+> TEST_SUM_IDX   LOWER("EMAIL") 2                ASC
+> rows (ordered): 3
+
+INSERT INTO TEST VALUES (4, 'Four@Example.com', 4, 5);
+> update count: 1
+
+SELECT * FROM TEST WHERE ID = 4;
+> ID EMAIL            A B
+> -- ---------------- - -
+> 4  Four@Example.com 4 5
+> rows: 1
+
+EXPLAIN SELECT ID FROM TEST WHERE LOWER(EMAIL) = 'two@example.com';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_EMAIL_IDX: (LOWER(EMAIL)) = 'two@example.com' */ WHERE LOWER("EMAIL") = 'two@example.com'
+
+SELECT ID FROM TEST WHERE LOWER(EMAIL) = 'two@example.com';
+>> 2
+
+EXPLAIN SELECT T.ID FROM TEST T WHERE LOWER(T.EMAIL) IN ('one@example.com', 'four@example.com');
+>> SELECT "T"."ID" FROM "PUBLIC"."TEST" "T" /* PUBLIC.TEST_EMAIL_IDX: (LOWER(EMAIL)) IN('one@example.com', 'four@example.com') */ WHERE LOWER("T"."EMAIL") IN('one@example.com', 'four@example.com')
+
+SELECT T.ID FROM TEST T WHERE LOWER(T.EMAIL) IN ('one@example.com', 'four@example.com');
+> ID
+> --
+> 1
+> 4
+> rows: 2
+
+EXPLAIN SELECT ID FROM TEST WHERE A + B > 7;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_SUM_IDX: (A + B) > 7 */ WHERE ("A" + "B") > 7
+
+UPDATE TEST SET EMAIL = 'Five@Example.com', A = 10 WHERE ID = 1;
+> update count: 1
+
+SELECT ID FROM TEST WHERE LOWER(EMAIL) = 'one@example.com';
+> ID
+> --
+> rows: 0
+
+SELECT ID FROM TEST WHERE LOWER(EMAIL) = 'five@example.com';
+>> 1
+
+SELECT ID FROM TEST WHERE A + B > 7 ORDER BY ID;
+> ID
+> --
+> 1
+> 4
+> rows (ordered): 2
+
+DELETE FROM TEST WHERE ID = 4;
+> update count: 1
+
+SELECT ID FROM TEST WHERE A + B > 7 ORDER BY ID;
+>> 1
+
+CREATE INDEX TEST_RAND_IDX ON TEST(RAND());
+> exception FEATURE_NOT_SUPPORTED_1
+
+CREATE INDEX TEST_CONST_IDX ON TEST((1 + 2));
+> exception FEATURE_NOT_SUPPORTED_1
+
+CREATE UNIQUE INDEX TEST_ZERO_IDX ON TEST((A - A));
+> exception DUPLICATE_KEY_1
+
+CREATE UNIQUE INDEX TEST_UPPER_IDX ON TEST(UPPER(EMAIL));
+> ok
+
+INSERT INTO TEST VALUES (5, 'two@EXAMPLE.com', 0, 0);
+> exception DUPLICATE_KEY_1
+
+ALTER TABLE TEST ADD COLUMN C INT;
+> ok
+
+EXPLAIN SELECT ID FROM TEST WHERE UPPER(EMAIL) = 'TWO@EXAMPLE.COM';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_UPPER_IDX: (UPPER(EMAIL)) = 'TWO@EXAMPLE.COM' */ WHERE UPPER("EMAIL") = 'TWO@EXAMPLE.COM'
+
+SELECT ID FROM TEST WHERE UPPER(EMAIL) = 'TWO@EXAMPLE.COM';
+>> 2
+
+ALTER TABLE TEST DROP COLUMN EMAIL;
+> exception COLUMN_IS_REFERENCED_1
+
+DROP INDEX TEST_SUM_IDX;
+> ok
+
+ALTER TABLE TEST DROP COLUMN EMAIL;
+> ok
+
+SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'TEST' AND INDEX_TYPE_NAME <> 'PRIMARY KEY';
+> INDEX_NAME
+> ----------
+> rows: 0
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, CODE VARCHAR(10), A INT, B INT);
+> ok
+
+INSERT INTO TEST SELECT X, 'C' || X, MOD(X, 10), MOD(X, 7) FROM SYSTEM_RANGE(1, 100);
+> update count: 100
+
+CREATE UNIQUE HASH INDEX TEST_CODE_IDX ON TEST(CODE);
+> ok
+
+CREATE HASH INDEX TEST_A_B_IDX ON TEST(A, B);
+> ok
+
+EXPLAIN SELECT ID FROM TEST WHERE CODE = 'C10';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_CODE_IDX: CODE = 'C10' */ WHERE "CODE" = 'C10'
+
+SELECT ID FROM TEST WHERE CODE = 'C10';
+>> 10
+
+SELECT ID FROM TEST WHERE CODE IN ('C10', 'C20', 'X') ORDER BY ID;
+> ID
+> --
+> 10
+> 20
+> rows (ordered): 2
+
+EXPLAIN SELECT ID FROM TEST WHERE A = 1 AND B = 1;
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_B_IDX: A = 1 AND B = 1 */ WHERE ("A" = 1) AND ("B" = 1)
+
+SELECT ID FROM TEST WHERE A = 1 AND B = 1 ORDER BY ID;
+> ID
+> --
+> 1
+> 71
+> rows (ordered): 2
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE A = 1;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE "A" = 1
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE CODE > 'C10';
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE "CODE" > 'C10'
+
+INSERT INTO TEST VALUES (101, 'C10', 0, 0);
+> exception DUPLICATE_KEY_1
+
+UPDATE TEST SET CODE = 'X10' WHERE ID = 10;
+> update count: 1
+
+INSERT INTO TEST VALUES (101, 'C10', 1, 1);
+> update count: 1
+
+SELECT ID FROM TEST WHERE CODE = 'C10';
+>> 101
+
+DELETE FROM TEST WHERE A = 1 AND B = 1;
+> update count: 3
+
+SELECT COUNT(*) FROM TEST WHERE A = 1 AND B = 1;
+>> 0
+
+SELECT COUNT(*) FROM TEST WHERE CODE = 'C10';
+>> 0
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, STATUS VARCHAR(10), FLAG BOOLEAN, V INT);
+> ok
+
+INSERT INTO TEST SELECT X, CASEWHEN(MOD(X, 3) = 0, 'NEW', 'DONE'), MOD(X, 2) = 0, X FROM SYSTEM_RANGE(1, 100);
+> update count: 100
+
+CREATE BITMAP INDEX TEST_STATUS_IDX ON TEST(STATUS);
+> ok
+
+CREATE BITMAP INDEX TEST_FLAG_IDX ON TEST(FLAG);
+> ok
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE STATUS = 'NEW' AND FLAG = TRUE;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS_IDX AND PUBLIC.TEST_FLAG_IDX: STATUS = 'NEW' AND FLAG = TRUE */ WHERE ("STATUS" = 'NEW') AND ("FLAG" = TRUE)
+
+SELECT ID FROM TEST WHERE STATUS = 'NEW' AND FLAG = TRUE AND ID < 40;
+> ID
+> --
+> 12
+> 18
+> 24
+> 30
+> 36
+> 6
+> rows: 6
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE STATUS IN ('NEW', 'X') AND FLAG = FALSE AND V > 90;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS_IDX AND PUBLIC.TEST_FLAG_IDX: STATUS IN('NEW', 'X') AND FLAG = FALSE */ WHERE ("V" > 90) AND ("STATUS" IN('NEW', 'X')) AND ("FLAG" = FALSE)
+
+SELECT ID FROM TEST WHERE STATUS IN ('NEW', 'X') AND FLAG = FALSE AND V > 90;
+> ID
+> --
+> 93
+> 99
+> rows: 2
+
+EXPLAIN SELECT ID FROM TEST WHERE STATUS = 'NEW';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS_IDX: STATUS = 'NEW' */ WHERE "STATUS" = 'NEW'
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST ORDER BY STATUS;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ ORDER BY "STATUS"
+
+EXPLAIN SELECT ID FROM TEST USE INDEX (TEST_STATUS_IDX) WHERE STATUS = 'NEW' AND FLAG = TRUE;
+>> SELECT "ID" FROM "PUBLIC"."TEST" USE INDEX ("TEST_STATUS_IDX") /* PUBLIC.TEST_STATUS_IDX: STATUS = 'NEW' */ WHERE ("STATUS" = 'NEW') AND ("FLAG" = TRUE)
+
+UPDATE TEST SET STATUS = 'DONE' WHERE ID = 6;
+> update count: 1
+
+DELETE FROM TEST WHERE ID = 12;
+> update count: 1
+
+INSERT INTO TEST VALUES (101, NULL, TRUE, 101);
+> update count: 1
+
+SELECT ID FROM TEST WHERE STATUS = 'NEW' AND FLAG = TRUE AND ID < 40;
+> ID
+> --
+> 18
+> 24
+> 30
+> 36
+> rows: 4
+
+SELECT ID FROM TEST WHERE STATUS IS NULL AND FLAG;
+>> 101
+
+CREATE BITMAP INDEX TEST_STATUS_FLAG_IDX ON TEST(STATUS, FLAG);
+> exception FEATURE_NOT_SUPPORTED_1
+
+CREATE BITMAP INDEX TEST_V_IDX ON TEST(V) INCLUDE (ID);
+> exception FEATURE_NOT_SUPPORTED_1
+
+CREATE UNIQUE BITMAP INDEX TEST_V_IDX ON TEST(V);
+> exception SYNTAX_ERROR_2
+
+SELECT INDEX_NAME, INDEX_TYPE_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'TEST' AND INDEX_TYPE_NAME = 'BITMAP INDEX';
+> INDEX_NAME      INDEX_TYPE_NAME
+> --------------- ---------------
+> TEST_FLAG_IDX   BITMAP INDEX
+> TEST_STATUS_IDX BITMAP INDEX
+> rows: 2
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B INT, C INT, D INT, V VARCHAR(10));
+> ok
+
+INSERT INTO TEST SELECT X, MOD(X, 100), MOD(X, 97), MOD(X, 10), X, 'V' || X FROM SYSTEM_RANGE(1, 2000);
+> update count: 2000
+
+CREATE INDEX TEST_A_IDX ON TEST(A);
+> ok
+
+CREATE INDEX TEST_B_IDX ON TEST(B);
+> ok
+
+CREATE INDEX TEST_C_D_IDX ON TEST(C, D);
+> ok
+
+ANALYZE TABLE TEST;
+> ok
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE A = 5 AND B = 7;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_IDX AND PUBLIC.TEST_B_IDX: A = 5 AND B = 7 */ WHERE ("A" = 5) AND ("B" = 7)
+
+SELECT ID FROM TEST WHERE A = 5 AND B = 8;
+>> 105
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE A = 5 OR B = 7;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_IDX: A = 5 OR PUBLIC.TEST_B_IDX: B = 7 */ WHERE ("A" = 5) OR ("B" = 7)
+
+SELECT COUNT(*), SUM(ID) FROM TEST WHERE A = 5 OR B = 7;
+> COUNT(*) SUM(ID)
+> -------- -------
+> 41       39617
+> rows: 1
+
+#+mvStore#EXPLAIN SELECT ID FROM TEST WHERE A IN (1, 2) OR C = 3 AND D BETWEEN 10 AND 100 OR ID = 1000;
+#+mvStore#>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.PRIMARY_KEY_2: ID = 1000 OR PUBLIC.TEST_A_IDX: A IN(1, 2) OR PUBLIC.TEST_C_D_IDX: C = 3 AND D >= 10 AND D <= 100 */ WHERE ("ID" = 1000) OR ("A" IN(1, 2)) OR (("C" = 3) AND ("D" BETWEEN 10 AND 100))
+
+SELECT COUNT(*), SUM(ID) FROM TEST WHERE A IN (1, 2) OR C = 3 AND D BETWEEN 10 AND 100 OR ID = 1000;
+> COUNT(*) SUM(ID)
+> -------- -------
+> 50       39537
+> rows: 1
+
+SELECT ID FROM TEST WHERE (A = 5 OR B = 7) AND ID > 1900;
+> ID
+> ----
+> 1905
+> 1947
+> rows: 2
+
+EXPLAIN SELECT ID FROM TEST WHERE A = 5 OR V = 'V7';
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("A" = 5) OR ("V" = 'V7')
+
+#+mvStore#EXPLAIN SELECT T2.ID FROM TEST T1 JOIN TEST T2 ON T2.A = T1.ID OR T2.B = T1.ID WHERE T1.ID = 3;
+#+mvStore#>> SELECT "T2"."ID" FROM "PUBLIC"."TEST" "T1" /* PUBLIC.PRIMARY_KEY_2: ID = 3 */ /* WHERE T1.ID = 3 */ INNER JOIN "PUBLIC"."TEST" "T2" /* PUBLIC.TEST_A_IDX: A = T1.ID OR PUBLIC.TEST_B_IDX: B = T1.ID */ ON 1=1 WHERE ("T1"."ID" = 3) AND (("T2"."A" = "T1"."ID") OR ("T2"."B" = "T1"."ID"))
+
+SELECT COUNT(*) FROM TEST T1 JOIN TEST T2 ON T2.A = T1.ID OR T2.B = T1.ID WHERE T1.ID IN (3, 98);
+>> 60
+
+DROP TABLE TEST;
+> ok
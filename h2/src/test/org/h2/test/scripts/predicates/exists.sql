@@ -0,0 +1,136 @@
+-- Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+-- and the EPL 1.0 (https://h2database.com/html/license.html).
+-- Initial Developer: H2 Group
+--
+
+CREATE TABLE DOCS(ID INT PRIMARY KEY, OWNER INT, N INT) AS
+    SELECT X, MOD(X, 7), CASE WHEN MOD(X, 5) <> 0 THEN X END FROM SYSTEM_RANGE(1, 20);
+> ok
+
+CREATE TABLE ACL(DOC_ID INT, USER_ID INT) AS SELECT MOD(X, 25), MOD(X, 3) FROM SYSTEM_RANGE(1, 40);
+> ok
+
+INSERT INTO ACL VALUES (NULL, 1), (3, NULL);
+> update count: 2
+
+EXPLAIN SELECT ID FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.ID AND A.USER_ID = 1);
+>> SELECT "ID" FROM "PUBLIC"."DOCS" "D" /* PUBLIC.PRIMARY_KEY_2: ID IN(SELECT A.DOC_ID FROM PUBLIC.ACL A /* PUBLIC.ACL.tableScan */ WHERE (A.USER_ID = 1) AND (A.DOC_ID IS NOT NULL)) */ WHERE "D"."ID" IS NOT DISTINCT FROM ANY( SELECT "A"."DOC_ID" FROM "PUBLIC"."ACL" "A" /* PUBLIC.ACL.tableScan */ WHERE ("A"."USER_ID" = 1) AND ("A"."DOC_ID" IS NOT NULL))
+
+SELECT ID FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.ID AND A.USER_ID = 1);
+> ID
+> --
+> 1
+> 10
+> 12
+> 13
+> 15
+> 16
+> 19
+> 3
+> 4
+> 6
+> 7
+> 9
+> rows: 12
+
+EXPLAIN SELECT ID FROM DOCS D WHERE NOT EXISTS(SELECT 1 FROM ACL A WHERE D.N = A.DOC_ID AND A.USER_ID = 1);
+>> SELECT "ID" FROM "PUBLIC"."DOCS" "D" /* PUBLIC.DOCS.tableScan */ WHERE NOT ("D"."N" IS NOT DISTINCT FROM ANY( SELECT "A"."DOC_ID" FROM "PUBLIC"."ACL" "A" /* PUBLIC.ACL.tableScan */ WHERE ("A"."USER_ID" = 1) AND ("A"."DOC_ID" IS NOT NULL)))
+
+SELECT ID FROM DOCS D WHERE NOT EXISTS(SELECT 1 FROM ACL A WHERE D.N = A.DOC_ID AND A.USER_ID = 1);
+> ID
+> --
+> 10
+> 11
+> 14
+> 15
+> 17
+> 18
+> 2
+> 20
+> 5
+> 8
+> rows: 10
+
+SELECT ID FROM DOCS D WHERE NOT EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N AND A.USER_ID = D.OWNER);
+> ID
+> --
+> 10
+> 11
+> 12
+> 13
+> 15
+> 16
+> 17
+> 18
+> 19
+> 20
+> 3
+> 4
+> 5
+> 6
+> 7
+> 8
+> 9
+> rows: 17
+
+SELECT ID, EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N) E FROM DOCS D WHERE ID < 6;
+> ID E
+> -- -----
+> 1  TRUE
+> 2  TRUE
+> 3  TRUE
+> 4  TRUE
+> 5  FALSE
+> rows: 5
+
+SELECT ID FROM DOCS D WHERE ID > 17 AND (EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N AND A.USER_ID = 1)) IS FALSE;
+> ID
+> --
+> 18
+> 20
+> rows: 2
+
+EXPLAIN SELECT ID FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N + 1);
+>> SELECT "ID" FROM "PUBLIC"."DOCS" "D" /* PUBLIC.DOCS.tableScan */ WHERE EXISTS( SELECT 1 FROM "PUBLIC"."ACL" "A" /* PUBLIC.ACL.tableScan */ WHERE "A"."DOC_ID" = ("D"."N" + 1))
+
+EXPLAIN SELECT ID FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.ID AND A.USER_ID = D.OWNER + 1);
+>> SELECT "ID" FROM "PUBLIC"."DOCS" "D" /* PUBLIC.DOCS.tableScan */ WHERE EXISTS( SELECT 1 FROM "PUBLIC"."ACL" "A" /* PUBLIC.ACL.tableScan */ WHERE ("A"."DOC_ID" = "D"."ID") AND ("A"."USER_ID" = ("D"."OWNER" + 1)))
+
+EXPLAIN SELECT ID FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N AND ROWNUM() = 1);
+>> SELECT "ID" FROM "PUBLIC"."DOCS" "D" /* PUBLIC.DOCS.tableScan */ WHERE EXISTS( SELECT 1 FROM "PUBLIC"."ACL" "A" /* PUBLIC.ACL.tableScan */ WHERE (ROWNUM() = 1) AND ("A"."DOC_ID" = "D"."N"))
+
+SELECT COUNT(*) FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N AND ROWNUM() = 1);
+>> 16
+
+EXPLAIN SELECT ID FROM DOCS D WHERE EXISTS(SELECT MAX(USER_ID) FROM ACL A WHERE A.DOC_ID = D.N);
+>> SELECT "ID" FROM "PUBLIC"."DOCS" "D" /* PUBLIC.DOCS.tableScan */ WHERE EXISTS( SELECT MAX("USER_ID") FROM "PUBLIC"."ACL" "A" /* PUBLIC.ACL.tableScan */ WHERE "A"."DOC_ID" = "D"."N")
+
+SELECT COUNT(*) FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N + 1);
+>> 16
+
+SELECT COUNT(*) FROM DOCS D WHERE D.N + 1 IN (SELECT DOC_ID FROM ACL A WHERE A.USER_ID = D.OWNER);
+>> 5
+
+DELETE FROM ACL WHERE DOC_ID IN (8, 20);
+> update count: 3
+
+SELECT COUNT(*) FROM DOCS D WHERE EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.N + 1);
+>> 14
+
+SELECT COUNT(*) FROM DOCS D WHERE D.N + 1 IN (SELECT DOC_ID FROM ACL A WHERE A.USER_ID = D.OWNER);
+>> 4
+
+CREATE VIEW V AS SELECT ID FROM DOCS D WHERE NOT EXISTS(SELECT 1 FROM ACL A WHERE A.DOC_ID = D.ID AND A.USER_ID = 1);
+> ok
+
+SELECT VIEW_DEFINITION FROM INFORMATION_SCHEMA.VIEWS WHERE TABLE_NAME = 'V';
+>> SELECT "ID" FROM "PUBLIC"."DOCS" "D" WHERE NOT (EXISTS( SELECT 1 FROM "PUBLIC"."ACL" "A" WHERE ("A"."DOC_ID" = "D"."ID") AND ("A"."USER_ID" = 1)))
+
+SELECT COUNT(*) FROM V;
+>> 8
+
+DROP VIEW V;
+> ok
+
+DROP TABLE DOCS, ACL;
+> ok
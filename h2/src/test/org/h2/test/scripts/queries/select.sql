@@ -148,6 +148,40 @@ SELECT * FROM TEST OFFSET 2 ROWS FETCH NEXT 10 PERCENT ROWS ONLY;
 > 1 2 1
 > rows: 2
 
+SELECT * FROM TEST ORDER BY C DESC, A DESC, B DESC FETCH FIRST 3 ROWS ONLY;
+> A B C
+> - - -
+> 2 2 3
+> 2 1 3
+> 1 2 3
+> rows (ordered): 3
+
+SELECT * FROM TEST ORDER BY C DESC, A DESC OFFSET 2 ROWS FETCH NEXT 1 ROW WITH TIES;
+> A B C
+> - - -
+> 1 1 3
+> 1 2 3
+> rows (partially ordered): 2
+
+SELECT * FROM TEST ORDER BY C FETCH FIRST 1 ROW WITH TIES;
+> A B C
+> - - -
+> 1 1 1
+> 1 2 1
+> 2 1 1
+> 2 2 1
+> rows (partially ordered): 4
+
+(SELECT * FROM TEST) UNION ALL (SELECT 3, 3, 0) ORDER BY C FETCH FIRST 2 ROWS WITH TIES;
+> A B C
+> - - -
+> 1 1 1
+> 1 2 1
+> 2 1 1
+> 2 2 1
+> 3 3 0
+> rows (partially ordered): 5
+
 CREATE INDEX TEST_A_IDX ON TEST(A);
 > ok
 
@@ -230,3 +230,91 @@ SELECT SUM(A) OVER (ORDER BY A, B RANGE BETWEEN UNBOUNDED PRECEDING AND 1 FOLLOW
 
 SELECT SUM(A) OVER (GROUPS BETWEEN UNBOUNDED PRECEDING AND 1 FOLLOWING) S FROM VALUES (1, 2) T(A, B);
 > exception SYNTAX_ERROR_2
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, G INT, V INT);
+> ok
+
+CREATE INDEX TEST_G_V_IDX ON TEST(G, V);
+> ok
+
+INSERT INTO TEST VALUES (1, 1, 10), (2, 1, 20), (3, 1, 20), (4, 2, 5), (5, 2, 7), (6, 3, 1), (7, NULL, 3), (8, NULL, 4);
+> update count: 8
+
+EXPLAIN SELECT G, V, ROW_NUMBER() OVER (PARTITION BY G ORDER BY V) R FROM TEST;
+>> SELECT "G", "V", ROW_NUMBER() OVER (PARTITION BY "G" ORDER BY "V") AS "R" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_G_V_IDX */ /* window sorted */
+
+SELECT G, V, ROW_NUMBER() OVER (PARTITION BY G ORDER BY V) R, RANK() OVER (PARTITION BY G ORDER BY V) RK,
+    DENSE_RANK() OVER (PARTITION BY G ORDER BY V) DR,
+    SUM(V) OVER (PARTITION BY G ORDER BY V ROWS 1 PRECEDING) S1,
+    SUM(V) OVER (PARTITION BY G ORDER BY V ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) S,
+    COUNT(*) FILTER (WHERE V > 5) OVER (PARTITION BY G ORDER BY V ROWS CURRENT ROW) C
+    FROM TEST;
+> G    V  R RK DR S1 S  C
+> ---- -- - -- -- -- -- -
+> 1    10 1 1  1  10 10 1
+> 1    20 2 2  2  30 30 1
+> 1    20 3 2  2  40 50 1
+> 2    5  1 1  1  5  5  0
+> 2    7  2 2  2  12 12 1
+> 3    1  1 1  1  1  1  0
+> null 3  1 1  1  3  3  0
+> null 4  2 2  2  7  7  0
+> rows: 8
+
+EXPLAIN SELECT ID, ROW_NUMBER() OVER (ORDER BY ID) R FROM TEST WHERE ID > 2 QUALIFY R < 3;
+>> SELECT "ID", ROW_NUMBER() OVER (ORDER BY "ID") AS "R" FROM "PUBLIC"."TEST" /* PUBLIC.PRIMARY_KEY_2: ID > 2 */ WHERE "ID" > 2 QUALIFY ROW_NUMBER() OVER (ORDER BY "ID") < 3 /* window sorted */
+
+SELECT ID, ROW_NUMBER() OVER (ORDER BY ID) R FROM TEST WHERE ID > 2 QUALIFY R < 3;
+> ID R
+> -- -
+> 3  1
+> 4  2
+> rows: 2
+
+EXPLAIN SELECT G, V, ROW_NUMBER() OVER (PARTITION BY G ORDER BY V DESC) R FROM TEST;
+>> SELECT "G", "V", ROW_NUMBER() OVER (PARTITION BY "G" ORDER BY "V" DESC) AS "R" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_G_V_IDX */
+
+EXPLAIN SELECT G, V, CUME_DIST() OVER (PARTITION BY G ORDER BY V) R FROM TEST;
+>> SELECT "G", "V", CUME_DIST() OVER (PARTITION BY "G" ORDER BY "V") AS "R" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_G_V_IDX */
+
+EXPLAIN SELECT V, SUM(V) OVER (PARTITION BY G ORDER BY V ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING) R FROM TEST;
+>> SELECT "V", SUM("V") OVER (PARTITION BY "G" ORDER BY "V" ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING) AS "R" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_G_V_IDX */
+
+SELECT G, V, ROW_NUMBER() OVER (PARTITION BY G ORDER BY V DESC) R FROM TEST;
+> G    V  R
+> ---- -- -
+> 1    10 3
+> 1    20 1
+> 1    20 2
+> 2    5  2
+> 2    7  1
+> 3    1  1
+> null 3  2
+> null 4  1
+> rows: 8
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT);
+> ok
+
+CREATE INDEX TEST_A_IDX ON TEST(A DESC);
+> ok
+
+INSERT INTO TEST VALUES (1, 1), (2, 2), (3, 3), (4, 4);
+> update count: 4
+
+EXPLAIN SELECT A, ROW_NUMBER() OVER (ORDER BY A DESC) FROM TEST WHERE A IN (1, 2, 3);
+>> SELECT "A", ROW_NUMBER() OVER (ORDER BY "A" DESC) FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A_IDX: A IN(1, 2, 3) */ WHERE "A" IN(1, 2, 3)
+
+SELECT A, ROW_NUMBER() OVER (ORDER BY A DESC) FROM TEST WHERE A IN (1, 2, 3);
+> A ROW_NUMBER() OVER (ORDER BY A DESC)
+> - -----------------------------------
+> 1 3
+> 2 2
+> 3 1
+> rows: 3
+
+DROP TABLE TEST;
+> ok
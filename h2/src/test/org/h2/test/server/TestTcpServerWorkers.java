@@ -0,0 +1,221 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.server;
+
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.h2.api.ErrorCode;
+import org.h2.test.TestBase;
+import org.h2.test.TestDb;
+import org.h2.tools.Server;
+
+/**
+ * Tests the TCP server with a pool of worker threads.
+ */
+public class TestTcpServerWorkers extends TestDb {
+
+    private static final int WORKERS = 2;
+
+    private static final int CONNECTIONS = 20;
+
+    private String threadPrefix;
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String[] a) throws Exception {
+        TestBase.createCaller().init().testFromMain();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        if (config.memory || config.networked) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void test() throws Exception {
+        deleteDb("tcpServerWorkers");
+        Server server = Server.createTcpServer("-tcpWorkers", Integer.toString(WORKERS), "-ifNotExists").start();
+        threadPrefix = server.getService().getName() + " (" + server.getURL() + ')';
+        try {
+            String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/" + getBaseDir() + "/tcpServerWorkers";
+            testManyConnections(url);
+            testConcurrentRequests(url);
+            testErrors(url);
+            testCipher(server);
+        } finally {
+            server.stop();
+        }
+        assertEquals(0, countThreads(" worker-"));
+        testIdleSockets();
+        deleteDb("tcpServerWorkers");
+    }
+
+    private void testManyConnections(String url) throws Exception {
+        ArrayList<Connection> list = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONNECTIONS; i++) {
+                list.add(DriverManager.getConnection(url, getUser(), getPassword()));
+            }
+            // idle connections don't hold threads
+            assertEquals(0, countThreads(" thread-"));
+            assertTrue(countThreads(" worker-") <= WORKERS);
+            Connection conn = list.get(0);
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+            PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST VALUES (?, ?)");
+            for (int i = 0; i < 100; i++) {
+                prep.setInt(1, i);
+                prep.setString(2, "Name " + i);
+                prep.executeUpdate();
+            }
+            // interleave fetches of results from different connections
+            ResultSet[] results = new ResultSet[CONNECTIONS];
+            for (int i = 0; i < CONNECTIONS; i++) {
+                Statement s = list.get(i).createStatement();
+                s.setFetchSize(3);
+                results[i] = s.executeQuery("SELECT ID, NAME FROM TEST ORDER BY ID");
+            }
+            for (int row = 0; row < 100; row++) {
+                for (ResultSet rs : results) {
+                    assertTrue(rs.next());
+                    assertEquals(row, rs.getInt(1));
+                    assertEquals("Name " + row, rs.getString(2));
+                }
+            }
+            for (ResultSet rs : results) {
+                assertFalse(rs.next());
+            }
+        } finally {
+            for (Connection conn : list) {
+                conn.close();
+            }
+        }
+    }
+
+    private void testConcurrentRequests(String url) throws Exception {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] threads = new Thread[CONNECTIONS / 2];
+        for (int i = 0; i < threads.length; i++) {
+            int id = i;
+            threads[i] = new Thread(() -> {
+                try (Connection conn = DriverManager.getConnection(url, getUser(), getPassword())) {
+                    PreparedStatement prep = conn.prepareStatement("SELECT COUNT(*) FROM TEST WHERE ID >= ?");
+                    for (int j = 0; j < 50; j++) {
+                        prep.setInt(1, j);
+                        ResultSet rs = prep.executeQuery();
+                        rs.next();
+                        if (rs.getInt(1) != 100 - j) {
+                            throw new AssertionError("thread " + id + " got " + rs.getInt(1));
+                        }
+                    }
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+    }
+
+    private void testErrors(String url) throws Exception {
+        try (Connection conn = DriverManager.getConnection(url, getUser(), getPassword())) {
+            Statement stat = conn.createStatement();
+            assertThrows(ErrorCode.TABLE_OR_VIEW_NOT_FOUND_1, stat)
+                    .executeQuery("SELECT * FROM MISSING");
+            ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM TEST");
+            rs.next();
+            assertEquals(100, rs.getInt(1));
+            stat.execute("DROP TABLE TEST");
+        }
+    }
+
+    private void testCipher(Server server) throws Exception {
+        deleteDb("tcpServerWorkersCipher");
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/" + getBaseDir()
+                + "/tcpServerWorkersCipher;CIPHER=AES";
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicReference<Integer> value = new AtomicReference<>();
+        // the client sends the file password together with the first request
+        Thread t = new Thread(() -> {
+            try (Connection conn = DriverManager.getConnection(url, getUser(), "filePassword " + getPassword())) {
+                ResultSet rs = conn.createStatement().executeQuery("SELECT 42");
+                rs.next();
+                value.set(rs.getInt(1));
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        t.start();
+        t.join(10_000);
+        assertFalse(t.isAlive());
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertEquals(42, value.get().intValue());
+        deleteDb("tcpServerWorkersCipher");
+    }
+
+    private void testIdleSockets() throws Exception {
+        Server server = Server.createTcpServer("-tcpWorkers", "1", "-ifNotExists").start();
+        ArrayList<Socket> sockets = new ArrayList<>();
+        try {
+            // clients that don't send the handshake don't hold the worker
+            for (int i = 0; i < 3; i++) {
+                sockets.add(new Socket("localhost", server.getPort()));
+            }
+            String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/" + getBaseDir() + "/tcpServerWorkers";
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread t = new Thread(() -> {
+                try (Connection conn = DriverManager.getConnection(url, getUser(), getPassword())) {
+                    conn.createStatement().execute("SELECT 1");
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            t.start();
+            t.join(10_000);
+            assertFalse(t.isAlive());
+            if (error.get() != null) {
+                throw new AssertionError(error.get());
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            server.stop();
+        }
+    }
+
+    private int countThreads(String suffix) {
+        int count = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            String name = t.getName();
+            if (t.isAlive() && name.startsWith(threadPrefix) && name.contains(suffix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
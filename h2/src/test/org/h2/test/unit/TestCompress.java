@@ -12,20 +12,27 @@
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
+import org.h2.api.ErrorCode;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
+import org.h2.compress.LZFTransferInputStream;
+import org.h2.compress.LZFTransferOutputStream;
 import org.h2.engine.Constants;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
 import org.h2.tools.CompressTool;
+import org.h2.tools.Server;
 import org.h2.util.IOUtils;
 import org.h2.util.Task;
 
@@ -71,6 +78,8 @@ public void test() throws Exception {
         }
         test(4000000);
         testVariableEnd();
+        testTransferStreams();
+        testNetworkCompression();
     }
 
     private void testVariableSizeInt() {
@@ -122,6 +131,76 @@ public void call() {
         }
     }
 
+    private void testTransferStreams() throws IOException {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        LZFTransferOutputStream out = new LZFTransferOutputStream(buff);
+        Random r = new Random(1);
+        byte[] random = new byte[100_000];
+        r.nextBytes(random);
+        byte[] text = new byte[200_000];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) ('a' + i % 7);
+        }
+        out.write(1);
+        out.flush();
+        out.write(random);
+        out.flush();
+        out.write(text);
+        out.write(2);
+        out.flush();
+        int rawLength = 1 + random.length + text.length + 1;
+        assertTrue(buff.size() < rawLength - text.length / 2);
+        LZFTransferInputStream in = new LZFTransferInputStream(new ByteArrayInputStream(buff.toByteArray()));
+        assertEquals(1, in.read());
+        byte[] test = new byte[rawLength];
+        // a read returns the data of one block only
+        assertEquals(65536, in.read(test, 0, test.length));
+        assertEquals(random.length - 65536, in.read(test, 65536, test.length - 65536));
+        assertEquals(random, Arrays.copyOf(test, random.length));
+        IOUtils.readFully(in, test, text.length);
+        assertEquals(text, Arrays.copyOf(test, text.length));
+        assertEquals(2, in.read());
+        assertEquals(-1, in.read());
+    }
+
+    private void testNetworkCompression() throws SQLException {
+        if (config.memory || config.networked) {
+            return;
+        }
+        Server server = Server.createTcpServer("-ifNotExists").start();
+        try {
+            String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:compress;NETWORK_COMPRESSION=TRUE";
+            try (Connection conn = DriverManager.getConnection(url)) {
+                Statement stat = conn.createStatement();
+                stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR, DATA VARBINARY)");
+                PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST VALUES (?, ?, ?)");
+                byte[] data = new byte[1000];
+                for (int i = 0; i < 1000; i++) {
+                    prep.setInt(1, i);
+                    prep.setString(2, "Name " + i);
+                    data[i] = (byte) i;
+                    prep.setBytes(3, data);
+                    prep.addBatch();
+                }
+                prep.executeBatch();
+                ResultSet rs = stat.executeQuery("SELECT * FROM TEST ORDER BY ID");
+                for (int i = 0; i < 1000; i++) {
+                    assertTrue(rs.next());
+                    assertEquals(i, rs.getInt(1));
+                    assertEquals("Name " + i, rs.getString(2));
+                    assertEquals((byte) i, rs.getBytes(3)[i]);
+                }
+                assertFalse(rs.next());
+                assertThrows(ErrorCode.SYNTAX_ERROR_2, stat).executeQuery("SELECT * FROM");
+                rs = stat.executeQuery("SELECT COUNT(*) FROM TEST");
+                rs.next();
+                assertEquals(1000, rs.getInt(1));
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
     private void testVariableEnd() {
         CompressTool utils = CompressTool.getInstance();
         StringBuilder b = new StringBuilder();
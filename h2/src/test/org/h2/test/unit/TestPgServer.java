@@ -5,8 +5,14 @@
  */
 package org.h2.test.unit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Date;
@@ -23,6 +29,7 @@
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -35,6 +42,8 @@
 import org.h2.test.TestDb;
 import org.h2.tools.Server;
 import org.h2.util.DateTimeUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 
 /**
  * Tests the PostgreSQL server protocol compliant implementation.
@@ -71,6 +80,8 @@ public void test() throws Exception {
         testPrepareWithUnspecifiedType();
         testOtherPgClients();
         testArray();
+        testCopy();
+        testBinaryTypes();
     }
 
     private boolean getPgJdbcDriver() {
@@ -818,4 +829,172 @@ private void testArray() throws Exception {
         }
     }
 
+    private void testCopy() throws Exception {
+        if (!getPgJdbcDriver()) {
+            return;
+        }
+
+        Server server = createPgServer(
+                "-ifNotExists", "-pgPort", "5535", "-pgDaemon", "-key", "pgserver", "mem:pgserver");
+        try (
+                Connection conn = DriverManager.getConnection(
+                        "jdbc:postgresql://localhost:5535/pgserver", "sa", "sa");
+                Statement stat = conn.createStatement();
+        ) {
+            CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+            stat.execute("CREATE TABLE test (id int primary key, name varchar, data bytea, flag boolean)");
+            assertEquals(3, copy.copyIn("COPY test FROM STDIN", new StringReader(
+                    "1\tHello\\tWorld\t\\\\x0102\tt\n" +
+                    "2\t\\N\t\\N\tf\r\n" +
+                    "3\ta\\nb\\\\c\\101\t\\\\001\\\\\\\\\t\\N\n" +
+                    "\\.\n")));
+            try (ResultSet rs = stat.executeQuery("SELECT * FROM test ORDER BY id")) {
+                assertTrue(rs.next());
+                assertEquals("Hello\tWorld", rs.getString(2));
+                assertEquals(new byte[] { 1, 2 }, rs.getBytes(3));
+                assertTrue(rs.getBoolean(4));
+                assertTrue(rs.next());
+                assertNull(rs.getString(2));
+                assertNull(rs.getBytes(3));
+                assertFalse(rs.getBoolean(4));
+                assertTrue(rs.next());
+                assertEquals("a\nb\\cA", rs.getString(2));
+                assertEquals(new byte[] { 1, '\\' }, rs.getBytes(3));
+                assertFalse(rs.next());
+            }
+            StringWriter writer = new StringWriter();
+            assertEquals(3, copy.copyOut("COPY test (id, name, flag) TO STDOUT", writer));
+            assertEquals("1\tHello\\tWorld\tt\n2\t\\N\tf\n3\ta\\nb\\\\cA\t\\N\n", writer.toString());
+
+            assertEquals(4, copy.copyIn("COPY test (id, name) FROM STDIN (FORMAT csv, HEADER)", new StringReader(
+                    "id,name\n10,\"a,\"\"b\"\"\"\n11,\n12,\"\"\n13,\"x\ny\"\n")));
+            writer = new StringWriter();
+            assertEquals(4, copy.copyOut("COPY (SELECT id, name FROM test WHERE id >= 10 ORDER BY id) " +
+                    "TO STDOUT WITH CSV HEADER", writer));
+            assertEquals("id,name\n10,\"a,\"\"b\"\"\"\n11,\n12,\"\"\n13,\"x\ny\"\n", writer.toString());
+
+            // the whole COPY fails
+            for (String data : new String[] { "20\n21\n1\n22\n", "20\tx\n" }) {
+                try {
+                    copy.copyIn("COPY test (id) FROM STDIN", new StringReader(data));
+                    fail();
+                } catch (SQLException e) {
+                    // expected
+                }
+            }
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM test")) {
+                assertTrue(rs.next());
+                assertEquals(7, rs.getInt(1));
+            }
+
+            stat.execute("CREATE TABLE test2 (id int primary key, v bigint, d double precision, b bytea)");
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 10_000; i++) {
+                builder.append(i).append(',').append(i * 1_000_000_000L).append(',').append(i / 4d)
+                        .append(",\\\\x").append(Integer.toHexString(i | 0x10_0000)).append('\n');
+            }
+            assertEquals(10_000, copy.copyIn("COPY test2 FROM STDIN DELIMITER ','",
+                    new StringReader(builder.toString())));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(10_000, copy.copyOut("COPY test2 TO STDOUT (FORMAT binary)", out));
+            stat.execute("CREATE TABLE test3 (id int primary key, v bigint, d double precision, b bytea)");
+            assertEquals(10_000, copy.copyIn("COPY test3 FROM STDIN (FORMAT binary)",
+                    new ByteArrayInputStream(out.toByteArray())));
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM test2 JOIN test3 " +
+                    "ON test2.id = test3.id AND test2.v = test3.v AND test2.d = test3.d AND test2.b = test3.b")) {
+                assertTrue(rs.next());
+                assertEquals(10_000, rs.getInt(1));
+            }
+            try (ResultSet rs = stat.executeQuery("SELECT * FROM test3 WHERE id = 5")) {
+                assertTrue(rs.next());
+                assertEquals(5_000_000_000L, rs.getLong(2));
+                assertEquals(1.25, rs.getDouble(3));
+                assertEquals(new byte[] { 0x10, 0, 5 }, rs.getBytes(4));
+            }
+
+            // the connection is usable after a failure
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM test2")) {
+                assertTrue(rs.next());
+                assertEquals(10_000, rs.getInt(1));
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void testBinaryTypes() throws Exception {
+        if (!getPgJdbcDriver()) {
+            return;
+        }
+
+        Server server = createPgServer(
+                "-ifNotExists", "-pgPort", "5535", "-pgDaemon", "-key", "pgserver", "mem:pgserver");
+        try {
+            Properties props = new Properties();
+            props.setProperty("user", "sa");
+            props.setProperty("password", "sa");
+            props.setProperty("prepareThreshold", "-1");
+            props.setProperty("binaryTransferEnable", "1700,114");
+            try (Connection conn = DriverManager.getConnection("jdbc:postgresql://localhost:5535/pgserver", props);
+                    Statement stat = conn.createStatement()) {
+                stat.execute("CREATE TABLE test(id int primary key, n numeric(30, 10), u uuid, "
+                        + "a1 smallint array, a2 int array, a3 varchar array, j json, v varchar)");
+                PreparedStatement prep = conn.prepareStatement("INSERT INTO test(id, n, u, v) VALUES (?, ?, ?, ?)");
+                UUID uuid = UUID.randomUUID();
+                String[] numbers = { "0", "1", "-1", "12345678901234567890.1234567891", "0.0000000001",
+                        "-10000.5", "99990000", "0.5" };
+                for (int i = 0; i < numbers.length; i++) {
+                    prep.setInt(1, i);
+                    prep.setBigDecimal(2, new BigDecimal(numbers[i]));
+                    prep.setObject(3, uuid, Types.OTHER);
+                    prep.setString(4, "Hello " + i);
+                    prep.execute();
+                }
+                stat.execute("UPDATE test SET a1 = ARRAY[1, NULL, id], a2 = ARRAY[id, -id], "
+                        + "a3 = ARRAY['a', NULL, 'b\"c'], j = JSON_OBJECT('a': id)");
+                stat.execute("INSERT INTO test(id, a1, a2, a3) VALUES (100, ARRAY[], ARRAY[], ARRAY[])");
+                PreparedStatement query = conn.prepareStatement("SELECT n, j, v FROM test WHERE id = ?");
+                for (int i = 0; i < numbers.length; i++) {
+                    query.setInt(1, i);
+                    try (ResultSet rs = query.executeQuery()) {
+                        assertTrue(rs.next());
+                        assertEquals(new BigDecimal(numbers[i]).setScale(10), rs.getBigDecimal(1));
+                        assertEquals("{\"a\":" + i + '}', rs.getString(2));
+                        assertEquals("Hello " + i, rs.getString(3));
+                    }
+                }
+
+                // the same encoding is used by COPY in the binary format
+                CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+                stat.execute("CREATE TABLE test2(id int primary key, n numeric(30, 10), u uuid, "
+                        + "a1 smallint array, a2 int array, a3 varchar array, j json, v varchar, "
+                        + "b boolean, d date, tm time, ts timestamp, tz timestamp with time zone)");
+                stat.execute("INSERT INTO test2 SELECT *, id % 2 = 0, DATE '2000-01-01' + id, "
+                        + "TIME '10:00:00' + id * INTERVAL '1' MINUTE, TIMESTAMP '1999-12-31 10:00:00' + id * "
+                        + "INTERVAL '1' HOUR, TIMESTAMP WITH TIME ZONE '2020-01-01 10:00:00+03' FROM test");
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertEquals(numbers.length + 1, copy.copyOut("COPY test2 TO STDOUT (FORMAT binary)", out));
+                ByteBuffer uuidBytes = ByteBuffer.allocate(20).putInt(16)
+                        .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+                assertTrue(new String(out.toByteArray(), StandardCharsets.ISO_8859_1)
+                        .contains(new String(uuidBytes.array(), StandardCharsets.ISO_8859_1)));
+                stat.execute("CREATE TABLE test3 AS SELECT * FROM test2 WITH NO DATA");
+                assertEquals(numbers.length + 1, copy.copyIn("COPY test3 FROM STDIN (FORMAT binary)",
+                        new ByteArrayInputStream(out.toByteArray())));
+                try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM (SELECT * FROM test2 "
+                        + "EXCEPT SELECT * FROM test3)")) {
+                    assertTrue(rs.next());
+                    assertEquals(0, rs.getInt(1));
+                }
+                try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM (SELECT * FROM test3 "
+                        + "EXCEPT SELECT * FROM test2)")) {
+                    assertTrue(rs.next());
+                    assertEquals(0, rs.getInt(1));
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2004-2020 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.unit;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.h2.index.RowBitmap;
+import org.h2.test.TestBase;
+
+/**
+ * Tests the RowBitmap class.
+ */
+public class TestRowBitmap extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().testFromMain();
+    }
+
+    @Override
+    public void test() {
+        testRandom();
+        testAndOr();
+        testChunkData();
+    }
+
+    private void testRandom() {
+        Random random = new Random(1);
+        for (int range : new int[] { 100, 10_000, 100_000 }) {
+            RowBitmap bitmap = new RowBitmap();
+            TreeSet<Long> set = new TreeSet<>();
+            for (int i = 0; i < 20_000; i++) {
+                long key = random.nextInt(range) - range / 10;
+                switch (random.nextInt(3)) {
+                case 0:
+                case 1:
+                    assertEquals(set.add(key), bitmap.add(key));
+                    break;
+                default:
+                    assertEquals(set.remove(key), bitmap.remove(key));
+                }
+                if ((i & 1023) == 0) {
+                    assertEquals(set, bitmap);
+                }
+            }
+            assertEquals(set, bitmap);
+        }
+    }
+
+    private void testAndOr() {
+        Random random = new Random(2);
+        for (int density : new int[] { 2, 20, 2_000 }) {
+            RowBitmap a = new RowBitmap(), b = new RowBitmap();
+            TreeSet<Long> setA = new TreeSet<>(), setB = new TreeSet<>();
+            for (long key = -10_000; key < 50_000; key++) {
+                if (random.nextInt(density) == 0) {
+                    a.add(key);
+                    setA.add(key);
+                }
+                if (random.nextInt(key < 20_000 ? density : 3) == 0) {
+                    b.add(key);
+                    setB.add(key);
+                }
+            }
+            RowBitmap or = new RowBitmap();
+            or.or(a);
+            or.or(b);
+            TreeSet<Long> setOr = new TreeSet<>(setA);
+            setOr.addAll(setB);
+            assertEquals(setOr, or);
+            a.and(b);
+            setA.retainAll(setB);
+            assertEquals(setA, a);
+        }
+    }
+
+    private void testChunkData() {
+        RowBitmap bitmap = new RowBitmap();
+        for (long key = 0; key < RowBitmap.CHUNK_SIZE * 2; key += 3) {
+            bitmap.add(key);
+        }
+        bitmap.add(RowBitmap.CHUNK_SIZE * 5 + 7);
+        RowBitmap copy = new RowBitmap();
+        for (long chunk = 0; chunk < 6; chunk++) {
+            byte[] data = bitmap.getChunkData(chunk);
+            if (chunk >= 2 && chunk != 5) {
+                assertNull(data);
+            } else {
+                copy.orChunk(chunk, data);
+            }
+        }
+        assertEquals(bitmap.getCardinality(), copy.getCardinality());
+        assertEquals(bitmap.toString(), copy.toString());
+        assertEquals(-1L, RowBitmap.getChunk(-1L));
+    }
+
+    private void assertEquals(TreeSet<Long> expected, RowBitmap bitmap) {
+        assertEquals(expected.size(), bitmap.getCardinality());
+        assertEquals(expected.isEmpty(), bitmap.isEmpty());
+        PrimitiveIterator.OfLong i = bitmap.iterator();
+        for (long key : expected) {
+            assertTrue(i.hasNext());
+            assertEquals(key, i.nextLong());
+            assertTrue(bitmap.contains(key));
+        }
+        assertFalse(i.hasNext());
+    }
+
+}